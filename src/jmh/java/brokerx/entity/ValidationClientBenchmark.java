@@ -0,0 +1,63 @@
+package brokerx.entity;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation Bean Validation d'un Client (formulaire d'inscription, import en masse)
+ * Un client valide parcourt toutes les contraintes; un client invalide construit en plus les messages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationClientBenchmark {
+
+    private ValidatorFactory fabrique;
+    private Validator validator;
+    private Client valide;
+    private Client invalide;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        fabrique = Validation.buildDefaultValidatorFactory();
+        validator = fabrique.getValidator();
+        valide = client("jean.dupont@brokerx.test", "5145551234", "123 rue Sainte-Catherine, Montréal", "MotDePasse123!");
+        invalide = client("pas-un-email", "555", "court", "court");
+    }
+
+    @TearDown(Level.Trial)
+    public void fermer() {
+        fabrique.close();
+    }
+
+    private static Client client(String email, String telephone, String adresse, String motDePasse) {
+        Client client = new Client();
+        client.setPrenom("Jean");
+        client.setNom("Dupont");
+        client.setEmail(email);
+        client.setTelephone(telephone);
+        client.setDateNaissance(LocalDate.of(1985, 6, 15));
+        client.setAdresse(adresse);
+        client.setMotDePasse(motDePasse);
+        return client;
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Client>> clientValide() {
+        return validator.validate(valide);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Client>> clientInvalide() {
+        return validator.validate(invalide);
+    }
+}
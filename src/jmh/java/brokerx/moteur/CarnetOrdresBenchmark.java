@@ -0,0 +1,105 @@
+package brokerx.moteur;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import org.openjdk.jmh.annotations.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appariement dans un carnet à l'équilibre, à plusieurs profondeurs (niveaux de prix par côté)
+ *
+ * Chaque opération soumet un ordre agressif (au marché ou à cours limité franchissant), qui exécute
+ * une ou plusieurs contreparties, puis reconstitue la même quantité en ordre passif à un prix tiré
+ * dans la profondeur : la quantité de chaque côté reste constante (toujours supérieure à un ordre
+ * agressif, qui est donc entièrement exécuté) et le nombre de niveaux reste borné par la profondeur.
+ * Flux d'ordres pré-tiré : le hasard n'est pas mesuré.
+ *
+ * - debit : ordres par seconde (./gradlew jmh -Pjmh.include=CarnetOrdres.debit)
+ * - latence : percentiles par ordre (p50, p90, p99, p99.9...) en mode échantillonné
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarnetOrdresBenchmark {
+
+    private static final long MILIEU = 100_000;
+    private static final int FLUX = 1 << 16;
+
+    @Param({"10", "100", "1000"})
+    public int profondeur;
+
+    @Param({"4"})
+    public int ordresParNiveau;
+
+    private CarnetOrdres carnet;
+    private long prochainId = 1;
+    private int position;
+
+    // Flux pré-tiré, rejoué en boucle
+    private final boolean[] achat = new boolean[FLUX];
+    private final boolean[] marche = new boolean[FLUX];
+    private final long[] quantite = new long[FLUX];
+    private final long[] ecartPassif = new long[FLUX];
+
+    // Consommé par l'écouteur pour que les exécutions ne soient pas éliminées
+    private long sommeExecutions;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        carnet = new CarnetOrdres("BRKX", (symbole, agresseur, passif, sens, prix, q) -> sommeExecutions += q,
+                profondeur * ordresParNiveau * 2);
+        for (int niveau = 1; niveau <= profondeur; niveau++) {
+            for (int i = 0; i < ordresParNiveau; i++) {
+                carnet.soumettre(prochainId++, SensOrdre.ACHAT, TypeOrdre.LIMITE, MILIEU - niveau, 100);
+                carnet.soumettre(prochainId++, SensOrdre.VENTE, TypeOrdre.LIMITE, MILIEU + niveau, 100);
+            }
+        }
+        SplittableRandom hasard = new SplittableRandom(42);
+        for (int i = 0; i < FLUX; i++) {
+            achat[i] = hasard.nextBoolean();
+            marche[i] = hasard.nextInt(4) == 0;
+            // Souvent moins qu'un ordre, parfois plusieurs : exécutions partielles et multi-niveaux
+            quantite[i] = 10 + hasard.nextInt(300);
+            ecartPassif[i] = 1 + hasard.nextInt(profondeur);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(2)
+    public long debit() {
+        return cycle();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(2)
+    public long latence() {
+        return cycle();
+    }
+
+    /**
+     * Un ordre agressif puis un ordre passif de même quantité du côté consommé
+     */
+    private long cycle() {
+        int i = position;
+        position = (i + 1) & (FLUX - 1);
+        SensOrdre sens = achat[i] ? SensOrdre.ACHAT : SensOrdre.VENTE;
+        long q = quantite[i];
+        long execute;
+        if (marche[i]) {
+            execute = carnet.soumettre(prochainId++, sens, TypeOrdre.MARCHE, 0, q);
+        } else {
+            // Limite au pire niveau opposé : peut balayer plusieurs niveaux, jamais au-delà de la profondeur
+            long limite = achat[i] ? MILIEU + profondeur : MILIEU - profondeur;
+            execute = carnet.soumettre(prochainId++, sens, TypeOrdre.LIMITE, limite, q);
+        }
+        long prixPassif = achat[i] ? MILIEU + ecartPassif[i] : MILIEU - ecartPassif[i];
+        carnet.soumettre(prochainId++, sens.oppose(), TypeOrdre.LIMITE, prixPassif, q);
+        return execute + sommeExecutions;
+    }
+}
@@ -0,0 +1,100 @@
+package brokerx.moteur;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.moteur.journal.CodeSymbole;
+import brokerx.moteur.journal.JournalOrdres;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reprise au redémarrage : lecture du journal des ordres et rejeu dans un moteur vide
+ *
+ * Le journal est produit une fois par un moteur journalisé (ordres à cours limité autour d'un prix
+ * central, au marché, annulations), puis chaque invocation relit tous les enregistrements (dérivés compris)
+ * et rejoue les acceptations et annulations dans un moteur neuf. Le score est en événements de commande
+ * rejoués par seconde.
+ *
+ *   ./gradlew jmh -Pjmh.include=RepriseJournal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepriseJournalBenchmark {
+
+    private static final int COMMANDES = 200_000;
+    private static final long MILIEU = 10_000;
+    private static final String[] SYMBOLES = {"BRKX", "ABC", "XYZ.U", "Q123"};
+    private static final SensOrdre[] SENS = SensOrdre.values();
+    private static final TypeOrdre[] TYPES = TypeOrdre.values();
+
+    private Path repertoire;
+    private JournalOrdres journal;
+    private MoteurAppariement moteur;
+
+    @Setup(Level.Trial)
+    public void ecrire() throws IOException {
+        repertoire = Files.createTempDirectory("reprise-journal");
+        journal = new JournalOrdres(repertoire.toString(), 16L << 20, "systeme", 0, JournalEvenements.parDefaut());
+        journal.ouvrir();
+        MoteurAppariement source = new MoteurAppariement(List.of(), journal, 4096, new BigDecimal("0.01"));
+        SplittableRandom hasard = new SplittableRandom(42);
+        long[] recents = new long[1024];
+        long id = 1;
+        int commandes = 0;
+        while (commandes < COMMANDES) {
+            String symbole = SYMBOLES[hasard.nextInt(SYMBOLES.length)];
+            int tirage = hasard.nextInt(100);
+            if (tirage < 10 && id > recents.length) {
+                source.annuler(symbole, recents[hasard.nextInt(recents.length)]);
+            } else {
+                SensOrdre sens = hasard.nextBoolean() ? SensOrdre.ACHAT : SensOrdre.VENTE;
+                TypeOrdre type = tirage < 20 ? TypeOrdre.MARCHE : TypeOrdre.LIMITE;
+                long prix = type == TypeOrdre.LIMITE ? MILIEU + hasard.nextLong(-50, 51) : 0;
+                recents[(int) (id % recents.length)] = id;
+                source.soumettre(symbole, id++, 1, sens, type, prix, 1 + hasard.nextLong(500));
+            }
+            // Une annulation d'un ordre déjà retiré n'est pas journalisée : elle ne compte pas
+            commandes = (int) (source.getOrdresSoumis() + source.getOrdresAnnules());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void moteurVide() {
+        moteur = new MoteurAppariement(List.of(), 4096, new BigDecimal("0.01"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDES)
+    public long rejouer() {
+        journal.lire(0, (sequence, type, symbole, idOrdre, autre, sens, typeOrdre, prixTicks, quantite) -> {
+            switch (type) {
+                case ACCEPTE -> moteur.soumettre(CodeSymbole.decoder(symbole), idOrdre, autre, SENS[sens],
+                    TYPES[typeOrdre], prixTicks, quantite);
+                case ANNULE -> moteur.annuler(CodeSymbole.decoder(symbole), idOrdre);
+                default -> { }
+            }
+        });
+        return moteur.getExecutions();
+    }
+
+    @TearDown(Level.Trial)
+    public void supprimer() throws IOException {
+        journal.fermer();
+        try (Stream<Path> fichiers = Files.walk(repertoire)) {
+            fichiers.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+}
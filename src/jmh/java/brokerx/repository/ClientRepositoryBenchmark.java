@@ -0,0 +1,105 @@
+package brokerx.repository;
+
+import brokerx.BrokerXWebApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appels de ClientRepository faits par l'inscription, la connexion et la liste des clients,
+ * à travers Spring Data JPA et Hibernate, sur H2 embarqué en mémoire
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientRepositoryBenchmark {
+
+    private static final int CLIENTS = 100_000;
+
+    private ConfigurableApplicationContext contexte;
+    private ClientRepository clientRepository;
+    private int prochain;
+
+    @Setup(Level.Trial)
+    public void preparer() throws IOException {
+        Path audit = Files.createTempDirectory("brokerx-bench-audit");
+        // Arguments de ligne de commande : prioritaires sur application.properties; schéma créé par les migrations
+        contexte = new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .web(WebApplicationType.NONE)
+            .run("--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--brokerx.evenements.niveau=OFF",
+                "--brokerx.notifications.transport=memoire",
+                "--brokerx.audit.repertoire=" + audit);
+        clientRepository = contexte.getBean(ClientRepository.class);
+
+        JdbcTemplate jdbc = contexte.getBean(JdbcTemplate.class);
+        List<Object[]> lignes = new ArrayList<>(CLIENTS);
+        Timestamp inscription = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        for (int i = 0; i < CLIENTS; i++) {
+            lignes.add(new Object[] {"Prenom" + i, "Nom" + i, email(i), telephone(i),
+                java.sql.Date.valueOf(LocalDate.of(1980, 1, 1)), "123 rue Sainte-Catherine, Montréal",
+                "$2a$12$2AGmOZ9NTKrgseKd0FmXluzFlYo7bYRCvqWqbUyCi2O/m2p4i2fs2", inscription, i % 3 == 0 ? "PENDING" : "ACTIVE"});
+        }
+        jdbc.batchUpdate("insert into clients (prenom, nom, email, telephone, date_naissance, adresse, mot_de_passe, "
+            + "email_verifie, telephone_verifie, date_inscription, status_inscription) "
+            + "values (?, ?, ?, ?, ?, ?, ?, false, false, ?, ?)", lignes);
+    }
+
+    @TearDown(Level.Trial)
+    public void fermer() {
+        contexte.close();
+    }
+
+    private static String email(int i) {
+        return "client" + i + "@brokerx.test";
+    }
+
+    private static String telephone(int i) {
+        return Long.toString(5_000_000_000L + i);
+    }
+
+    private int suivant() {
+        int i = prochain;
+        prochain = (i + 7919) % CLIENTS;
+        return i;
+    }
+
+    @Benchmark
+    public Optional<brokerx.entity.Client> findByEmail() {
+        return clientRepository.findByEmail(email(suivant()));
+    }
+
+    @Benchmark
+    public boolean existsByEmailAbsent() {
+        return clientRepository.existsByEmail("absent" + suivant() + "@brokerx.test");
+    }
+
+    @Benchmark
+    public List<ConflitInscription> findConflits() {
+        int i = suivant();
+        return clientRepository.findConflits(email(i), telephone(i));
+    }
+
+    @Benchmark
+    public List<ClientResume> premierePageListe() {
+        return clientRepository.findPremierePage(null, PageRequest.of(0, 51));
+    }
+}
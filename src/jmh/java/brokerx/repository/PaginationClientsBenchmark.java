@@ -0,0 +1,134 @@
+package brokerx.repository;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liste des clients (CU02) : pagination par OFFSET contre pagination par clé, à différentes profondeurs
+ * Table et index identiques au schéma JPA, requêtes SQL équivalentes aux requêtes de ClientRepository,
+ * sur H2 embarqué (sans réutilisation des résultats d'une requête identique).
+ * Les dates d'inscription arrivent par paquets identiques, comme après un import en masse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginationClientsBenchmark {
+
+    private static final int CLIENTS = 500_000;
+    private static final int TAILLE_PAGE = 50;
+    private static final String COLONNES = "select id, prenom, nom, email, telephone, date_inscription, status_inscription from clients ";
+    private static final String ORDRE = "order by date_inscription desc, id desc ";
+
+    @Param({"1", "100", "5000"})
+    int page;
+
+    private Connection connexion;
+    private PreparedStatement parOffset;
+    private PreparedStatement parCle;
+    private Timestamp dateCurseur;
+    private long idCurseur;
+
+    @Setup(Level.Trial)
+    public void preparer() throws SQLException {
+        connexion = DriverManager.getConnection("jdbc:h2:mem:pagination" + page + ";DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        try (Statement ddl = connexion.createStatement()) {
+            ddl.execute("drop table if exists clients");
+            ddl.execute("create table clients (id bigint generated by default as identity primary key, "
+                + "prenom varchar(255), nom varchar(255), email varchar(255), telephone varchar(255), "
+                + "date_inscription timestamp(6), status_inscription varchar(255))");
+            ddl.execute("create index idx_clients_date_inscription on clients (date_inscription desc, id desc)");
+            ddl.execute("create index idx_clients_statut_date on clients (status_inscription, date_inscription desc, id desc)");
+        }
+        connexion.setAutoCommit(false);
+        LocalDateTime origine = LocalDateTime.of(2024, 1, 1, 0, 0);
+        try (PreparedStatement insertion = connexion.prepareStatement(
+                "insert into clients (prenom, nom, email, telephone, date_inscription, status_inscription) values (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < CLIENTS; i++) {
+                insertion.setString(1, "Prenom" + i);
+                insertion.setString(2, "Nom" + i);
+                insertion.setString(3, "client" + i + "@brokerx.test");
+                insertion.setString(4, Long.toString(5_000_000_000L + i));
+                insertion.setTimestamp(5, Timestamp.valueOf(origine.plusSeconds(i / 100)));
+                insertion.setString(6, i % 3 == 0 ? "PENDING" : "ACTIVE");
+                insertion.addBatch();
+                if (i % 1000 == 999) {
+                    insertion.executeBatch();
+                }
+            }
+            insertion.executeBatch();
+        }
+        connexion.commit();
+        connexion.setAutoCommit(true);
+
+        parOffset = connexion.prepareStatement(COLONNES + ORDRE + "limit ? offset ?");
+        parCle = connexion.prepareStatement(COLONNES
+            + "where date_inscription <= ? and (date_inscription < ? or id < ?) " + ORDRE + "limit ?");
+
+        // Curseur = dernier client de la page précédente, tel que renvoyé au navigateur
+        try (PreparedStatement precedent = connexion.prepareStatement(
+                "select date_inscription, id from clients " + ORDRE + "limit 1 offset ?")) {
+            precedent.setInt(1, (page - 1) * TAILLE_PAGE - 1);
+            if (page > 1) {
+                try (ResultSet rs = precedent.executeQuery()) {
+                    rs.next();
+                    dateCurseur = rs.getTimestamp(1);
+                    idCurseur = rs.getLong(2);
+                }
+            } else {
+                dateCurseur = Timestamp.valueOf(LocalDateTime.of(9999, 1, 1, 0, 0));
+                idCurseur = Long.MAX_VALUE;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void fermer() throws SQLException {
+        try (Statement ddl = connexion.createStatement()) {
+            ddl.execute("drop table clients");
+        }
+        connexion.close();
+    }
+
+    @Benchmark
+    public void offset(Blackhole trou) throws SQLException {
+        parOffset.setInt(1, TAILLE_PAGE);
+        parOffset.setInt(2, (page - 1) * TAILLE_PAGE);
+        lire(parOffset, trou);
+    }
+
+    @Benchmark
+    public void rechercheParCle(Blackhole trou) throws SQLException {
+        parCle.setTimestamp(1, dateCurseur);
+        parCle.setTimestamp(2, dateCurseur);
+        parCle.setLong(3, idCurseur);
+        parCle.setInt(4, TAILLE_PAGE);
+        lire(parCle, trou);
+    }
+
+    private static void lire(PreparedStatement requete, Blackhole trou) throws SQLException {
+        int lignes = 0;
+        try (ResultSet rs = requete.executeQuery()) {
+            while (rs.next()) {
+                trou.consume(rs.getLong(1));
+                trou.consume(rs.getString(4));
+                trou.consume(rs.getTimestamp(6));
+                lignes++;
+            }
+        }
+        if (lignes != TAILLE_PAGE) {
+            throw new IllegalStateException("Page incomplète : " + lignes);
+        }
+    }
+}
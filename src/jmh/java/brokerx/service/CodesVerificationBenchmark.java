@@ -0,0 +1,80 @@
+package brokerx.service;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération des codes de vérification (email 6 chiffres, OTP 4 chiffres) par GenerateurCodes
+ * Les variantes multi-threads mesurent la montée en charge; la référence reproduit l'ancien
+ * Random partagé formaté par String.format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodesVerificationBenchmark {
+
+    private GenerateurCodes generateur;
+    private final Random reference = new Random();
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        generateur = new GenerateurCodes(6, 4, 512);
+    }
+
+    /**
+     * Tampon réutilisé par thread : mesure l'écriture sans allocation
+     */
+    @State(Scope.Thread)
+    public static class Tampon {
+        final byte[] octets = new byte[6];
+    }
+
+    @Benchmark
+    public String codeEmail() {
+        return generateur.codeEmail();
+    }
+
+    @Benchmark
+    public String codeOTP() {
+        return generateur.codeSms();
+    }
+
+    @Benchmark
+    public byte[] ecritureSansAllocation(Tampon tampon) {
+        generateur.ecrire(tampon.octets, 0, tampon.octets.length);
+        return tampon.octets;
+    }
+
+    @Benchmark
+    @Threads(2)
+    public String codeEmail2Threads() {
+        return generateur.codeEmail();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String codeEmail4Threads() {
+        return generateur.codeEmail();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String codeEmailTousLesCoeurs() {
+        return generateur.codeEmail();
+    }
+
+    @Benchmark
+    public String referenceRandomPartage() {
+        return String.format("%06d", reference.nextInt(1000000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String referenceRandomPartage4Threads() {
+        return String.format("%06d", reference.nextInt(1000000));
+    }
+}
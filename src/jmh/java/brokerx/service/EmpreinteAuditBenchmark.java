@@ -0,0 +1,42 @@
+package brokerx.service;
+
+import brokerx.journalisation.JournalEvenements;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Empreinte SHA-256 d'un événement d'audit (MessageDigest.getInstance, digest et encodage hexadécimal)
+ * Calculée à chaque activation de compte et vérification d'email
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmpreinteAuditBenchmark {
+
+    private AuditService auditService;
+    private LocalDateTime horodatage;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        // Le journal n'est pas ouvert : seule l'empreinte est mesurée
+        auditService = new AuditService(null, JournalEvenements.parDefaut());
+        horodatage = LocalDateTime.of(2024, 3, 15, 10, 30, 12, 123_000_000);
+    }
+
+    @Benchmark
+    public String empreinteActivation() {
+        return auditService.genererEmpreinteDocuments("jean.dupont@brokerx.test", "COMPTE_ACTIVE",
+            "Activation après vérification email réussie. Client ID: 42, Email vérifié: true, Statut: ACTIVE",
+            horodatage);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String empreinteActivationConcurrente() {
+        return empreinteActivation();
+    }
+}
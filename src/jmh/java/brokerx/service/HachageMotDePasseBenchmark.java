@@ -0,0 +1,49 @@
+package brokerx.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de hachage BCrypt selon le coût
+ * Le score à un thread donne les hachages/s par cœur; celui à Threads.MAX la capacité de la machine,
+ * à comparer au débit d'inscriptions et de connexions visé pour choisir brokerx.mots-de-passe.cout
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class HachageMotDePasseBenchmark {
+
+    @Param({"10", "11", "12"})
+    int cout;
+
+    private BCryptPasswordEncoder encodeur;
+    private String hachage;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        encodeur = new BCryptPasswordEncoder(cout);
+        hachage = encodeur.encode("MotDePasse123!");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String hacherParCoeur() {
+        return encodeur.encode("MotDePasse123!");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String hacherTousLesCoeurs() {
+        return encodeur.encode("MotDePasse123!");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean verifierParCoeur() {
+        return encodeur.matches("MotDePasse123!", hachage);
+    }
+}
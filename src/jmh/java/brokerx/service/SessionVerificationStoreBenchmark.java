@@ -0,0 +1,58 @@
+package brokerx.service;
+
+import org.openjdk.jmh.annotations.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherches de session faites par WebController : par jeton du lien (clic sur le lien de vérification)
+ * et par identifiant (pages de vérification). La latence doit rester constante quel que soit
+ * le nombre d'inscriptions en attente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionVerificationStoreBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    int sessionsEnAttente;
+
+    private SessionVerificationStore store;
+    private String[] jetons;
+    private String[] identifiants;
+    private int prochain;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        store = new SessionVerificationStore(Duration.ofHours(24), Duration.ofMinutes(10),
+                sessionsEnAttente, Clock.systemUTC());
+        jetons = new String[sessionsEnAttente];
+        identifiants = new String[sessionsEnAttente];
+        for (int i = 0; i < sessionsEnAttente; i++) {
+            // Codes email à 6 chiffres comme en production : ils se répètent, les jetons non
+            jetons[i] = SessionVerificationStore.nouveauJetonLien();
+            String codeEmail = String.format("%06d", i % 1_000_000);
+            identifiants[i] = store.creer("client" + i + "@brokerx.test", codeEmail, jetons[i], "0000").getId();
+        }
+    }
+
+    private int suivant() {
+        int i = prochain;
+        prochain = (i + 7919) % jetons.length;
+        return i;
+    }
+
+    @Benchmark
+    public SessionVerification rechercheIndexee() {
+        return store.trouverParJetonLien(jetons[suivant()]);
+    }
+
+    @Benchmark
+    public SessionVerification rechercheParIdentifiant() {
+        return store.trouver(identifiants[suivant()]);
+    }
+}
@@ -0,0 +1,82 @@
+package brokerx.service.portefeuille;
+
+import brokerx.entity.SensOrdre;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Portefeuille de plusieurs centaines de positions : valorisation au dernier cours et application d'une exécution
+ *
+ * - valoriser : totaux (valeur de marché, P&L latent et réalisé), sans allocation
+ * - instantane : positions converties en montants (réponse de GET /api/portefeuilles/{clientId})
+ * - appliquer : une exécution (achat ou vente) sur une position existante, cours mis à jour
+ *
+ *   ./gradlew jmh -Pjmh.include=Portefeuille
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortefeuilleBenchmark {
+
+    private static final long CLIENT = 42;
+    private static final long MILIEU = 10_000;
+    private static final int FLUX = 1 << 14;
+
+    @Param({"50", "500"})
+    public int positions;
+
+    private PortefeuilleService service;
+    private String[] symboles;
+    private final long[] totaux = new long[3];
+
+    // Exécutions pré-tirées, rejouées en boucle
+    private final int[] symbole = new int[FLUX];
+    private final boolean[] achat = new boolean[FLUX];
+    private final long[] prix = new long[FLUX];
+    private final long[] quantite = new long[FLUX];
+    private int suivante;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        service = new PortefeuilleService(new BigDecimal("0.01"));
+        symboles = new String[positions];
+        SplittableRandom hasard = new SplittableRandom(42);
+        for (int i = 0; i < positions; i++) {
+            symboles[i] = "SYM" + i;
+            service.appliquer(CLIENT, symboles[i], true, MILIEU, 1_000);
+            service.execution(symboles[i], 1, 2, SensOrdre.ACHAT, MILIEU + hasard.nextLong(-50, 51), 1);
+        }
+        for (int i = 0; i < FLUX; i++) {
+            symbole[i] = hasard.nextInt(positions);
+            achat[i] = hasard.nextBoolean();
+            prix[i] = MILIEU + hasard.nextLong(-50, 51);
+            quantite[i] = 1 + hasard.nextLong(100);
+        }
+    }
+
+    @Benchmark
+    public long[] valoriser() {
+        service.valoriser(CLIENT, totaux);
+        return totaux;
+    }
+
+    @Benchmark
+    public InstantanePortefeuille instantane() {
+        return service.instantane(CLIENT);
+    }
+
+    @Benchmark
+    public void appliquer(Blackhole trou) {
+        int i = suivante++ & (FLUX - 1);
+        String s = symboles[symbole[i]];
+        service.execution(s, 1, 2, SensOrdre.ACHAT, prix[i], quantite[i]);
+        service.appliquer(CLIENT, s, achat[i], prix[i], quantite[i]);
+        trou.consume(i);
+    }
+}
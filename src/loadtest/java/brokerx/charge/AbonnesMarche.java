@@ -0,0 +1,214 @@
+package brokerx.charge;
+
+import brokerx.BrokerXWebApplication;
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import brokerx.moteur.MoteurAppariement;
+import brokerx.service.marche.DiffusionMarche;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Test de charge de la diffusion des données de marché (SSE) sur un nœud BrokerX
+ *
+ * Démarre BrokerXWebApplication sur un port libre, ouvre des abonnés SSE (un thread virtuel chacun),
+ * puis alimente le moteur à débit fixe (ordres à cours limité autour d'un prix central et annulations).
+ * Mesure :
+ * - les abonnés effectivement servis (refus 503 au-delà de brokerx.marche.abonnes-max)
+ * - la latence de bout en bout : première modification du carnet non publiée -> événement lu par le
+ *   client (horodatageUs du message, même horloge : client et serveur dans la même JVM)
+ * - la fusion : des abonnés lents (pause à chaque événement) reçoivent moins d'événements, jamais un arriéré
+ *
+ *   ./gradlew abonnesMarche -Pmarche.args="--marche.abonnes=5000 --marche.debit=5000 --marche.duree=30s"
+ * Les autres options --clé=valeur sont transmises à l'application (ex. --brokerx.marche.intervalle-ms=20).
+ */
+public class AbonnesMarche {
+
+    private static final long MILIEU = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> application = new LinkedHashMap<>();
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (!arg.startsWith("--") || egal < 0) {
+                throw new IllegalArgumentException("Option attendue sous la forme --clé=valeur : " + arg);
+            }
+            (arg.startsWith("--marche.") ? options : application)
+                .put(arg.substring(arg.startsWith("--marche.") ? 9 : 2, egal), arg.substring(egal + 1));
+        }
+        int nombreAbonnes = Integer.parseInt(options.getOrDefault("abonnes", "2000"));
+        int lents = Integer.parseInt(options.getOrDefault("lents", "10"));
+        int nombreSymboles = Integer.parseInt(options.getOrDefault("symboles", "4"));
+        double debit = Double.parseDouble(options.getOrDefault("debit", "2000"));
+        Duration duree = ConfigurationCharge.duree(options.getOrDefault("duree", "30s"));
+
+        Path repertoire = Files.createTempDirectory("brokerx-marche");
+        Map<String, String> proprietes = new LinkedHashMap<>();
+        proprietes.put("server.port", "0");
+        proprietes.put("server.tomcat.max-connections", String.valueOf(nombreAbonnes + 1000));
+        proprietes.put("spring.datasource.url", "jdbc:h2:file:" + repertoire.resolve("brokerx").toAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE");
+        proprietes.put("spring.main.banner-mode", "off");
+        proprietes.put("brokerx.audit.repertoire", repertoire.resolve("audit").toAbsolutePath().toString());
+        proprietes.put("brokerx.journal-ordres.repertoire", repertoire.resolve("ordres").toAbsolutePath().toString());
+        proprietes.put("brokerx.journal-ordres.synchro", "systeme");
+        proprietes.put("brokerx.evenements.niveau", "WARN");
+        proprietes.put("brokerx.import.http-actif", "false");
+        proprietes.put("brokerx.marche.abonnes-max", String.valueOf(Math.max(nombreAbonnes, 1)));
+        proprietes.putAll(application);
+
+        ConfigurableApplicationContext contexte = new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .run(proprietes.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+        try {
+            int port = contexte.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            MoteurAppariement moteur = contexte.getBean(MoteurAppariement.class);
+            DiffusionMarche diffusion = contexte.getBean(DiffusionMarche.class);
+            String[] symboles = new String[nombreSymboles];
+            for (int i = 0; i < nombreSymboles; i++) {
+                symboles[i] = "SYM" + i;
+            }
+
+            ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(threads)
+                .build();
+            ConcurrentHistogram latences = new ConcurrentHistogram(60_000_000L, 3);
+            LongAdder evenementsRapides = new LongAdder();
+            LongAdder evenementsLents = new LongAdder();
+            AtomicInteger connectes = new AtomicInteger();
+            AtomicInteger refuses = new AtomicInteger();
+            CountDownLatch ouverts = new CountDownLatch(nombreAbonnes);
+            List<Stream<String>> flux = new ArrayList<>();
+
+            long debutOuverture = System.nanoTime();
+            for (int i = 0; i < nombreAbonnes; i++) {
+                boolean lent = i < lents;
+                String symbole = symboles[i % nombreSymboles];
+                HttpRequest requete = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/marche/flux?symboles=" + symbole))
+                    .header("Accept", "text/event-stream")
+                    .build();
+                threads.execute(() -> {
+                    HttpResponse<Stream<String>> reponse;
+                    try {
+                        reponse = client.send(requete, HttpResponse.BodyHandlers.ofLines());
+                    } catch (Exception e) {
+                        refuses.incrementAndGet();
+                        ouverts.countDown();
+                        return;
+                    }
+                    if (reponse.statusCode() != 200) {
+                        refuses.incrementAndGet();
+                        ouverts.countDown();
+                        return;
+                    }
+                    connectes.incrementAndGet();
+                    ouverts.countDown();
+                    try {
+                        synchronized (flux) {
+                            flux.add(reponse.body());
+                        }
+                        reponse.body().forEach(ligne -> {
+                            if (!ligne.startsWith("data:")) {
+                                return;
+                            }
+                            int debut = ligne.indexOf("\"horodatageUs\":") + 15;
+                            long publie = Long.parseLong(ligne, debut, ligne.indexOf(',', debut), 10);
+                            Instant maintenant = Instant.now();
+                            long recu = maintenant.getEpochSecond() * 1_000_000 + maintenant.getNano() / 1000;
+                            if (lent) {
+                                evenementsLents.increment();
+                                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+                            } else {
+                                evenementsRapides.increment();
+                                latences.recordValue(Math.max(0, recu - publie));
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        // Flux fermé en fin de test
+                    }
+                });
+            }
+            ouverts.await(2, TimeUnit.MINUTES);
+            System.out.printf("%d abonnés connectés, %d refusés, en %d ms%n", connectes.get(), refuses.get(),
+                (System.nanoTime() - debutOuverture) / 1_000_000);
+
+            latences.reset();
+            evenementsRapides.reset();
+            evenementsLents.reset();
+            long fusionnesAvant = diffusion.getMessagesFusionnes();
+            long ordres = alimenter(moteur, symboles, debit, duree);
+            double secondes = duree.toNanos() / 1e9;
+
+            int rapides = Math.max(1, connectes.get() - lents);
+            System.out.printf("%d ordres (%.0f/s), %d événements reçus (%.0f/s, %.1f par abonné rapide)%n",
+                ordres, ordres / secondes, evenementsRapides.sum(), evenementsRapides.sum() / secondes,
+                evenementsRapides.sum() / (double) rapides);
+            System.out.printf("abonnés lents : %.1f événements chacun, %d messages fusionnés côté serveur%n",
+                evenementsLents.sum() / (double) Math.max(1, Math.min(lents, connectes.get())),
+                diffusion.getMessagesFusionnes() - fusionnesAvant);
+            System.out.printf("latence de bout en bout (µs) : p50=%d p99=%d p99.9=%d max=%d%n",
+                latences.getValueAtPercentile(50), latences.getValueAtPercentile(99),
+                latences.getValueAtPercentile(99.9), latences.getMaxValue());
+            synchronized (flux) {
+                flux.forEach(Stream::close);
+            }
+            threads.shutdownNow();
+        } finally {
+            contexte.close();
+        }
+    }
+
+    /**
+     * Ordres à cours limité autour du prix central et annulations, à débit fixe
+     * @return le nombre d'ordres soumis
+     */
+    private static long alimenter(MoteurAppariement moteur, String[] symboles, double debit, Duration duree) {
+        SplittableRandom hasard = new SplittableRandom(42);
+        long intervalle = (long) (1e9 / debit);
+        long fin = System.nanoTime() + duree.toNanos();
+        long prochain = System.nanoTime();
+        long id = 1;
+        while (prochain < fin) {
+            long attente = prochain - System.nanoTime();
+            if (attente > 0) {
+                LockSupport.parkNanos(attente);
+                continue;
+            }
+            String symbole = symboles[hasard.nextInt(symboles.length)];
+            if (id > 100 && hasard.nextInt(3) == 0) {
+                moteur.annuler(symbole, id - 1 - hasard.nextInt(100));
+            } else {
+                SensOrdre sens = hasard.nextBoolean() ? SensOrdre.ACHAT : SensOrdre.VENTE;
+                moteur.soumettre(symbole, id++, 0, sens, TypeOrdre.LIMITE, MILIEU + hasard.nextLong(-20, 21),
+                    1 + hasard.nextLong(100));
+            }
+            prochain += intervalle;
+        }
+        return id - 1;
+    }
+}
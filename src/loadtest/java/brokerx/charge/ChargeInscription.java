@@ -0,0 +1,151 @@
+package brokerx.charge;
+
+import brokerx.BrokerXWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Test de charge du parcours d'inscription sur un nœud BrokerX
+ *
+ * Démarre BrokerXWebApplication sur un port libre avec une base H2 fichier, puis fait parcourir
+ * le tunnel d'inscription à des utilisateurs virtuels (un thread virtuel chacun) :
+ * - modèle ouvert : les parcours démarrent à un débit fixé, que le nœud suive ou non;
+ *   la latence du parcours part de l'instant d'arrivée prévu (pas d'omission coordonnée)
+ * - modèle fermé : un nombre fixe d'utilisateurs enchaînent les parcours
+ *
+ * Exemples :
+ *   ./gradlew charge -Pcharge.args="--charge.modele=ouvert --charge.debit=5 --charge.duree=60s"
+ *   ./gradlew charge -Pcharge.args="--charge.modele=ferme --charge.utilisateurs=64 --spring.threads.virtual.enabled=true"
+ */
+public class ChargeInscription {
+
+    private static final Duration DELAI_VIDAGE = Duration.ofSeconds(30);
+
+    private final ConfigurationCharge config;
+    private final ParcoursInscription parcours;
+    private final MesuresCharge mesures;
+    private final AtomicLong numeros = new AtomicLong();
+    private volatile boolean arret;
+
+    public ChargeInscription(ConfigurationCharge config, ParcoursInscription parcours, MesuresCharge mesures) {
+        this.config = config;
+        this.parcours = parcours;
+        this.mesures = mesures;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurationCharge config = ConfigurationCharge.depuis(args);
+        Path repertoire = config.base() != null ? config.base() : Files.createTempDirectory("brokerx-charge");
+        ConfigurableApplicationContext contexte = new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .run(config.argumentsApplication(repertoire));
+        try {
+            int port = contexte.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+            MesuresCharge mesures = new MesuresCharge();
+            ParcoursInscription parcours = new ParcoursInscription(client, URI.create("http://localhost:" + port),
+                contexte.getBean(TransportCharge.class), mesures, config.partLien());
+
+            System.out.printf("BrokerX démarré sur le port %d (données : %s)%n", port, repertoire.toAbsolutePath());
+            RapportCharge rapport = new ChargeInscription(config, parcours, mesures).executer();
+            rapport.afficher(System.out);
+            System.out.println("Rapport : " + rapport.ecrire(config.sortie()).toAbsolutePath());
+        } finally {
+            contexte.close();
+        }
+    }
+
+    /**
+     * Échauffement, puis fenêtre mesurée, puis vidage des parcours en cours
+     */
+    public RapportCharge executer() throws InterruptedException {
+        ExecutorService utilisateurs = Executors.newVirtualThreadPerTaskExecutor();
+        Thread generateur = config.modele() == ConfigurationCharge.ModeleCharge.OUVERT
+            ? Thread.ofPlatform().name("charge-arrivees").start(() -> arrivees(utilisateurs))
+            : Thread.ofPlatform().name("charge-utilisateurs").start(() -> utilisateursFermes(utilisateurs));
+
+        Thread.sleep(config.echauffement().toMillis());
+        mesures.relever();
+        EtatJvm.reinitialiserPics();
+        EtatJvm debut = EtatJvm.capturer();
+        long debutMesure = System.nanoTime();
+
+        Thread.sleep(config.duree().toMillis());
+        MesuresCharge.Releve releve = mesures.relever();
+        EtatJvm fin = EtatJvm.capturer();
+        double secondes = (System.nanoTime() - debutMesure) / 1e9;
+        RapportCharge rapport = new RapportCharge(config, secondes, releve, debut, fin, EtatJvm.pics());
+
+        arret = true;
+        generateur.join();
+        utilisateurs.shutdown();
+        if (!utilisateurs.awaitTermination(DELAI_VIDAGE.toSeconds(), TimeUnit.SECONDS)) {
+            utilisateurs.shutdownNow();
+        }
+        return rapport;
+    }
+
+    /**
+     * Modèle ouvert : un parcours par arrivée, à intervalles constants ou exponentiels (Poisson)
+     */
+    private void arrivees(ExecutorService utilisateurs) {
+        AtomicInteger enCours = new AtomicInteger();
+        double intervalleNanos = 1e9 / config.debit();
+        long prochaine = System.nanoTime();
+        while (!arret) {
+            long attente = prochaine - System.nanoTime();
+            if (attente > 0) {
+                LockSupport.parkNanos(attente);
+                continue;
+            }
+            long prevue = prochaine;
+            if (enCours.incrementAndGet() > config.enCoursMax()) {
+                enCours.decrementAndGet();
+                mesures.arriveeAbandonnee();
+            } else {
+                long numero = numeros.getAndIncrement();
+                utilisateurs.execute(() -> {
+                    try {
+                        parcours.executer(numero, prevue);
+                    } finally {
+                        enCours.decrementAndGet();
+                    }
+                });
+            }
+            prochaine += config.poisson()
+                ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * intervalleNanos)
+                : (long) intervalleNanos;
+        }
+    }
+
+    /**
+     * Modèle fermé : chaque utilisateur enchaîne parcours et temps de réflexion
+     */
+    private void utilisateursFermes(ExecutorService utilisateurs) {
+        for (int i = 0; i < config.utilisateurs(); i++) {
+            utilisateurs.execute(() -> {
+                while (!arret) {
+                    parcours.executer(numeros.getAndIncrement(), System.nanoTime());
+                    if (!config.reflexion().isZero()) {
+                        LockSupport.parkNanos(config.reflexion().toNanos());
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package brokerx.charge;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Paramètres du test de charge, lus sur la ligne de commande
+ *
+ * Les options --charge.* pilotent le générateur; toutes les autres options --clé=valeur sont
+ * transmises à l'application (ex. --spring.threads.virtual.enabled=true, --brokerx.mots-de-passe.cout=10)
+ *
+ * @param modele ouvert (arrivées à débit fixe) ou fermé (nombre fixe d'utilisateurs)
+ * @param debit parcours démarrés par seconde (modèle ouvert)
+ * @param poisson arrivées selon un processus de Poisson plutôt qu'à intervalle constant (modèle ouvert)
+ * @param utilisateurs utilisateurs virtuels simultanés (modèle fermé)
+ * @param reflexion pause entre deux parcours d'un même utilisateur (modèle fermé)
+ * @param enCoursMax parcours simultanés au-delà desquels une arrivée est abandonnée (modèle ouvert)
+ * @param echauffement durée exclue des mesures
+ * @param duree durée mesurée
+ * @param partLien proportion des vérifications faites par le lien de l'email plutôt que par le formulaire
+ * @param base répertoire de la base H2 et du journal d'audit (null : répertoire temporaire)
+ * @param sortie répertoire des rapports
+ * @param application propriétés transmises à l'application
+ */
+public record ConfigurationCharge(ModeleCharge modele,
+                                  double debit,
+                                  boolean poisson,
+                                  int utilisateurs,
+                                  Duration reflexion,
+                                  int enCoursMax,
+                                  Duration echauffement,
+                                  Duration duree,
+                                  double partLien,
+                                  Path base,
+                                  Path sortie,
+                                  Map<String, String> application) {
+
+    private static final String PREFIXE = "--charge.";
+    private static final Set<String> OPTIONS = Set.of("modele", "debit", "arrivees", "utilisateurs", "reflexion",
+        "en-cours-max", "echauffement", "duree", "part-lien", "base", "sortie");
+
+    public enum ModeleCharge { OUVERT, FERME }
+
+    public static ConfigurationCharge depuis(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> application = new LinkedHashMap<>();
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (!arg.startsWith("--") || egal < 0) {
+                throw new IllegalArgumentException("Option attendue sous la forme --clé=valeur : " + arg);
+            }
+            String cle = arg.substring(2, egal);
+            String valeur = arg.substring(egal + 1);
+            if (arg.startsWith(PREFIXE)) {
+                String option = cle.substring(PREFIXE.length() - 2);
+                if (!OPTIONS.contains(option)) {
+                    throw new IllegalArgumentException("Option inconnue : " + arg.substring(0, egal));
+                }
+                options.put(option, valeur);
+            } else {
+                application.put(cle, valeur);
+            }
+        }
+
+        ConfigurationCharge config = new ConfigurationCharge(
+            ModeleCharge.valueOf(options.getOrDefault("modele", "ouvert").toUpperCase(Locale.ROOT)),
+            Double.parseDouble(options.getOrDefault("debit", "10")),
+            "poisson".equalsIgnoreCase(options.getOrDefault("arrivees", "poisson")),
+            Integer.parseInt(options.getOrDefault("utilisateurs", "16")),
+            duree(options.getOrDefault("reflexion", "0s")),
+            Integer.parseInt(options.getOrDefault("en-cours-max", "10000")),
+            duree(options.getOrDefault("echauffement", "15s")),
+            duree(options.getOrDefault("duree", "60s")),
+            Double.parseDouble(options.getOrDefault("part-lien", "0.5")),
+            options.containsKey("base") ? Path.of(options.get("base")) : null,
+            Path.of(options.getOrDefault("sortie", "build/reports/charge")),
+            application);
+        if (config.debit <= 0 || config.utilisateurs <= 0 || config.partLien < 0 || config.partLien > 1) {
+            throw new IllegalArgumentException("debit et utilisateurs doivent être positifs, part-lien entre 0 et 1");
+        }
+        return config;
+    }
+
+    /**
+     * Arguments de démarrage de l'application : valeurs propres au test, surchargées par celles de la ligne de commande
+     * Le cache Thymeleaf est activé comme en production (application.properties le désactive pour le développement)
+     */
+    public String[] argumentsApplication(Path repertoire) {
+        Map<String, String> proprietes = new LinkedHashMap<>();
+        proprietes.put("server.port", "0");
+        proprietes.put("spring.datasource.url", "jdbc:h2:file:" + repertoire.resolve("brokerx").toAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE");
+        proprietes.put("spring.thymeleaf.cache", "true");
+        proprietes.put("spring.main.banner-mode", "off");
+        proprietes.put("brokerx.notifications.transport", "charge");
+        proprietes.put("brokerx.audit.repertoire", repertoire.resolve("audit").toAbsolutePath().toString());
+        proprietes.put("brokerx.evenements.niveau", "WARN");
+        proprietes.put("brokerx.import.http-actif", "false");
+        proprietes.putAll(application);
+        return proprietes.entrySet().stream()
+            .map(e -> "--" + e.getKey() + "=" + e.getValue())
+            .toArray(String[]::new);
+    }
+
+    /**
+     * Durée au format 500ms, 30s, 2m ou ISO-8601 (PT30S)
+     */
+    static Duration duree(String valeur) {
+        String v = valeur.trim().toLowerCase(Locale.ROOT);
+        if (v.startsWith("pt")) {
+            return Duration.parse(v);
+        }
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        throw new IllegalArgumentException("Durée invalide : " + valeur);
+    }
+}
@@ -0,0 +1,118 @@
+package brokerx.charge;
+
+import brokerx.service.comptes.RegistreSoldes;
+import brokerx.service.comptes.SoldeCompte;
+import org.HdrHistogram.Histogram;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test de contention du registre des soldes (pouvoir d'achat, UC-05)
+ *
+ * Des threads réservent sur quelques comptes partagés des montants tels que la demande dépasse
+ * largement les soldes, puis règlent (coût réel inférieur ou égal à la réservation) ou libèrent.
+ * Les achats réglés sont revendus au même prix (crédit du coût) : les comptes ne s'épuisent pas.
+ * Vérifie qu'aucune sur-réservation n'a eu lieu :
+ * - le disponible lu n'est jamais négatif
+ * - à la fin, pour chaque compte : réservé = 0 et disponible = espèces = solde initial
+ * Mesure aussi la latence d'un refus "Fonds insuffisants". Les mêmes invariants, à plus petite échelle,
+ * sont vérifiés par RegistreSoldesConcurrenceTest (gradle test).
+ *
+ *   ./gradlew contentionComptes -Pcontention.args="--threads=16 --comptes=2 --operations=1000000"
+ */
+public class ContentionPouvoirAchat {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = entier(args, "threads", Runtime.getRuntime().availableProcessors() * 2);
+        int nombreComptes = entier(args, "comptes", 2);
+        int operations = entier(args, "operations", 1_000_000);
+        long soldeInitial = 1_000_000_000;
+
+        RegistreSoldes registre = new RegistreSoldes(clientId -> soldeInitial, 0);
+        SoldeCompte[] comptes = new SoldeCompte[nombreComptes];
+        for (int i = 0; i < nombreComptes; i++) {
+            comptes[i] = registre.compte(i);
+        }
+        AtomicLong negatifsObserves = new AtomicLong();
+        AtomicLong refus = new AtomicLong();
+        Histogram latencesRefus = new Histogram(3_600_000_000L, 3);
+
+        CountDownLatch depart = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                Histogram local = new Histogram(3_600_000_000L, 3);
+                ThreadLocalRandom hasard = ThreadLocalRandom.current();
+                try {
+                    depart.await();
+                    for (int i = 0; i < operations / threads; i++) {
+                        int c = hasard.nextInt(nombreComptes);
+                        SoldeCompte compte = comptes[c];
+                        // Jusqu'à la moitié du solde initial par réservation : la demande dépasse l'offre
+                        long montant = 1 + hasard.nextLong(soldeInitial / 2);
+                        long debut = System.nanoTime();
+                        if (!registre.reserver(compte, montant)) {
+                            local.recordValue(System.nanoTime() - debut);
+                            refus.incrementAndGet();
+                            continue;
+                        }
+                        if (compte.getDisponibleCentimes() < 0) {
+                            negatifsObserves.incrementAndGet();
+                        }
+                        if (hasard.nextBoolean()) {
+                            long cout = hasard.nextLong(montant + 1);
+                            registre.reglerAchat(compte, montant, cout);
+                            registre.crediter(compte, cout);
+                        } else {
+                            registre.liberer(compte, montant);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    synchronized (latencesRefus) {
+                        latencesRefus.add(local);
+                    }
+                    fin.countDown();
+                }
+            }, "contention-" + t);
+            thread.start();
+        }
+
+        long debut = System.nanoTime();
+        depart.countDown();
+        fin.await();
+        long dureeNs = System.nanoTime() - debut;
+
+        boolean coherent = negatifsObserves.get() == 0;
+        for (int i = 0; i < nombreComptes; i++) {
+            SoldeCompte compte = comptes[i];
+            boolean ok = compte.getReserveCentimes() == 0 && compte.getDisponibleCentimes() == soldeInitial
+                && compte.getEspecesCentimes() == soldeInitial;
+            coherent &= ok;
+            System.out.printf("compte %d : disponible=%d especes=%d attendu=%d reserve=%d %s%n", i,
+                compte.getDisponibleCentimes(), compte.getEspecesCentimes(), soldeInitial,
+                compte.getReserveCentimes(), ok ? "OK" : "ÉCART");
+        }
+        System.out.printf("%d threads, %d opérations en %d ms (%.0f op/s), %d refus, %d disponibles négatifs observés%n",
+            threads, operations, dureeNs / 1_000_000, operations * 1e9 / dureeNs, refus.get(), negatifsObserves.get());
+        System.out.printf("latence d'un refus (ns) : p50=%d p99=%d p99.9=%d max=%d%n",
+            latencesRefus.getValueAtPercentile(50), latencesRefus.getValueAtPercentile(99),
+            latencesRefus.getValueAtPercentile(99.9), latencesRefus.getMaxValue());
+        if (!coherent) {
+            System.out.println("SUR-RÉSERVATION DÉTECTÉE");
+            System.exit(1);
+        }
+    }
+
+    private static int entier(String[] args, String nom, int defaut) {
+        String prefixe = "--" + nom + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefixe)) {
+                return Integer.parseInt(arg.substring(prefixe.length()));
+            }
+        }
+        return defaut;
+    }
+}
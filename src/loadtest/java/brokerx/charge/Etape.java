@@ -0,0 +1,25 @@
+package brokerx.charge;
+
+/**
+ * Étapes chronométrées du parcours d'inscription (une distribution de latence par étape)
+ */
+public enum Etape {
+    FORMULAIRE_INSCRIPTION("GET /inscription"),
+    INSCRIPTION("POST /inscription"),
+    CONFIRMATION("GET /inscription-confirmation"),
+    RECEPTION_EMAIL("réception de l'email"),
+    VERIFICATION_CODE("POST /verification-email"),
+    VERIFICATION_LIEN("GET /verification-email?jeton"),
+    CONNEXION("POST /connexion"),
+    PARCOURS("parcours complet");
+
+    private final String libelle;
+
+    Etape(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -0,0 +1,55 @@
+package brokerx.charge;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Relevé des compteurs GC et du tas à un instant donné
+ * Le générateur et l'application partagent la JVM : ces chiffres couvrent les deux
+ *
+ * @param collectes nombre de collectes par collecteur
+ * @param tempsCollecteMs temps cumulé par collecteur
+ * @param tasUtilise octets utilisés dans le tas
+ * @param tasMax taille maximale du tas
+ */
+public record EtatJvm(Map<String, Long> collectes, Map<String, Long> tempsCollecteMs, long tasUtilise, long tasMax) {
+
+    public static EtatJvm capturer() {
+        Map<String, Long> collectes = new LinkedHashMap<>();
+        Map<String, Long> temps = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collecteur : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collectes.put(collecteur.getName(), collecteur.getCollectionCount());
+            temps.put(collecteur.getName(), collecteur.getCollectionTime());
+        }
+        var tas = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return new EtatJvm(collectes, temps, tas.getUsed(), tas.getMax());
+    }
+
+    /**
+     * Remet à zéro le pic d'occupation des zones du tas (début de la fenêtre mesurée)
+     */
+    public static void reinitialiserPics() {
+        for (MemoryPoolMXBean zone : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zone.getType() == MemoryType.HEAP) {
+                zone.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Pic d'occupation de chaque zone du tas depuis la dernière remise à zéro
+     */
+    public static Map<String, Long> pics() {
+        Map<String, Long> pics = new LinkedHashMap<>();
+        for (MemoryPoolMXBean zone : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zone.getType() == MemoryType.HEAP && zone.getPeakUsage() != null) {
+                pics.put(zone.getName(), zone.getPeakUsage().getUsed());
+            }
+        }
+        return pics;
+    }
+}
@@ -0,0 +1,72 @@
+package brokerx.charge;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures partagées par tous les utilisateurs virtuels
+ * Les Recorder HdrHistogram acceptent les écritures concurrentes sans verrou; les latences sont en microsecondes
+ */
+public class MesuresCharge {
+
+    private final Map<Etape, Recorder> latences = new EnumMap<>(Etape.class);
+    private final Map<Etape, LongAdder> erreurs = new EnumMap<>(Etape.class);
+    private final LongAdder parcoursReussis = new LongAdder();
+    private final LongAdder parcoursEchoues = new LongAdder();
+    private final LongAdder arriveesAbandonnees = new LongAdder();
+
+    public MesuresCharge() {
+        for (Etape etape : Etape.values()) {
+            latences.put(etape, new Recorder(3));
+            erreurs.put(etape, new LongAdder());
+        }
+    }
+
+    public void enregistrer(Etape etape, long dureeNanos) {
+        latences.get(etape).recordValue(Math.max(1, dureeNanos / 1_000));
+    }
+
+    public void erreur(Etape etape) {
+        erreurs.get(etape).increment();
+    }
+
+    public void parcoursReussi(long dureeNanos) {
+        enregistrer(Etape.PARCOURS, dureeNanos);
+        parcoursReussis.increment();
+    }
+
+    public void parcoursEchoue() {
+        parcoursEchoues.increment();
+    }
+
+    /**
+     * Arrivée non lancée (modèle ouvert) : trop de parcours déjà en cours
+     */
+    public void arriveeAbandonnee() {
+        arriveesAbandonnees.increment();
+    }
+
+    /**
+     * Relève les mesures depuis le relevé précédent et repart de zéro
+     */
+    public Releve relever() {
+        Map<Etape, Histogram> histogrammes = new EnumMap<>(Etape.class);
+        Map<Etape, Long> nombresErreurs = new EnumMap<>(Etape.class);
+        for (Etape etape : Etape.values()) {
+            histogrammes.put(etape, latences.get(etape).getIntervalHistogram());
+            nombresErreurs.put(etape, erreurs.get(etape).sumThenReset());
+        }
+        return new Releve(histogrammes, nombresErreurs, parcoursReussis.sumThenReset(),
+            parcoursEchoues.sumThenReset(), arriveesAbandonnees.sumThenReset());
+    }
+
+    public record Releve(Map<Etape, Histogram> latences,
+                         Map<Etape, Long> erreurs,
+                         long parcoursReussis,
+                         long parcoursEchoues,
+                         long arriveesAbandonnees) {
+    }
+}
@@ -0,0 +1,194 @@
+package brokerx.charge;
+
+import brokerx.service.notification.Notification;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parcours d'un utilisateur virtuel, tel qu'un navigateur le ferait (redirections suivies à la main,
+ * cookie de session conservé) : formulaire, inscription, confirmation, vérification de l'email
+ * par le code saisi ou par le lien, puis connexion
+ */
+public class ParcoursInscription {
+
+    private static final Pattern LIEN = Pattern.compile("verification-email\\?jeton=([0-9a-f]+)");
+    private static final Pattern CODE = Pattern.compile("code de vérification : (\\d+)");
+    private static final Duration DELAI_REQUETE = Duration.ofSeconds(30);
+    private static final String MOT_DE_PASSE = "MotDePasse123";
+
+    private final HttpClient client;
+    private final URI base;
+    private final TransportCharge transport;
+    private final MesuresCharge mesures;
+    private final double partLien;
+    private final String prefixeEmail;
+    private final long graineTelephone;
+
+    public ParcoursInscription(HttpClient client, URI base, TransportCharge transport, MesuresCharge mesures, double partLien) {
+        this.client = client;
+        this.base = base;
+        this.transport = transport;
+        this.mesures = mesures;
+        this.partLien = partLien;
+        // Identifiants uniques même si la base d'un essai précédent est réutilisée
+        this.prefixeEmail = "charge-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        this.graineTelephone = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+    }
+
+    /**
+     * Exécute un parcours complet
+     * @param numero numéro du parcours (identifiants du client)
+     * @param debutPrevu instant prévu du départ (System.nanoTime) : en modèle ouvert, un retard
+     *                   du générateur est compté dans la latence du parcours
+     */
+    public void executer(long numero, long debutPrevu) {
+        String email = prefixeEmail + numero + "@brokerx.test";
+        String telephone = "5" + String.format("%09d", (graineTelephone + numero) % 1_000_000_000L);
+        Session session = new Session();
+        try {
+            if (!parcourir(session, email, telephone)) {
+                mesures.parcoursEchoue();
+                return;
+            }
+            mesures.parcoursReussi(System.nanoTime() - debutPrevu);
+        } catch (IOException | TimeoutException | ExecutionException e) {
+            mesures.parcoursEchoue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mesures.parcoursEchoue();
+        } finally {
+            transport.oublier(email);
+        }
+    }
+
+    private boolean parcourir(Session session, String email, String telephone)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        if (session.get(Etape.FORMULAIRE_INSCRIPTION, "/inscription").statusCode() != 200) {
+            return false;
+        }
+
+        Map<String, String> formulaire = new LinkedHashMap<>();
+        formulaire.put("prenom", "Jean");
+        formulaire.put("nom", "Charge");
+        formulaire.put("email", email);
+        formulaire.put("telephone", telephone);
+        formulaire.put("dateNaissance", "1990-05-15");
+        formulaire.put("adresse", "123 Rue de la Paix, Montréal");
+        formulaire.put("motDePasse", MOT_DE_PASSE);
+        HttpResponse<Void> inscription = session.post(Etape.INSCRIPTION, "/inscription", formulaire);
+        String confirmation = inscription.headers().firstValue("Location").orElse("");
+        if (inscription.statusCode() != 302 || !confirmation.contains("sessionId=")) {
+            mesures.erreur(Etape.INSCRIPTION);
+            return false;
+        }
+        long finInscription = System.nanoTime();
+        String sessionId = confirmation.substring(confirmation.indexOf("sessionId=") + "sessionId=".length());
+
+        if (session.get(Etape.CONFIRMATION, confirmation).statusCode() != 200) {
+            return false;
+        }
+
+        // Délai de la file de notifications : de la réponse à l'inscription à la remise de l'email
+        Notification notification;
+        try {
+            notification = transport.email(email).get(DELAI_REQUETE.toSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            mesures.erreur(Etape.RECEPTION_EMAIL);
+            throw e;
+        }
+        mesures.enregistrer(Etape.RECEPTION_EMAIL, System.nanoTime() - finInscription);
+        Matcher lien = LIEN.matcher(notification.corps());
+        Matcher code = CODE.matcher(notification.corps());
+        if (!lien.find() || !code.find()) {
+            mesures.erreur(Etape.RECEPTION_EMAIL);
+            return false;
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < partLien) {
+            if (session.get(Etape.VERIFICATION_LIEN, "/verification-email?jeton=" + lien.group(1)).statusCode() != 200) {
+                return false;
+            }
+        } else {
+            HttpResponse<Void> verification = session.post(Etape.VERIFICATION_CODE, "/verification-email",
+                Map.of("sessionId", sessionId, "codeVerification", code.group(1)));
+            if (verification.statusCode() != 302) {
+                mesures.erreur(Etape.VERIFICATION_CODE);
+                return false;
+            }
+        }
+
+        HttpResponse<Void> connexion = session.post(Etape.CONNEXION, "/connexion",
+            Map.of("email", email, "motDePasse", MOT_DE_PASSE));
+        if (connexion.statusCode() != 302 || !connexion.headers().firstValue("Location").orElse("").endsWith("/")) {
+            mesures.erreur(Etape.CONNEXION);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cookie de session d'un utilisateur (le client HTTP est partagé par tous les utilisateurs)
+     */
+    private final class Session {
+        private String cookie;
+
+        HttpResponse<Void> get(Etape etape, String chemin) throws IOException, InterruptedException {
+            HttpResponse<Void> reponse = envoyer(etape, requete(chemin).GET());
+            if (reponse.statusCode() != 200) {
+                mesures.erreur(etape);
+            }
+            return reponse;
+        }
+
+        HttpResponse<Void> post(Etape etape, String chemin, Map<String, String> champs) throws IOException, InterruptedException {
+            String corps = champs.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                    + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+            return envoyer(etape, requete(chemin)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(corps)));
+        }
+
+        private HttpRequest.Builder requete(String chemin) {
+            HttpRequest.Builder requete = HttpRequest.newBuilder(base.resolve(chemin)).timeout(DELAI_REQUETE);
+            if (cookie != null) {
+                requete.header("Cookie", cookie);
+            }
+            return requete;
+        }
+
+        // La latence couvre l'envoi et la lecture complète de la réponse
+        private HttpResponse<Void> envoyer(Etape etape, HttpRequest.Builder requete) throws IOException, InterruptedException {
+            long debut = System.nanoTime();
+            HttpResponse<Void> reponse;
+            try {
+                reponse = client.send(requete.build(), HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                mesures.erreur(etape);
+                throw e;
+            }
+            mesures.enregistrer(etape, System.nanoTime() - debut);
+            reponse.headers().allValues("Set-Cookie").stream()
+                .filter(valeur -> valeur.startsWith("JSESSIONID="))
+                .findFirst()
+                .ifPresent(valeur -> cookie = valeur.substring(0, valeur.indexOf(';') > 0 ? valeur.indexOf(';') : valeur.length()));
+            return reponse;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package brokerx.charge;
+
+import brokerx.BrokerXWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Poids et temps de rendu des pages web : templates relus à chaque requête, en cache, puis cache de pages actif
+ *
+ * Démarre BrokerXWebApplication trois fois (spring.thymeleaf.cache=false, true sans puis avec brokerx.pages.cache)
+ * et mesure pour chaque page :
+ * - temps de réponse moyen et p99 (rendu compris) sur --pages.requetes requêtes séquentielles
+ * - octets transférés : HTML sans compression, HTML compressé (Accept-Encoding --pages.encodages),
+ *   première visite (HTML compressé + ressources, variante précompressée selon Accept-Encoding)
+ * - revalidation : temps moyen d'une requête conditionnelle If-None-Match sur l'ETag reçu (304 attendu)
+ * Vérifie aussi que chaque ressource liée a une URL empreinte et un Cache-Control immuable, et qu'avec
+ * le cache de pages les pages anonymes répondent 304 sans corps.
+ *
+ *   ./gradlew poidsPages -Ppages.args="--pages.requetes=2000"
+ * Les autres options --clé=valeur sont transmises à l'application.
+ */
+public class PoidsPages {
+
+    private static final String[] PAGES = {"/", "/inscription", "/connexion", "/inscription/succes",
+        "/verification-otp?sessionId=poids", "/admin/clients"};
+
+    private static final Set<String> PAGES_ANONYMES = Set.of("/", "/inscription", "/connexion");
+
+    private static final Pattern RESSOURCE = Pattern.compile("(?:href|src)=\"(/assets/[^\"]+)\"");
+    private static final Pattern EMPREINTE = Pattern.compile("-[0-9a-f]{32}\\.(css|js)$");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> application = new LinkedHashMap<>();
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (!arg.startsWith("--") || egal < 0) {
+                throw new IllegalArgumentException("Option attendue sous la forme --clé=valeur : " + arg);
+            }
+            (arg.startsWith("--pages.") ? options : application)
+                .put(arg.substring(arg.startsWith("--pages.") ? 8 : 2, egal), arg.substring(egal + 1));
+        }
+        int requetes = Integer.parseInt(options.getOrDefault("requetes", "500"));
+        String encodages = options.getOrDefault("encodages", "br, gzip");
+
+        boolean anomalies = false;
+        for (int essai = 0; essai < 3; essai++) {
+            boolean cacheTemplates = essai > 0;
+            boolean cachePages = essai == 2;
+            Map<String, String> proprietes = new LinkedHashMap<>(application);
+            proprietes.putIfAbsent("brokerx.pages.cache.actif", String.valueOf(cachePages));
+            ConfigurableApplicationContext contexte = demarrer(cacheTemplates, proprietes);
+            try {
+                String base = "http://localhost:" + contexte.getEnvironment().getProperty("local.server.port");
+                System.out.printf("%nTemplates %s, cache de pages %s%n",
+                    cacheTemplates ? "en cache" : "relus à chaque requête", cachePages ? "actif" : "inactif");
+                System.out.printf("  %-36s %10s %10s %10s %10s %12s %10s%n",
+                    "page", "moy. µs", "p99 µs", "HTML o", "compr. o", "1re visite o", "304 µs");
+                anomalies |= mesurer(base, requetes, encodages, cachePages);
+            } finally {
+                contexte.close();
+            }
+        }
+        if (anomalies) {
+            System.out.println("RESSOURCES SANS EMPREINTE OU SANS CACHE IMMUABLE, OU PAGES SANS REVALIDATION");
+            System.exit(1);
+        }
+    }
+
+    private static boolean mesurer(String base, int requetes, String encodages, boolean cachePages) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        Map<String, Long> ressources = new LinkedHashMap<>();
+        boolean anomalies = false;
+        for (String page : PAGES) {
+            HttpRequest requete = HttpRequest.newBuilder(URI.create(base + page))
+                .header("Accept-Encoding", encodages).GET().build();
+            for (int i = 0; i < Math.min(requetes, 200); i++) {
+                client.send(requete, HttpResponse.BodyHandlers.discarding());
+            }
+            long[] durees = new long[requetes];
+            byte[] corps = null;
+            for (int i = 0; i < requetes; i++) {
+                long debut = System.nanoTime();
+                corps = client.send(requete, HttpResponse.BodyHandlers.ofByteArray()).body();
+                durees[i] = System.nanoTime() - debut;
+            }
+            Arrays.sort(durees);
+
+            // HttpClient ne décompresse pas : corps compressé tel que transféré, liens lus sur la version identité
+            HttpResponse<byte[]> identite = client.send(HttpRequest.newBuilder(URI.create(base + page)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            String revalidation = "-";
+            String etag = identite.headers().firstValue("ETag").orElse(null);
+            if (etag != null) {
+                HttpRequest conditionnelle = HttpRequest.newBuilder(URI.create(base + page))
+                    .header("Accept-Encoding", encodages).header("If-None-Match", etag).GET().build();
+                long total = 0;
+                HttpResponse<byte[]> nonModifiee = null;
+                for (int i = 0; i < requetes; i++) {
+                    long debut = System.nanoTime();
+                    nonModifiee = client.send(conditionnelle, HttpResponse.BodyHandlers.ofByteArray());
+                    total += System.nanoTime() - debut;
+                }
+                if (nonModifiee.statusCode() != 304 || nonModifiee.body().length > 0) {
+                    System.out.printf("  ! %s : If-None-Match %s -> statut %d, %d octets%n", page, etag,
+                        nonModifiee.statusCode(), nonModifiee.body().length);
+                    anomalies = true;
+                }
+                revalidation = String.format("%.1f", total / 1000.0 / requetes);
+            } else if (cachePages && PAGES_ANONYMES.contains(page)) {
+                System.out.printf("  ! %s : aucun ETag avec le cache de pages actif%n", page);
+                anomalies = true;
+            }
+
+            Set<String> liens = new LinkedHashSet<>();
+            Matcher lien = RESSOURCE.matcher(new String(identite.body(), StandardCharsets.UTF_8));
+            while (lien.find()) {
+                liens.add(lien.group(1));
+            }
+            long premiereVisite = corps.length;
+            for (String url : liens) {
+                Long taille = ressources.get(url);
+                if (taille == null) {
+                    HttpResponse<byte[]> reponse = client.send(HttpRequest.newBuilder(URI.create(base + url))
+                        .header("Accept-Encoding", encodages).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+                    String cache = reponse.headers().firstValue("Cache-Control").orElse("");
+                    if (reponse.statusCode() != 200 || !EMPREINTE.matcher(url).find() || !cache.contains("immutable")) {
+                        System.out.printf("  ! %s : statut %d, Cache-Control \"%s\"%n", url, reponse.statusCode(), cache);
+                        anomalies = true;
+                    }
+                    taille = (long) reponse.body().length;
+                    ressources.put(url, taille);
+                }
+                premiereVisite += taille;
+            }
+            System.out.printf("  %-36s %10.1f %10.1f %10d %10d %12d %10s%n", page,
+                Arrays.stream(durees).average().orElse(0) / 1000.0, durees[(int) (durees.length * 0.99)] / 1000.0,
+                identite.body().length, corps.length, premiereVisite, revalidation);
+        }
+        System.out.printf("  ressources distinctes : %d, %d octets transférés (%s)%n", ressources.size(),
+            ressources.values().stream().mapToLong(Long::longValue).sum(), encodages);
+        return anomalies;
+    }
+
+    private static ConfigurableApplicationContext demarrer(boolean cacheTemplates, Map<String, String> application)
+            throws Exception {
+        Path repertoire = Files.createTempDirectory("brokerx-pages");
+        Map<String, String> proprietes = new LinkedHashMap<>();
+        proprietes.put("server.port", "0");
+        proprietes.put("spring.datasource.url", "jdbc:h2:file:" + repertoire.resolve("brokerx").toAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE");
+        proprietes.put("spring.main.banner-mode", "off");
+        proprietes.put("spring.thymeleaf.cache", String.valueOf(cacheTemplates));
+        proprietes.put("brokerx.audit.repertoire", repertoire.resolve("audit").toAbsolutePath().toString());
+        proprietes.put("brokerx.journal-ordres.repertoire", repertoire.resolve("ordres").toAbsolutePath().toString());
+        proprietes.put("brokerx.evenements.niveau", "WARN");
+        proprietes.put("brokerx.expiration.actif", "false");
+        proprietes.putAll(application);
+        return new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .run(proprietes.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,159 @@
+package brokerx.charge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rapport d'un essai : latences par étape (HdrHistogram), débit, GC et tas sur la fenêtre mesurée
+ *
+ * Écrit dans un répertoire horodaté : rapport.json (comparaison entre versions et réglages)
+ * et un fichier .hgrm par étape (distribution complète, lisible par HdrHistogram Plotter)
+ */
+public class RapportCharge {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConfigurationCharge config;
+    private final double secondes;
+    private final MesuresCharge.Releve releve;
+    private final EtatJvm debut;
+    private final EtatJvm fin;
+    private final Map<String, Long> picsTas;
+
+    public RapportCharge(ConfigurationCharge config, double secondes, MesuresCharge.Releve releve,
+                         EtatJvm debut, EtatJvm fin, Map<String, Long> picsTas) {
+        this.config = config;
+        this.secondes = secondes;
+        this.releve = releve;
+        this.debut = debut;
+        this.fin = fin;
+        this.picsTas = picsTas;
+    }
+
+    public double getParcoursParSeconde() {
+        return releve.parcoursReussis() / secondes;
+    }
+
+    public double getRequetesParSeconde() {
+        long requetes = 0;
+        for (Etape etape : Etape.values()) {
+            if (etape != Etape.RECEPTION_EMAIL && etape != Etape.PARCOURS) {
+                requetes += releve.latences().get(etape).getTotalCount();
+            }
+        }
+        return requetes / secondes;
+    }
+
+    public long getTempsCollecteMs() {
+        return fin.tempsCollecteMs().entrySet().stream()
+            .mapToLong(e -> e.getValue() - debut.tempsCollecteMs().getOrDefault(e.getKey(), 0L))
+            .sum();
+    }
+
+    public void afficher(PrintStream sortie) {
+        sortie.println();
+        sortie.printf(Locale.ROOT, "Modèle %s, %.0f s mesurées%n", description(), secondes);
+        sortie.printf(Locale.ROOT, "%-30s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+            "Étape (ms)", "nombre", "erreurs", "moyenne", "p50", "p90", "p99", "p99.9", "max");
+        for (Etape etape : Etape.values()) {
+            Histogram h = releve.latences().get(etape);
+            sortie.printf(Locale.ROOT, "%-30s %9d %7d %9.2f", etape.getLibelle(), h.getTotalCount(),
+                releve.erreurs().get(etape), h.getTotalCount() > 0 ? h.getMean() / 1000.0 : 0.0);
+            for (double percentile : PERCENTILES) {
+                sortie.printf(Locale.ROOT, " %9.2f", h.getValueAtPercentile(percentile) / 1000.0);
+            }
+            sortie.printf(Locale.ROOT, " %9.2f%n", h.getMaxValue() / 1000.0);
+        }
+        sortie.printf(Locale.ROOT, "Débit : %.1f parcours/s, %.1f requêtes/s (réussis %d, échoués %d, arrivées abandonnées %d)%n",
+            getParcoursParSeconde(), getRequetesParSeconde(), releve.parcoursReussis(), releve.parcoursEchoues(),
+            releve.arriveesAbandonnees());
+        for (String collecteur : fin.collectes().keySet()) {
+            sortie.printf(Locale.ROOT, "GC %s : %d collectes, %d ms%n", collecteur,
+                fin.collectes().get(collecteur) - debut.collectes().getOrDefault(collecteur, 0L),
+                fin.tempsCollecteMs().get(collecteur) - debut.tempsCollecteMs().getOrDefault(collecteur, 0L));
+        }
+        sortie.printf(Locale.ROOT, "GC : %.2f %% du temps mesuré; tas %d Mo utilisés / %d Mo max, pics %s%n",
+            getTempsCollecteMs() / (secondes * 10), fin.tasUtilise() >> 20, fin.tasMax() >> 20, picsEnMo());
+    }
+
+    /**
+     * Écrit le rapport dans un sous-répertoire horodaté
+     * @return le répertoire créé
+     */
+    public Path ecrire(Path racine) throws IOException {
+        Path repertoire = racine.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(repertoire);
+
+        Map<String, Object> latences = new LinkedHashMap<>();
+        for (Etape etape : Etape.values()) {
+            Histogram h = releve.latences().get(etape);
+            Map<String, Object> valeurs = new LinkedHashMap<>();
+            valeurs.put("libelle", etape.getLibelle());
+            valeurs.put("nombre", h.getTotalCount());
+            valeurs.put("erreurs", releve.erreurs().get(etape));
+            valeurs.put("moyenneMs", h.getTotalCount() > 0 ? h.getMean() / 1000.0 : 0.0);
+            for (double percentile : PERCENTILES) {
+                valeurs.put("p" + String.valueOf(percentile).replace(".0", "") + "Ms", h.getValueAtPercentile(percentile) / 1000.0);
+            }
+            valeurs.put("maxMs", h.getMaxValue() / 1000.0);
+            latences.put(etape.name(), valeurs);
+
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(repertoire.resolve(etape.name() + ".hgrm")))) {
+                // Valeurs enregistrées en µs, distribution exprimée en ms
+                h.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+
+        Map<String, Object> rapport = new LinkedHashMap<>();
+        rapport.put("modele", description());
+        rapport.put("configuration", config);
+        rapport.put("jvm", Map.of(
+            "version", System.getProperty("java.version"),
+            "processeurs", Runtime.getRuntime().availableProcessors(),
+            "arguments", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        rapport.put("secondesMesurees", secondes);
+        rapport.put("parcoursParSeconde", getParcoursParSeconde());
+        rapport.put("requetesParSeconde", getRequetesParSeconde());
+        rapport.put("parcoursReussis", releve.parcoursReussis());
+        rapport.put("parcoursEchoues", releve.parcoursEchoues());
+        rapport.put("arriveesAbandonnees", releve.arriveesAbandonnees());
+        rapport.put("latences", latences);
+        Map<String, Object> gc = new LinkedHashMap<>();
+        for (String collecteur : fin.collectes().keySet()) {
+            gc.put(collecteur, Map.of(
+                "collectes", fin.collectes().get(collecteur) - debut.collectes().getOrDefault(collecteur, 0L),
+                "tempsMs", fin.tempsCollecteMs().get(collecteur) - debut.tempsCollecteMs().getOrDefault(collecteur, 0L)));
+        }
+        rapport.put("gc", gc);
+        rapport.put("tas", Map.of("utilise", fin.tasUtilise(), "max", fin.tasMax(), "pics", picsTas));
+
+        new ObjectMapper()
+            .findAndRegisterModules()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(repertoire.resolve("rapport.json").toFile(), rapport);
+        return repertoire;
+    }
+
+    private String description() {
+        return config.modele() == ConfigurationCharge.ModeleCharge.OUVERT
+            ? String.format(Locale.ROOT, "ouvert (%.1f parcours/s, arrivées %s)", config.debit(), config.poisson() ? "Poisson" : "constantes")
+            : String.format(Locale.ROOT, "fermé (%d utilisateurs, réflexion %d ms)", config.utilisateurs(), config.reflexion().toMillis());
+    }
+
+    private Map<String, Long> picsEnMo() {
+        Map<String, Long> enMo = new LinkedHashMap<>();
+        picsTas.forEach((zone, octets) -> enMo.put(zone, octets >> 20));
+        return enMo;
+    }
+}
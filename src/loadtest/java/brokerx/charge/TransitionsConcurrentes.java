@@ -0,0 +1,152 @@
+package brokerx.charge;
+
+import brokerx.BrokerXWebApplication;
+import brokerx.service.ClientService;
+import brokerx.service.CompteursStatuts;
+import brokerx.service.TransitionsInscription;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test de concurrence des transitions de statut d'inscription (aucune vérification perdue)
+ *
+ * Démarre BrokerXWebApplication (base H2 temporaire), insère des clients PENDING avec téléphone, puis
+ * pour chacun lance au même instant (barrière) la vérification de l'email par le lien (activation
+ * avec audit) et celle du téléphone par OTP, éventuellement répétées. Vérifie :
+ * - chaque client a ses deux indicateurs de vérification (une écriture n'a pas écrasé l'autre)
+ * - son statut est ACTIVE ou COMPLETE (selon l'ordre d'arrivée) et sa version a avancé
+ * - les compteurs par statut en mémoire égalent le comptage en base
+ * Les mêmes invariants, à plus petite échelle, sont vérifiés par TransitionsInscriptionConcurrenceTest (gradle test).
+ *
+ *   ./gradlew transitionsConcurrentes -Ptransitions.args="--transitions.clients=2000 --transitions.repetitions=2"
+ * Les autres options --clé=valeur sont transmises à l'application (ex. --brokerx.clients.cache.actif=false).
+ */
+public class TransitionsConcurrentes {
+
+    private static final String INSERTION = "insert into clients (prenom, nom, email, telephone, date_naissance, adresse, "
+        + "mot_de_passe, email_verifie, telephone_verifie, date_inscription, status_inscription, version) "
+        + "values ('Test', 'Concurrence', ?, ?, ?, '1 rue des Essais, Montréal', 'x', false, false, ?, 'PENDING', 0)";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> application = new LinkedHashMap<>();
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (!arg.startsWith("--") || egal < 0) {
+                throw new IllegalArgumentException("Option attendue sous la forme --clé=valeur : " + arg);
+            }
+            (arg.startsWith("--transitions.") ? options : application)
+                .put(arg.substring(arg.startsWith("--transitions.") ? 14 : 2, egal), arg.substring(egal + 1));
+        }
+        int nombreClients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int repetitions = Integer.parseInt(options.getOrDefault("repetitions", "1"));
+
+        Path repertoire = Files.createTempDirectory("brokerx-transitions");
+        Map<String, String> proprietes = new LinkedHashMap<>();
+        proprietes.put("server.port", "0");
+        proprietes.put("spring.datasource.url", "jdbc:h2:file:" + repertoire.resolve("brokerx").toAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE");
+        proprietes.put("spring.main.banner-mode", "off");
+        proprietes.put("brokerx.audit.repertoire", repertoire.resolve("audit").toAbsolutePath().toString());
+        proprietes.put("brokerx.journal-ordres.repertoire", repertoire.resolve("ordres").toAbsolutePath().toString());
+        proprietes.put("brokerx.evenements.niveau", "WARN");
+        proprietes.put("brokerx.import.http-actif", "false");
+        proprietes.put("brokerx.expiration.actif", "false");
+        proprietes.putAll(application);
+
+        ConfigurableApplicationContext contexte = new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .run(proprietes.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+        try {
+            JdbcTemplate jdbc = contexte.getBean(JdbcTemplate.class);
+            ClientService clients = contexte.getBean(ClientService.class);
+            TransitionsInscription transitions = contexte.getBean(TransitionsInscription.class);
+            CompteursStatuts compteurs = contexte.getBean(CompteursStatuts.class);
+
+            List<Object[]> lignes = new ArrayList<>(nombreClients);
+            Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < nombreClients; i++) {
+                lignes.add(new Object[] {email(i), String.format("5%09d", i), Date.valueOf(LocalDate.of(1990, 1, 1)), maintenant});
+            }
+            jdbc.batchUpdate(INSERTION, lignes);
+            compteurs.resynchroniser();
+
+            ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+            CountDownLatch fin = new CountDownLatch(nombreClients * 2);
+            AtomicLong erreurs = new AtomicLong();
+            long conflitsAvant = transitions.getConflits();
+            long debut = System.nanoTime();
+            for (int i = 0; i < nombreClients; i++) {
+                String email = email(i);
+                CyclicBarrier depart = new CyclicBarrier(2);
+                threads.execute(() -> executer(depart, fin, erreurs, repetitions,
+                    () -> clients.activerCompteAvecAudit(email, "123456")));
+                threads.execute(() -> executer(depart, fin, erreurs, repetitions,
+                    () -> clients.marquerTelephoneVerifie(email)));
+            }
+            fin.await(10, TimeUnit.MINUTES);
+            long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+            threads.shutdown();
+
+            Integer perdues = jdbc.queryForObject(
+                "select count(*) from clients where not (email_verifie and telephone_verifie)", Integer.class);
+            Integer statutsInattendus = jdbc.queryForObject(
+                "select count(*) from clients where status_inscription not in ('ACTIVE', 'COMPLETE') or version = 0",
+                Integer.class);
+            boolean compteursExacts = true;
+            for (Map<String, Object> ligne : jdbc.queryForList(
+                    "select status_inscription as statut, count(*) as nombre from clients group by status_inscription")) {
+                String statut = String.valueOf(ligne.get("statut"));
+                long enBase = ((Number) ligne.get("nombre")).longValue();
+                System.out.printf("  %-10s base=%d compteur=%d%n", statut, enBase, compteurs.nombre(statut));
+                compteursExacts &= enBase == compteurs.nombre(statut);
+            }
+            System.out.printf("%d clients, %d vérifications concurrentes en %d ms, %d conflits de version rejoués, %d erreurs%n",
+                nombreClients, nombreClients * 2L * repetitions, dureeMs, transitions.getConflits() - conflitsAvant,
+                erreurs.get());
+            System.out.printf("vérifications perdues : %d, statuts inattendus : %d, compteurs %s%n",
+                perdues, statutsInattendus, compteursExacts ? "exacts" : "ÉCART");
+            if (perdues != 0 || statutsInattendus != 0 || !compteursExacts || erreurs.get() != 0) {
+                System.out.println("MISE À JOUR PERDUE DÉTECTÉE");
+                System.exit(1);
+            }
+        } finally {
+            contexte.close();
+        }
+    }
+
+    private static void executer(CyclicBarrier depart, CountDownLatch fin, AtomicLong erreurs, int repetitions,
+                                 Runnable verification) {
+        try {
+            depart.await();
+            for (int r = 0; r < repetitions; r++) {
+                verification.run();
+            }
+        } catch (Exception e) {
+            erreurs.incrementAndGet();
+            System.err.println("Vérification en échec : " + e);
+        } finally {
+            fin.countDown();
+        }
+    }
+
+    private static String email(int i) {
+        return "concurrence" + i + "@brokerx.test";
+    }
+}
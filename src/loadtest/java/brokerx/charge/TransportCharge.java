@@ -0,0 +1,47 @@
+package brokerx.charge;
+
+import brokerx.service.notification.CanalNotification;
+import brokerx.service.notification.Notification;
+import brokerx.service.notification.TransportNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transport du test de charge : chaque email est déposé dans la boîte de son destinataire,
+ * où l'utilisateur virtuel l'attend (accès direct, sans parcourir l'historique des envois)
+ * Les SMS ne sont pas conservés : le parcours mesuré s'arrête à la vérification de l'email
+ */
+@Component
+@ConditionalOnProperty(name = "brokerx.notifications.transport", havingValue = "charge")
+public class TransportCharge implements TransportNotification {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Notification>> boites = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Notification> envoyerLot(CanalNotification canal, List<Notification> lot) {
+        if (canal == CanalNotification.EMAIL) {
+            for (Notification notification : lot) {
+                boite(notification.destinataire()).complete(notification);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Email reçu (ou à recevoir) par ce destinataire
+     */
+    public CompletableFuture<Notification> email(String destinataire) {
+        return boite(destinataire);
+    }
+
+    public void oublier(String destinataire) {
+        boites.remove(destinataire);
+    }
+
+    private CompletableFuture<Notification> boite(String destinataire) {
+        return boites.computeIfAbsent(destinataire, d -> new CompletableFuture<>());
+    }
+}
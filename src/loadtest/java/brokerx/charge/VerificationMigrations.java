@@ -0,0 +1,249 @@
+package brokerx.charge;
+
+import brokerx.BrokerXWebApplication;
+import brokerx.config.MigrationsSchemaCommande;
+import brokerx.entity.Client;
+import brokerx.entity.CompteDeCourtage;
+import brokerx.entity.Ordre;
+import brokerx.entity.SensOrdre;
+import brokerx.entity.StatutInscription;
+import brokerx.entity.TypeOrdre;
+import brokerx.repository.ClientRepository;
+import brokerx.repository.CompteDeCourtageRepository;
+import brokerx.repository.OrdreRepository;
+import brokerx.service.ListeClientsService;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vérification des migrations du schéma sur H2 et sur H2 en mode PostgreSQL
+ *
+ * Pour chaque mode, dans une base temporaire :
+ * - base vide : tous les scripts s'appliquent, une seconde migration n'applique rien, la validation
+ *   (sommes de contrôle) réussit; contraintes et index attendus présents
+ * - plans d'exécution (EXPLAIN) des requêtes fréquentes : email, téléphone, statut et date d'inscription
+ *   passent par leur index
+ * - l'application démarre sur le schéma migré (ddl-auto=none) et lit/écrit chaque entité
+ * - base créée auparavant par Hibernate (schéma d'origine, sans historique) : reprise en version 0
+ *   par la commande --migrer-schema, puis validation; contraintes nommées ajoutées (doublon de
+ *   téléphone refusé par uk_clients_telephone)
+ *
+ *   ./gradlew verifierMigrations
+ */
+public class VerificationMigrations {
+
+    private static final String[] MODES = {"", ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH"};
+
+    private static final String[] CONTRAINTES = {"uk_clients_email", "uk_clients_telephone",
+        "uk_comptes_courtage_client", "uk_ordres_client_order_id"};
+    private static final String[] INDEX = {"idx_clients_date_inscription", "idx_clients_statut_date"};
+
+    // Requête fréquente -> index attendu dans son plan
+    private static final Map<String, String> PLANS = new LinkedHashMap<>();
+    static {
+        PLANS.put("select id from clients where email = 'a@brokerx.test'", "uk_clients_email");
+        PLANS.put("select id from clients where telephone = '5140000000'", "uk_clients_telephone");
+        PLANS.put("select id from clients where status_inscription = 'PENDING' "
+            + "and date_inscription < timestamp '2020-01-01 00:00:00'", "idx_clients_statut_date");
+        PLANS.put("select id from clients order by date_inscription desc, id desc limit 50", "idx_clients_date_inscription");
+        PLANS.put("select id from ordres where client_id = 1 and client_order_id = 'x'", "uk_ordres_client_order_id");
+    }
+
+    // Schéma produit par Hibernate (ddl-auto=update) avant les migrations : email unique sans nom,
+    // téléphone sans unicité, ni version ni comptes ni ordres
+    private static final String SCHEMA_ORIGINE = "create table clients ("
+        + "id bigint generated by default as identity, adresse varchar(255) not null, date_inscription timestamp(6), "
+        + "date_naissance date not null, email varchar(255) not null unique, email_verifie boolean not null, "
+        + "mot_de_passe varchar(255) not null, nom varchar(255) not null, prenom varchar(255) not null, "
+        + "status_inscription varchar(255), telephone varchar(255), telephone_verifie boolean not null, primary key (id))";
+    private static final String CLIENT_ORIGINE = "insert into clients (adresse, date_inscription, date_naissance, email, "
+        + "email_verifie, mot_de_passe, nom, prenom, status_inscription, telephone, telephone_verifie) "
+        + "values ('1 rue des Essais, Montréal', current_timestamp, date '1990-01-01', '%s', false, 'x', 'Origine', "
+        + "'Schema', 'PENDING', '5149999999', false)";
+
+    private static final List<String> echecs = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        for (String mode : MODES) {
+            String nom = mode.isEmpty() ? "H2" : "H2 (PostgreSQL)";
+            verifierBaseVide(nom, mode);
+            verifierBaseExistante(nom, mode);
+        }
+        if (!echecs.isEmpty()) {
+            System.out.println("MIGRATIONS EN ÉCHEC :");
+            echecs.forEach(echec -> System.out.println("  " + echec));
+            System.exit(1);
+        }
+        System.out.println("Migrations vérifiées sur H2 et H2 en mode PostgreSQL");
+    }
+
+    private static void verifierBaseVide(String nom, String mode) throws Exception {
+        String url = url("brokerx-migrations-vide", mode);
+        Flyway flyway = Flyway.configure()
+            .dataSource(url, "brokerx", "brokerx")
+            .locations("classpath:db/migration")
+            .load();
+        int scripts = flyway.info().pending().length;
+        MigrateResult premiere = flyway.migrate();
+        MigrateResult seconde = flyway.migrate();
+        verifier(nom, premiere.migrationsExecuted == scripts && scripts > 0,
+            "base vide : " + premiere.migrationsExecuted + " scripts appliqués sur " + scripts);
+        verifier(nom, seconde.migrationsExecuted == 0, "seconde migration : " + seconde.migrationsExecuted + " scripts appliqués");
+        flyway.validate();
+
+        ConfigurableApplicationContext contexte = demarrer(url, Map.of());
+        try {
+            JdbcTemplate jdbc = contexte.getBean(JdbcTemplate.class);
+            verifierSchema(nom, jdbc);
+            for (Map.Entry<String, String> plan : PLANS.entrySet()) {
+                String explication = String.join(" ", jdbc.queryForList("explain " + plan.getKey(), String.class));
+                verifier(nom, explication.toLowerCase().contains(plan.getValue()),
+                    "index " + plan.getValue() + " non utilisé : " + explication.replaceAll("\\s+", " "));
+            }
+            utiliserEntites(nom, contexte);
+        } finally {
+            contexte.close();
+        }
+        System.out.printf("%s : base vide migrée (%d scripts), plans et entités vérifiés%n", nom, scripts);
+    }
+
+    private static void verifierBaseExistante(String nom, String mode) throws Exception {
+        String url = url("brokerx-migrations-existante", mode);
+        // Schéma d'avant les migrations, tel que créé par Hibernate, sans table d'historique
+        try (Connection connexion = DriverManager.getConnection(url, "brokerx", "brokerx");
+             Statement instruction = connexion.createStatement()) {
+            instruction.execute(SCHEMA_ORIGINE);
+            instruction.execute(String.format(CLIENT_ORIGINE, "origine@brokerx.test"));
+        }
+
+        int migration = MigrationsSchemaCommande.executer(new String[] {"--migrer-schema", "--spring.datasource.url=" + url});
+        int validation = MigrationsSchemaCommande.executer(new String[] {"--migrer-schema=valider", "--spring.datasource.url=" + url});
+        verifier(nom, migration == 0 && validation == 0,
+            "base existante : migration " + migration + ", validation " + validation);
+
+        ConfigurableApplicationContext contexte = demarrer(url, Map.of("brokerx.migrations.au-demarrage", "false"));
+        try {
+            JdbcTemplate jdbc = contexte.getBean(JdbcTemplate.class);
+            verifierSchema(nom, jdbc);
+            verifier(nom, doublonRefusePar(url, "uk_clients_telephone"),
+                "base existante : doublon de téléphone non refusé par uk_clients_telephone");
+            utiliserEntites(nom, contexte);
+        } finally {
+            contexte.close();
+        }
+        System.out.printf("%s : base créée par Hibernate reprise et validée%n", nom);
+    }
+
+    private static void verifierSchema(String nom, JdbcTemplate jdbc) {
+        List<String> existants = new ArrayList<>();
+        existants.addAll(jdbc.queryForList("select constraint_name from information_schema.table_constraints", String.class));
+        existants.addAll(jdbc.queryForList("select index_name from information_schema.indexes", String.class));
+        for (String attendu : concat(CONTRAINTES, INDEX)) {
+            verifier(nom, existants.stream().anyMatch(attendu::equalsIgnoreCase), "absent du schéma : " + attendu);
+        }
+    }
+
+    /**
+     * Insère un client au téléphone déjà pris : l'erreur doit nommer la contrainte attendue
+     */
+    private static boolean doublonRefusePar(String url, String contrainte) {
+        try (Connection connexion = DriverManager.getConnection(url, "brokerx", "brokerx");
+             Statement instruction = connexion.createStatement()) {
+            instruction.execute(String.format(CLIENT_ORIGINE, "doublon@brokerx.test"));
+            return false;
+        } catch (SQLException e) {
+            return String.valueOf(e.getMessage()).toLowerCase().contains(contrainte);
+        }
+    }
+
+    /**
+     * Écriture et relecture de chaque entité par JPA : les colonnes des scripts correspondent au mapping
+     */
+    private static void utiliserEntites(String nom, ConfigurableApplicationContext contexte) {
+        ClientRepository clients = contexte.getBean(ClientRepository.class);
+        Client client = new Client();
+        client.setPrenom("Migration");
+        client.setNom("Schema");
+        client.setEmail("migration@brokerx.test");
+        client.setTelephone("5140000000");
+        client.setDateNaissance(LocalDate.of(1990, 1, 1));
+        client.setAdresse("1 rue des Essais, Montréal");
+        client.setMotDePasse("x");
+        client.setStatut(StatutInscription.PENDING);
+        client = clients.saveAndFlush(client);
+        int transition = clients.appliquerTransition(client.getId(), client.getVersion(), StatutInscription.ACTIVE, true, false);
+        verifier(nom, transition == 1, "transition conditionnelle non appliquée");
+        verifier(nom, clients.findByEmail("migration@brokerx.test").map(Client::getStatut).orElse(null) == StatutInscription.ACTIVE,
+            "client relu avec un statut inattendu");
+        verifier(nom, !contexte.getBean(ListeClientsService.class).page(null, null, 10).clients().isEmpty(),
+            "liste des clients vide");
+
+        CompteDeCourtage compte = new CompteDeCourtage();
+        compte.setClientId(client.getId());
+        compte.setSoldeCentimes(10_000_00);
+        compte.setDateMiseAJour(LocalDateTime.now());
+        contexte.getBean(CompteDeCourtageRepository.class).saveAndFlush(compte);
+
+        OrdreRepository ordres = contexte.getBean(OrdreRepository.class);
+        Ordre ordre = new Ordre();
+        ordre.setClientId(client.getId());
+        ordre.setClientOrderId("migration-1");
+        ordre.setSymbole("BRKX");
+        ordre.setSens(SensOrdre.ACHAT);
+        ordre.setType(TypeOrdre.LIMITE);
+        ordre.setQuantite(10);
+        ordre.setPrixLimite(new BigDecimal("12.3400"));
+        ordre.setHorodatageUtc(LocalDateTime.now());
+        ordres.saveAndFlush(ordre);
+        verifier(nom, ordres.findByClientIdAndClientOrderId(client.getId(), "migration-1").isPresent(), "ordre non relu");
+    }
+
+    private static ConfigurableApplicationContext demarrer(String url, Map<String, String> surcharges) throws Exception {
+        Path repertoire = Files.createTempDirectory("brokerx-migrations-app");
+        Map<String, String> proprietes = new LinkedHashMap<>();
+        proprietes.put("server.port", "0");
+        proprietes.put("spring.datasource.url", url);
+        proprietes.put("spring.main.banner-mode", "off");
+        proprietes.put("brokerx.audit.repertoire", repertoire.resolve("audit").toAbsolutePath().toString());
+        proprietes.put("brokerx.journal-ordres.repertoire", repertoire.resolve("ordres").toAbsolutePath().toString());
+        proprietes.put("brokerx.evenements.niveau", "WARN");
+        proprietes.put("brokerx.expiration.actif", "false");
+        proprietes.putAll(surcharges);
+        return new SpringApplicationBuilder(BrokerXWebApplication.class)
+            .run(proprietes.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+    }
+
+    private static String url(String prefixe, String mode) throws Exception {
+        Path repertoire = Files.createTempDirectory(prefixe);
+        return "jdbc:h2:file:" + repertoire.resolve("brokerx").toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE" + mode;
+    }
+
+    private static void verifier(String nom, boolean condition, String message) {
+        if (!condition) {
+            echecs.add(nom + " - " + message);
+        }
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        String[] resultat = new String[a.length + b.length];
+        System.arraycopy(a, 0, resultat, 0, a.length);
+        System.arraycopy(b, 0, resultat, a.length, b.length);
+        return resultat;
+    }
+}
@@ -1,17 +1,32 @@
 package brokerx;
 
+import brokerx.config.MigrationsSchemaCommande;
+import brokerx.service.importation.ImportClientsCommande;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import java.util.Arrays;
 
 /**
  * Application principale BrokerX avec interface web
  * UC-01 : Inscription et Vérification d'Identité
  */
 @SpringBootApplication
+@EnableScheduling
 public class BrokerXWebApplication {
     
     public static void main(String[] args) {
+        // Migrations du schéma en ligne de commande : ni JPA ni serveur web
+        if (MigrationsSchemaCommande.estDemandee(args)) {
+            System.exit(MigrationsSchemaCommande.executer(args));
+        }
         // Démarrage Spring Boot
-        SpringApplication.run(BrokerXWebApplication.class, args);
+        SpringApplication application = new SpringApplication(BrokerXWebApplication.class);
+        // Import en masse en ligne de commande : pas de serveur web
+        if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + ImportClientsCommande.OPTION + "="))) {
+            application.setWebApplicationType(WebApplicationType.NONE);
+        }
+        application.run(args);
     }
 }
\ No newline at end of file
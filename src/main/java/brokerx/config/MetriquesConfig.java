@@ -0,0 +1,339 @@
+package brokerx.config;
+
+import brokerx.entity.StatutInscription;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.moteur.MoteurAppariement;
+import brokerx.moteur.journal.JournalOrdres;
+import brokerx.service.CacheClients;
+import brokerx.service.CacheIdempotenceOrdres;
+import brokerx.service.CompteursStatuts;
+import brokerx.service.FiltreExistenceClients;
+import brokerx.service.HachageMotDePasseService;
+import brokerx.service.RepriseOrdresService;
+import brokerx.service.SessionVerificationStore;
+import brokerx.service.SuiviOrdresService;
+import brokerx.service.TransitionsInscription;
+import brokerx.service.audit.JournalAudit;
+import brokerx.service.comptes.PouvoirAchatService;
+import brokerx.service.marche.DiffusionMarche;
+import brokerx.service.notification.CanalNotification;
+import brokerx.service.notification.NotificationDispatcher;
+import brokerx.service.portefeuille.PortefeuilleService;
+import brokerx.web.CachePagesFilter;
+import brokerx.web.CompressionReponsesFilter;
+import brokerx.web.PoolDeflaters;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métriques BrokerX (exposées sur /prometheus)
+ *
+ * - @Timed sur les services : un timer par méthode (nombre, total, max), étiqueté par exception
+ * - routes web : http.server.requests, pool de connexions : hikaricp.* (instrumentation Spring Boot)
+ * - files, sessions et compteurs internes : lus à la collecte depuis les compteurs existants,
+ *   sans aucun coût sur le chemin des requêtes
+ */
+@Configuration
+public class MetriquesConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registre) {
+        return new TimedAspect(registre);
+    }
+
+    @Bean
+    public MeterBinder metriquesSessions(SessionVerificationStore sessions) {
+        return registre -> {
+            Gauge.builder("brokerx.sessions.actives", sessions, SessionVerificationStore::taille)
+                .description("Sessions de vérification en cours")
+                .register(registre);
+            Gauge.builder("brokerx.sessions.capacite", sessions, SessionVerificationStore::getCapaciteMax)
+                .register(registre);
+            FunctionCounter.builder("brokerx.sessions.evictions", sessions, SessionVerificationStore::getEvictionsExpiration)
+                .tag("motif", "expiration")
+                .register(registre);
+            FunctionCounter.builder("brokerx.sessions.evictions", sessions, SessionVerificationStore::getEvictionsCapacite)
+                .tag("motif", "capacite")
+                .register(registre);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesClients(CompteursStatuts compteurs) {
+        return registre -> {
+            for (StatutInscription statut : StatutInscription.values()) {
+                Gauge.builder("brokerx.clients", compteurs, c -> c.nombre(statut.getCode()))
+                    .description("Clients par statut d'inscription")
+                    .tag("statut", statut.getCode())
+                    .register(registre);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesNotifications(NotificationDispatcher dispatcher) {
+        return registre -> {
+            for (CanalNotification canal : CanalNotification.values()) {
+                Gauge.builder("brokerx.notifications.file", dispatcher, d -> d.profondeurFile(canal))
+                    .description("Notifications en attente d'envoi")
+                    .tag("canal", canal.name())
+                    .register(registre);
+            }
+            Gauge.builder("brokerx.notifications.file.capacite", dispatcher, NotificationDispatcher::getCapaciteFile)
+                .register(registre);
+            compteur(registre, "brokerx.notifications.envoyees", dispatcher, NotificationDispatcher::getEnvoyees);
+            compteur(registre, "brokerx.notifications.echecs", dispatcher, NotificationDispatcher::getEchecs);
+            compteur(registre, "brokerx.notifications.rejetees", dispatcher, NotificationDispatcher::getRejetees);
+            TimeGauge.builder("brokerx.notifications.latence.moyenne", dispatcher, TimeUnit.NANOSECONDS,
+                    NotificationDispatcher::getLatenceMoyenneNanos)
+                .register(registre);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesMotsDePasse(HachageMotDePasseService hachage) {
+        return registre -> {
+            Gauge.builder("brokerx.mots_de_passe.file", hachage, HachageMotDePasseService::getProfondeurFile)
+                .register(registre);
+            Gauge.builder("brokerx.mots_de_passe.threads.actifs", hachage, HachageMotDePasseService::getThreadsActifs)
+                .register(registre);
+            Gauge.builder("brokerx.mots_de_passe.import.file", hachage, HachageMotDePasseService::getProfondeurFileImport)
+                .register(registre);
+            Gauge.builder("brokerx.mots_de_passe.import.threads.actifs", hachage, HachageMotDePasseService::getThreadsActifsImport)
+                .register(registre);
+            compteur(registre, "brokerx.mots_de_passe.hachages", hachage, HachageMotDePasseService::getHachages);
+            compteur(registre, "brokerx.mots_de_passe.verifications", hachage, HachageMotDePasseService::getVerifications);
+            compteur(registre, "brokerx.mots_de_passe.rehachages", hachage, HachageMotDePasseService::getRehachages);
+            compteur(registre, "brokerx.mots_de_passe.refus", hachage, HachageMotDePasseService::getRefus);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesJournaux(JournalAudit audit, JournalEvenements evenements) {
+        return registre -> {
+            Gauge.builder("brokerx.audit.file", audit, JournalAudit::profondeurFile)
+                .register(registre);
+            compteur(registre, "brokerx.audit.enregistrements", audit, JournalAudit::getEnregistrementsEcrits);
+            Gauge.builder("brokerx.evenements.file", evenements, JournalEvenements::profondeurFile)
+                .register(registre);
+            compteur(registre, "brokerx.evenements.emis", evenements, JournalEvenements::getEmis);
+            compteur(registre, "brokerx.evenements.abandonnes", evenements, JournalEvenements::getAbandonnes);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesFiltreClients(FiltreExistenceClients filtre) {
+        return registre -> {
+            Gauge.builder("brokerx.filtre_clients.elements", filtre, FiltreExistenceClients::getElements)
+                .register(registre);
+            Gauge.builder("brokerx.filtre_clients.faux_positifs.taux", filtre, FiltreExistenceClients::getTauxFauxPositifsObserve)
+                .register(registre);
+            compteur(registre, "brokerx.filtre_clients.requetes", filtre, FiltreExistenceClients::getRequetes);
+            compteur(registre, "brokerx.filtre_clients.negatifs", filtre, FiltreExistenceClients::getNegatifs);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesMoteur(MoteurAppariement moteur) {
+        return registre -> {
+            Gauge.builder("brokerx.moteur.carnets", moteur, MoteurAppariement::getNombreCarnets)
+                .register(registre);
+            compteur(registre, "brokerx.moteur.ordres", moteur, MoteurAppariement::getOrdresSoumis);
+            compteur(registre, "brokerx.moteur.annulations", moteur, MoteurAppariement::getOrdresAnnules);
+            compteur(registre, "brokerx.moteur.executions", moteur, MoteurAppariement::getExecutions);
+            compteur(registre, "brokerx.moteur.quantite_executee", moteur, MoteurAppariement::getQuantiteExecutee);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesJournalOrdres(JournalOrdres journalOrdres, RepriseOrdresService reprise) {
+        return registre -> {
+            Gauge.builder("brokerx.journal_ordres.sequence", journalOrdres, JournalOrdres::getDerniereSequence)
+                .register(registre);
+            Gauge.builder("brokerx.journal_ordres.instantane.sequence", reprise, RepriseOrdresService::getSequenceInstantane)
+                .register(registre);
+            Gauge.builder("brokerx.journal_ordres.reprise.evenements", reprise, RepriseOrdresService::getEvenementsRejoues)
+                .register(registre);
+            TimeGauge.builder("brokerx.journal_ordres.reprise.duree", reprise, TimeUnit.MILLISECONDS,
+                    RepriseOrdresService::getDureeRepriseMs)
+                .register(registre);
+            compteur(registre, "brokerx.journal_ordres.enregistrements", journalOrdres, JournalOrdres::getEnregistrementsEcrits);
+            compteur(registre, "brokerx.journal_ordres.synchronisations", journalOrdres, JournalOrdres::getSynchronisations);
+            compteur(registre, "brokerx.journal_ordres.instantanes", reprise, RepriseOrdresService::getInstantanesEcrits);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesDiffusionMarche(DiffusionMarche diffusion) {
+        return registre -> {
+            Gauge.builder("brokerx.marche.abonnes", diffusion, DiffusionMarche::getNombreAbonnes)
+                .register(registre);
+            Gauge.builder("brokerx.marche.symboles", diffusion, DiffusionMarche::getNombreSymboles)
+                .register(registre);
+            compteur(registre, "brokerx.marche.publications", diffusion, DiffusionMarche::getPublications);
+            compteur(registre, "brokerx.marche.messages.fusionnes", diffusion, DiffusionMarche::getMessagesFusionnes);
+            compteur(registre, "brokerx.marche.envois.echecs", diffusion, DiffusionMarche::getEchecsEnvoi);
+            // Modification du carnet -> message écrit sur la connexion (intervalle de publication compris)
+            FunctionTimer.builder("brokerx.marche.latence", diffusion,
+                    DiffusionMarche::getMessagesEnvoyes, DiffusionMarche::getLatenceTotaleSecondes, TimeUnit.SECONDS)
+                .register(registre);
+            Gauge.builder("brokerx.marche.latence.max", diffusion, DiffusionMarche::getLatenceMaxSecondes)
+                .baseUnit("seconds")
+                .register(registre);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesTransitionsInscription(TransitionsInscription transitions) {
+        return registre -> {
+            FunctionCounter.builder("brokerx.clients.transitions", transitions, TransitionsInscription::getAppliquees)
+                .tag("resultat", "appliquee")
+                .register(registre);
+            FunctionCounter.builder("brokerx.clients.transitions", transitions, TransitionsInscription::getInterdites)
+                .tag("resultat", "interdite")
+                .register(registre);
+            // Version changée entre la lecture et l'UPDATE : relecture puis nouvelle tentative
+            compteur(registre, "brokerx.clients.transitions.conflits", transitions, TransitionsInscription::getConflits);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesCacheClients(CacheClients cache) {
+        return registre -> {
+            Gauge.builder("brokerx.clients.cache.entrees", cache, CacheClients::taille)
+                .register(registre);
+            Gauge.builder("brokerx.clients.cache.taux_succes", cache, CacheClients::getTauxSucces)
+                .register(registre);
+            FunctionCounter.builder("brokerx.clients.cache.requetes", cache, CacheClients::getSucces)
+                .tag("resultat", "succes")
+                .register(registre);
+            FunctionCounter.builder("brokerx.clients.cache.requetes", cache, CacheClients::getAbsences)
+                .tag("resultat", "absence")
+                .register(registre);
+            // Requêtes en base : une par absence (chargements fusionnés), chaque lecture si le cache est désactivé
+            FunctionTimer.builder("brokerx.clients.cache.chargements", cache,
+                    CacheClients::getChargements, CacheClients::getDureeChargementsSecondes, TimeUnit.SECONDS)
+                .register(registre);
+            compteur(registre, "brokerx.clients.cache.invalidations", cache, CacheClients::getInvalidations);
+            FunctionCounter.builder("brokerx.clients.cache.evictions", cache, CacheClients::getEvictionsExpiration)
+                .tag("motif", "expiration")
+                .register(registre);
+            FunctionCounter.builder("brokerx.clients.cache.evictions", cache, CacheClients::getEvictionsCapacite)
+                .tag("motif", "capacite")
+                .register(registre);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesIdempotenceOrdres(CacheIdempotenceOrdres cache) {
+        return registre -> {
+            Gauge.builder("brokerx.ordres.idempotence.entrees", cache, CacheIdempotenceOrdres::taille)
+                .register(registre);
+            Gauge.builder("brokerx.ordres.idempotence.capacite", cache, CacheIdempotenceOrdres::getCapaciteMax)
+                .register(registre);
+            Gauge.builder("brokerx.ordres.idempotence.taux_succes", cache, CacheIdempotenceOrdres::getTauxSucces)
+                .register(registre);
+            FunctionCounter.builder("brokerx.ordres.idempotence.requetes", cache, CacheIdempotenceOrdres::getSucces)
+                .tag("resultat", "succes")
+                .register(registre);
+            FunctionCounter.builder("brokerx.ordres.idempotence.requetes", cache, CacheIdempotenceOrdres::getAbsences)
+                .tag("resultat", "absence")
+                .register(registre);
+            compteur(registre, "brokerx.ordres.idempotence.replis_base", cache, CacheIdempotenceOrdres::getReplisBase);
+            FunctionCounter.builder("brokerx.ordres.idempotence.evictions", cache, CacheIdempotenceOrdres::getEvictionsExpiration)
+                .tag("motif", "expiration")
+                .register(registre);
+            FunctionCounter.builder("brokerx.ordres.idempotence.evictions", cache, CacheIdempotenceOrdres::getEvictionsCapacite)
+                .tag("motif", "capacite")
+                .register(registre);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesPouvoirAchat(PouvoirAchatService pouvoirAchat) {
+        return registre -> {
+            Gauge.builder("brokerx.comptes.en_memoire", pouvoirAchat, PouvoirAchatService::getNombreComptes)
+                .register(registre);
+            Gauge.builder("brokerx.comptes.reservations.actives", pouvoirAchat, PouvoirAchatService::getReservationsActives)
+                .register(registre);
+            Gauge.builder("brokerx.comptes.reconciliation.file", pouvoirAchat, PouvoirAchatService::getComptesAReconcilier)
+                .register(registre);
+            compteur(registre, "brokerx.comptes.reservations", pouvoirAchat, PouvoirAchatService::getReservations);
+            compteur(registre, "brokerx.comptes.fonds_insuffisants", pouvoirAchat, PouvoirAchatService::getRefus);
+            compteur(registre, "brokerx.comptes.reconcilies", pouvoirAchat, PouvoirAchatService::getComptesReconcilies);
+            compteur(registre, "brokerx.comptes.reconciliation.echecs", pouvoirAchat, PouvoirAchatService::getEchecsReconciliation);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesSuiviOrdres(SuiviOrdresService suivi) {
+        return registre -> {
+            Gauge.builder("brokerx.ordres.suivis", suivi, SuiviOrdresService::getOrdresSuivis)
+                .register(registre);
+            Gauge.builder("brokerx.ordres.suivi.file", suivi, SuiviOrdresService::getOrdresAEcrire)
+                .register(registre);
+            compteur(registre, "brokerx.ordres.suivi.ecrits", suivi, SuiviOrdresService::getOrdresEcrits);
+            compteur(registre, "brokerx.ordres.suivi.echecs", suivi, SuiviOrdresService::getEchecsEcriture);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesPortefeuilles(PortefeuilleService portefeuilles) {
+        return registre -> {
+            Gauge.builder("brokerx.portefeuilles.en_memoire", portefeuilles, PortefeuilleService::getNombrePortefeuilles)
+                .register(registre);
+            Gauge.builder("brokerx.portefeuilles.symboles", portefeuilles, PortefeuilleService::getNombreSymboles)
+                .register(registre);
+            compteur(registre, "brokerx.portefeuilles.executions", portefeuilles, PortefeuilleService::getExecutionsAppliquees);
+            compteur(registre, "brokerx.portefeuilles.valorisations", portefeuilles, PortefeuilleService::getValorisations);
+        };
+    }
+
+    @Bean
+    public MeterBinder metriquesPages(CachePagesFilter cachePages, CompressionReponsesFilter compression,
+                                      PoolDeflaters deflaters) {
+        return registre -> {
+            Gauge.builder("brokerx.pages.cache.entrees", cachePages, CachePagesFilter::taille)
+                .register(registre);
+            FunctionCounter.builder("brokerx.pages.cache.requetes", cachePages, CachePagesFilter::getSucces)
+                .tag("resultat", "succes")
+                .register(registre);
+            FunctionCounter.builder("brokerx.pages.cache.requetes", cachePages, CachePagesFilter::getAbsences)
+                .tag("resultat", "absence")
+                .register(registre);
+            FunctionCounter.builder("brokerx.pages.cache.requetes", cachePages, CachePagesFilter::getContournements)
+                .tag("resultat", "contournement")
+                .register(registre);
+            // 304 : ni rendu ni corps
+            compteur(registre, "brokerx.pages.non_modifiees", cachePages, CachePagesFilter::getNonModifiees);
+            FunctionTimer.builder("brokerx.pages.rendus", cachePages,
+                    CachePagesFilter::getRendus, CachePagesFilter::getDureeRendusSecondes, TimeUnit.SECONDS)
+                .register(registre);
+            compteur(registre, "brokerx.compression.reponses", compression, CompressionReponsesFilter::getCompressees);
+            FunctionCounter.builder("brokerx.compression.octets", compression, CompressionReponsesFilter::getOctetsAvant)
+                .tag("sens", "avant")
+                .register(registre);
+            FunctionCounter.builder("brokerx.compression.octets", compression, CompressionReponsesFilter::getOctetsApres)
+                .tag("sens", "apres")
+                .register(registre);
+            Gauge.builder("brokerx.compression.deflaters.libres", deflaters, PoolDeflaters::getLibres)
+                .register(registre);
+            compteur(registre, "brokerx.compression.deflaters.crees", deflaters, PoolDeflaters::getCrees);
+            compteur(registre, "brokerx.compression.deflaters.reutilises", deflaters, PoolDeflaters::getReutilises);
+            compteur(registre, "brokerx.compression.deflaters.detruits", deflaters, PoolDeflaters::getDetruits);
+        };
+    }
+
+    private static <T> void compteur(MeterRegistry registre, String nom, T source, ToDoubleFunction<T> valeur) {
+        FunctionCounter.builder(nom, source, valeur).register(registre);
+    }
+}
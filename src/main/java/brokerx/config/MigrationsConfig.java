@@ -0,0 +1,39 @@
+package brokerx.config;
+
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Migrations du schéma (scripts versionnés src/main/resources/db/migration, Flyway)
+ *
+ * - exécutées avant la création de l'EntityManagerFactory; Hibernate ne modifie plus le schéma (ddl-auto=none)
+ * - chaque script appliqué est enregistré avec sa somme de contrôle (flyway_schema_history) :
+ *   un script déjà appliqué puis modifié fait échouer le démarrage
+ * - au-demarrage=false (plusieurs nœuds, schéma migré par MigrationsSchemaCommande avant déploiement) :
+ *   le démarrage vérifie seulement que tous les scripts sont appliqués et inchangés
+ */
+@Configuration
+public class MigrationsConfig {
+
+    @Bean
+    public FlywayMigrationStrategy strategieMigrations(JournalEvenements journal,
+                                                       @Value("${brokerx.migrations.au-demarrage:true}") boolean auDemarrage) {
+        return flyway -> {
+            if (!auDemarrage) {
+                flyway.validate();
+                return;
+            }
+            long debut = System.nanoTime();
+            MigrateResult resultat = flyway.migrate();
+            journal.evenement(TypeEvenement.SCHEMA_MIGRE,
+                "version", resultat.targetSchemaVersion != null ? resultat.targetSchemaVersion : resultat.initialSchemaVersion,
+                "appliquees", resultat.migrationsExecuted,
+                "dureeMs", (System.nanoTime() - debut) / 1_000_000);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package brokerx.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import java.util.Arrays;
+
+/**
+ * Migrations du schéma en ligne de commande, sans démarrer l'application (ni JPA, ni serveur web) :
+ *   java -jar brokerx.jar --migrer-schema[=migrer|valider|info|reparer] [--spring.datasource.url=...]
+ *   ./gradlew migrations -Pmigrations.args="--migrer-schema=info"
+ * Même configuration que l'application (application.properties, variables d'environnement, options).
+ * Code de sortie : 0 si l'action a réussi, 1 sinon (script en échec, somme de contrôle différente, script non appliqué).
+ */
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, FlywayAutoConfiguration.class})
+public class MigrationsSchemaCommande {
+
+    public static final String OPTION = "migrer-schema";
+
+    public static void main(String[] args) {
+        System.exit(executer(args));
+    }
+
+    public static boolean estDemandee(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.equals("--" + OPTION) || arg.startsWith("--" + OPTION + "="));
+    }
+
+    public static int executer(String[] args) {
+        String action = Arrays.stream(args)
+            .filter(arg -> arg.startsWith("--" + OPTION + "="))
+            .map(arg -> arg.substring(OPTION.length() + 3))
+            .findFirst().orElse("migrer");
+        try (ConfigurableApplicationContext contexte = new SpringApplicationBuilder(MigrationsSchemaCommande.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args)) {
+            Flyway flyway = contexte.getBean(Flyway.class);
+            switch (action) {
+                case "migrer" -> {
+                    MigrateResult resultat = flyway.migrate();
+                    MigrationInfo courante = flyway.info().current();
+                    System.out.printf("%d migration(s) appliquée(s), schéma en version %s%n",
+                        resultat.migrationsExecuted, courante != null ? courante.getVersion() : "vide");
+                }
+                case "valider" -> flyway.validate();
+                case "reparer" -> flyway.repair();
+                case "info" -> { }
+                default -> throw new IllegalArgumentException("Action inconnue : " + action
+                    + " (attendu : migrer, valider, info, reparer)");
+            }
+            afficher(flyway);
+            return 0;
+        } catch (RuntimeException e) {
+            System.err.println("Migrations du schéma en échec : " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Les migrations ne sont pas lancées à la création du contexte : l'action demandée s'en charge
+     */
+    @Bean
+    FlywayMigrationStrategy strategieCommande() {
+        return flyway -> { };
+    }
+
+    private static void afficher(Flyway flyway) {
+        for (MigrationInfo migration : flyway.info().all()) {
+            System.out.printf("  %-8s %-40s %-10s %s%n", migration.getVersion(), migration.getDescription(),
+                migration.getState().getDisplayName(),
+                migration.getInstalledOn() != null ? migration.getInstalledOn() : "");
+        }
+    }
+}
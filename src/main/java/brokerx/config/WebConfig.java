@@ -1,12 +1,52 @@
 package brokerx.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+import java.time.Duration;
 
 /**
  * Configuration Web MVC
+ *
+ * Feuilles de style et scripts des pages (static/assets), hors des templates :
+ * - URL empreintes par leur contenu (/assets/css/home-<md5>.css), réécrites dans les templates
+ *   par ResourceUrlEncodingFilter pour th:href / th:src : un changement de contenu change l'URL
+ * - d'où une mise en cache navigateur d'un an, immuable : une page revisitée ne les retransfère pas
+ * - variantes précompressées à la construction (.br, .gz : tâche precompresserRessources) servies
+ *   selon Accept-Encoding, sans compression à la volée
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     // Configuration de base - formatage des dates géré par @DateTimeFormat
-}
\ No newline at end of file
+
+    private final Duration dureeCache;
+    private final boolean cacheResolution;
+
+    public WebConfig(@Value("${brokerx.ressources.duree-cache:P365D}") Duration dureeCache,
+                     @Value("${brokerx.ressources.cache-resolution:true}") boolean cacheResolution) {
+        this.dureeCache = dureeCache;
+        this.cacheResolution = cacheResolution;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/assets/**")
+            .addResourceLocations("classpath:/static/assets/")
+            .setCacheControl(CacheControl.maxAge(dureeCache).cachePublic().immutable())
+            // cacheResolution=false (développement) : empreintes recalculées à chaque requête
+            .resourceChain(cacheResolution)
+            .addResolver(new EncodedResourceResolver())
+            .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
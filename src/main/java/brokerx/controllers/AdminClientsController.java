@@ -0,0 +1,57 @@
+package brokerx.controllers;
+
+import brokerx.entity.StatutInscription;
+import brokerx.service.CompteursStatuts;
+import brokerx.service.ListeClientsService;
+import brokerx.service.PageClients;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page d'administration : liste des clients (CU02)
+ */
+@Controller
+public class AdminClientsController {
+
+    private final ListeClientsService listeClients;
+    private final CompteursStatuts compteursStatuts;
+
+    public AdminClientsController(ListeClientsService listeClients, CompteursStatuts compteursStatuts) {
+        this.listeClients = listeClients;
+        this.compteursStatuts = compteursStatuts;
+    }
+
+    @GetMapping("/admin/clients")
+    public String clients(@RequestParam(required = false) String statut,
+                          @RequestParam(required = false) String curseur,
+                          @RequestParam(required = false) Integer taille,
+                          Model model) {
+        List<String> statuts = new ArrayList<>();
+        for (StatutInscription s : StatutInscription.values()) {
+            statuts.add(s.getCode());
+        }
+        model.addAttribute("pageTitle", "BrokerX - Clients");
+        model.addAttribute("statuts", statuts);
+        // Compteurs tenus à jour à chaque transition : pas de COUNT(*) à l'affichage
+        model.addAttribute("compteurs", compteursStatuts.valeurs());
+        model.addAttribute("total", compteursStatuts.total());
+        model.addAttribute("statut", statut);
+        model.addAttribute("taille", taille);
+
+        try {
+            PageClients page = listeClients.page(statut, curseur, taille);
+            model.addAttribute("clients", page.clients());
+            model.addAttribute("curseurSuivant", page.curseurSuivant());
+            model.addAttribute("premierePage", curseur == null || curseur.isBlank());
+        } catch (IllegalArgumentException e) {
+            model.addAttribute("error", e.getMessage());
+            model.addAttribute("clients", List.of());
+            model.addAttribute("premierePage", true);
+        }
+        return "admin-clients";
+    }
+}
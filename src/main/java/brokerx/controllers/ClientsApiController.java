@@ -0,0 +1,52 @@
+package brokerx.controllers;
+
+import brokerx.entity.StatutInscription;
+import brokerx.service.ListeClientsService;
+import brokerx.service.PageClients;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.Map;
+
+/**
+ * API de liste des clients (CU02)
+ *   GET /api/clients?statut=PENDING&taille=50&curseur=...   page JSON, curseurSuivant pour continuer
+ *   GET /api/clients/export?statut=...                       tous les clients en NDJSON, en flux
+ */
+@RestController
+@RequestMapping("/api/clients")
+public class ClientsApiController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ListeClientsService listeClients;
+
+    public ClientsApiController(ListeClientsService listeClients) {
+        this.listeClients = listeClients;
+    }
+
+    @GetMapping
+    public PageClients lister(@RequestParam(required = false) String statut,
+                              @RequestParam(required = false) String curseur,
+                              @RequestParam(required = false) Integer taille) {
+        return listeClients.page(statut, curseur, taille);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exporter(@RequestParam(required = false) String statut) {
+        // Filtre validé avant l'envoi des en-têtes; l'export s'écrit ensuite hors du thread de requête
+        StatutInscription filtre = ListeClientsService.normaliserStatut(statut);
+        StreamingResponseBody corps = sortie -> listeClients.exporter(filtre, sortie);
+        return ResponseEntity.ok().contentType(NDJSON).body(corps);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> requeteInvalide(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("erreur", e.getMessage()));
+    }
+}
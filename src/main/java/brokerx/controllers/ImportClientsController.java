@@ -0,0 +1,66 @@
+package brokerx.controllers;
+
+import brokerx.service.ServiceSatureException;
+import brokerx.service.importation.FormatImport;
+import brokerx.service.importation.ImportClientsService;
+import brokerx.service.importation.LigneInvalideException;
+import brokerx.service.importation.RapportImport;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Import en masse de clients par HTTP
+ * Le corps de la requête (text/csv ou application/x-ndjson) est lu en flux, sans multipart ni fichier temporaire :
+ *   curl -X POST -H 'Content-Type: text/csv' --data-binary @clients.csv http://localhost:8080/admin/clients/import
+ *
+ * Point d'entrée non authentifié : actif seulement si brokerx.import.http-actif=true, et les lignes dont le
+ * mot de passe est déjà un hachage BCrypt sont rejetées (un import en masse de hachages passe par la ligne de commande)
+ */
+@RestController
+@RequestMapping("/admin/clients")
+@ConditionalOnProperty(name = "brokerx.import.http-actif", havingValue = "true")
+public class ImportClientsController {
+
+    private final ImportClientsService importClients;
+
+    public ImportClientsController(ImportClientsService importClients) {
+        this.importClients = importClients;
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<?> importer(HttpServletRequest requete,
+                                      @RequestParam(required = false) String format) throws IOException {
+        FormatImport formatImport;
+        try {
+            formatImport = FormatImport.depuis(format != null ? format : requete.getContentType());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("erreur", e.getMessage()));
+        }
+
+        try (InputStream corps = requete.getInputStream()) {
+            RapportImport rapport = importClients.importer(corps, formatImport, false);
+            return ResponseEntity.ok(rapport);
+        } catch (LigneInvalideException e) {
+            // En-tête CSV absent ou incomplet : rien n'a été importé
+            return ResponseEntity.badRequest().body(Map.of("erreur", e.getMessage()));
+        }
+    }
+
+    // Pool de hachage d'import occupé par un autre import : les lots déjà insérés sont conservés
+    @ExceptionHandler(ServiceSatureException.class)
+    public ResponseEntity<?> sature(ServiceSatureException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "60")
+            .body(Map.of("erreur", e.getMessage()));
+    }
+}
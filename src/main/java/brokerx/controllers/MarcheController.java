@@ -0,0 +1,48 @@
+package brokerx.controllers;
+
+import brokerx.service.ServiceSatureException;
+import brokerx.service.marche.DiffusionMarche;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.List;
+
+/**
+ * Données de marché en continu (Server-Sent Events)
+ *   GET /marche/flux?symboles=BRKX,ABC   événements "carnet" : meilleurs niveaux du symbole, JSON
+ *                                        (version, horodatageUs de la première modification, achats, ventes)
+ * Les états intermédiaires peuvent être fusionnés : chaque événement est complet, seul le dernier compte.
+ */
+@RestController
+public class MarcheController {
+
+    private final DiffusionMarche diffusion;
+
+    public MarcheController(DiffusionMarche diffusion) {
+        this.diffusion = diffusion;
+    }
+
+    @GetMapping(path = "/marche/flux", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter flux(@RequestParam List<String> symboles) {
+        return diffusion.abonner(symboles);
+    }
+
+    // Corps texte : seul convertisseur compatible avec Accept: text/event-stream
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> requeteInvalide(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+
+    @ExceptionHandler(ServiceSatureException.class)
+    public ResponseEntity<String> sature(ServiceSatureException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "5")
+            .contentType(MediaType.TEXT_PLAIN)
+            .body(e.getMessage());
+    }
+}
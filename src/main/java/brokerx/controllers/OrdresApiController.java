@@ -0,0 +1,48 @@
+package brokerx.controllers;
+
+import brokerx.service.AccuseOrdre;
+import brokerx.service.DemandeOrdre;
+import brokerx.service.OrdreService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * API de placement d'ordres (UC-05)
+ *   POST /api/ordres   201 avec l'accusé de réception, ou 200 avec l'accusé d'origine si le
+ *                      ClientOrderId a déjà été traité (en-tête Idempotent-Replayed: true)
+ */
+@RestController
+@RequestMapping("/api/ordres")
+public class OrdresApiController {
+
+    private final OrdreService ordreService;
+
+    public OrdresApiController(OrdreService ordreService) {
+        this.ordreService = ordreService;
+    }
+
+    @PostMapping
+    public ResponseEntity<AccuseOrdre> placer(@RequestBody DemandeOrdre demande) {
+        AccuseOrdre accuse = ordreService.placer(demande);
+        if (accuse.rejeu()) {
+            return ResponseEntity.ok().header("Idempotent-Replayed", "true").body(accuse);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(accuse);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> requeteInvalide(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("erreur", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> enCours(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("erreur", e.getMessage()));
+    }
+}
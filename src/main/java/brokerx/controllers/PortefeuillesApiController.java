@@ -0,0 +1,36 @@
+package brokerx.controllers;
+
+import brokerx.service.portefeuille.InstantanePortefeuille;
+import brokerx.service.portefeuille.PortefeuilleService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * API de consultation des portefeuilles
+ *   GET /api/portefeuilles/{clientId}   positions, coût moyen et P&L (réalisé, latent au dernier cours);
+ *                                       portefeuille vide si le client n'a aucune exécution
+ */
+@RestController
+@RequestMapping("/api/portefeuilles")
+public class PortefeuillesApiController {
+
+    private final PortefeuilleService portefeuilles;
+
+    public PortefeuillesApiController(PortefeuilleService portefeuilles) {
+        this.portefeuilles = portefeuilles;
+    }
+
+    @GetMapping("/{clientId}")
+    public ResponseEntity<InstantanePortefeuille> consulter(@PathVariable long clientId) {
+        InstantanePortefeuille instantane = portefeuilles.instantane(clientId);
+        if (instantane == null) {
+            instantane = new InstantanePortefeuille(clientId, List.of(), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        return ResponseEntity.ok().header("Cache-Control", "no-store").body(instantane);
+    }
+}
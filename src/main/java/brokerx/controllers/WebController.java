@@ -1,7 +1,12 @@
 package brokerx.controllers;
 
 import brokerx.entity.Client;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
 import brokerx.service.ClientService;
+import brokerx.service.ServiceSatureException;
+import brokerx.service.SessionVerification;
+import brokerx.service.SessionVerificationStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -11,9 +16,10 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.beans.propertyeditors.StringTrimmerEditor;
 import jakarta.validation.Valid;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Contrôleur monolithique MVC pour BrokerX
@@ -22,11 +28,19 @@ import java.util.Optional;
 @Controller
 public class WebController {
 
+    // Compte qui n'est pas passé à ACTIVE (déjà actif, rejeté ou suspendu) : pas de message de succès
+    private static final String ACTIVATION_REFUSEE =
+        "Votre compte n'a pas pu être activé (déjà activé, inscription expirée ou compte suspendu). Contactez le support.";
+
     @Autowired
     private ClientService clientService;
     
-    // Stockage temporaire des sessions de vérification
-    private final Map<String, SessionVerification> sessions = new HashMap<>();
+    // Stockage concurrent et expirant des sessions de vérification
+    @Autowired
+    private SessionVerificationStore sessions;
+    
+    @Autowired
+    private JournalEvenements journal;
 
     /**
      * Configuration du binding pour les formulaires
@@ -53,70 +67,84 @@ public class WebController {
     }
     
     @PostMapping("/inscription")
-    public String traiterInscription(@Valid @ModelAttribute("client") Client client,
-                                   BindingResult result,
-                                   Model model,
-                                   RedirectAttributes redirectAttributes) {
+    public CompletableFuture<String> traiterInscription(@Valid @ModelAttribute("client") Client client,
+                                                        BindingResult result,
+                                                        Model model,
+                                                        RedirectAttributes redirectAttributes) {
         
-        // Debug: afficher les valeurs reçues
-        System.out.println("DEBUG - Données reçues:");
-        System.out.println("  - Prénom: " + client.getPrenom());
-        System.out.println("  - Nom: " + client.getNom());
-        System.out.println("  - Email: " + client.getEmail());
-        System.out.println("  - Téléphone: " + client.getTelephone());
-        System.out.println("  - Date de naissance: " + client.getDateNaissance());
-        System.out.println("  - Adresse: " + client.getAdresse());
-        System.out.println("  - Erreurs: " + result.hasErrors());
-        if (result.hasErrors()) {
-            System.out.println("  - Détails erreurs: " + result.getAllErrors());
-        }
+        // Debug: valeurs reçues (masquées automatiquement)
+        journal.evenement(TypeEvenement.INSCRIPTION_RECUE,
+            "prenom", client.getPrenom(), "email", client.getEmail(),
+            "telephone", client.getTelephone(), "erreurs", result.getErrorCount());
         
         if (result.hasErrors()) {
+            if (journal.estActif(TypeEvenement.INSCRIPTION_INVALIDE)) {
+                journal.evenement(TypeEvenement.INSCRIPTION_INVALIDE,
+                    "email", client.getEmail(), "champs", champsEnErreur(result));
+            }
             model.addAttribute("pageTitle", "Inscription - BrokerX");
-            return "inscription";
+            return CompletableFuture.completedFuture("inscription");
         }
         
+        // Créer le client avec vérifications (CU01 - Étape 2) : le hachage du mot de passe
+        // s'exécute sur le pool dédié, le thread Tomcat est libéré
+        CompletableFuture<ClientService.CreationResult> creation;
         try {
-            // Créer le client avec vérifications (CU01 - Étape 2)
-            ClientService.CreationResult creationResult = clientService.creerClientAvecVerification(client);
+            creation = clientService.creerClientAvecVerification(client);
+        } catch (Exception e) {
+            creation = CompletableFuture.failedFuture(e);
+        }
+        
+        return creation.handle((creationResult, erreur) -> {
+            if (erreur != null) {
+                Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null ? erreur.getCause() : erreur;
+                return inscriptionRefusee(client, cause, result, model);
+            }
             
             // Créer session de vérification pour le processus web avec les codes générés
-            String sessionId = java.util.UUID.randomUUID().toString();
-            SessionVerification session = new SessionVerification();
-            session.email = creationResult.getClient().getEmail();
-            session.codeEmail = creationResult.getCodeEmail();
-            session.codeOTP = creationResult.getCodeOTP();
-            sessions.put(sessionId, session);
+            SessionVerification session = sessions.creer(
+                creationResult.getClient().getEmail(),
+                creationResult.getCodeEmail(),
+                creationResult.getJetonLien(),
+                creationResult.getCodeOTP()
+            );
+            String sessionId = session.getId();
             
-            System.out.println("🎯 CU01 - Étape 2 complétée: Compte PENDING créé avec notifications envoyées");
-            System.out.println("📝 Session créée - ID: " + sessionId);
-            System.out.println("📧 Email: " + session.email);
-            System.out.println("🔑 Code Email: " + session.codeEmail);
-            System.out.println("📱 Code OTP: " + session.codeOTP);
-            System.out.println("🗂️ Sessions actives: " + sessions.size());
+            // CU01 - Étape 2 complétée: Compte PENDING créé avec notifications en file
+            journal.evenement(TypeEvenement.SESSION_CREEE,
+                "sessionId", sessionId, "email", session.getEmail(), "sessionsActives", sessions.taille());
             
             redirectAttributes.addAttribute("sessionId", sessionId);
             redirectAttributes.addFlashAttribute("email", creationResult.getClient().getEmail());
             return "redirect:/inscription-confirmation";
-            
-        } catch (IllegalArgumentException e) {
-            // Gestion des erreurs de compte existant
-            if (e.getMessage().contains("email")) {
-                result.rejectValue("email", "error.client", e.getMessage());
-            } else if (e.getMessage().contains("téléphone")) {
-                result.rejectValue("telephone", "error.client", e.getMessage());
-            } else {
-                result.reject("error.client", e.getMessage());
-            }
-            
-            model.addAttribute("pageTitle", "Inscription - BrokerX");
+        });
+    }
+    
+    private String inscriptionRefusee(Client client, Throwable cause, BindingResult result, Model model) {
+        model.addAttribute("pageTitle", "Inscription - BrokerX");
+        if (cause instanceof ServiceSatureException) {
+            result.reject("error.client", "Service temporairement surchargé, veuillez réessayer dans quelques instants.");
             return "inscription";
         }
+        if (!(cause instanceof IllegalArgumentException)) {
+            result.reject("error.client", "Une erreur s'est produite lors de l'inscription.");
+            return "inscription";
+        }
+        // Gestion des erreurs de compte existant
+        journal.evenement(TypeEvenement.INSCRIPTION_REFUSEE, "email", client.getEmail(), "motif", cause.getMessage());
+        if (cause.getMessage().contains("email")) {
+            result.rejectValue("email", "error.client", cause.getMessage());
+        } else if (cause.getMessage().contains("téléphone")) {
+            result.rejectValue("telephone", "error.client", cause.getMessage());
+        } else {
+            result.reject("error.client", cause.getMessage());
+        }
+        return "inscription";
     }
 
     @GetMapping("/verification-email-session")
     public String verificationEmail(@RequestParam(required = false) String sessionId, Model model) {
-        System.out.println("🔍 ACCÈS GET /verification-email-session avec sessionId: " + sessionId);
+        journal.evenement(TypeEvenement.ACCES_PAGE, "page", "/verification-email-session", "sessionId", sessionId);
         
         // Vérifier si le sessionId est fourni
         if (sessionId == null || sessionId.trim().isEmpty()) {
@@ -125,17 +153,16 @@ public class WebController {
         }
         
         // Vérifier si la session existe
-        SessionVerification session = sessions.get(sessionId);
+        SessionVerification session = sessions.trouver(sessionId);
         if (session == null) {
-            System.out.println("Session introuvable pour sessionId: " + sessionId);
+            journal.evenement(TypeEvenement.SESSION_INTROUVABLE, "page", "/verification-email-session", "sessionId", sessionId);
             model.addAttribute("error", "Session expirée ou invalide. Veuillez recommencer l'inscription.");
             return "redirect:/inscription";
         }
         
-        System.out.println("Session trouvee pour email: " + session.email);
         model.addAttribute("pageTitle", "Verification Email - BrokerX");
         model.addAttribute("sessionId", sessionId);
-        model.addAttribute("email", session.email);
+        model.addAttribute("email", session.getEmail());
         return "verification-email";
     }
 
@@ -145,7 +172,7 @@ public class WebController {
                                          Model model,
                                          RedirectAttributes redirectAttributes) {
         
-        SessionVerification session = sessions.get(sessionId);
+        SessionVerification session = sessions.trouver(sessionId);
         if (session == null) {
             model.addAttribute("pageTitle", "Vérification Email - BrokerX");
             model.addAttribute("sessionId", sessionId);
@@ -162,7 +189,7 @@ public class WebController {
         }
         
         // Vérifier si le code correspond à celui généré
-        if (!codeVerification.trim().equals(session.codeEmail)) {
+        if (!codeVerification.trim().equals(session.getCodeEmail())) {
             model.addAttribute("pageTitle", "Vérification Email - BrokerX");
             model.addAttribute("sessionId", sessionId);
             model.addAttribute("error", "Code de vérification incorrect. Vérifiez votre email.");
@@ -170,21 +197,26 @@ public class WebController {
         }
         
         // Code email validé avec succès - ACTIVATION AVEC AUDIT
-        //System.out.println("Verification email reussie pour: " + session.email + " avec code: " + codeVerification);
-        
         // ACTIVER LE COMPTE AVEC JOURNALISATION D'AUDIT COMPLÈTE
         // Implémente: "Le Système passe le compte à Active et journalise l'audit (horodatage, empreinte des documents)"
-        String auditId = clientService.activerCompteAvecAudit(session.email, codeVerification);
-        session.emailVerifie = true;
+        String auditId = clientService.activerCompteAvecAudit(session.getEmail(), codeVerification);
+        if (auditId == null) {
+            journal.evenement(TypeEvenement.INSCRIPTION_REFUSEE, "email", session.getEmail(), "motif", "activation refusée");
+            model.addAttribute("pageTitle", "Vérification Email - BrokerX");
+            model.addAttribute("sessionId", sessionId);
+            model.addAttribute("error", ACTIVATION_REFUSEE);
+            return "verification-email";
+        }
+        session.setEmailVerifie(true);
         
         // 🎉 Inscription complètement terminée avec audit
-        System.out.println("🎉 Compte ACTIVÉ avec audit pour: " + session.email + " | ID Audit: " + auditId);
+        journal.evenement(TypeEvenement.COMPTE_ACTIVE, "email", session.getEmail(), "auditId", auditId, "via", "code");
         
         // Supprimer la session car le processus est terminé
-        sessions.remove(sessionId);
+        sessions.supprimer(sessionId);
         
         redirectAttributes.addFlashAttribute("message", "Félicitations ! Votre compte est maintenant actif. Vous pouvez vous connecter.");
-        redirectAttributes.addFlashAttribute("email", session.email);
+        redirectAttributes.addFlashAttribute("email", session.getEmail());
         return "redirect:/inscription/succes";
     }
 
@@ -201,7 +233,7 @@ public class WebController {
                                        Model model,
                                        RedirectAttributes redirectAttributes) {
         
-        SessionVerification session = sessions.get(sessionId);
+        SessionVerification session = sessions.trouver(sessionId);
         
         // Vérifications de sécurité
         if (session == null) {
@@ -211,7 +243,7 @@ public class WebController {
             return "verification-otp";
         }
         
-        if (!session.emailVerifie) {
+        if (!session.isEmailVerifie()) {
             model.addAttribute("pageTitle", "Vérification OTP - BrokerX");
             model.addAttribute("sessionId", sessionId);
             model.addAttribute("error", "Veuillez d'abord vérifier votre email.");
@@ -226,7 +258,14 @@ public class WebController {
             return "verification-otp";
         }
         
-        if (!codeVerification.trim().equals(session.codeOTP)) {
+        if (session.isOTPExpire(Instant.now())) {
+            model.addAttribute("pageTitle", "Vérification OTP - BrokerX");
+            model.addAttribute("sessionId", sessionId);
+            model.addAttribute("error", "Code SMS expiré. Veuillez recommencer l'inscription.");
+            return "verification-otp";
+        }
+        
+        if (!codeVerification.trim().equals(session.getCodeOTP())) {
             model.addAttribute("pageTitle", "Vérification OTP - BrokerX");
             model.addAttribute("sessionId", sessionId);
             model.addAttribute("error", "Code SMS incorrect. Vérifiez le code reçu sur votre téléphone.");
@@ -234,32 +273,29 @@ public class WebController {
         }
         
         // ✅ Code OTP validé avec succès
-        System.out.println("✅ Vérification OTP réussie pour: " + session.email + " avec code: " + codeVerification);
-        clientService.marquerTelephoneVerifie(session.email);
+        journal.evenement(TypeEvenement.VERIFICATION_OTP_REUSSIE, "email", session.getEmail());
+        clientService.marquerTelephoneVerifie(session.getEmail());
         
         // 🎉 Inscription complètement terminée
-        System.out.println("🎉 Inscription complète avec email et téléphone vérifiés pour: " + session.email);
+        journal.evenement(TypeEvenement.INSCRIPTION_COMPLETE, "email", session.getEmail());
         redirectAttributes.addFlashAttribute("message", "Inscription réussie ! Votre compte est maintenant entièrement activé.");
         return "redirect:/inscription/succes";
     }
 
     @GetMapping("/inscription-confirmation")
     public String inscriptionConfirmation(@RequestParam String sessionId, Model model) {
-        System.out.println("📋 ACCÈS /inscription-confirmation avec sessionId: " + sessionId);
+        journal.evenement(TypeEvenement.ACCES_PAGE, "page", "/inscription-confirmation", "sessionId", sessionId);
         
-        SessionVerification session = sessions.get(sessionId);
+        SessionVerification session = sessions.trouver(sessionId);
         if (session == null) {
-            System.out.println("❌ Session introuvable dans /inscription-confirmation");
+            journal.evenement(TypeEvenement.SESSION_INTROUVABLE, "page", "/inscription-confirmation", "sessionId", sessionId);
             model.addAttribute("error", "Session expirée ou invalide");
             return "redirect:/inscription";
         }
         
-        System.out.println("✅ Session trouvée pour /inscription-confirmation - Email: " + session.email);
         model.addAttribute("pageTitle", "Vérifiez votre email - BrokerX");
         model.addAttribute("sessionId", sessionId);
-        model.addAttribute("email", session.email);
-        
-        System.out.println("🔗 SessionId ajouté au modèle: " + sessionId);
+        model.addAttribute("email", session.getEmail());
         return "inscription-confirmation";
     }
 
@@ -268,33 +304,36 @@ public class WebController {
      * Permet de "cliquer sur le lien" comme spécifié dans les critères
      */
     @GetMapping("/verification-email")
-    public String verificationEmailDepuisLien(@RequestParam(required = false) String code, 
+    public String verificationEmailDepuisLien(@RequestParam(required = false) String jeton, 
                                              @RequestParam(required = false) String sessionId,
                                              Model model) {
-        // Si c'est un lien direct depuis l'email avec code
-        if (code != null && !code.trim().isEmpty()) {
-            System.out.println("🔗 ACCÈS via lien email avec code: " + code);
-            
-            // Trouver la session correspondant au code
-            for (Map.Entry<String, SessionVerification> entry : sessions.entrySet()) {
-                SessionVerification session = entry.getValue();
-                if (code.equals(session.codeEmail)) {
-                    System.out.println("✅ Session trouvée pour code email: " + session.email);
-                    
-                    // Activer directement le compte (critère: "clique sur le lien, et son compte est activé")
-                    String auditId = clientService.activerCompteAvecAudit(session.email, code);
-                    
-                    // Supprimer la session
-                    sessions.remove(entry.getKey());
-                    
-                    model.addAttribute("message", "Félicitations ! Votre compte a été activé en cliquant sur le lien. Vous pouvez maintenant vous connecter.");
-                    model.addAttribute("email", session.email);
-                    model.addAttribute("auditId", auditId);
-                    return "inscription-succes";
+        // Si c'est un lien direct depuis l'email : le jeton (et non le code court) identifie la session
+        if (jeton != null && !jeton.trim().isEmpty()) {
+            SessionVerification session = sessions.trouverParJetonLien(jeton.trim());
+            if (session != null) {
+                journal.evenement(TypeEvenement.LIEN_EMAIL_UTILISE, "email", session.getEmail());
+                
+                // Activer directement le compte (critère: "clique sur le lien, et son compte est activé")
+                String auditId = clientService.activerCompteAvecAudit(session.getEmail(), session.getCodeEmail());
+                if (auditId == null) {
+                    journal.evenement(TypeEvenement.INSCRIPTION_REFUSEE, "email", session.getEmail(), "motif", "activation refusée");
+                    model.addAttribute("pageTitle", "Vérification Email - BrokerX");
+                    model.addAttribute("sessionId", session.getId());
+                    model.addAttribute("error", ACTIVATION_REFUSEE);
+                    return "verification-email";
                 }
+                journal.evenement(TypeEvenement.COMPTE_ACTIVE, "email", session.getEmail(), "auditId", auditId, "via", "lien");
+                
+                // Supprimer la session
+                sessions.supprimer(session.getId());
+                
+                model.addAttribute("message", "Félicitations ! Votre compte a été activé en cliquant sur le lien. Vous pouvez maintenant vous connecter.");
+                model.addAttribute("email", session.getEmail());
+                model.addAttribute("auditId", auditId);
+                return "inscription-succes";
             }
             
-            // Code non trouvé
+            // Jeton inconnu ou session expirée
             model.addAttribute("error", "Lien de vérification invalide ou expiré. Veuillez recommencer l'inscription.");
             return "redirect:/inscription";
         }
@@ -322,30 +361,38 @@ public class WebController {
     }
     
     @PostMapping("/connexion")
-    public String connexionPost(@RequestParam String email,
-                               @RequestParam String motDePasse,
-                               Model model,
-                               RedirectAttributes redirectAttributes) {
+    public CompletableFuture<String> connexionPost(@RequestParam String email,
+                                                  @RequestParam String motDePasse,
+                                                  Model model,
+                                                  RedirectAttributes redirectAttributes) {
         
+        // La vérification du mot de passe s'exécute sur le pool de hachage : le thread Tomcat est libéré
+        CompletableFuture<Optional<Client>> authentification;
         try {
-            // Vérifier si l'utilisateur existe et si le mot de passe est correct
-            Optional<Client> clientOpt = clientService.trouverParEmail(email);
-            
-            if (clientOpt.isEmpty()) {
-                model.addAttribute("error", "Email ou mot de passe incorrect.");
+            authentification = clientService.authentifier(email, motDePasse);
+        } catch (Exception e) {
+            authentification = CompletableFuture.failedFuture(e);
+        }
+        
+        return authentification.handle((clientOpt, erreur) -> {
+            if (erreur != null) {
+                Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null ? erreur.getCause() : erreur;
+                model.addAttribute("error", cause instanceof ServiceSatureException
+                    ? "Service temporairement surchargé, veuillez réessayer dans quelques instants."
+                    : "Une erreur s'est produite lors de la connexion.");
                 model.addAttribute("email", email);
                 return "connexion";
             }
             
-            Client client = clientOpt.get();
-            
-            // Vérifier le mot de passe
-            if (!client.getMotDePasse().equals(motDePasse)) {
+            // Utilisateur inconnu ou mot de passe incorrect
+            if (clientOpt.isEmpty()) {
                 model.addAttribute("error", "Email ou mot de passe incorrect.");
                 model.addAttribute("email", email);
                 return "connexion";
             }
             
+            Client client = clientOpt.get();
+            
             // Vérifier si le compte est actif
             if (!client.isCompteActif()) {
                 model.addAttribute("error", "Votre compte n'est pas encore activé. Veuillez vérifier votre email.");
@@ -356,19 +403,20 @@ public class WebController {
             // Connexion réussie - rediriger vers la page d'accueil avec message
             redirectAttributes.addFlashAttribute("message", "Connexion réussie ! Bienvenue " + client.getNom() + ".");
             return "redirect:/";
-            
-        } catch (Exception e) {
-            model.addAttribute("error", "Une erreur s'est produite lors de la connexion.");
-            model.addAttribute("email", email);
-            return "connexion";
-        }
+        });
     }
     
-    // Classe interne pour les sessions de vérification
-    private static class SessionVerification {
-        String email;
-        String codeEmail;
-        String codeOTP;
-        boolean emailVerifie = false;
+    /**
+     * Liste des champs en erreur, sans leurs valeurs (données personnelles)
+     */
+    private static String champsEnErreur(BindingResult result) {
+        StringBuilder champs = new StringBuilder();
+        result.getFieldErrors().forEach(erreur -> {
+            if (champs.length() > 0) {
+                champs.append(',');
+            }
+            champs.append(erreur.getField());
+        });
+        return champs.toString();
     }
-}
\ No newline at end of file
+}
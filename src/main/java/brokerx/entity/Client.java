@@ -10,10 +10,24 @@ import org.springframework.format.annotation.DateTimeFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+// Contraintes et index créés par les migrations (db/migration/V1, V2), déclarés ici à l'identique
 @Entity
-@Table(name = "clients")
+@Table(name = "clients", uniqueConstraints = {
+    @UniqueConstraint(name = Client.CONTRAINTE_EMAIL_UNIQUE, columnNames = "email"),
+    @UniqueConstraint(name = Client.CONTRAINTE_TELEPHONE_UNIQUE, columnNames = "telephone")
+}, indexes = {
+    // Liste des clients (CU02) : pagination par clé, du plus récent au plus ancien.
+    // Index dans l'ordre de la liste : H2 ne sait pas parcourir un index ascendant à rebours pour trier
+    @Index(name = "idx_clients_date_inscription", columnList = "date_inscription desc, id desc"),
+    // Liste filtrée par statut, expiration des inscriptions PENDING anciennes et comptage par statut
+    @Index(name = "idx_clients_statut_date", columnList = "status_inscription, date_inscription desc, id desc")
+})
 public class Client {
     
+    // Contraintes d'unicité nommées : l'inscription s'appuie sur elles pour détecter les doublons
+    public static final String CONTRAINTE_EMAIL_UNIQUE = "uk_clients_email";
+    public static final String CONTRAINTE_TELEPHONE_UNIQUE = "uk_clients_telephone";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -30,7 +44,7 @@ public class Client {
     
     @Email
     @NotBlank
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
     
     @Pattern(regexp = "^\\d{10}$", message = "Le numéro de téléphone doit contenir exactement 10 chiffres")
@@ -61,8 +75,15 @@ public class Client {
     @Column(name = "date_inscription")
     private LocalDateTime dateInscription;
     
-    @Column(name = "status_inscription")
-    private String statusInscription = "PENDING";
+    // Stocké par son nom; ne change que par une transition conditionnelle (TransitionsInscription)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_inscription", length = 20)
+    private StatutInscription statut = StatutInscription.PENDING;
+    
+    // Incrémentée par chaque écriture : une transition ne s'applique qu'à la version lue
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
     
     public Client() {
         this.dateInscription = LocalDateTime.now();
@@ -102,16 +123,20 @@ public class Client {
     public LocalDateTime getDateInscription() { return dateInscription; }
     public void setDateInscription(LocalDateTime dateInscription) { this.dateInscription = dateInscription; }
     
-    public String getStatusInscription() { return statusInscription; }
-    public void setStatusInscription(String statusInscription) { this.statusInscription = statusInscription; }
+    public StatutInscription getStatut() { return statut; }
+    public void setStatut(StatutInscription statut) { this.statut = statut; }
+    
+    public String getStatusInscription() { return statut != null ? statut.getCode() : null; }
+    
+    public long getVersion() { return version; }
     
     public String getNomComplet() { return prenom + " " + nom; }
     
     public boolean isInscriptionComplete() {
-        return emailVerifie && "ACTIVE".equals(statusInscription);
+        return emailVerifie && statut == StatutInscription.ACTIVE;
     }
     
     public boolean isCompteActif() {
-        return "ACTIVE".equals(statusInscription);
+        return statut == StatutInscription.ACTIVE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package brokerx.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Compte de courtage d'un client (UC-05), montants en centimes
+ * Copie réconciliée du registre en mémoire des soldes : la base n'est pas lue sur le chemin des ordres
+ */
+@Entity
+@Table(name = "comptes_courtage", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_comptes_courtage_client", columnNames = "client_id")
+})
+public class CompteDeCourtage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+    
+    // Disponible + réservé
+    @Column(name = "solde_centimes", nullable = false)
+    private long soldeCentimes;
+    
+    @Column(name = "reserve_centimes", nullable = false)
+    private long reserveCentimes;
+    
+    @Column(nullable = false, length = 3)
+    private String devise = "CAD";
+    
+    @Column(name = "date_mise_a_jour")
+    private LocalDateTime dateMiseAJour;
+    
+    public CompteDeCourtage() {
+    }
+    
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+    
+    public long getSoldeCentimes() { return soldeCentimes; }
+    public void setSoldeCentimes(long soldeCentimes) { this.soldeCentimes = soldeCentimes; }
+    
+    public long getReserveCentimes() { return reserveCentimes; }
+    public void setReserveCentimes(long reserveCentimes) { this.reserveCentimes = reserveCentimes; }
+    
+    public String getDevise() { return devise; }
+    public void setDevise(String devise) { this.devise = devise; }
+    
+    public LocalDateTime getDateMiseAJour() { return dateMiseAJour; }
+    public void setDateMiseAJour(LocalDateTime dateMiseAJour) { this.dateMiseAJour = dateMiseAJour; }
+}
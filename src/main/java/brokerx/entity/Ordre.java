@@ -0,0 +1,93 @@
+package brokerx.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ordre placé par un client (UC-05)
+ * L'identifiant de l'ordre sert aussi d'identifiant dans le moteur d'appariement
+ */
+@Entity
+@Table(name = "ordres", uniqueConstraints = {
+    // Idempotence : un ClientOrderId n'est accepté qu'une fois par client, y compris après éviction du cache
+    @UniqueConstraint(name = Ordre.CONTRAINTE_CLIENT_ORDER_ID_UNIQUE, columnNames = {"client_id", "client_order_id"})
+})
+public class Ordre {
+    
+    public static final String CONTRAINTE_CLIENT_ORDER_ID_UNIQUE = "uk_ordres_client_order_id";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+    
+    @Column(name = "client_order_id", nullable = false, length = 64)
+    private String clientOrderId;
+    
+    @Column(nullable = false, length = 12)
+    private String symbole;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private SensOrdre sens;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private TypeOrdre type;
+    
+    @Column(nullable = false)
+    private long quantite;
+    
+    // Null pour un ordre au marché
+    @Column(name = "prix_limite", precision = 19, scale = 4)
+    private BigDecimal prixLimite;
+    
+    @Column(name = "quantite_executee", nullable = false)
+    private long quantiteExecutee;
+    
+    @Column(nullable = false, length = 10)
+    private String statut = StatutOrdre.ACTIF.getCode();
+    
+    @Column(name = "horodatage_utc", nullable = false)
+    private LocalDateTime horodatageUtc;
+    
+    public Ordre() {
+    }
+    
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+    
+    public String getClientOrderId() { return clientOrderId; }
+    public void setClientOrderId(String clientOrderId) { this.clientOrderId = clientOrderId; }
+    
+    public String getSymbole() { return symbole; }
+    public void setSymbole(String symbole) { this.symbole = symbole; }
+    
+    public SensOrdre getSens() { return sens; }
+    public void setSens(SensOrdre sens) { this.sens = sens; }
+    
+    public TypeOrdre getType() { return type; }
+    public void setType(TypeOrdre type) { this.type = type; }
+    
+    public long getQuantite() { return quantite; }
+    public void setQuantite(long quantite) { this.quantite = quantite; }
+    
+    public BigDecimal getPrixLimite() { return prixLimite; }
+    public void setPrixLimite(BigDecimal prixLimite) { this.prixLimite = prixLimite; }
+    
+    public long getQuantiteExecutee() { return quantiteExecutee; }
+    public void setQuantiteExecutee(long quantiteExecutee) { this.quantiteExecutee = quantiteExecutee; }
+    
+    public String getStatut() { return statut; }
+    public void setStatut(String statut) { this.statut = statut; }
+    
+    public LocalDateTime getHorodatageUtc() { return horodatageUtc; }
+    public void setHorodatageUtc(LocalDateTime horodatageUtc) { this.horodatageUtc = horodatageUtc; }
+}
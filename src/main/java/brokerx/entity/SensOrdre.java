@@ -0,0 +1,13 @@
+package brokerx.entity;
+
+/**
+ * Sens d'un ordre (UC-05)
+ */
+public enum SensOrdre {
+    ACHAT,
+    VENTE;
+
+    public SensOrdre oppose() {
+        return this == ACHAT ? VENTE : ACHAT;
+    }
+}
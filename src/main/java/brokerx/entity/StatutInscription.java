@@ -5,6 +5,7 @@ package brokerx.entity;
  */
 public enum StatutInscription {
     PENDING("PENDING", "En attente de vérification"),
+    ACTIVE("ACTIVE", "Compte actif"),
     EMAIL_VERIFIED("EMAIL_VERIFIED", "Email vérifié"),
     COMPLETE("COMPLETE", "Inscription complète"),
     SUSPENDED("SUSPENDED", "Compte suspendu"),
@@ -26,6 +27,20 @@ public enum StatutInscription {
         return description;
     }
     
+    /**
+     * Transitions autorisées : PENDING vers tout statut sauf lui-même, ACTIVE et COMPLETE l'un vers
+     * l'autre et vers SUSPENDED, SUSPENDED vers ACTIVE; REJECTED est terminal
+     */
+    public boolean peutPasserA(StatutInscription cible) {
+        return switch (this) {
+            case PENDING, EMAIL_VERIFIED -> cible != this && cible != PENDING;
+            case ACTIVE -> cible == COMPLETE || cible == SUSPENDED;
+            case COMPLETE -> cible == ACTIVE || cible == SUSPENDED;
+            case SUSPENDED -> cible == ACTIVE;
+            case REJECTED -> false;
+        };
+    }
+    
     @Override
     public String toString() {
         return code;
@@ -0,0 +1,32 @@
+package brokerx.entity;
+
+/**
+ * Statuts d'un ordre (UC-05)
+ */
+public enum StatutOrdre {
+    ACTIF("ACTIF", "Au carnet, en attente d'exécution"),
+    EXECUTE("EXECUTE", "Entièrement exécuté"),
+    ANNULE("ANNULE", "Annulé (reliquat d'un ordre au marché ou annulation)"),
+    REJETE("REJETE", "Rejeté par le moteur, jamais placé au carnet");
+    
+    private final String code;
+    private final String description;
+    
+    StatutOrdre(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    @Override
+    public String toString() {
+        return code;
+    }
+}
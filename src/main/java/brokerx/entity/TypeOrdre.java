@@ -0,0 +1,11 @@
+package brokerx.entity;
+
+/**
+ * Type d'un ordre (UC-05)
+ * MARCHE : exécuté immédiatement aux meilleurs prix disponibles, le reliquat est annulé
+ * LIMITE : exécuté au prix limite ou mieux, le reliquat est placé au carnet
+ */
+public enum TypeOrdre {
+    MARCHE,
+    LIMITE
+}
@@ -0,0 +1,300 @@
+package brokerx.journalisation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.stereotype.Component;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Journal d'événements structurés (une ligne JSON par événement)
+ *
+ * - tampons pré-dimensionnés et réutilisés : aucun formatage hors d'un tampon du pool
+ * - écriture asynchrone par un thread dédié; si le pool est épuisé l'événement est abandonné et compté
+ * - niveau et taux d'échantillonnage configurables par type d'événement
+ * - masquage automatique des codes et données personnelles (brokerx.evenements.masquage)
+ */
+@Component
+public class JournalEvenements {
+
+    private static final int TAILLE_TAMPON = 512;
+    private static final int TAILLE_LOT = 256;
+
+    private final Map<TypeEvenement, NiveauEvenement> niveaux = new EnumMap<>(TypeEvenement.class);
+    private final Map<TypeEvenement, Double> echantillonnage = new EnumMap<>(TypeEvenement.class);
+    private final boolean masquage;
+
+    private final BlockingQueue<StringBuilder> tamponsLibres;
+    private final BlockingQueue<StringBuilder> aEcrire;
+    private final LongAdder emis = new LongAdder();
+    private final LongAdder abandonnes = new LongAdder();
+
+    private final FileChannel sortie = new FileOutputStream(FileDescriptor.out).getChannel();
+    private final CharsetEncoder encodeur = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer octets = ByteBuffer.allocateDirect(64 * 1024);
+    private Thread ecrivain;
+    private volatile boolean actif = true;
+
+    public JournalEvenements(Environment environnement) {
+        NiveauEvenement niveauGlobal = NiveauEvenement.valueOf(
+            environnement.getProperty("brokerx.evenements.niveau", "INFO").toUpperCase());
+        for (TypeEvenement type : TypeEvenement.values()) {
+            String niveau = environnement.getProperty("brokerx.evenements.niveau." + type.name());
+            niveaux.put(type, niveau != null ? NiveauEvenement.valueOf(niveau.toUpperCase())
+                : (type.getNiveauParDefaut().compareTo(niveauGlobal) >= 0 ? type.getNiveauParDefaut() : NiveauEvenement.OFF));
+            echantillonnage.put(type, environnement.getProperty(
+                "brokerx.evenements.echantillonnage." + type.name(), Double.class, 1.0));
+        }
+        this.masquage = environnement.getProperty("brokerx.evenements.masquage", Boolean.class, true);
+
+        int capacite = environnement.getProperty("brokerx.evenements.capacite", Integer.class, 4096);
+        this.tamponsLibres = new ArrayBlockingQueue<>(capacite);
+        this.aEcrire = new ArrayBlockingQueue<>(capacite);
+        for (int i = 0; i < capacite; i++) {
+            tamponsLibres.add(new StringBuilder(TAILLE_TAMPON));
+        }
+    }
+
+    /**
+     * Journal hors contexte Spring (outils, tests manuels) avec la configuration par défaut
+     */
+    public static JournalEvenements parDefaut() {
+        JournalEvenements journal = new JournalEvenements(new StandardEnvironment());
+        journal.demarrer();
+        return journal;
+    }
+
+    @PostConstruct
+    public void demarrer() {
+        ecrivain = new Thread(this::boucleEcriture, "journal-evenements");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    @PreDestroy
+    public void arreter() {
+        actif = false;
+        if (ecrivain != null) {
+            try {
+                ecrivain.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Indique si un événement de ce type serait journalisé (niveau et échantillonnage)
+     * Permet d'éviter de calculer des valeurs coûteuses pour rien
+     */
+    public boolean estActif(TypeEvenement type) {
+        if (niveaux.get(type) == NiveauEvenement.OFF) {
+            return false;
+        }
+        double taux = echantillonnage.get(type);
+        return taux >= 1.0 || ThreadLocalRandom.current().nextDouble() < taux;
+    }
+
+    public void evenement(TypeEvenement type) {
+        StringBuilder tampon = commencer(type);
+        if (tampon != null) {
+            terminer(tampon);
+        }
+    }
+
+    public void evenement(TypeEvenement type, String c1, Object v1) {
+        StringBuilder tampon = commencer(type);
+        if (tampon != null) {
+            champ(tampon, c1, v1);
+            terminer(tampon);
+        }
+    }
+
+    public void evenement(TypeEvenement type, String c1, Object v1, String c2, Object v2) {
+        StringBuilder tampon = commencer(type);
+        if (tampon != null) {
+            champ(tampon, c1, v1);
+            champ(tampon, c2, v2);
+            terminer(tampon);
+        }
+    }
+
+    public void evenement(TypeEvenement type, String c1, Object v1, String c2, Object v2, String c3, Object v3) {
+        StringBuilder tampon = commencer(type);
+        if (tampon != null) {
+            champ(tampon, c1, v1);
+            champ(tampon, c2, v2);
+            champ(tampon, c3, v3);
+            terminer(tampon);
+        }
+    }
+
+    public void evenement(TypeEvenement type, String c1, Object v1, String c2, Object v2,
+                          String c3, Object v3, String c4, Object v4) {
+        StringBuilder tampon = commencer(type);
+        if (tampon != null) {
+            champ(tampon, c1, v1);
+            champ(tampon, c2, v2);
+            champ(tampon, c3, v3);
+            champ(tampon, c4, v4);
+            terminer(tampon);
+        }
+    }
+
+    private StringBuilder commencer(TypeEvenement type) {
+        if (!estActif(type)) {
+            return null;
+        }
+        StringBuilder tampon = tamponsLibres.poll();
+        if (tampon == null) {
+            abandonnes.increment();
+            return null;
+        }
+        tampon.append("{\"ts\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.now(), tampon);
+        tampon.append("\",\"niveau\":\"").append(niveaux.get(type).name())
+              .append("\",\"evt\":\"").append(type.name()).append('"');
+        return tampon;
+    }
+
+    private void champ(StringBuilder tampon, String cle, Object valeur) {
+        tampon.append(",\"").append(cle).append("\":");
+        if (valeur == null) {
+            tampon.append("null");
+        } else if (valeur instanceof Number || valeur instanceof Boolean) {
+            tampon.append(valeur);
+        } else {
+            tampon.append('"');
+            CharSequence texte = valeur instanceof CharSequence cs ? cs : valeur.toString();
+            int debut = tampon.length();
+            if (masquage && MasquageDonnees.masquer(cle, texte, tampon)) {
+                echapper(tampon, debut);
+            } else {
+                ajouterEchappe(tampon, texte);
+            }
+            tampon.append('"');
+        }
+    }
+
+    private void terminer(StringBuilder tampon) {
+        tampon.append("}\n");
+        if (aEcrire.offer(tampon)) {
+            emis.increment();
+        } else {
+            recycler(tampon);
+            abandonnes.increment();
+        }
+    }
+
+    private static void ajouterEchappe(StringBuilder tampon, CharSequence texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '"' -> tampon.append("\\\"");
+                case '\\' -> tampon.append("\\\\");
+                case '\n' -> tampon.append("\\n");
+                case '\r' -> tampon.append("\\r");
+                case '\t' -> tampon.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        tampon.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        tampon.append(c);
+                    }
+                }
+            }
+        }
+    }
+
+    // Les valeurs masquées ne contiennent que des caractères de la valeur d'origine
+    private static void echapper(StringBuilder tampon, int debut) {
+        for (int i = debut; i < tampon.length(); i++) {
+            char c = tampon.charAt(i);
+            if (c == '"' || c == '\\') {
+                tampon.insert(i++, '\\');
+            } else if (c < 0x20) {
+                tampon.setCharAt(i, ' ');
+            }
+        }
+    }
+
+    private void boucleEcriture() {
+        List<StringBuilder> lot = new ArrayList<>(TAILLE_LOT);
+        while (actif || !aEcrire.isEmpty()) {
+            try {
+                StringBuilder premier = aEcrire.poll(100, TimeUnit.MILLISECONDS);
+                if (premier == null) {
+                    continue;
+                }
+                lot.add(premier);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            aEcrire.drainTo(lot, TAILLE_LOT - 1);
+            for (StringBuilder tampon : lot) {
+                ecrire(tampon);
+                recycler(tampon);
+            }
+            vider();
+            lot.clear();
+        }
+    }
+
+    private void ecrire(StringBuilder tampon) {
+        CharBuffer caracteres = CharBuffer.wrap(tampon);
+        while (true) {
+            CoderResult resultat = encodeur.encode(caracteres, octets, true);
+            if (resultat.isOverflow()) {
+                vider();
+            } else {
+                break;
+            }
+        }
+        encodeur.reset();
+    }
+
+    private void vider() {
+        octets.flip();
+        try {
+            while (octets.hasRemaining()) {
+                sortie.write(octets);
+            }
+        } catch (IOException e) {
+            // Sortie standard indisponible : rien de mieux à faire que d'abandonner le lot
+        }
+        octets.clear();
+    }
+
+    private void recycler(StringBuilder tampon) {
+        if (tampon.capacity() > 4 * TAILLE_TAMPON) {
+            tampon = new StringBuilder(TAILLE_TAMPON);
+        } else {
+            tampon.setLength(0);
+        }
+        tamponsLibres.offer(tampon);
+    }
+
+    public long getEmis() { return emis.sum(); }
+    public long getAbandonnes() { return abandonnes.sum(); }
+    public int profondeurFile() { return aEcrire.size(); }
+}
@@ -0,0 +1,75 @@
+package brokerx.journalisation;
+
+/**
+ * Masquage automatique des codes et données personnelles selon le nom du champ
+ */
+final class MasquageDonnees {
+
+    private MasquageDonnees() {
+    }
+
+    /**
+     * Écrit la valeur masquée du champ dans le tampon
+     * @return false si le champ n'est pas sensible (la valeur doit être écrite telle quelle)
+     */
+    static boolean masquer(String cle, CharSequence valeur, StringBuilder sortie) {
+        switch (cle) {
+            case "code", "codeEmail", "codeOTP", "motDePasse", "corps" -> {
+                sortie.append("******");
+                return true;
+            }
+            case "email" -> {
+                masquerEmail(valeur, sortie);
+                return true;
+            }
+            case "telephone", "destinataire" -> {
+                if (indexOf(valeur, '@') >= 0) {
+                    masquerEmail(valeur, sortie);
+                } else {
+                    masquerFin(valeur, 4, sortie);
+                }
+                return true;
+            }
+            case "nom", "prenom", "adresse", "dateNaissance" -> {
+                if (valeur.length() > 0) {
+                    sortie.append(valeur.charAt(0));
+                }
+                sortie.append("***");
+                return true;
+            }
+            case "sessionId" -> {
+                sortie.append(valeur, 0, Math.min(8, valeur.length())).append("…");
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static void masquerEmail(CharSequence email, StringBuilder sortie) {
+        int arobase = indexOf(email, '@');
+        if (arobase <= 0) {
+            sortie.append("***");
+            return;
+        }
+        sortie.append(email.charAt(0)).append("***").append(email, arobase, email.length());
+    }
+
+    private static void masquerFin(CharSequence valeur, int visibles, StringBuilder sortie) {
+        int debut = Math.max(0, valeur.length() - visibles);
+        for (int i = 0; i < debut; i++) {
+            sortie.append('*');
+        }
+        sortie.append(valeur, debut, valeur.length());
+    }
+
+    private static int indexOf(CharSequence valeur, char c) {
+        for (int i = 0; i < valeur.length(); i++) {
+            if (valeur.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,12 @@
+package brokerx.journalisation;
+
+/**
+ * Niveaux de journalisation des événements, du plus verbeux au plus restrictif
+ */
+public enum NiveauEvenement {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
@@ -0,0 +1,61 @@
+package brokerx.journalisation;
+
+/**
+ * Types d'événements structurés émis par l'application
+ * Chaque type a un niveau par défaut, surchargeable par configuration
+ * (brokerx.evenements.niveau.<TYPE>, brokerx.evenements.echantillonnage.<TYPE>)
+ */
+public enum TypeEvenement {
+    // Inscription (CU01)
+    INSCRIPTION_RECUE(NiveauEvenement.DEBUG),
+    INSCRIPTION_INVALIDE(NiveauEvenement.INFO),
+    INSCRIPTION_REFUSEE(NiveauEvenement.INFO),
+    CLIENT_CREE(NiveauEvenement.INFO),
+    SESSION_CREEE(NiveauEvenement.DEBUG),
+    SESSION_INTROUVABLE(NiveauEvenement.INFO),
+    ACCES_PAGE(NiveauEvenement.DEBUG),
+
+    // Vérification
+    LIEN_EMAIL_UTILISE(NiveauEvenement.DEBUG),
+    COMPTE_ACTIVE(NiveauEvenement.INFO),
+    VERIFICATION_OTP_REUSSIE(NiveauEvenement.INFO),
+    INSCRIPTION_COMPLETE(NiveauEvenement.INFO),
+
+    // Notifications
+    NOTIFICATION_SIMULEE(NiveauEvenement.INFO),
+    NOTIFICATION_IGNOREE(NiveauEvenement.DEBUG),
+
+    // Import en masse
+    IMPORT_PROGRESSION(NiveauEvenement.INFO),
+    IMPORT_TERMINE(NiveauEvenement.INFO),
+
+    // Expiration des inscriptions non vérifiées
+    INSCRIPTIONS_EXPIREES(NiveauEvenement.INFO),
+
+    // Ordres (UC-05)
+    ORDRE_ACCEPTE(NiveauEvenement.INFO),
+    ORDRE_REJETE(NiveauEvenement.INFO),
+    ORDRES_REPRIS(NiveauEvenement.INFO),
+    INSTANTANE_ORDRES(NiveauEvenement.DEBUG),
+    INSTANTANE_ORDRES_IGNORE(NiveauEvenement.WARN),
+    ERREUR_INSTANTANE_ORDRES(NiveauEvenement.ERROR),
+    ERREUR_JOURNAL_ORDRES(NiveauEvenement.ERROR),
+    ERREUR_REJET_ORDRE(NiveauEvenement.ERROR),
+    ERREUR_RECONCILIATION_COMPTES(NiveauEvenement.ERROR),
+    ERREUR_DIFFUSION_MARCHE(NiveauEvenement.ERROR),
+
+    // Infrastructure
+    SCHEMA_MIGRE(NiveauEvenement.INFO),
+    ERREUR_EMPREINTE_AUDIT(NiveauEvenement.ERROR),
+    ERREUR_JOURNAL_AUDIT(NiveauEvenement.ERROR);
+
+    private final NiveauEvenement niveauParDefaut;
+
+    TypeEvenement(NiveauEvenement niveauParDefaut) {
+        this.niveauParDefaut = niveauParDefaut;
+    }
+
+    public NiveauEvenement getNiveauParDefaut() {
+        return niveauParDefaut;
+    }
+}
@@ -0,0 +1,394 @@
+package brokerx.moteur;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import java.util.Arrays;
+
+/**
+ * Carnet d'ordres d'un symbole, priorité prix puis temps
+ *
+ * Représentation sans objets par ordre ni par niveau :
+ * - ordres et niveaux de prix dans des tableaux primitifs parallèles, emplacements recyclés par liste libre
+ * - chaque niveau est une file FIFO intrusive (chaînage par indices dans les tableaux d'ordres)
+ * - chaque côté garde ses niveaux triés, meilleur prix en dernière position : consommer
+ *   le meilleur niveau ne déplace rien, insérer près du meilleur prix déplace peu
+ * - prix en ticks (long), identifiants d'ordres indexés par une table long -> int
+ * La boucle d'appariement n'alloue rien; les tableaux ne grandissent que si la capacité est dépassée.
+ *
+ * Non thread-safe : un seul thread à la fois (voir MoteurAppariement).
+ */
+public final class CarnetOrdres {
+
+    private static final int AUCUN = -1;
+
+    private final String symbole;
+    private final EcouteurCarnet ecouteur;
+    private final IndexOrdres index;
+
+    // Ordres au carnet
+    private long[] ordreId;
+    private long[] ordreQuantite;
+    private int[] ordreSuivant;
+    private int[] ordrePrecedent;
+    private int[] ordreNiveau;
+    private int ordresLibres = AUCUN;
+    private int ordresUtilises;
+
+    // Niveaux de prix
+    private long[] niveauPrix;
+    private long[] niveauQuantite;
+    private int[] niveauTete;
+    private int[] niveauQueue;
+    private int[] niveauOrdres;
+    private boolean[] niveauAchat;
+    private int niveauxLibres = AUCUN;
+    private int niveauxUtilises;
+
+    private final Cote achats = new Cote(true);
+    private final Cote ventes = new Cote(false);
+
+    public CarnetOrdres(String symbole, EcouteurCarnet ecouteur, int capaciteInitiale) {
+        this.symbole = symbole;
+        this.ecouteur = ecouteur;
+        int capacite = Math.max(16, capaciteInitiale);
+        this.index = new IndexOrdres(capacite);
+        ordreId = new long[capacite];
+        ordreQuantite = new long[capacite];
+        ordreSuivant = new int[capacite];
+        ordrePrecedent = new int[capacite];
+        ordreNiveau = new int[capacite];
+        int capaciteNiveaux = Math.max(16, capacite / 4);
+        niveauPrix = new long[capaciteNiveaux];
+        niveauQuantite = new long[capaciteNiveaux];
+        niveauTete = new int[capaciteNiveaux];
+        niveauQueue = new int[capaciteNiveaux];
+        niveauOrdres = new int[capaciteNiveaux];
+        niveauAchat = new boolean[capaciteNiveaux];
+    }
+
+    /**
+     * Apparie un ordre entrant contre le côté opposé, puis place le reliquat d'un ordre à cours limité
+     * @param prixTicks prix limite en ticks; pour un ordre au marché, prix de protection au-delà duquel
+     *                  le reliquat est annulé (0 : sans protection)
+     * @return la quantité exécutée
+     * @throws IllegalArgumentException si l'identifiant est déjà au carnet ou si la quantité ou le prix est invalide
+     */
+    public long soumettre(long idOrdre, SensOrdre sens, TypeOrdre type, long prixTicks, long quantite) {
+        verifier(idOrdre, type, prixTicks, quantite);
+
+        boolean achat = sens == SensOrdre.ACHAT;
+        boolean limite = type == TypeOrdre.LIMITE;
+        boolean borne = limite || prixTicks > 0;
+        Cote opposee = achat ? ventes : achats;
+        long restant = quantite;
+
+        while (restant > 0 && opposee.taille > 0) {
+            int niveau = opposee.niveaux[opposee.taille - 1];
+            long prix = niveauPrix[niveau];
+            if (borne && (achat ? prix > prixTicks : prix < prixTicks)) {
+                break;
+            }
+            int ordre = niveauTete[niveau];
+            while (restant > 0 && ordre != AUCUN) {
+                long execute = Math.min(restant, ordreQuantite[ordre]);
+                restant -= execute;
+                ordreQuantite[ordre] -= execute;
+                niveauQuantite[niveau] -= execute;
+                ecouteur.execution(symbole, idOrdre, ordreId[ordre], sens, prix, execute);
+                int suivant = ordreSuivant[ordre];
+                if (ordreQuantite[ordre] == 0) {
+                    index.remove(ordreId[ordre]);
+                    detacher(ordre);
+                    libererOrdre(ordre);
+                }
+                ordre = suivant;
+            }
+            if (niveauTete[niveau] == AUCUN) {
+                opposee.taille--;
+                libererNiveau(niveau);
+            }
+        }
+
+        if (restant > 0) {
+            if (limite) {
+                placer(idOrdre, achat, prixTicks, restant);
+                ecouteur.auCarnet(symbole, idOrdre, sens, prixTicks, restant);
+            } else {
+                ecouteur.annulation(symbole, idOrdre, sens, restant);
+            }
+        }
+        return quantite - restant;
+    }
+
+    /**
+     * Contrôles de soumettre, sans rien modifier (un ordre vérifié peut être journalisé avant d'être apparié)
+     * @throws IllegalArgumentException si l'identifiant est déjà au carnet ou si la quantité ou le prix est invalide
+     */
+    public void verifier(long idOrdre, TypeOrdre type, long prixTicks, long quantite) {
+        if (quantite <= 0) {
+            throw new IllegalArgumentException("Quantité invalide : " + quantite);
+        }
+        if (type == TypeOrdre.LIMITE && prixTicks <= 0) {
+            throw new IllegalArgumentException("Prix limite invalide : " + prixTicks);
+        }
+        if (index.contient(idOrdre)) {
+            throw new IllegalArgumentException("Ordre déjà au carnet : " + idOrdre);
+        }
+    }
+
+    /**
+     * Retire un ordre du carnet
+     * @return false si l'ordre n'est pas (ou plus) au carnet
+     */
+    public boolean annuler(long idOrdre) {
+        int ordre = index.remove(idOrdre);
+        if (ordre == IndexOrdres.ABSENT) {
+            return false;
+        }
+        int niveau = ordreNiveau[ordre];
+        boolean achat = niveauAchat[niveau];
+        long quantite = ordreQuantite[ordre];
+        niveauQuantite[niveau] -= quantite;
+        detacher(ordre);
+        libererOrdre(ordre);
+        if (niveauTete[niveau] == AUCUN) {
+            Cote cote = achat ? achats : ventes;
+            cote.retirer(niveau);
+            libererNiveau(niveau);
+        }
+        ecouteur.annulation(symbole, idOrdre, achat ? SensOrdre.ACHAT : SensOrdre.VENTE, quantite);
+        return true;
+    }
+
+    public boolean contient(long idOrdre) {
+        return index.contient(idOrdre);
+    }
+
+    /**
+     * Replace un ordre au carnet sans appariement ni événement (reprise d'un instantané)
+     * Les ordres d'un même niveau doivent être restaurés dans leur ordre d'arrivée.
+     * @throws IllegalArgumentException si l'identifiant est déjà au carnet ou si la quantité ou le prix est invalide
+     */
+    public void restaurer(long idOrdre, SensOrdre sens, long prixTicks, long quantite) {
+        if (quantite <= 0 || prixTicks <= 0) {
+            throw new IllegalArgumentException("Ordre invalide : " + idOrdre);
+        }
+        if (index.contient(idOrdre)) {
+            throw new IllegalArgumentException("Ordre déjà au carnet : " + idOrdre);
+        }
+        placer(idOrdre, sens == SensOrdre.ACHAT, prixTicks, quantite);
+    }
+
+    /**
+     * Visite les ordres au carnet : achats puis ventes, du meilleur niveau au moins bon,
+     * dans l'ordre d'arrivée au sein d'un niveau
+     */
+    public void parcourir(Visiteur visiteur) {
+        for (Cote cote : new Cote[] {achats, ventes}) {
+            SensOrdre sens = cote.achat ? SensOrdre.ACHAT : SensOrdre.VENTE;
+            for (int rang = cote.taille - 1; rang >= 0; rang--) {
+                int niveau = cote.niveaux[rang];
+                for (int ordre = niveauTete[niveau]; ordre != AUCUN; ordre = ordreSuivant[ordre]) {
+                    visiteur.ordre(ordreId[ordre], sens, niveauPrix[niveau], ordreQuantite[ordre]);
+                }
+            }
+        }
+    }
+
+    private void placer(long idOrdre, boolean achat, long prix, long quantite) {
+        Cote cote = achat ? achats : ventes;
+        int niveau = cote.niveauOuCreer(prix);
+        int ordre = allouerOrdre();
+        ordreId[ordre] = idOrdre;
+        ordreQuantite[ordre] = quantite;
+        ordreNiveau[ordre] = niveau;
+        ordreSuivant[ordre] = AUCUN;
+        ordrePrecedent[ordre] = niveauQueue[niveau];
+        if (niveauQueue[niveau] == AUCUN) {
+            niveauTete[niveau] = ordre;
+        } else {
+            ordreSuivant[niveauQueue[niveau]] = ordre;
+        }
+        niveauQueue[niveau] = ordre;
+        niveauOrdres[niveau]++;
+        niveauQuantite[niveau] += quantite;
+        index.put(idOrdre, ordre);
+    }
+
+    private void detacher(int ordre) {
+        int niveau = ordreNiveau[ordre];
+        int precedent = ordrePrecedent[ordre];
+        int suivant = ordreSuivant[ordre];
+        if (precedent == AUCUN) {
+            niveauTete[niveau] = suivant;
+        } else {
+            ordreSuivant[precedent] = suivant;
+        }
+        if (suivant == AUCUN) {
+            niveauQueue[niveau] = precedent;
+        } else {
+            ordrePrecedent[suivant] = precedent;
+        }
+        niveauOrdres[niveau]--;
+    }
+
+    private int allouerOrdre() {
+        if (ordresLibres != AUCUN) {
+            int ordre = ordresLibres;
+            ordresLibres = ordreSuivant[ordre];
+            return ordre;
+        }
+        if (ordresUtilises == ordreId.length) {
+            int capacite = ordreId.length * 2;
+            ordreId = Arrays.copyOf(ordreId, capacite);
+            ordreQuantite = Arrays.copyOf(ordreQuantite, capacite);
+            ordreSuivant = Arrays.copyOf(ordreSuivant, capacite);
+            ordrePrecedent = Arrays.copyOf(ordrePrecedent, capacite);
+            ordreNiveau = Arrays.copyOf(ordreNiveau, capacite);
+        }
+        return ordresUtilises++;
+    }
+
+    private void libererOrdre(int ordre) {
+        ordreSuivant[ordre] = ordresLibres;
+        ordresLibres = ordre;
+    }
+
+    private int allouerNiveau(boolean achat, long prix) {
+        int niveau;
+        if (niveauxLibres != AUCUN) {
+            niveau = niveauxLibres;
+            niveauxLibres = niveauTete[niveau];
+        } else {
+            if (niveauxUtilises == niveauPrix.length) {
+                int capacite = niveauPrix.length * 2;
+                niveauPrix = Arrays.copyOf(niveauPrix, capacite);
+                niveauQuantite = Arrays.copyOf(niveauQuantite, capacite);
+                niveauTete = Arrays.copyOf(niveauTete, capacite);
+                niveauQueue = Arrays.copyOf(niveauQueue, capacite);
+                niveauOrdres = Arrays.copyOf(niveauOrdres, capacite);
+                niveauAchat = Arrays.copyOf(niveauAchat, capacite);
+            }
+            niveau = niveauxUtilises++;
+        }
+        niveauPrix[niveau] = prix;
+        niveauQuantite[niveau] = 0;
+        niveauTete[niveau] = AUCUN;
+        niveauQueue[niveau] = AUCUN;
+        niveauOrdres[niveau] = 0;
+        niveauAchat[niveau] = achat;
+        return niveau;
+    }
+
+    private void libererNiveau(int niveau) {
+        niveauTete[niveau] = niveauxLibres;
+        niveauxLibres = niveau;
+    }
+
+    public String getSymbole() { return symbole; }
+    public int getNombreOrdres() { return index.taille(); }
+
+    /**
+     * @return le nombre de niveaux de prix de ce côté
+     */
+    public int profondeur(SensOrdre sens) {
+        return cote(sens).taille;
+    }
+
+    /**
+     * @return le meilleur prix de ce côté en ticks, 0 si le côté est vide
+     */
+    public long meilleurPrix(SensOrdre sens) {
+        return prixAuRang(sens, 0);
+    }
+
+    public long quantiteMeilleurPrix(SensOrdre sens) {
+        return quantiteAuRang(sens, 0);
+    }
+
+    /**
+     * @param rang 0 pour le meilleur niveau, 1 pour le suivant...
+     * @return le prix du niveau en ticks, 0 s'il n'existe pas
+     */
+    public long prixAuRang(SensOrdre sens, int rang) {
+        Cote cote = cote(sens);
+        return rang < cote.taille ? niveauPrix[cote.niveaux[cote.taille - 1 - rang]] : 0;
+    }
+
+    public long quantiteAuRang(SensOrdre sens, int rang) {
+        Cote cote = cote(sens);
+        return rang < cote.taille ? niveauQuantite[cote.niveaux[cote.taille - 1 - rang]] : 0;
+    }
+
+    public int ordresAuRang(SensOrdre sens, int rang) {
+        Cote cote = cote(sens);
+        return rang < cote.taille ? niveauOrdres[cote.niveaux[cote.taille - 1 - rang]] : 0;
+    }
+
+    private Cote cote(SensOrdre sens) {
+        return sens == SensOrdre.ACHAT ? achats : ventes;
+    }
+
+    @FunctionalInterface
+    public interface Visiteur {
+        void ordre(long idOrdre, SensOrdre sens, long prixTicks, long quantite);
+    }
+
+    /**
+     * Niveaux d'un côté, triés du moins bon au meilleur prix (achats croissants, ventes décroissantes)
+     */
+    private final class Cote {
+        private final boolean achat;
+        private int[] niveaux = new int[64];
+        private int taille;
+
+        Cote(boolean achat) {
+            this.achat = achat;
+        }
+
+        /**
+         * Recherche dichotomique, en partant du principe que la plupart des ordres arrivent près du meilleur prix
+         * @return la position du niveau, ou -(point d'insertion) - 1
+         */
+        int rechercher(long prix) {
+            int bas = 0;
+            int haut = taille - 1;
+            while (bas <= haut) {
+                int milieu = (bas + haut) >>> 1;
+                long p = niveauPrix[niveaux[milieu]];
+                if (p == prix) {
+                    return milieu;
+                }
+                // Moins bon que le prix cherché : il est plus loin dans le tableau
+                if (achat ? p < prix : p > prix) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu - 1;
+                }
+            }
+            return -(bas + 1);
+        }
+
+        int niveauOuCreer(long prix) {
+            int position = rechercher(prix);
+            if (position >= 0) {
+                return niveaux[position];
+            }
+            int insertion = -position - 1;
+            if (taille == niveaux.length) {
+                niveaux = Arrays.copyOf(niveaux, taille * 2);
+            }
+            System.arraycopy(niveaux, insertion, niveaux, insertion + 1, taille - insertion);
+            int niveau = allouerNiveau(achat, prix);
+            niveaux[insertion] = niveau;
+            taille++;
+            return niveau;
+        }
+
+        void retirer(int niveau) {
+            int position = rechercher(niveauPrix[niveau]);
+            System.arraycopy(niveaux, position + 1, niveaux, position, taille - position - 1);
+            taille--;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package brokerx.moteur;
+
+import brokerx.entity.SensOrdre;
+
+/**
+ * Événements d'un carnet d'ordres, appelés de façon synchrone par le thread qui modifie le carnet
+ * (carnet verrouillé) : un écouteur ne doit ni bloquer ni modifier le carnet qui l'appelle.
+ * Arguments primitifs uniquement : aucune allocation par exécution.
+ */
+public interface EcouteurCarnet {
+
+    /**
+     * Exécution entre un ordre entrant (agresseur) et un ordre au carnet, au prix de l'ordre au carnet
+     */
+    void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite);
+
+    /**
+     * Ordre (ou son reliquat) placé au carnet
+     */
+    default void auCarnet(String symbole, long idOrdre, SensOrdre sens, long prixTicks, long quantite) {
+    }
+
+    /**
+     * Quantité retirée sans exécution : reliquat d'un ordre au marché ou annulation d'un ordre au carnet
+     */
+    default void annulation(String symbole, long idOrdre, SensOrdre sens, long quantite) {
+    }
+}
@@ -0,0 +1,115 @@
+package brokerx.moteur;
+
+import java.util.Arrays;
+
+/**
+ * Table identifiant d'ordre (long) -> emplacement dans le carnet (int), sans objets intermédiaires
+ * Adressage ouvert à sondage linéaire; la suppression décale les entrées suivantes (pas de marqueurs)
+ */
+final class IndexOrdres {
+
+    static final int ABSENT = -1;
+    private static final long VIDE = Long.MIN_VALUE;
+
+    private long[] cles;
+    private int[] valeurs;
+    private int masque;
+    private int taille;
+
+    IndexOrdres(int capaciteInitiale) {
+        int capacite = Integer.highestOneBit(Math.max(16, capaciteInitiale * 2 - 1)) << 1;
+        cles = new long[capacite];
+        valeurs = new int[capacite];
+        Arrays.fill(cles, VIDE);
+        masque = capacite - 1;
+    }
+
+    int get(long cle) {
+        int i = position(cle);
+        while (true) {
+            long k = cles[i];
+            if (k == cle) {
+                return valeurs[i];
+            }
+            if (k == VIDE) {
+                return ABSENT;
+            }
+            i = (i + 1) & masque;
+        }
+    }
+
+    boolean contient(long cle) {
+        return get(cle) != ABSENT;
+    }
+
+    void put(long cle, int valeur) {
+        if (cle == VIDE) {
+            throw new IllegalArgumentException("Identifiant d'ordre réservé : " + cle);
+        }
+        if ((taille + 1) * 2 > cles.length) {
+            agrandir();
+        }
+        int i = position(cle);
+        while (cles[i] != VIDE && cles[i] != cle) {
+            i = (i + 1) & masque;
+        }
+        if (cles[i] == VIDE) {
+            taille++;
+        }
+        cles[i] = cle;
+        valeurs[i] = valeur;
+    }
+
+    int remove(long cle) {
+        int i = position(cle);
+        while (cles[i] != cle) {
+            if (cles[i] == VIDE) {
+                return ABSENT;
+            }
+            i = (i + 1) & masque;
+        }
+        int valeur = valeurs[i];
+        // Décalage arrière : les entrées de la même grappe reprennent une place atteignable
+        int trou = i;
+        int j = (i + 1) & masque;
+        while (cles[j] != VIDE) {
+            int ideal = position(cles[j]);
+            if (((j - ideal) & masque) >= ((j - trou) & masque)) {
+                cles[trou] = cles[j];
+                valeurs[trou] = valeurs[j];
+                trou = j;
+            }
+            j = (j + 1) & masque;
+        }
+        cles[trou] = VIDE;
+        taille--;
+        return valeur;
+    }
+
+    int taille() {
+        return taille;
+    }
+
+    private int position(long cle) {
+        long x = cle;
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        return (int) x & masque;
+    }
+
+    private void agrandir() {
+        long[] anciennesCles = cles;
+        int[] anciennesValeurs = valeurs;
+        cles = new long[anciennesCles.length * 2];
+        valeurs = new int[anciennesValeurs.length * 2];
+        Arrays.fill(cles, VIDE);
+        masque = cles.length - 1;
+        taille = 0;
+        for (int i = 0; i < anciennesCles.length; i++) {
+            if (anciennesCles[i] != VIDE) {
+                put(anciennesCles[i], anciennesValeurs[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package brokerx.moteur;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import brokerx.moteur.journal.CodeSymbole;
+import brokerx.moteur.journal.JournalOrdres;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Moteur d'appariement interne (UC-05) : un carnet d'ordres par symbole, créé à la première utilisation
+ *
+ * - un verrou par carnet : les symboles sont traités en parallèle, un même symbole en série.
+ *   ReentrantLock et non synchronized : écouteurs et journal (fsync possible) s'exécutent sous
+ *   le verrou, un thread virtuel n'y reste pas épinglé à son porteur
+ * - les écouteurs (beans EcouteurCarnet) reçoivent les événements sous le verrou du carnet
+ * - prix convertis en ticks à l'entrée (pas de cotation configurable), le carnet ne voit que des long
+ * - journal d'écriture anticipée : acceptation, annulation et expiration sont journalisées sous le verrou
+ *   du carnet avant d'être appliquées, exécutions et reliquats annulés au fil de l'appariement.
+ *   L'appariement étant déterministe, rejouer les premières suffit à reconstruire carnets et soldes.
+ */
+@Component
+public class MoteurAppariement {
+
+    private final ConcurrentHashMap<String, Verrouille> carnets = new ConcurrentHashMap<>();
+    private final EcouteurCarnet[] ecouteurs;
+    private final JournalOrdres journal;
+    private final int capaciteCarnet;
+    private final BigDecimal pasCotation;
+
+    private final LongAdder ordresSoumis = new LongAdder();
+    private final LongAdder ordresAnnules = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder quantiteExecutee = new LongAdder();
+
+    // Reprise en cours : les événements rejoués ne sont pas journalisés à nouveau
+    private volatile boolean reprise;
+    private final ReentrantLock instantanes = new ReentrantLock();
+
+    @Autowired
+    public MoteurAppariement(ObjectProvider<EcouteurCarnet> ecouteurs,
+                             ObjectProvider<JournalOrdres> journal,
+                             @Value("${brokerx.moteur.capacite-carnet:4096}") int capaciteCarnet,
+                             @Value("${brokerx.moteur.pas-cotation:0.01}") BigDecimal pasCotation) {
+        this(ecouteurs.orderedStream().toList(), journal.getIfAvailable(), capaciteCarnet, pasCotation);
+    }
+
+    public MoteurAppariement(List<EcouteurCarnet> ecouteurs, int capaciteCarnet, BigDecimal pasCotation) {
+        this(ecouteurs, null, capaciteCarnet, pasCotation);
+    }
+
+    /**
+     * @param journal journal des ordres, null pour un moteur sans journal
+     */
+    public MoteurAppariement(List<EcouteurCarnet> ecouteurs, JournalOrdres journal, int capaciteCarnet, BigDecimal pasCotation) {
+        if (pasCotation.signum() <= 0) {
+            throw new IllegalArgumentException("Le pas de cotation doit être positif");
+        }
+        this.ecouteurs = ecouteurs.toArray(new EcouteurCarnet[0]);
+        this.journal = journal;
+        this.capaciteCarnet = capaciteCarnet;
+        this.pasCotation = pasCotation;
+    }
+
+    /**
+     * Soumet un ordre au carnet du symbole
+     * @param prixTicks prix limite en ticks, ou prix de protection d'un ordre au marché (0 : sans protection)
+     * @return la quantité exécutée immédiatement
+     * @throws IllegalArgumentException si l'ordre est invalide ou déjà au carnet (rien n'est journalisé)
+     */
+    public long soumettre(String symbole, long idOrdre, long clientId, SensOrdre sens, TypeOrdre type,
+                          long prixTicks, long quantite) {
+        Verrouille entree = carnet(symbole);
+        CarnetOrdres carnet = entree.carnet();
+        long execute;
+        entree.verrou().lock();
+        try {
+            if (journalise()) {
+                carnet.verifier(idOrdre, type, prixTicks, quantite);
+                journal.accepte(CodeSymbole.coder(symbole), idOrdre, clientId, (byte) sens.ordinal(),
+                    (byte) type.ordinal(), prixTicks, quantite);
+            }
+            execute = carnet.soumettre(idOrdre, sens, type, prixTicks, quantite);
+        } finally {
+            entree.verrou().unlock();
+        }
+        ordresSoumis.increment();
+        return execute;
+    }
+
+    /**
+     * @return false si le symbole n'a pas de carnet ou si l'ordre n'y est plus
+     */
+    public boolean annuler(String symbole, long idOrdre) {
+        return retirer(symbole, idOrdre, false);
+    }
+
+    /**
+     * Retire un ordre arrivé à échéance (journalisé comme expiration, et non comme annulation du client)
+     * @return false si le symbole n'a pas de carnet ou si l'ordre n'y est plus
+     */
+    public boolean expirer(String symbole, long idOrdre) {
+        return retirer(symbole, idOrdre, true);
+    }
+
+    private boolean retirer(String symbole, long idOrdre, boolean expiration) {
+        Verrouille entree = carnets.get(symbole);
+        if (entree == null) {
+            return false;
+        }
+        CarnetOrdres carnet = entree.carnet();
+        boolean retire;
+        entree.verrou().lock();
+        try {
+            if (!carnet.contient(idOrdre)) {
+                return false;
+            }
+            if (journalise()) {
+                long code = CodeSymbole.coder(symbole);
+                if (expiration) {
+                    journal.expire(code, idOrdre);
+                } else {
+                    journal.annule(code, idOrdre);
+                }
+            }
+            retire = carnet.annuler(idOrdre);
+        } finally {
+            entree.verrou().unlock();
+        }
+        if (retire) {
+            ordresAnnules.increment();
+        }
+        return retire;
+    }
+
+    /**
+     * Rejoue des événements journalisés (instantané, journal) sans les journaliser à nouveau
+     * Au démarrage uniquement, avant l'arrivée des ordres : les écouteurs reçoivent les événements rejoués.
+     */
+    public void reprendre(Runnable rejeu) {
+        reprise = true;
+        try {
+            rejeu.run();
+        } finally {
+            reprise = false;
+        }
+    }
+
+    /**
+     * Replace un ordre au carnet sans appariement (reprise d'un instantané, dans l'ordre d'arrivée)
+     */
+    public void restaurer(String symbole, long idOrdre, SensOrdre sens, long prixTicks, long quantite) {
+        Verrouille entree = carnet(symbole);
+        entree.verrou().lock();
+        try {
+            entree.carnet().restaurer(idOrdre, sens, prixTicks, quantite);
+        } finally {
+            entree.verrou().unlock();
+        }
+    }
+
+    /**
+     * Verrouille tous les carnets (par symbole) puis exécute l'action : aucun ordre n'est apparié
+     * ni journalisé par le moteur pendant ce temps. Les carnets sont transmis dans l'ordre des symboles.
+     */
+    public void figer(Consumer<List<CarnetOrdres>> action) {
+        instantanes.lock();
+        try {
+            List<Verrouille> entrees = new ArrayList<>(carnets.values());
+            entrees.sort(Comparator.comparing(e -> e.carnet().getSymbole()));
+            int verrouilles = 0;
+            try {
+                for (Verrouille entree : entrees) {
+                    entree.verrou().lock();
+                    verrouilles++;
+                }
+                List<CarnetOrdres> liste = new ArrayList<>(entrees.size());
+                for (Verrouille entree : entrees) {
+                    liste.add(entree.carnet());
+                }
+                action.accept(liste);
+            } finally {
+                for (int i = verrouilles - 1; i >= 0; i--) {
+                    entrees.get(i).verrou().unlock();
+                }
+            }
+        } finally {
+            instantanes.unlock();
+        }
+    }
+
+    private Verrouille carnet(String symbole) {
+        return carnets.computeIfAbsent(symbole, s -> new Verrouille(
+            new CarnetOrdres(s, new Diffusion(CodeSymbole.coder(s)), capaciteCarnet), new ReentrantLock()));
+    }
+
+    private boolean journalise() {
+        return journal != null && !reprise;
+    }
+
+    /**
+     * Meilleur prix d'un côté en ticks, 0 si le côté est vide ou le symbole inconnu
+     */
+    public long meilleurPrix(String symbole, SensOrdre sens) {
+        Verrouille entree = carnets.get(symbole);
+        if (entree == null) {
+            return 0;
+        }
+        entree.verrou().lock();
+        try {
+            return entree.carnet().meilleurPrix(sens);
+        } finally {
+            entree.verrou().unlock();
+        }
+    }
+
+    /**
+     * Copie des meilleurs niveaux de chaque côté, lue sous le verrou du carnet
+     * @return null si le symbole n'a pas de carnet
+     */
+    public ProfondeurCarnet profondeur(String symbole, int niveaux) {
+        Verrouille entree = carnets.get(symbole);
+        if (entree == null) {
+            return null;
+        }
+        CarnetOrdres carnet = entree.carnet();
+        entree.verrou().lock();
+        try {
+            int achats = Math.min(niveaux, carnet.profondeur(SensOrdre.ACHAT));
+            int ventes = Math.min(niveaux, carnet.profondeur(SensOrdre.VENTE));
+            long[] prixAchat = new long[achats];
+            long[] quantiteAchat = new long[achats];
+            long[] prixVente = new long[ventes];
+            long[] quantiteVente = new long[ventes];
+            for (int rang = 0; rang < achats; rang++) {
+                prixAchat[rang] = carnet.prixAuRang(SensOrdre.ACHAT, rang);
+                quantiteAchat[rang] = carnet.quantiteAuRang(SensOrdre.ACHAT, rang);
+            }
+            for (int rang = 0; rang < ventes; rang++) {
+                prixVente[rang] = carnet.prixAuRang(SensOrdre.VENTE, rang);
+                quantiteVente[rang] = carnet.quantiteAuRang(SensOrdre.VENTE, rang);
+            }
+            return new ProfondeurCarnet(symbole, prixAchat, quantiteAchat, prixVente, quantiteVente);
+        } finally {
+            entree.verrou().unlock();
+        }
+    }
+
+    /**
+     * Convertit un prix en ticks
+     * @throws IllegalArgumentException si le prix n'est pas un multiple du pas de cotation
+     */
+    public long versTicks(BigDecimal prix) {
+        BigDecimal[] division = prix.divideAndRemainder(pasCotation);
+        if (division[1].signum() != 0) {
+            throw new IllegalArgumentException("Prix " + prix + " hors du pas de cotation " + pasCotation);
+        }
+        return division[0].longValueExact();
+    }
+
+    public BigDecimal versPrix(long ticks) {
+        return pasCotation.multiply(BigDecimal.valueOf(ticks));
+    }
+
+    /**
+     * @return vrai si un ordre a déjà été soumis (ou restauré) pour ce symbole
+     */
+    public boolean aCarnet(String symbole) {
+        return carnets.containsKey(symbole);
+    }
+
+    public int getNombreCarnets() { return carnets.size(); }
+    public long getOrdresSoumis() { return ordresSoumis.sum(); }
+    public long getOrdresAnnules() { return ordresAnnules.sum(); }
+    public long getExecutions() { return executions.sum(); }
+    public long getQuantiteExecutee() { return quantiteExecutee.sum(); }
+
+    /**
+     * Carnet et son verrou (le carnet n'est pas thread-safe)
+     */
+    private record Verrouille(CarnetOrdres carnet, ReentrantLock verrou) {
+    }
+
+    /**
+     * Diffusion d'un carnet : compte et journalise les exécutions, puis relaie à chaque écouteur
+     * (tableau : pas d'itérateur par événement)
+     */
+    private final class Diffusion implements EcouteurCarnet {
+
+        private final long codeSymbole;
+
+        Diffusion(long codeSymbole) {
+            this.codeSymbole = codeSymbole;
+        }
+
+        @Override
+        public void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite) {
+            executions.increment();
+            quantiteExecutee.add(quantite);
+            if (journalise()) {
+                journal.execution(codeSymbole, idAgresseur, idPassif, (byte) sensAgresseur.ordinal(), prixTicks, quantite);
+            }
+            for (EcouteurCarnet e : ecouteurs) {
+                e.execution(symbole, idAgresseur, idPassif, sensAgresseur, prixTicks, quantite);
+            }
+        }
+
+        @Override
+        public void auCarnet(String symbole, long idOrdre, SensOrdre sens, long prixTicks, long quantite) {
+            for (EcouteurCarnet e : ecouteurs) {
+                e.auCarnet(symbole, idOrdre, sens, prixTicks, quantite);
+            }
+        }
+
+        @Override
+        public void annulation(String symbole, long idOrdre, SensOrdre sens, long quantite) {
+            if (journalise()) {
+                journal.quantiteAnnulee(codeSymbole, idOrdre, (byte) sens.ordinal(), quantite);
+            }
+            for (EcouteurCarnet e : ecouteurs) {
+                e.annulation(symbole, idOrdre, sens, quantite);
+            }
+        }
+    }
+}
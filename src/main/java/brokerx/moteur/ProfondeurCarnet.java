@@ -0,0 +1,10 @@
+package brokerx.moteur;
+
+/**
+ * Meilleurs niveaux d'un carnet à un instant donné, meilleur prix en premier (prix en ticks)
+ * Tableaux de même longueur par côté, éventuellement vides
+ */
+public record ProfondeurCarnet(String symbole,
+                               long[] prixAchat, long[] quantiteAchat,
+                               long[] prixVente, long[] quantiteVente) {
+}
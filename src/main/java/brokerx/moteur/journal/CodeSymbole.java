@@ -0,0 +1,52 @@
+package brokerx.moteur.journal;
+
+/**
+ * Symbole (1 à 12 caractères parmi A-Z, 0-9 et '.') codé sur un long, en base 38 (0 = fin)
+ * Permet un enregistrement de taille fixe sans chaîne ni tableau d'octets
+ */
+public final class CodeSymbole {
+
+    private static final int BASE = 38;
+    private static final int LONGUEUR_MAX = 12;
+
+    private CodeSymbole() {
+    }
+
+    /**
+     * @throws IllegalArgumentException si le symbole est vide, trop long ou contient un caractère non codable
+     */
+    public static long coder(String symbole) {
+        int longueur = symbole.length();
+        if (longueur == 0 || longueur > LONGUEUR_MAX) {
+            throw new IllegalArgumentException("Symbole non codable : " + symbole);
+        }
+        long code = 0;
+        for (int i = longueur - 1; i >= 0; i--) {
+            code = code * BASE + chiffre(symbole.charAt(i), symbole);
+        }
+        return code;
+    }
+
+    public static String decoder(long code) {
+        StringBuilder symbole = new StringBuilder(LONGUEUR_MAX);
+        while (code != 0) {
+            int c = (int) (code % BASE);
+            symbole.append(c <= 10 ? (char) ('0' + c - 1) : c <= 36 ? (char) ('A' + c - 11) : '.');
+            code /= BASE;
+        }
+        return symbole.toString();
+    }
+
+    private static int chiffre(char c, String symbole) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c == '.') {
+            return 37;
+        }
+        throw new IllegalArgumentException("Symbole non codable : " + symbole);
+    }
+}
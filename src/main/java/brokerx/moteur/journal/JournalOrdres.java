@@ -0,0 +1,365 @@
+package brokerx.moteur.journal;
+
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal d'écriture anticipée (WAL) des ordres, binaire et en ajout seul
+ *
+ * - enregistrements de taille fixe (64 octets, jamais à cheval sur deux pages), CRC32C par enregistrement
+ * - fichiers segments de taille fixe projetés en mémoire (ordres-<première séquence>.journal)
+ * - écriture = copie de 64 octets dans la projection, sous un verrou court; fsync selon la politique
+ * - à l'ouverture, la fin du dernier segment est retrouvée par la séquence et le CRC :
+ *   un enregistrement incomplet (panne pendant l'écriture) est ignoré puis écrasé
+ *
+ * Format (little-endian) :
+ *   0 séquence | 8 ordre | 16 autre | 24 prix (ticks) | 32 quantité | 40 symbole (CodeSymbole)
+ *   48 horodatage (ms epoch) | 56 type | 57 sens | 58 type d'ordre | 59 (libre) | 60 CRC32C des octets 0-59
+ */
+@Component
+public class JournalOrdres {
+
+    public static final int TAILLE_ENREGISTREMENT = 64;
+    private static final int TAILLE_CONTROLEE = 60;
+    private static final String PREFIXE = "ordres-";
+    private static final String SUFFIXE = ".journal";
+
+    private final Path repertoire;
+    private final long tailleSegment;
+    private final PolitiqueSynchro politique;
+    private final long intervalleSynchroMs;
+    private final JournalEvenements evenements;
+
+    private final ByteBuffer tampon = ByteBuffer.allocate(TAILLE_ENREGISTREMENT).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel canal;
+    private MappedByteBuffer segment;
+    private int position;
+    private long prochaineSequence = 1;
+    private boolean nonSynchronise;
+
+    private Thread synchroniseur;
+    private volatile boolean actif = true;
+    private volatile long enregistrementsEcrits;
+    private final LongAdder synchronisations = new LongAdder();
+
+    public JournalOrdres(@Value("${brokerx.journal-ordres.repertoire:./data/ordres}") String repertoire,
+                         @Value("${brokerx.journal-ordres.taille-segment:67108864}") long tailleSegment,
+                         @Value("${brokerx.journal-ordres.synchro:periodique}") String politique,
+                         @Value("${brokerx.journal-ordres.synchro-intervalle-ms:10}") long intervalleSynchroMs,
+                         JournalEvenements evenements) {
+        if (tailleSegment < TAILLE_ENREGISTREMENT || tailleSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Taille de segment invalide : " + tailleSegment);
+        }
+        this.repertoire = Paths.get(repertoire);
+        this.tailleSegment = tailleSegment - tailleSegment % TAILLE_ENREGISTREMENT;
+        this.politique = PolitiqueSynchro.valueOf(politique.trim().toUpperCase(Locale.ROOT));
+        this.intervalleSynchroMs = intervalleSynchroMs;
+        this.evenements = evenements;
+    }
+
+    /**
+     * Reprend l'écriture à la fin du dernier segment et démarre la synchronisation périodique
+     */
+    @PostConstruct
+    public synchronized void ouvrir() {
+        try {
+            Files.createDirectories(repertoire);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                ouvrirSegment(1);
+            } else {
+                reprendre(segments.get(segments.size() - 1));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le journal des ordres " + repertoire, e);
+        }
+        if (politique == PolitiqueSynchro.PERIODIQUE) {
+            synchroniseur = new Thread(this::boucleSynchro, "journal-ordres-synchro");
+            synchroniseur.setDaemon(true);
+            synchroniseur.start();
+        }
+    }
+
+    public long compteOuvert(long clientId, long especesCentimes) {
+        return ecrire(TypeEvenementOrdre.COMPTE_OUVERT, 0, 0, clientId, (byte) 0, (byte) 0, 0, especesCentimes);
+    }
+
+    public long accepte(long symbole, long idOrdre, long clientId, byte sens, byte typeOrdre, long prixTicks, long quantite) {
+        return ecrire(TypeEvenementOrdre.ACCEPTE, symbole, idOrdre, clientId, sens, typeOrdre, prixTicks, quantite);
+    }
+
+    public long annule(long symbole, long idOrdre) {
+        return ecrire(TypeEvenementOrdre.ANNULE, symbole, idOrdre, 0, (byte) 0, (byte) 0, 0, 0);
+    }
+
+    public long expire(long symbole, long idOrdre) {
+        return ecrire(TypeEvenementOrdre.EXPIRE, symbole, idOrdre, 0, (byte) 0, (byte) 0, 0, 0);
+    }
+
+    public long execution(long symbole, long idAgresseur, long idPassif, byte sensAgresseur, long prixTicks, long quantite) {
+        return ecrire(TypeEvenementOrdre.EXECUTION, symbole, idAgresseur, idPassif, sensAgresseur, (byte) 0, prixTicks, quantite);
+    }
+
+    public long quantiteAnnulee(long symbole, long idOrdre, byte sens, long quantite) {
+        return ecrire(TypeEvenementOrdre.QUANTITE_ANNULEE, symbole, idOrdre, 0, sens, (byte) 0, 0, quantite);
+    }
+
+    /**
+     * @return la séquence attribuée
+     */
+    private synchronized long ecrire(TypeEvenementOrdre type, long symbole, long idOrdre, long autre,
+                                     byte sens, byte typeOrdre, long prixTicks, long quantite) {
+        if (position == tailleSegment) {
+            rouler();
+        }
+        long sequence = prochaineSequence;
+        tampon.clear();
+        tampon.putLong(sequence)
+            .putLong(idOrdre)
+            .putLong(autre)
+            .putLong(prixTicks)
+            .putLong(quantite)
+            .putLong(symbole)
+            .putLong(System.currentTimeMillis())
+            .put(type.getCode())
+            .put(sens)
+            .put(typeOrdre)
+            .put((byte) 0);
+        crc.reset();
+        crc.update(tampon.array(), 0, TAILLE_CONTROLEE);
+        tampon.putInt((int) crc.getValue());
+        segment.put(position, tampon.array(), 0, TAILLE_ENREGISTREMENT);
+        position += TAILLE_ENREGISTREMENT;
+        prochaineSequence++;
+        enregistrementsEcrits++;
+        if (politique == PolitiqueSynchro.EVENEMENT) {
+            segment.force(position - TAILLE_ENREGISTREMENT, TAILLE_ENREGISTREMENT);
+            synchronisations.increment();
+        } else {
+            nonSynchronise = true;
+        }
+        return sequence;
+    }
+
+    /**
+     * Exécute l'action sous le verrou du journal (aucune écriture pendant ce temps)
+     * avec la séquence du dernier enregistrement écrit
+     */
+    public synchronized void figer(LongConsumer action) {
+        action.accept(prochaineSequence - 1);
+    }
+
+    /**
+     * Lit les enregistrements valides de séquence strictement supérieure à apres, dans l'ordre,
+     * jusqu'au dernier enregistrement écrit au moment de l'appel
+     * À appeler avant la reprise du trafic : les écritures concurrentes ne sont pas garanties visibles
+     * @return le nombre d'enregistrements transmis
+     */
+    public long lire(long apres, LecteurJournal lecteur) {
+        long fin = getDerniereSequence();
+        List<Path> segments;
+        try {
+            segments = segments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long transmis = 0;
+        byte[] enregistrement = new byte[TAILLE_ENREGISTREMENT];
+        CRC32C controle = new CRC32C();
+        for (int i = 0; i < segments.size(); i++) {
+            // Segment entièrement couvert : le suivant commence au plus à apres + 1
+            if (i + 1 < segments.size() && premiereSequence(segments.get(i + 1)) <= apres + 1) {
+                continue;
+            }
+            long attendue = premiereSequence(segments.get(i));
+            try (FileChannel lecture = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                ByteBuffer projection = lecture.map(FileChannel.MapMode.READ_ONLY, 0, lecture.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer vue = ByteBuffer.wrap(enregistrement).order(ByteOrder.LITTLE_ENDIAN);
+                for (int p = 0; p + TAILLE_ENREGISTREMENT <= projection.limit(); p += TAILLE_ENREGISTREMENT, attendue++) {
+                    projection.get(p, enregistrement);
+                    if (attendue > fin || !valide(vue, enregistrement, controle, attendue)) {
+                        break;
+                    }
+                    if (attendue <= apres) {
+                        continue;
+                    }
+                    TypeEvenementOrdre type = TypeEvenementOrdre.depuisCode(vue.get(56));
+                    lecteur.enregistrement(attendue, type, vue.getLong(40), vue.getLong(8), vue.getLong(16),
+                        vue.get(57), vue.get(58), vue.getLong(24), vue.getLong(32));
+                    transmis++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture du journal des ordres impossible : " + segments.get(i), e);
+            }
+        }
+        return transmis;
+    }
+
+    /**
+     * Supprime les segments dont tous les enregistrements ont une séquence inférieure ou égale à la limite
+     * (couverts par un instantané); le segment courant est toujours conservé
+     * @return le nombre de segments supprimés
+     */
+    public synchronized int purgerJusqua(long sequence) {
+        int supprimes = 0;
+        try {
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (premiereSequence(segments.get(i + 1)) - 1 > sequence) {
+                    break;
+                }
+                Files.deleteIfExists(segments.get(i));
+                supprimes++;
+            }
+        } catch (IOException e) {
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_ORDRES, "operation", "purge", "erreur", e.getMessage());
+        }
+        return supprimes;
+    }
+
+    /**
+     * Force sur disque les enregistrements écrits depuis la dernière synchronisation
+     */
+    public void synchroniser() {
+        MappedByteBuffer aForcer;
+        synchronized (this) {
+            if (!nonSynchronise) {
+                return;
+            }
+            nonSynchronise = false;
+            aForcer = segment;
+        }
+        aForcer.force();
+        synchronisations.increment();
+    }
+
+    @PreDestroy
+    public void fermer() {
+        actif = false;
+        if (synchroniseur != null) {
+            synchroniseur.interrupt();
+            try {
+                synchroniseur.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            segment.force();
+            try {
+                canal.close();
+            } catch (IOException e) {
+                evenements.evenement(TypeEvenement.ERREUR_JOURNAL_ORDRES, "operation", "fermeture", "erreur", e.getMessage());
+            }
+        }
+    }
+
+    private void boucleSynchro() {
+        while (actif) {
+            try {
+                Thread.sleep(intervalleSynchroMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            synchroniser();
+        }
+    }
+
+    private boolean valide(ByteBuffer vue, byte[] enregistrement, CRC32C controle, long attendue) {
+        if (vue.getLong(0) != attendue) {
+            return false;
+        }
+        controle.reset();
+        controle.update(enregistrement, 0, TAILLE_CONTROLEE);
+        return vue.getInt(TAILLE_CONTROLEE) == (int) controle.getValue();
+    }
+
+    private void reprendre(Path dernier) throws IOException {
+        prochaineSequence = premiereSequence(dernier);
+        mapper(dernier);
+        byte[] enregistrement = new byte[TAILLE_ENREGISTREMENT];
+        ByteBuffer vue = ByteBuffer.wrap(enregistrement).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C controle = new CRC32C();
+        position = 0;
+        while (position < tailleSegment && position + TAILLE_ENREGISTREMENT <= segment.limit()) {
+            segment.get(position, enregistrement);
+            if (!valide(vue, enregistrement, controle, prochaineSequence)) {
+                break;
+            }
+            position += TAILLE_ENREGISTREMENT;
+            prochaineSequence++;
+        }
+        // Segment plein (ou d'une ancienne taille) : le prochain enregistrement ouvrira un nouveau segment
+        if (position + TAILLE_ENREGISTREMENT > segment.limit()) {
+            position = (int) tailleSegment;
+        }
+    }
+
+    private void rouler() {
+        segment.force();
+        synchronisations.increment();
+        nonSynchronise = false;
+        try {
+            canal.close();
+            ouvrirSegment(prochaineSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir un nouveau segment du journal des ordres", e);
+        }
+    }
+
+    private void ouvrirSegment(long premiere) throws IOException {
+        Path chemin = repertoire.resolve(String.format("%s%020d%s", PREFIXE, premiere, SUFFIXE));
+        mapper(chemin);
+        position = 0;
+    }
+
+    private void mapper(Path chemin) throws IOException {
+        canal = FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long taille = Math.max(canal.size(), tailleSegment);
+        segment = canal.map(FileChannel.MapMode.READ_WRITE, 0, taille);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers
+                .filter(f -> f.getFileName().toString().startsWith(PREFIXE) && f.getFileName().toString().endsWith(SUFFIXE))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static long premiereSequence(Path segment) {
+        String nom = segment.getFileName().toString();
+        return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+    }
+
+    public Path getRepertoire() { return repertoire; }
+    public PolitiqueSynchro getPolitique() { return politique; }
+    public synchronized long getDerniereSequence() { return prochaineSequence - 1; }
+    public long getEnregistrementsEcrits() { return enregistrementsEcrits; }
+    public long getSynchronisations() { return synchronisations.sum(); }
+}
@@ -0,0 +1,19 @@
+package brokerx.moteur.journal;
+
+/**
+ * Reçoit les enregistrements du journal des ordres dans l'ordre des séquences
+ * Arguments primitifs : la lecture n'alloue rien par enregistrement
+ *
+ * Sens des champs selon le type :
+ * - COMPTE_OUVERT : autre = client, quantite = espèces initiales en centimes
+ * - ACCEPTE : autre = client, prix = prix limite ou de protection, sens et typeOrdre renseignés
+ * - ANNULE, EXPIRE : ordre seul
+ * - EXECUTION : ordre = agresseur, autre = ordre au carnet, sens de l'agresseur
+ * - QUANTITE_ANNULEE : ordre et quantité retirée
+ */
+@FunctionalInterface
+public interface LecteurJournal {
+
+    void enregistrement(long sequence, TypeEvenementOrdre type, long symbole, long idOrdre, long autre,
+                        byte sens, byte typeOrdre, long prixTicks, long quantite);
+}
@@ -0,0 +1,13 @@
+package brokerx.moteur.journal;
+
+/**
+ * Politique d'écriture sur disque (fsync) du journal des ordres
+ */
+public enum PolitiqueSynchro {
+    /** force() après chaque enregistrement : aucune perte, débit limité par le disque */
+    EVENEMENT,
+    /** force() par un thread dédié à intervalle fixe : perte bornée à l'intervalle en cas de panne machine */
+    PERIODIQUE,
+    /** aucun force() explicite : le système écrit les pages modifiées à son rythme (survit à l'arrêt du processus) */
+    SYSTEME
+}
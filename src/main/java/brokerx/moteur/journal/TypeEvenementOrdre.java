@@ -0,0 +1,48 @@
+package brokerx.moteur.journal;
+
+/**
+ * Types d'enregistrements du journal des ordres
+ *
+ * Les événements de commande (ouverture de compte, acceptation, annulation, expiration) sont rejoués
+ * au redémarrage; les événements dérivés (exécution, quantité annulée) sont produits à nouveau par
+ * l'appariement, qui est déterministe, et ne servent qu'à la lecture du journal.
+ */
+public enum TypeEvenementOrdre {
+    COMPTE_OUVERT(1, true),
+    ACCEPTE(2, true),
+    ANNULE(3, true),
+    EXPIRE(4, true),
+    EXECUTION(5, false),
+    QUANTITE_ANNULEE(6, false);
+
+    private static final TypeEvenementOrdre[] PAR_CODE = new TypeEvenementOrdre[7];
+
+    static {
+        for (TypeEvenementOrdre type : values()) {
+            PAR_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+    private final boolean rejoue;
+
+    TypeEvenementOrdre(int code, boolean rejoue) {
+        this.code = (byte) code;
+        this.rejoue = rejoue;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public boolean isRejoue() {
+        return rejoue;
+    }
+
+    /**
+     * @return le type, ou null si le code est inconnu
+     */
+    public static TypeEvenementOrdre depuisCode(byte code) {
+        return code > 0 && code < PAR_CODE.length ? PAR_CODE[code] : null;
+    }
+}
@@ -1,9 +1,21 @@
 package brokerx.repository;
 
 import brokerx.entity.Client;
+import brokerx.entity.StatutInscription;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
@@ -13,4 +25,137 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     boolean existsByEmail(String email);
     
     boolean existsByTelephone(String telephone);
+    
+    /**
+     * Clients déjà inscrits avec cet email ou ce téléphone (une seule requête pour les deux contrôles)
+     * UNION plutôt que OR : chaque branche utilise son index d'unicité au lieu d'un parcours de table
+     */
+    @Query("select c.id as id, c.email as email, c.telephone as telephone, c.statut as statut " +
+           "from Client c where c.email = :email " +
+           "union select c.id, c.email, c.telephone, c.statut from Client c where c.telephone = :telephone")
+    List<ConflitInscription> findConflits(@Param("email") String email, @Param("telephone") String telephone);
+    
+    /**
+     * Identifiants déjà inscrits parmi ces emails (contrôle d'un lot d'import)
+     * Emails et téléphones sont interrogés séparément : un OR entre deux listes IN empêche
+     * l'utilisation des index d'unicité et parcourt toute la table
+     */
+    @Query("select c.email as email, c.telephone as telephone from Client c where c.email in :emails")
+    List<IdentifiantsClient> findByEmailIn(@Param("emails") Collection<String> emails);
+    
+    /**
+     * Identifiants déjà inscrits parmi ces téléphones (contrôle d'un lot d'import)
+     */
+    @Query("select c.email as email, c.telephone as telephone from Client c where c.telephone in :telephones")
+    List<IdentifiantsClient> findByTelephoneIn(@Param("telephones") Collection<String> telephones);
+    
+    /**
+     * Parcours en flux des identifiants de tous les clients (construction du filtre d'existence)
+     * Doit être consommé dans une transaction
+     */
+    @Query("select c.email as email, c.telephone as telephone from Client c")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<IdentifiantsClient> streamIdentifiants();
+    
+    /**
+     * Nombre de clients par statut (initialisation des compteurs, parcours de l'index statut/date)
+     */
+    @Query("select c.statut as statut, count(c) as nombre from Client c group by c.statut")
+    List<NombreParStatut> compterParStatut();
+    
+    /**
+     * Inscriptions PENDING antérieures à la limite : plage de l'index statut/date, arrêtée à la taille du lot
+     */
+    @Query("select c.id from Client c " +
+           "where c.statut = brokerx.entity.StatutInscription.PENDING and c.dateInscription < :limite")
+    List<Long> findIdsEnAttenteAvant(@Param("limite") LocalDateTime limite, Pageable lot);
+    
+    /**
+     * Passe ces inscriptions à REJECTED si elles sont toujours PENDING (une activation concurrente l'emporte)
+     */
+    @Modifying
+    @Query("update Client c set c.statut = brokerx.entity.StatutInscription.REJECTED, c.version = c.version + 1 " +
+           "where c.id in :ids and c.statut = brokerx.entity.StatutInscription.PENDING")
+    int rejeterEnAttente(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Supprime ces inscriptions si elles sont toujours PENDING
+     */
+    @Modifying
+    @Query("delete from Client c where c.id in :ids and c.statut = brokerx.entity.StatutInscription.PENDING")
+    int supprimerEnAttente(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Supprime une inscription rejetée (libère son email et son téléphone pour une nouvelle inscription)
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Client c where c.id = :id and c.statut = brokerx.entity.StatutInscription.REJECTED")
+    int supprimerRejete(@Param("id") Long id);
+    
+    /**
+     * Transition de statut et indicateurs de vérification en une seule instruction, appliquée seulement
+     * si le client est encore à la version lue (aucune écriture concurrente perdue)
+     * @return 1 si la transition est appliquée, 0 si le client a changé ou n'existe plus
+     */
+    @Modifying
+    @Transactional
+    @Query("update Client c set c.statut = :statut, c.emailVerifie = :emailVerifie, " +
+           "c.telephoneVerifie = :telephoneVerifie, c.version = c.version + 1 " +
+           "where c.id = :id and c.version = :version")
+    int appliquerTransition(@Param("id") Long id,
+                            @Param("version") long version,
+                            @Param("statut") StatutInscription statut,
+                            @Param("emailVerifie") boolean emailVerifie,
+                            @Param("telephoneVerifie") boolean telephoneVerifie);
+    
+    /**
+     * Remplace le hachage du mot de passe (mise à niveau transparente à la connexion)
+     */
+    @Modifying
+    @Transactional
+    @Query("update Client c set c.motDePasse = :hachage, c.version = c.version + 1 where c.id = :id")
+    int updateMotDePasse(@Param("id") Long id, @Param("hachage") String hachage);
+    
+    /**
+     * Première page de la liste des clients, du plus récent au plus ancien (CU02)
+     * @param statut filtre sur le statut d'inscription, ou null pour tous
+     */
+    @Query("select new brokerx.repository.ClientResume(c.id, c.prenom, c.nom, c.email, c.telephone, " +
+           "c.dateInscription, c.statut) from Client c " +
+           "where (:statut is null or c.statut = :statut) " +
+           "order by c.dateInscription desc, c.id desc")
+    List<ClientResume> findPremierePage(@Param("statut") StatutInscription statut, Pageable limite);
+    
+    /**
+     * Page suivante par recherche de clé : reprend strictement après le dernier client affiché,
+     * sans parcourir les pages précédentes comme le ferait un OFFSET.
+     * La borne redondante sur dateInscription permet un parcours d'index par intervalle (un OR seul ne le permet pas)
+     */
+    @Query("select new brokerx.repository.ClientResume(c.id, c.prenom, c.nom, c.email, c.telephone, " +
+           "c.dateInscription, c.statut) from Client c " +
+           "where (:statut is null or c.statut = :statut) " +
+           "and c.dateInscription <= :date and (c.dateInscription < :date or c.id < :id) " +
+           "order by c.dateInscription desc, c.id desc")
+    List<ClientResume> findPageApres(@Param("statut") StatutInscription statut,
+                                     @Param("date") LocalDateTime date,
+                                     @Param("id") Long id,
+                                     Pageable limite);
+    
+    /**
+     * Export en flux de la liste des clients (NDJSON)
+     * Doit être consommé dans une transaction en lecture seule
+     */
+    @Query("select new brokerx.repository.ClientResume(c.id, c.prenom, c.nom, c.email, c.telephone, " +
+           "c.dateInscription, c.statut) from Client c " +
+           "where (:statut is null or c.statut = :statut) " +
+           "order by c.dateInscription desc, c.id desc")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<ClientResume> streamResumes(@Param("statut") StatutInscription statut);
 }
\ No newline at end of file
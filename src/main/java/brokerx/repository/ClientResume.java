@@ -0,0 +1,17 @@
+package brokerx.repository;
+
+import brokerx.entity.StatutInscription;
+import java.time.LocalDateTime;
+
+/**
+ * Projection d'un client pour les listes (CU02) : sans mot de passe ni données d'identité détaillées
+ * Construite directement par la requête, jamais attachée au contexte de persistance
+ */
+public record ClientResume(Long id,
+                           String prenom,
+                           String nom,
+                           String email,
+                           String telephone,
+                           LocalDateTime dateInscription,
+                           StatutInscription statusInscription) {
+}
@@ -0,0 +1,12 @@
+package brokerx.repository;
+
+import brokerx.entity.CompteDeCourtage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface CompteDeCourtageRepository extends JpaRepository<CompteDeCourtage, Long> {
+    
+    Optional<CompteDeCourtage> findByClientId(Long clientId);
+}
@@ -0,0 +1,13 @@
+package brokerx.repository;
+
+import brokerx.entity.StatutInscription;
+
+/**
+ * Client existant en conflit avec une nouvelle inscription (même email ou même téléphone)
+ */
+public interface ConflitInscription extends IdentifiantsClient {
+
+    Long getId();
+
+    StatutInscription getStatut();
+}
@@ -0,0 +1,11 @@
+package brokerx.repository;
+
+/**
+ * Projection des identifiants uniques d'un client (email, téléphone)
+ */
+public interface IdentifiantsClient {
+
+    String getEmail();
+
+    String getTelephone();
+}
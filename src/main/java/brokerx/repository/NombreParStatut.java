@@ -0,0 +1,13 @@
+package brokerx.repository;
+
+import brokerx.entity.StatutInscription;
+
+/**
+ * Projection du comptage des clients par statut d'inscription
+ */
+public interface NombreParStatut {
+
+    StatutInscription getStatut();
+
+    long getNombre();
+}
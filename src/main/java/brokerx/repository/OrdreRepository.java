@@ -0,0 +1,15 @@
+package brokerx.repository;
+
+import brokerx.entity.Ordre;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface OrdreRepository extends JpaRepository<Ordre, Long> {
+    
+    /**
+     * Ordre déjà accepté pour ce ClientOrderId (repli de l'idempotence, par l'index d'unicité)
+     */
+    Optional<Ordre> findByClientIdAndClientOrderId(Long clientId, String clientOrderId);
+}
@@ -0,0 +1,28 @@
+package brokerx.service;
+
+import brokerx.entity.Ordre;
+import java.time.LocalDateTime;
+
+/**
+ * Accusé de réception d'un ordre (ACK), renvoyé à l'identique pour une soumission en double
+ * @param rejeu vrai si l'ordre avait déjà été traité pour ce ClientOrderId
+ */
+public record AccuseOrdre(Long ordreId,
+                          String clientOrderId,
+                          String symbole,
+                          String statut,
+                          long quantite,
+                          long quantiteExecutee,
+                          LocalDateTime horodatageUtc,
+                          boolean rejeu) {
+
+    public static AccuseOrdre depuis(Ordre ordre) {
+        return new AccuseOrdre(ordre.getId(), ordre.getClientOrderId(), ordre.getSymbole(), ordre.getStatut(),
+                ordre.getQuantite(), ordre.getQuantiteExecutee(), ordre.getHorodatageUtc(), false);
+    }
+
+    public AccuseOrdre rejoue() {
+        return rejeu ? this : new AccuseOrdre(ordreId, clientOrderId, symbole, statut, quantite,
+                quantiteExecutee, horodatageUtc, true);
+    }
+}
@@ -1,15 +1,30 @@
 package brokerx.service;
 
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.service.audit.EnregistrementAudit;
+import brokerx.service.audit.JournalAudit;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
+/**
+ * Service d'audit réglementaire
+ * Les événements sont persistés de façon asynchrone dans le JournalAudit (ajout seul, chaîné par hachage)
+ */
 @Service
+@Timed("brokerx.service")
 public class AuditService {
     
-    private static final DateTimeFormatter AUDIT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private final JournalAudit journal;
+    private final JournalEvenements evenements;
+    
+    public AuditService(JournalAudit journal, JournalEvenements evenements) {
+        this.journal = journal;
+        this.evenements = evenements;
+    }
     
     /**
      * Journalise l'activation d'un compte avec audit complet
@@ -25,16 +40,8 @@ public class AuditService {
         // Création de l'empreinte des documents/données
         String empreinteDocuments = genererEmpreinteDocuments(email, actionType, details, timestamp);
         
-        // Journalisation dans la console (en production, utiliser un vrai système de logging)
-        System.out.println("=== AUDIT D'ACTIVATION DE COMPTE ===");
-        System.out.println("🔍 ID Audit: " + auditId);
-        System.out.println("📧 Email: " + email);
-        System.out.println("⚡ Action: " + actionType);
-        System.out.println("🕐 Horodatage: " + timestamp.format(AUDIT_DATE_FORMAT));
-        System.out.println("🔐 Empreinte documents: " + empreinteDocuments);
-        System.out.println("📝 Détails: " + details);
-        System.out.println("✅ Statut: SUCCÈS");
-        System.out.println("=====================================");
+        // Journalisation durable : l'appelant n'attend pas l'écriture sur disque
+        journal.ajouter(new EnregistrementAudit(auditId, timestamp, actionType, email, empreinteDocuments, details));
         
         return auditId;
     }
@@ -50,8 +57,9 @@ public class AuditService {
     /**
      * Génère une empreinte cryptographique des documents/données
      * pour assurer l'intégrité et la traçabilité
+     * (visibilité paquetage pour les benchmarks)
      */
-    private String genererEmpreinteDocuments(String email, String action, String details, LocalDateTime timestamp) {
+    String genererEmpreinteDocuments(String email, String action, String details, LocalDateTime timestamp) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             
@@ -71,7 +79,7 @@ public class AuditService {
             
             return hexString.toString().substring(0, 16).toUpperCase(); // Prendre les 16 premiers caractères
         } catch (Exception e) {
-            System.err.println("Erreur lors de la génération de l'empreinte: " + e.getMessage());
+            evenements.evenement(TypeEvenement.ERREUR_EMPREINTE_AUDIT, "erreur", e.getMessage());
             return "EMPREINTE_ERREUR_" + System.currentTimeMillis();
         }
     }
@@ -84,12 +92,8 @@ public class AuditService {
         String empreinte = genererEmpreinteDocuments(email, "VERIFICATION_EMAIL", 
                                                    "Code: " + codeVerification + " | Succès: " + succes, timestamp);
         
-        System.out.println("=== AUDIT VÉRIFICATION EMAIL ===");
-        System.out.println("📧 Email: " + email);
-        System.out.println("🔑 Code vérifié: " + codeVerification);
-        System.out.println("🕐 Horodatage: " + timestamp.format(AUDIT_DATE_FORMAT));
-        System.out.println("🔐 Empreinte: " + empreinte);
-        System.out.println("✅ Résultat: " + (succes ? "SUCCÈS" : "ÉCHEC"));
-        System.out.println("================================");
+        // Le code lui-même n'est conservé que dans l'empreinte
+        journal.ajouter(new EnregistrementAudit(genererIdAudit(email, timestamp), timestamp, "VERIFICATION_EMAIL",
+                                                email, empreinte, "Résultat: " + (succes ? "SUCCÈS" : "ÉCHEC")));
     }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package brokerx.service;
+
+import brokerx.repository.ClientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache en lecture des clients, par email et par identifiant, devant ClientRepository
+ *
+ * - copies immuables (InstantaneClient), jamais d'entité gérée
+ * - un seul chargement par clé : les absences concurrentes attendent le chargement en cours
+ * - durée de vie par entrée et capacité bornée par index (éviction des plus anciennes), comme le
+ *   cache d'idempotence des ordres; les clients inexistants ne sont pas conservés
+ * - toute écriture sur un client (statut, vérification, mot de passe, suppression) invalide ses deux
+ *   clés après validation; un chargement en cours pendant l'invalidation n'est pas conservé
+ * - désactivable (brokerx.clients.cache.actif=false) : chaque lecture va alors en base
+ */
+@Component
+public class CacheClients {
+
+    private final Index<String> parEmail;
+    private final Index<Long> parId;
+    private final boolean actif;
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder absences = new LongAdder();
+    private final LongAdder chargements = new LongAdder();
+    private final LongAdder dureeChargementsNanos = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictionsExpiration = new LongAdder();
+    private final LongAdder evictionsCapacite = new LongAdder();
+
+    private final Duration duree;
+    private final int capaciteMax;
+    private final Clock horloge;
+
+    @Autowired
+    public CacheClients(ClientRepository clientRepository,
+                        @Value("${brokerx.clients.cache.actif:true}") boolean actif,
+                        @Value("${brokerx.clients.cache.duree:PT5M}") Duration duree,
+                        @Value("${brokerx.clients.cache.capacite-max:50000}") int capaciteMax) {
+        this(clientRepository, actif, duree, capaciteMax, Clock.systemUTC());
+    }
+
+    public CacheClients(ClientRepository clientRepository, boolean actif, Duration duree, int capaciteMax, Clock horloge) {
+        if (capaciteMax <= 0) {
+            throw new IllegalArgumentException("La capacité maximale doit être positive");
+        }
+        this.actif = actif;
+        this.duree = duree;
+        this.capaciteMax = capaciteMax;
+        this.horloge = horloge;
+        this.parEmail = new Index<>(email -> clientRepository.findByEmail(email).map(InstantaneClient::depuis));
+        this.parId = new Index<>(id -> clientRepository.findById(id).map(InstantaneClient::depuis));
+    }
+
+    public Optional<InstantaneClient> parEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return parEmail.lire(email);
+    }
+
+    public Optional<InstantaneClient> parId(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return parId.lire(id);
+    }
+
+    /**
+     * Client déjà en cache, sans chargement (vide s'il n'y est pas, si un chargement est en cours ou cache désactivé)
+     */
+    public Optional<InstantaneClient> parEmailSiPresent(String email) {
+        return email != null && actif ? parEmail.present(email) : Optional.empty();
+    }
+
+    /**
+     * Retire un client des deux index (après une écriture validée en base)
+     */
+    public void invalider(Long id, String email) {
+        if (id != null) {
+            parId.retirer(id);
+        }
+        if (email != null) {
+            parEmail.retirer(email);
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Retire un lot de clients connus par leur seul identifiant (expiration des inscriptions) :
+     * l'index par email est parcouru, à réserver aux traitements de fond
+     */
+    public void invaliderIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> cibles = Set.copyOf(ids);
+        cibles.forEach(parId::retirer);
+        parEmail.entrees.values().removeIf(entree -> entree.resultat.isDone()
+            && !entree.resultat.isCompletedExceptionally()
+            && entree.resultat.join().map(client -> cibles.contains(client.id())).orElse(false));
+        invalidations.add(cibles.size());
+    }
+
+    /**
+     * Balayage périodique des deux index : entrées expirées en tête de file et clés périmées
+     */
+    @Scheduled(fixedDelayString = "${brokerx.clients.cache.balayage-intervalle-ms:60000}")
+    public void balayer() {
+        Instant maintenant = horloge.instant();
+        parEmail.balayer(maintenant);
+        parId.balayer(maintenant);
+    }
+
+    public int taille() { return parEmail.entrees.size() + parId.entrees.size(); }
+    public int getCapaciteMax() { return capaciteMax; }
+    public boolean isActif() { return actif; }
+    public long getSucces() { return succes.sum(); }
+    public long getAbsences() { return absences.sum(); }
+    public long getChargements() { return chargements.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+    public long getEvictionsExpiration() { return evictionsExpiration.sum(); }
+    public long getEvictionsCapacite() { return evictionsCapacite.sum(); }
+
+    public double getDureeChargementsSecondes() {
+        return dureeChargementsNanos.sum() / 1e9;
+    }
+
+    /**
+     * Taux de succès du cache depuis le démarrage (0 si aucune requête)
+     */
+    public double getTauxSucces() {
+        long s = succes.sum();
+        long total = s + absences.sum();
+        return total == 0 ? 0 : (double) s / total;
+    }
+
+    private <K> Optional<InstantaneClient> charger(Function<K, Optional<InstantaneClient>> chargeur, K cle) {
+        long debut = System.nanoTime();
+        try {
+            return chargeur.apply(cle);
+        } finally {
+            chargements.increment();
+            dureeChargementsNanos.add(System.nanoTime() - debut);
+        }
+    }
+
+    private final class Index<K> {
+
+        private final ConcurrentHashMap<K, Entree> entrees = new ConcurrentHashMap<>();
+
+        // Ordre d'insertion (= ordre d'expiration, la durée de vie étant identique pour toutes les entrées)
+        private final ConcurrentLinkedQueue<K> ordreInsertion = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger tailleOrdreInsertion = new AtomicInteger();
+        private final Function<K, Optional<InstantaneClient>> chargeur;
+
+        Index(Function<K, Optional<InstantaneClient>> chargeur) {
+            this.chargeur = chargeur;
+        }
+
+        Optional<InstantaneClient> lire(K cle) {
+            if (!actif) {
+                return charger(chargeur, cle);
+            }
+            while (true) {
+                Entree existante = entrees.get(cle);
+                if (existante != null) {
+                    if (existante.isExpiree(horloge.instant())) {
+                        if (entrees.remove(cle, existante)) {
+                            evictionsExpiration.increment();
+                        }
+                        continue;
+                    }
+                    succes.increment();
+                    return attendre(existante);
+                }
+
+                Entree nouvelle = new Entree(horloge.instant().plus(duree));
+                if (entrees.putIfAbsent(cle, nouvelle) != null) {
+                    continue;
+                }
+                absences.increment();
+
+                Optional<InstantaneClient> client;
+                try {
+                    client = charger(chargeur, cle);
+                } catch (RuntimeException | Error e) {
+                    entrees.remove(cle, nouvelle);
+                    nouvelle.resultat.completeExceptionally(e);
+                    throw e;
+                }
+                nouvelle.resultat.complete(client);
+                if (client.isEmpty()) {
+                    // Un client inexistant peut être créé à tout instant : l'absence n'est pas conservée
+                    entrees.remove(cle, nouvelle);
+                    return client;
+                }
+                ordreInsertion.add(cle);
+                tailleOrdreInsertion.incrementAndGet();
+                while (entrees.size() > capaciteMax) {
+                    if (!evincerPlusAncienne()) {
+                        break;
+                    }
+                }
+                return client;
+            }
+        }
+
+        Optional<InstantaneClient> present(K cle) {
+            Entree entree = entrees.get(cle);
+            if (entree == null || !entree.resultat.isDone() || entree.resultat.isCompletedExceptionally()
+                    || entree.isExpiree(horloge.instant())) {
+                return Optional.empty();
+            }
+            return entree.resultat.join();
+        }
+
+        void retirer(K cle) {
+            entrees.remove(cle);
+        }
+
+        void balayer(Instant maintenant) {
+            K cle;
+            while ((cle = ordreInsertion.peek()) != null) {
+                Entree entree = entrees.get(cle);
+                if (entree != null && !entree.isExpiree(maintenant)) {
+                    break;
+                }
+                if (ordreInsertion.remove(cle)) {
+                    tailleOrdreInsertion.decrementAndGet();
+                }
+                if (entree != null && entrees.remove(cle, entree)) {
+                    evictionsExpiration.increment();
+                }
+            }
+
+            // Les invalidations laissent leur clé dans la file
+            if (tailleOrdreInsertion.get() > 2 * Math.max(entrees.size(), 1024)) {
+                ordreInsertion.removeIf(clePerimee -> {
+                    boolean perimee = !entrees.containsKey(clePerimee);
+                    if (perimee) {
+                        tailleOrdreInsertion.decrementAndGet();
+                    }
+                    return perimee;
+                });
+            }
+        }
+
+        private boolean evincerPlusAncienne() {
+            K cle;
+            while ((cle = ordreInsertion.poll()) != null) {
+                tailleOrdreInsertion.decrementAndGet();
+                Entree entree = entrees.get(cle);
+                if (entree != null && entrees.remove(cle, entree)) {
+                    evictionsCapacite.increment();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static Optional<InstantaneClient> attendre(Entree entree) {
+        try {
+            return entree.resultat.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entree {
+        private final CompletableFuture<Optional<InstantaneClient>> resultat = new CompletableFuture<>();
+        private final Instant expiration;
+
+        Entree(Instant expiration) {
+            this.expiration = expiration;
+        }
+
+        boolean isExpiree(Instant maintenant) {
+            // Un chargement en cours n'expire pas : les lectures concurrentes doivent l'attendre
+            return resultat.isDone() && !maintenant.isBefore(expiration);
+        }
+    }
+}
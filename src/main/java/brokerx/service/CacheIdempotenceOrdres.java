@@ -0,0 +1,204 @@
+package brokerx.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache d'idempotence des soumissions d'ordres, par (clientId, ClientOrderId) (UC-05)
+ *
+ * - une seule exécution par clé : la première soumission s'exécute, les doublons concurrents
+ *   attendent son accusé au lieu de relancer le traitement
+ * - durée de vie par entrée et capacité bornée (éviction des plus anciennes), comme les sessions de vérification
+ * - une entrée évincée n'est pas une garantie perdue : le traitement retrouve l'ordre par l'index d'unicité
+ * - les échecs (ordre rejeté, erreur) ne sont pas conservés : une nouvelle tentative est retraitée
+ */
+@Component
+public class CacheIdempotenceOrdres {
+
+    private final ConcurrentHashMap<Cle, Entree> entrees = new ConcurrentHashMap<>();
+
+    // Ordre d'insertion (= ordre d'expiration, la durée de vie étant identique pour toutes les entrées)
+    private final ConcurrentLinkedQueue<Cle> ordreInsertion = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tailleOrdreInsertion = new AtomicInteger();
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder absences = new LongAdder();
+    private final LongAdder replisBase = new LongAdder();
+    private final LongAdder evictionsExpiration = new LongAdder();
+    private final LongAdder evictionsCapacite = new LongAdder();
+
+    private final Duration duree;
+    private final int capaciteMax;
+    private final Clock horloge;
+
+    @Autowired
+    public CacheIdempotenceOrdres(@Value("${brokerx.ordres.idempotence.duree:PT10M}") Duration duree,
+                                  @Value("${brokerx.ordres.idempotence.capacite-max:100000}") int capaciteMax) {
+        this(duree, capaciteMax, Clock.systemUTC());
+    }
+
+    public CacheIdempotenceOrdres(Duration duree, int capaciteMax, Clock horloge) {
+        if (capaciteMax <= 0) {
+            throw new IllegalArgumentException("La capacité maximale doit être positive");
+        }
+        this.duree = duree;
+        this.capaciteMax = capaciteMax;
+        this.horloge = horloge;
+    }
+
+    /**
+     * Exécute le traitement une seule fois pour cette clé, ou renvoie l'accusé déjà produit (marqué rejeu)
+     * Un doublon concurrent attend la fin du traitement en cours et reçoit son résultat ou son échec
+     */
+    public AccuseOrdre executerUneFois(long clientId, String clientOrderId, Supplier<AccuseOrdre> traitement) {
+        Cle cle = new Cle(clientId, clientOrderId);
+        while (true) {
+            Entree existante = entrees.get(cle);
+            if (existante != null) {
+                if (existante.isExpiree(horloge.instant())) {
+                    if (entrees.remove(cle, existante)) {
+                        evictionsExpiration.increment();
+                    }
+                    continue;
+                }
+                succes.increment();
+                return attendre(existante).rejoue();
+            }
+
+            Entree nouvelle = new Entree(horloge.instant().plus(duree));
+            if (entrees.putIfAbsent(cle, nouvelle) != null) {
+                continue;
+            }
+            absences.increment();
+            ordreInsertion.add(cle);
+            tailleOrdreInsertion.incrementAndGet();
+
+            AccuseOrdre accuse;
+            try {
+                accuse = traitement.get();
+            } catch (RuntimeException | Error e) {
+                entrees.remove(cle, nouvelle);
+                nouvelle.resultat.completeExceptionally(e);
+                throw e;
+            }
+            nouvelle.resultat.complete(accuse);
+
+            while (entrees.size() > capaciteMax) {
+                if (!evincerPlusAncienne()) {
+                    break;
+                }
+            }
+            return accuse;
+        }
+    }
+
+    /**
+     * Le traitement a retrouvé l'ordre en base (entrée évincée ou expirée, ou autre instance)
+     */
+    public void repliBase() {
+        replisBase.increment();
+    }
+
+    /**
+     * Balayage périodique : retire les entrées expirées en tête de file
+     * et compacte la file d'insertion si elle contient trop de clés périmées
+     */
+    @Scheduled(fixedDelayString = "${brokerx.ordres.idempotence.balayage-intervalle-ms:60000}")
+    public void balayer() {
+        Instant maintenant = horloge.instant();
+        Cle cle;
+        while ((cle = ordreInsertion.peek()) != null) {
+            Entree entree = entrees.get(cle);
+            if (entree != null && !entree.isExpiree(maintenant)) {
+                break;
+            }
+            if (ordreInsertion.remove(cle)) {
+                tailleOrdreInsertion.decrementAndGet();
+            }
+            if (entree != null && entrees.remove(cle, entree)) {
+                evictionsExpiration.increment();
+            }
+        }
+
+        // Les traitements en échec et les entrées expirées à la lecture laissent leur clé dans la file
+        if (tailleOrdreInsertion.get() > 2 * Math.max(entrees.size(), 1024)) {
+            ordreInsertion.removeIf(clePerimee -> {
+                boolean perimee = !entrees.containsKey(clePerimee);
+                if (perimee) {
+                    tailleOrdreInsertion.decrementAndGet();
+                }
+                return perimee;
+            });
+        }
+    }
+
+    private boolean evincerPlusAncienne() {
+        Cle cle;
+        while ((cle = ordreInsertion.poll()) != null) {
+            tailleOrdreInsertion.decrementAndGet();
+            Entree entree = entrees.get(cle);
+            if (entree != null && entrees.remove(cle, entree)) {
+                evictionsCapacite.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AccuseOrdre attendre(Entree entree) {
+        try {
+            return entree.resultat.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public int taille() { return entrees.size(); }
+    public int getCapaciteMax() { return capaciteMax; }
+    public long getSucces() { return succes.sum(); }
+    public long getAbsences() { return absences.sum(); }
+    public long getReplisBase() { return replisBase.sum(); }
+    public long getEvictionsExpiration() { return evictionsExpiration.sum(); }
+    public long getEvictionsCapacite() { return evictionsCapacite.sum(); }
+
+    /**
+     * Taux de succès du cache depuis le démarrage (0 si aucune requête)
+     */
+    public double getTauxSucces() {
+        long s = succes.sum();
+        long total = s + absences.sum();
+        return total == 0 ? 0 : (double) s / total;
+    }
+
+    private record Cle(long clientId, String clientOrderId) {
+    }
+
+    private static final class Entree {
+        private final CompletableFuture<AccuseOrdre> resultat = new CompletableFuture<>();
+        private final Instant expiration;
+
+        Entree(Instant expiration) {
+            this.expiration = expiration;
+        }
+
+        boolean isExpiree(Instant maintenant) {
+            // Un traitement en cours n'expire pas : ses doublons doivent l'attendre
+            return resultat.isDone() && !maintenant.isBefore(expiration);
+        }
+    }
+}
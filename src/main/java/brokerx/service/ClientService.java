@@ -1,14 +1,26 @@
 package brokerx.service;
 
 import brokerx.entity.Client;
+import brokerx.entity.StatutInscription;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
 import brokerx.repository.ClientRepository;
+import brokerx.repository.ConflitInscription;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
+@Timed("brokerx.service")
 public class ClientService {
     
     @Autowired
@@ -20,48 +32,100 @@ public class ClientService {
     @Autowired
     private AuditService auditService;
     
-    private final Random random = new Random();
+    @Autowired
+    private JournalEvenements journal;
+    
+    @Autowired
+    private FiltreExistenceClients filtreExistence;
+    
+    @Autowired
+    private HachageMotDePasseService hachageMotDePasse;
+    
+    @Autowired
+    private GenerateurCodes generateurCodes;
+    
+    @Autowired
+    private CompteursStatuts compteursStatuts;
+    
+    @Autowired
+    private CacheClients cacheClients;
+    
+    @Autowired
+    private TransitionsInscription transitions;
+    
+    // Écritures en base après hachage : hors du pool de hachage, borné aux cœurs et réservé au calcul BCrypt
+    private final ExecutorService persistance = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @PreDestroy
+    public void arreter() {
+        persistance.shutdown();
+    }
     
     public Client sauvegarderClient(Client client) {
-        return clientRepository.save(client);
+        Client sauvegarde = clientRepository.save(client);
+        cacheClients.invalider(sauvegarde.getId(), sauvegarde.getEmail());
+        return sauvegarde;
     }
     
     /**
      * Crée un nouveau client avec statut PENDING et envoie les notifications de vérification
+     * Le mot de passe est haché sur le pool dédié : le thread appelant n'attend pas le hachage;
+     * l'insertion qui suit s'exécute sur un thread virtuel
      * @param client le client à créer
-     * @return le résultat de la création avec le client et les codes générés
+     * @return le résultat de la création avec le client et les codes générés; échoue avec
+     *         IllegalArgumentException (inscription concurrente) ou ServiceSatureException (pool saturé)
      * @throws IllegalArgumentException si l'email ou le téléphone existe déjà
      */
-    public CreationResult creerClientAvecVerification(Client client) {
-        // 1. Vérifier si l'email existe déjà
-        if (emailExiste(client.getEmail())) {
-            throw new IllegalArgumentException("Un compte avec cet email existe déjà");
-        }
+    public CompletableFuture<CreationResult> creerClientAvecVerification(Client client) {
+        String telephone = client.getTelephone() != null && !client.getTelephone().trim().isEmpty()
+            ? client.getTelephone() : null;
+        client.setTelephone(telephone);
         
-        // 2. Vérifier si le téléphone existe déjà (si fourni)
-        if (client.getTelephone() != null && !client.getTelephone().trim().isEmpty()) {
-            if (telephoneExiste(client.getTelephone())) {
-                throw new IllegalArgumentException("Un compte avec ce numéro de téléphone existe déjà");
-            }
+        // 1-2. Pré-contrôle d'unicité : le filtre écarte sans requête les cas certainement libres;
+        // sinon une seule requête couvre l'email et le téléphone
+        if (filtreExistence.emailPeutExister(client.getEmail()) || filtreExistence.telephonePeutExister(telephone)) {
+            List<ConflitInscription> conflits = libererRejetes(clientRepository.findConflits(client.getEmail(), telephone));
+            filtreExistence.confirmer(!conflits.isEmpty());
+            verifierConflits(conflits, client.getEmail());
         }
         
         // 3. Définir les données d'inscription
         client.setDateInscription(LocalDateTime.now());
-        client.setStatusInscription("PENDING");
+        client.setStatut(StatutInscription.PENDING);
         client.setEmailVerifie(false);
         client.setTelephoneVerifie(false);
         
-        // 4. Sauvegarder le client
-        Client clientSauvegarde = clientRepository.save(client);
+        // Insertion et notifications sur un thread virtuel : le pool de hachage ne fait que le calcul
+        return hachageMotDePasse.hacherAsync(client.getMotDePasse()).thenApplyAsync(hachage -> {
+            client.setMotDePasse(hachage);
+            return enregistrer(client);
+        }, persistance);
+    }
+    
+    /**
+     * Étapes 4 à 6 : insertion, codes de vérification et notifications
+     */
+    private CreationResult enregistrer(Client client) {
+        // 4. Sauvegarder le client : les contraintes d'unicité tranchent les inscriptions concurrentes
+        Client clientSauvegarde;
+        try {
+            clientSauvegarde = clientRepository.saveAndFlush(client);
+        } catch (DataIntegrityViolationException e) {
+            throw conflitDepuisContrainte(e, client);
+        }
+        filtreExistence.ajouter(clientSauvegarde.getEmail(), clientSauvegarde.getTelephone());
+        compteursStatuts.ajouter(clientSauvegarde.getStatusInscription(), 1);
         
         // 5. Générer les codes de vérification
         String codeEmail = genererCodeVerification();
+        String jetonLien = SessionVerificationStore.nouveauJetonLien();
         String codeOTP = genererCodeOTP();
         
-        // 6. Envoyer les notifications
+        // 6. Mettre les notifications en file (envoi asynchrone, la requête n'attend pas le fournisseur)
         boolean emailEnvoye = notificationService.envoyerEmailVerification(
             clientSauvegarde.getEmail(), 
             codeEmail, 
+            jetonLien,
             clientSauvegarde.getPrenom()
         );
         
@@ -73,98 +137,180 @@ public class ClientService {
             );
         }
         
-        System.out.println("✅ Client créé avec succès - ID: " + clientSauvegarde.getId());
-        System.out.println("📧 Code email: " + codeEmail);
-        System.out.println("📱 Code OTP: " + codeOTP);
+        journal.evenement(TypeEvenement.CLIENT_CREE, "clientId", clientSauvegarde.getId(),
+            "email", clientSauvegarde.getEmail(), "emailEnFile", emailEnvoye);
         
-        return new CreationResult(clientSauvegarde, codeEmail, codeOTP);
+        return new CreationResult(clientSauvegarde, codeEmail, jetonLien, codeOTP);
+    }
+    
+    /**
+     * Supprime les inscriptions rejetées (expirées) qui bloquent l'email ou le téléphone
+     * @return les conflits restants
+     */
+    private List<ConflitInscription> libererRejetes(List<ConflitInscription> conflits) {
+        List<ConflitInscription> restants = new ArrayList<>(conflits.size());
+        for (ConflitInscription conflit : conflits) {
+            if (conflit.getStatut() == StatutInscription.REJECTED
+                    && clientRepository.supprimerRejete(conflit.getId()) == 1) {
+                cacheClients.invalider(conflit.getId(), conflit.getEmail());
+                compteursStatuts.retirer(StatutInscription.REJECTED.getCode(), 1);
+            } else {
+                restants.add(conflit);
+            }
+        }
+        return restants;
+    }
+    
+    private static void verifierConflits(List<ConflitInscription> conflits, String email) {
+        for (ConflitInscription conflit : conflits) {
+            if (email.equals(conflit.getEmail())) {
+                throw new IllegalArgumentException("Un compte avec cet email existe déjà");
+            }
+        }
+        if (!conflits.isEmpty()) {
+            throw new IllegalArgumentException("Un compte avec ce numéro de téléphone existe déjà");
+        }
+    }
+    
+    /**
+     * Traduit la violation d'une contrainte d'unicité en erreur métier
+     */
+    private IllegalArgumentException conflitDepuisContrainte(DataIntegrityViolationException e, Client client) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+        if (message.contains(Client.CONTRAINTE_EMAIL_UNIQUE)) {
+            return new IllegalArgumentException("Un compte avec cet email existe déjà");
+        }
+        if (message.contains(Client.CONTRAINTE_TELEPHONE_UNIQUE)) {
+            return new IllegalArgumentException("Un compte avec ce numéro de téléphone existe déjà");
+        }
+        // Contrainte non nommée (schéma antérieur) : identifier le doublon par requête
+        List<ConflitInscription> conflits = clientRepository.findConflits(client.getEmail(), client.getTelephone());
+        try {
+            verifierConflits(conflits, client.getEmail());
+        } catch (IllegalArgumentException conflit) {
+            return conflit;
+        }
+        throw e;
     }
     
+    /**
+     * @return une copie détachée du client (cache en lecture), ses modifications ne sont pas persistées
+     */
     public Optional<Client> trouverParEmail(String email) {
-        return clientRepository.findByEmail(email);
+        return cacheClients.parEmail(email).map(InstantaneClient::versClient);
+    }
+    
+    /**
+     * Vérifie les identifiants sans bloquer le thread appelant (hachage sur le pool dédié)
+     * Le hachage stocké est mis à niveau si le coût a changé ou si le mot de passe était en clair
+     * @return le client si le mot de passe correspond, vide sinon
+     */
+    public CompletableFuture<Optional<Client>> authentifier(String email, String motDePasse) {
+        Optional<InstantaneClient> instantane = cacheClients.parEmail(email);
+        if (instantane.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        Client client = instantane.get().versClient();
+        return hachageMotDePasse.verifierAsync(motDePasse, client.getMotDePasse())
+            .thenCompose(resultat -> {
+                if (!resultat.valide()) {
+                    return CompletableFuture.completedFuture(Optional.<Client>empty());
+                }
+                if (resultat.nouveauHachage() == null) {
+                    return CompletableFuture.completedFuture(Optional.of(client));
+                }
+                // Mise à niveau du hachage : écriture en base hors du pool de hachage
+                return CompletableFuture.supplyAsync(() -> {
+                    clientRepository.updateMotDePasse(client.getId(), resultat.nouveauHachage());
+                    cacheClients.invalider(client.getId(), client.getEmail());
+                    client.setMotDePasse(resultat.nouveauHachage());
+                    return Optional.of(client);
+                }, persistance);
+            });
     }
     
     public boolean emailExiste(String email) {
-        return clientRepository.existsByEmail(email);
+        if (!filtreExistence.emailPeutExister(email)) {
+            return false;
+        }
+        if (cacheClients.parEmailSiPresent(email).isPresent()) {
+            return true;
+        }
+        boolean existe = clientRepository.existsByEmail(email);
+        filtreExistence.confirmer(existe);
+        return existe;
     }
     
     public boolean telephoneExiste(String telephone) {
         if (telephone == null || telephone.trim().isEmpty()) {
             return false;
         }
-        return clientRepository.existsByTelephone(telephone);
+        if (!filtreExistence.telephonePeutExister(telephone)) {
+            return false;
+        }
+        boolean existe = clientRepository.existsByTelephone(telephone);
+        filtreExistence.confirmer(existe);
+        return existe;
     }
     
+    /**
+     * Enregistre la vérification de l'email; sans téléphone à vérifier (ou déjà vérifié), le compte passe à ACTIVE
+     */
     public void marquerEmailVerifie(String email) {
-        Optional<Client> clientOpt = clientRepository.findByEmail(email);
-        if (clientOpt.isPresent()) {
-            Client client = clientOpt.get();
-            client.setEmailVerifie(true);
-            // Si pas de téléphone ou téléphone déjà vérifié, inscription complète - STATUT ACTIVE
-            if (client.getTelephone() == null || client.getTelephone().trim().isEmpty() || client.isTelephoneVerifie()) {
-                client.setStatusInscription("ACTIVE");
-            }
-            clientRepository.save(client);
-        }
+        transitions.appliquer(email, true, false, (client, emailVerifie, telephoneVerifie) ->
+            client.telephone() == null || client.telephone().trim().isEmpty() || telephoneVerifie
+                ? StatutInscription.ACTIVE : client.statut());
     }
     
     /**
      * Active complètement le compte après vérification email avec journalisation d'audit
      * Implémente la requirement: Le Système passe le compte à Active et journalise l'audit 
      * (horodatage, empreinte des documents)
+     * @return l'identifiant d'audit, ou null si le compte n'est pas passé à ACTIVE (client inconnu, déjà actif,
+     *         ou statut qui refuse l'activation comme REJECTED ou SUSPENDED) : rien n'est alors journalisé
      */
     public String activerCompteAvecAudit(String email, String codeVerification) {
         // Journaliser d'abord la vérification email
         auditService.journaliserVerificationEmail(email, codeVerification, true);
         
-        Optional<Client> clientOpt = clientRepository.findByEmail(email);
-        if (clientOpt.isPresent()) {
-            Client client = clientOpt.get();
-            
-            // Marquer email comme vérifié
-            client.setEmailVerifie(true);
-            
-            // Passer le compte à ACTIVE (requirement du cahier des charges)
-            client.setStatusInscription("ACTIVE");
-            
-            // Sauvegarder les changements
-            Client clientActive = clientRepository.save(client);
+        // Marquer l'email comme vérifié et passer le compte à ACTIVE (requirement du cahier des charges),
+        // en une seule mise à jour conditionnelle
+        Optional<TransitionsInscription.Transition> transition = transitions.appliquer(email, true, false,
+            (client, emailVerifie, telephoneVerifie) -> StatutInscription.ACTIVE);
+        if (transition.isPresent() && transition.get().appliquee()
+                && transition.get().nouveau() == StatutInscription.ACTIVE) {
+            InstantaneClient client = transition.get().client();
             
             // Journaliser l'activation du compte avec audit complet
             String auditId = auditService.journaliserActivationCompte(
                 email, 
                 "COMPTE_ACTIVE",
                 "Activation après vérification email réussie. " +
-                "Client ID: " + clientActive.getId() + 
-                ", Date inscription: " + clientActive.getDateInscription() +
-                ", Email vérifié: " + clientActive.isEmailVerifie() +
-                ", Statut: " + clientActive.getStatusInscription()
+                "Client ID: " + client.id() + 
+                ", Date inscription: " + client.dateInscription() +
+                ", Email vérifié: true" +
+                ", Statut: " + transition.get().nouveau()
             );
             
-            System.out.println("🎉 COMPTE ACTIVÉ avec audit - Email: " + email + " | Audit ID: " + auditId);
             return auditId;
         }
         return null;
     }
     
+    /**
+     * Enregistre la vérification du téléphone; l'inscription est complète si l'email l'est aussi
+     */
     public void marquerTelephoneVerifie(String email) {
-        Optional<Client> clientOpt = clientRepository.findByEmail(email);
-        if (clientOpt.isPresent()) {
-            Client client = clientOpt.get();
-            client.setTelephoneVerifie(true);
-            if (client.isEmailVerifie()) {
-                client.setStatusInscription("COMPLETE");
-            }
-            clientRepository.save(client);
-        }
+        transitions.appliquer(email, false, true, (client, emailVerifie, telephoneVerifie) ->
+            emailVerifie ? StatutInscription.COMPLETE : client.statut());
     }
     
     public String genererCodeVerification() {
-        return String.format("%06d", random.nextInt(1000000));
+        return generateurCodes.codeEmail();
     }
     
     public String genererCodeOTP() {
-        return String.format("%04d", random.nextInt(10000));
+        return generateurCodes.codeSms();
     }
     
     /**
@@ -173,16 +319,19 @@ public class ClientService {
     public static class CreationResult {
         private final Client client;
         private final String codeEmail;
+        private final String jetonLien;
         private final String codeOTP;
         
-        public CreationResult(Client client, String codeEmail, String codeOTP) {
+        public CreationResult(Client client, String codeEmail, String jetonLien, String codeOTP) {
             this.client = client;
             this.codeEmail = codeEmail;
+            this.jetonLien = jetonLien;
             this.codeOTP = codeOTP;
         }
         
         public Client getClient() { return client; }
         public String getCodeEmail() { return codeEmail; }
+        public String getJetonLien() { return jetonLien; }
         public String getCodeOTP() { return codeOTP; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package brokerx.service;
+
+import brokerx.entity.StatutInscription;
+import brokerx.repository.ClientRepository;
+import brokerx.repository.NombreParStatut;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nombre de clients par statut d'inscription, tenu à jour à chaque transition
+ *
+ * Initialisé au démarrage par un comptage groupé (parcours de l'index statut/date), puis incrémenté
+ * par l'inscription, l'activation, l'import et l'expiration : la page d'administration et les
+ * métriques n'exécutent jamais de COUNT(*). Une resynchronisation périodique corrige une éventuelle
+ * dérive (transition concurrente d'un comptage, modification directe de la base).
+ */
+@Component
+public class CompteursStatuts {
+
+    private final ClientRepository clientRepository;
+
+    private volatile Map<String, LongAdder> compteurs = new ConcurrentHashMap<>();
+    private volatile boolean pret = false;
+
+    public CompteursStatuts(ClientRepository clientRepository) {
+        this.clientRepository = clientRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${brokerx.statuts.resynchronisation-ms:3600000}",
+               initialDelayString = "${brokerx.statuts.resynchronisation-ms:3600000}")
+    public void resynchroniser() {
+        Map<String, LongAdder> nouveaux = new ConcurrentHashMap<>();
+        for (NombreParStatut ligne : clientRepository.compterParStatut()) {
+            if (ligne.getStatut() != null) {
+                nouveaux.computeIfAbsent(ligne.getStatut().getCode(), s -> new LongAdder()).add(ligne.getNombre());
+            }
+        }
+        compteurs = nouveaux;
+        pret = true;
+    }
+
+    public void ajouter(String statut, long nombre) {
+        if (statut != null && nombre != 0) {
+            compteurs.computeIfAbsent(statut, s -> new LongAdder()).add(nombre);
+        }
+    }
+
+    public void retirer(String statut, long nombre) {
+        ajouter(statut, -nombre);
+    }
+
+    /**
+     * Déplace des clients d'un statut à un autre (sans effet si le statut ne change pas)
+     */
+    public void transition(String ancien, String nouveau, long nombre) {
+        if (ancien == null ? nouveau == null : ancien.equals(nouveau)) {
+            return;
+        }
+        retirer(ancien, nombre);
+        ajouter(nouveau, nombre);
+    }
+
+    public void transition(String ancien, String nouveau) {
+        transition(ancien, nouveau, 1);
+    }
+
+    public long nombre(String statut) {
+        LongAdder compteur = compteurs.get(statut);
+        return compteur == null ? 0 : compteur.sum();
+    }
+
+    /**
+     * Nombre par statut : statuts de l'énumération dans leur ordre, puis statuts historiques éventuels
+     */
+    public Map<String, Long> valeurs() {
+        Map<String, LongAdder> courants = compteurs;
+        Map<String, Long> valeurs = new LinkedHashMap<>();
+        for (StatutInscription statut : StatutInscription.values()) {
+            valeurs.put(statut.getCode(), nombre(statut.getCode()));
+        }
+        courants.forEach((statut, compteur) -> valeurs.putIfAbsent(statut, compteur.sum()));
+        return valeurs;
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder compteur : compteurs.values()) {
+            total += compteur.sum();
+        }
+        return total;
+    }
+
+    public boolean isPret() { return pret; }
+}
@@ -0,0 +1,19 @@
+package brokerx.service;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import java.math.BigDecimal;
+
+/**
+ * Requête de placement d'un ordre (UC-05)
+ * @param clientOrderId identifiant choisi par le client, rejouable sans double exécution
+ * @param prixLimite prix limite, ignoré pour un ordre au marché
+ */
+public record DemandeOrdre(Long clientId,
+                           String clientOrderId,
+                           String symbole,
+                           SensOrdre sens,
+                           TypeOrdre type,
+                           long quantite,
+                           BigDecimal prixLimite) {
+}
@@ -0,0 +1,133 @@
+package brokerx.service;
+
+import brokerx.entity.StatutInscription;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.repository.ClientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Expiration des inscriptions jamais vérifiées
+ *
+ * Les comptes PENDING plus anciens que le délai configuré sont passés à REJECTED (par défaut :
+ * conservés pour traçabilité; une nouvelle inscription avec les mêmes identifiants supprime alors
+ * le compte rejeté) ou, sur demande explicite (mode supprimer), supprimés définitivement.
+ * Traitement par lots bornés, une courte transaction par lot : aucun verrou n'est tenu
+ * longtemps et les inscriptions en cours ne sont pas ralenties.
+ */
+@Service
+public class ExpirationInscriptionsService {
+
+    public enum Mode { SUPPRIMER, REJETER }
+
+    private static final String PENDING = StatutInscription.PENDING.getCode();
+    private static final String REJECTED = StatutInscription.REJECTED.getCode();
+
+    private final ClientRepository clientRepository;
+    private final TransactionTemplate transaction;
+    private final CompteursStatuts compteursStatuts;
+    private final CacheClients cacheClients;
+    private final JournalEvenements journal;
+    private final boolean actif;
+    private final Duration delai;
+    private final Mode mode;
+    private final int tailleLot;
+    private final int lotsMax;
+    private final long pauseMs;
+
+    public ExpirationInscriptionsService(ClientRepository clientRepository,
+                                         PlatformTransactionManager transactionManager,
+                                         CompteursStatuts compteursStatuts,
+                                         CacheClients cacheClients,
+                                         JournalEvenements journal,
+                                         @Value("${brokerx.expiration.actif:true}") boolean actif,
+                                         @Value("${brokerx.expiration.delai:PT72H}") Duration delai,
+                                         @Value("${brokerx.expiration.mode:rejeter}") String mode,
+                                         @Value("${brokerx.expiration.taille-lot:500}") int tailleLot,
+                                         @Value("${brokerx.expiration.lots-max:200}") int lotsMax,
+                                         @Value("${brokerx.expiration.pause-ms:20}") long pauseMs,
+                                         @Value("${brokerx.sessions.duree-email:PT24H}") Duration dureeLienEmail) {
+        // Un lien de vérification encore valide ne doit jamais pointer vers un compte expiré
+        if (delai.compareTo(dureeLienEmail) < 0) {
+            throw new IllegalStateException("brokerx.expiration.delai (" + delai
+                + ") doit être au moins égal à la validité du lien email (" + dureeLienEmail + ")");
+        }
+        this.clientRepository = clientRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.compteursStatuts = compteursStatuts;
+        this.cacheClients = cacheClients;
+        this.journal = journal;
+        this.actif = actif;
+        this.delai = delai;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.tailleLot = tailleLot;
+        this.lotsMax = lotsMax;
+        this.pauseMs = pauseMs;
+    }
+
+    @Scheduled(fixedDelayString = "${brokerx.expiration.intervalle-ms:600000}",
+               initialDelayString = "${brokerx.expiration.delai-initial-ms:60000}")
+    public void planifier() {
+        if (actif) {
+            expirer();
+        }
+    }
+
+    /**
+     * Expire les inscriptions PENDING antérieures au délai, au plus lotsMax lots par passage
+     * @return le nombre de comptes expirés
+     */
+    public int expirer() {
+        LocalDateTime limite = LocalDateTime.now().minus(delai);
+        long debut = System.nanoTime();
+        int total = 0;
+        int lots = 0;
+        while (lots < lotsMax) {
+            List<Long> ids = clientRepository.findIdsEnAttenteAvant(limite, PageRequest.of(0, tailleLot));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int expires = transaction.execute(statut -> mode == Mode.REJETER
+                ? clientRepository.rejeterEnAttente(ids)
+                : clientRepository.supprimerEnAttente(ids));
+            if (expires > 0) {
+                cacheClients.invaliderIds(ids);
+            }
+            if (mode == Mode.REJETER) {
+                compteursStatuts.transition(PENDING, REJECTED, expires);
+            } else {
+                compteursStatuts.retirer(PENDING, expires);
+            }
+            total += expires;
+            lots++;
+            if (ids.size() < tailleLot) {
+                break;
+            }
+            if (pauseMs > 0) {
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (total > 0) {
+            journal.evenement(TypeEvenement.INSCRIPTIONS_EXPIREES, "nombre", total, "mode", mode,
+                "lots", lots, "dureeMs", (System.nanoTime() - debut) / 1_000_000);
+        }
+        return total;
+    }
+
+    public Mode getMode() { return mode; }
+    public Duration getDelai() { return delai; }
+}
@@ -0,0 +1,222 @@
+package brokerx.service;
+
+import brokerx.repository.ClientRepository;
+import brokerx.repository.IdentifiantsClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Filtre de Bloom en mémoire sur les emails et téléphones déjà inscrits
+ *
+ * Une réponse négative est définitive : l'inscription peut passer directement à l'insertion.
+ * Une réponse positive peut être un faux positif et doit être confirmée par la base.
+ * Les contraintes d'unicité restent l'arbitre final en cas de course.
+ */
+@Component
+public class FiltreExistenceClients {
+
+    private final ClientRepository clientRepository;
+    private final TransactionTemplate transactionLecture;
+    private final long capaciteAttendue;
+    private final double tauxFauxPositifsCible;
+    private final int nombreBits;
+    private final int nombreHachages;
+
+    private volatile AtomicLongArray bits;
+    private volatile AtomicLongArray enConstruction;
+    private volatile boolean pret = false;
+    private final AtomicLong elements = new AtomicLong();
+
+    private final LongAdder requetes = new LongAdder();
+    private final LongAdder negatifs = new LongAdder();
+    private final LongAdder positifsConfirmes = new LongAdder();
+    private final LongAdder fauxPositifs = new LongAdder();
+
+    public FiltreExistenceClients(ClientRepository clientRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${brokerx.filtre-clients.capacite-attendue:1000000}") long capaciteAttendue,
+                                  @Value("${brokerx.filtre-clients.taux-faux-positifs:0.01}") double tauxFauxPositifsCible) {
+        this.clientRepository = clientRepository;
+        this.transactionLecture = new TransactionTemplate(transactionManager);
+        this.transactionLecture.setReadOnly(true);
+        this.capaciteAttendue = capaciteAttendue;
+        this.tauxFauxPositifsCible = tauxFauxPositifsCible;
+
+        // Email et téléphone partagent le filtre : deux clés par client
+        double n = 2.0 * capaciteAttendue;
+        long m = (long) Math.ceil(-n * Math.log(tauxFauxPositifsCible) / (Math.log(2) * Math.log(2)));
+        this.nombreBits = (int) Math.min(Math.max(m, 64), (long) Integer.MAX_VALUE - 63);
+        this.nombreHachages = Math.max(1, (int) Math.round((double) nombreBits / n * Math.log(2)));
+        this.bits = new AtomicLongArray((nombreBits + 63) / 64);
+    }
+
+    /**
+     * Construit le filtre à partir de la table clients au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruire() {
+        AtomicLongArray nouveaux = new AtomicLongArray((nombreBits + 63) / 64);
+        // Les inscriptions validées pendant le parcours sont aussi reportées dans le nouveau tableau
+        enConstruction = nouveaux;
+        long compte = transactionLecture.execute(statut -> {
+            long n = 0;
+            try (Stream<IdentifiantsClient> identifiants = clientRepository.streamIdentifiants()) {
+                for (IdentifiantsClient id : (Iterable<IdentifiantsClient>) identifiants::iterator) {
+                    ajouter(nouveaux, cleEmail(id.getEmail()));
+                    n++;
+                    if (id.getTelephone() != null) {
+                        ajouter(nouveaux, cleTelephone(id.getTelephone()));
+                        n++;
+                    }
+                }
+            }
+            return n;
+        });
+        bits = nouveaux;
+        enConstruction = null;
+        elements.set(compte);
+        pret = true;
+    }
+
+    /**
+     * Enregistre un client dont l'insertion vient d'être validée
+     */
+    public void ajouter(String email, String telephone) {
+        AtomicLongArray enCours = enConstruction;
+        if (email != null) {
+            ajouter(bits, cleEmail(email));
+            if (enCours != null) {
+                ajouter(enCours, cleEmail(email));
+            }
+            elements.incrementAndGet();
+        }
+        if (telephone != null && !telephone.isEmpty()) {
+            ajouter(bits, cleTelephone(telephone));
+            if (enCours != null) {
+                ajouter(enCours, cleTelephone(telephone));
+            }
+            elements.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false si l'email n'est certainement pas utilisé
+     */
+    public boolean emailPeutExister(String email) {
+        return peutContenir(cleEmail(email));
+    }
+
+    /**
+     * @return false si le téléphone n'est certainement pas utilisé
+     */
+    public boolean telephonePeutExister(String telephone) {
+        if (telephone == null || telephone.isEmpty()) {
+            return false;
+        }
+        return peutContenir(cleTelephone(telephone));
+    }
+
+    /**
+     * Rapporte le verdict de la base après une réponse positive du filtre
+     */
+    public void confirmer(boolean existeEnBase) {
+        if (existeEnBase) {
+            positifsConfirmes.increment();
+        } else {
+            fauxPositifs.increment();
+        }
+    }
+
+    private boolean peutContenir(byte[] cle) {
+        requetes.increment();
+        if (!pret) {
+            // Filtre en construction : ne rien affirmer
+            return true;
+        }
+        AtomicLongArray tableau = bits;
+        long h1 = hacher(cle, 0x9E3779B97F4A7C15L);
+        long h2 = hacher(cle, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < nombreHachages; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, nombreBits);
+            if ((tableau.get(bit >>> 6) & (1L << bit)) == 0) {
+                negatifs.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ajouter(AtomicLongArray tableau, byte[] cle) {
+        long h1 = hacher(cle, 0x9E3779B97F4A7C15L);
+        long h2 = hacher(cle, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < nombreHachages; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, nombreBits);
+            long masque = 1L << bit;
+            int index = bit >>> 6;
+            long courant;
+            do {
+                courant = tableau.get(index);
+            } while ((courant & masque) == 0 && !tableau.compareAndSet(index, courant, courant | masque));
+        }
+    }
+
+    private static byte[] cleEmail(String email) {
+        return ("e:" + email).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] cleTelephone(String telephone) {
+        return ("t:" + telephone).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Hachage 64 bits (FNV-1a puis mélange final de SplitMix64)
+    private static long hacher(byte[] donnees, long graine) {
+        long h = 0xCBF29CE484222325L ^ graine;
+        for (byte b : donnees) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return h;
+    }
+
+    /**
+     * Taux de faux positifs théorique compte tenu du remplissage actuel
+     */
+    public double getTauxFauxPositifsEstime() {
+        double k = nombreHachages;
+        return Math.pow(1 - Math.exp(-k * elements.get() / nombreBits), k);
+    }
+
+    /**
+     * Taux de faux positifs observé : positifs démentis par la base / recherches d'éléments absents
+     */
+    public double getTauxFauxPositifsObserve() {
+        long fp = fauxPositifs.sum();
+        long absents = fp + negatifs.sum();
+        return absents == 0 ? 0.0 : (double) fp / absents;
+    }
+
+    public boolean isPret() { return pret; }
+    public long getElements() { return elements.get(); }
+    public long getCapaciteAttendue() { return capaciteAttendue; }
+    public double getTauxFauxPositifsCible() { return tauxFauxPositifsCible; }
+    public int getNombreBits() { return nombreBits; }
+    public int getNombreHachages() { return nombreHachages; }
+    public long getRequetes() { return requetes.sum(); }
+    public long getNegatifs() { return negatifs.sum(); }
+    public long getPositifsConfirmes() { return positifsConfirmes.sum(); }
+    public long getFauxPositifs() { return fauxPositifs.sum(); }
+}
@@ -0,0 +1,149 @@
+package brokerx.service;
+
+import brokerx.service.notification.CanalNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Générateur des codes de vérification (lien email, OTP par SMS)
+ *
+ * - source cryptographique (DRBG), une instance par bande : pas de graine partagée entre threads
+ * - bandes choisies par identifiant de thread, adaptées aussi aux threads virtuels
+ * - aléa pré-tiré par blocs : le chemin chaud ne fait que lire un tableau
+ * - chiffres tirés sans biais (octets >= 250 rejetés) et écrits directement dans le tampon de sortie
+ */
+@Component
+public class GenerateurCodes {
+
+    private static final int LONGUEUR_MIN = 4;
+    private static final int LONGUEUR_MAX = 32;
+
+    private final Bande[] bandes;
+    private final int masque;
+    private final Map<CanalNotification, Integer> longueurs = new EnumMap<>(CanalNotification.class);
+
+    public GenerateurCodes(@Value("${brokerx.codes.chiffres-email:6}") int chiffresEmail,
+                           @Value("${brokerx.codes.chiffres-sms:4}") int chiffresSms,
+                           @Value("${brokerx.codes.taille-bloc:512}") int tailleBloc) {
+        longueurs.put(CanalNotification.EMAIL, verifierLongueur(chiffresEmail));
+        longueurs.put(CanalNotification.SMS, verifierLongueur(chiffresSms));
+
+        // Puissance de 2 au moins égale à 4 fois le nombre de cœurs : collisions rares entre threads actifs
+        int cible = Runtime.getRuntime().availableProcessors() * 4;
+        int nombre = Integer.highestOneBit(cible);
+        if (nombre < cible) {
+            nombre <<= 1;
+        }
+        this.bandes = new Bande[nombre];
+        this.masque = nombre - 1;
+        for (int i = 0; i < nombre; i++) {
+            // Instanciation et premier tirage au démarrage : la graine système n'est jamais attendue par une requête
+            bandes[i] = new Bande(Math.max(tailleBloc, LONGUEUR_MAX));
+        }
+    }
+
+    private static int verifierLongueur(int longueur) {
+        if (longueur < LONGUEUR_MIN || longueur > LONGUEUR_MAX) {
+            throw new IllegalArgumentException("Longueur de code invalide : " + longueur
+                + " (entre " + LONGUEUR_MIN + " et " + LONGUEUR_MAX + " chiffres)");
+        }
+        return longueur;
+    }
+
+    public String codeEmail() {
+        return generer(CanalNotification.EMAIL);
+    }
+
+    public String codeSms() {
+        return generer(CanalNotification.SMS);
+    }
+
+    /**
+     * @return un code de la longueur configurée pour le canal
+     */
+    public String generer(CanalNotification canal) {
+        int longueur = longueurs.get(canal);
+        byte[] chiffres = new byte[longueur];
+        ecrire(chiffres, 0, longueur);
+        // Chaîne Latin-1 : seule allocation du chemin
+        return new String(chiffres, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Écrit des chiffres ASCII aléatoires dans le tampon, sans aucune allocation
+     */
+    public void ecrire(byte[] destination, int debut, int longueur) {
+        Bande bande = bandes[(int) mixer(Thread.currentThread().threadId()) & masque];
+        bande.verrou.lock();
+        try {
+            int fin = debut + longueur;
+            for (int i = debut; i < fin; i++) {
+                destination[i] = (byte) ('0' + bande.chiffre());
+            }
+        } finally {
+            bande.verrou.unlock();
+        }
+    }
+
+    public int getLongueur(CanalNotification canal) {
+        return longueurs.get(canal);
+    }
+
+    public int getNombreBandes() {
+        return bandes.length;
+    }
+
+    // Les identifiants de threads sont consécutifs : mélange pour répartir sur toutes les bandes
+    private static long mixer(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    /**
+     * Source aléatoire et bloc pré-tiré, protégés par un verrou (pas de synchronized : les threads
+     * virtuels resteraient épinglés à leur porteur pendant un éventuel réensemencement)
+     */
+    private static final class Bande {
+        final ReentrantLock verrou = new ReentrantLock();
+        final SecureRandom source = nouvelleSource();
+        final byte[] bloc;
+        int position;
+
+        Bande(int tailleBloc) {
+            bloc = new byte[tailleBloc];
+            source.nextBytes(bloc);
+        }
+
+        /**
+         * Chiffre uniforme 0-9 : 250 est le plus grand multiple de 10 représentable sur un octet
+         */
+        int chiffre() {
+            while (true) {
+                if (position == bloc.length) {
+                    source.nextBytes(bloc);
+                    position = 0;
+                }
+                int octet = bloc[position++] & 0xFF;
+                if (octet < 250) {
+                    return octet % 10;
+                }
+            }
+        }
+
+        private static SecureRandom nouvelleSource() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package brokerx.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hachage des mots de passe (BCrypt, coût configurable)
+ *
+ * Le calcul s'exécute sur un pool dédié et borné, jamais sur les threads Tomcat (inscription et
+ * connexion sont asynchrones) : au-delà de la file d'attente ou du délai maximal les demandes
+ * sont refusées (ServiceSatureException)
+ * plutôt que d'accumuler de la latence. Un hachage produit avec un autre coût
+ * (ou un mot de passe historique en clair) est recalculé à la connexion.
+ */
+@Service
+public class HachageMotDePasseService {
+
+    private final int cout;
+    private final long delaiMaxMs;
+    private final BCryptPasswordEncoder encodeur;
+    private final ThreadPoolExecutor executeur;
+    private final ThreadPoolExecutor executeurImport;
+
+    private final LongAdder hachages = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rehachages = new LongAdder();
+    private final LongAdder refus = new LongAdder();
+
+    public HachageMotDePasseService(@Value("${brokerx.mots-de-passe.cout:12}") int cout,
+                                    @Value("${brokerx.mots-de-passe.threads:0}") int threads,
+                                    @Value("${brokerx.mots-de-passe.capacite-file:256}") int capaciteFile,
+                                    @Value("${brokerx.mots-de-passe.delai-max-ms:5000}") long delaiMaxMs,
+                                    @Value("${brokerx.mots-de-passe.import-threads:0}") int threadsImport) {
+        this.cout = cout;
+        this.delaiMaxMs = delaiMaxMs;
+        this.encodeur = new BCryptPasswordEncoder(cout);
+
+        int taillePool = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executeur = creerPool(taillePool, capaciteFile, "hachage-mdp-", Thread.NORM_PRIORITY);
+        // Import : un quart des cœurs par défaut, file limitée à un lot en attente par thread
+        int taillePoolImport = threadsImport > 0 ? threadsImport : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        this.executeurImport = creerPool(taillePoolImport, taillePoolImport, "hachage-import-", Thread.MIN_PRIORITY);
+    }
+
+    private static ThreadPoolExecutor creerPool(int taille, int capaciteFile, String prefixe, int priorite) {
+        AtomicInteger numero = new AtomicInteger();
+        return new ThreadPoolExecutor(taille, taille, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capaciteFile),
+            tache -> {
+                Thread thread = new Thread(tache, prefixe + numero.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(priorite);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdown();
+        executeurImport.shutdown();
+    }
+
+    /**
+     * Hache un mot de passe sans bloquer l'appelant (inscription)
+     * Échoue avec ServiceSatureException si le pool est saturé ou le délai maximal dépassé
+     */
+    public CompletableFuture<String> hacherAsync(String motDePasse) {
+        return soumettre(() -> {
+            hachages.increment();
+            return encodeur.encode(motDePasse);
+        });
+    }
+
+    /**
+     * Hache un lot de mots de passe (import en masse) en le répartissant sur les threads du pool d'import
+     * Même contrôle d'admission que les demandes unitaires : si le pool refuse une part (imports
+     * concurrents), les parts déjà soumises sont annulées et le lot échoue (ServiceSatureException)
+     */
+    public List<String> hacherLot(List<String> motsDePasse) {
+        int taille = motsDePasse.size();
+        String[] resultats = new String[taille];
+        int parts = Math.max(1, Math.min(executeurImport.getMaximumPoolSize(), taille));
+        List<Future<?>> enCours = new ArrayList<>(parts);
+        try {
+            for (int p = 0; p < parts; p++) {
+                int debut = (int) ((long) taille * p / parts);
+                int fin = (int) ((long) taille * (p + 1) / parts);
+                enCours.add(executeurImport.submit(() -> {
+                    for (int i = debut; i < fin; i++) {
+                        resultats[i] = encodeur.encode(motsDePasse.get(i));
+                    }
+                    hachages.add(fin - debut);
+                }));
+            }
+        } catch (RejectedExecutionException e) {
+            refus.increment();
+            enCours.forEach(part -> part.cancel(false));
+            throw new ServiceSatureException("Service de hachage saturé, lot refusé", e);
+        }
+        for (Future<?> part : enCours) {
+            try {
+                part.get();
+            } catch (InterruptedException e) {
+                enCours.forEach(restante -> restante.cancel(false));
+                Thread.currentThread().interrupt();
+                throw new ServiceSatureException("Hachage interrompu", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Erreur de hachage du mot de passe", e.getCause());
+            }
+        }
+        return Arrays.asList(resultats);
+    }
+
+    /**
+     * Vérifie un mot de passe contre la valeur stockée, sans bloquer l'appelant
+     * Le résultat contient un nouveau hachage si la valeur stockée doit être mise à niveau
+     */
+    public CompletableFuture<ResultatVerification> verifierAsync(String motDePasse, String stocke) {
+        return soumettre(() -> {
+            verifications.increment();
+            if (stocke == null || motDePasse == null) {
+                return ResultatVerification.INVALIDE;
+            }
+            if (!estHachage(stocke)) {
+                // Mot de passe historique stocké en clair : comparaison à temps constant puis migration
+                boolean valide = MessageDigest.isEqual(
+                    stocke.getBytes(StandardCharsets.UTF_8), motDePasse.getBytes(StandardCharsets.UTF_8));
+                return valide ? rehacher(motDePasse) : ResultatVerification.INVALIDE;
+            }
+            if (!encodeur.matches(motDePasse, stocke)) {
+                return ResultatVerification.INVALIDE;
+            }
+            return encodeur.upgradeEncoding(stocke) ? rehacher(motDePasse) : ResultatVerification.VALIDE;
+        });
+    }
+
+    private ResultatVerification rehacher(String motDePasse) {
+        rehachages.increment();
+        return new ResultatVerification(true, encodeur.encode(motDePasse));
+    }
+
+    /**
+     * Indique si la valeur stockée est un hachage BCrypt (et non un mot de passe historique en clair)
+     */
+    public static boolean estHachage(String stocke) {
+        return stocke != null && stocke.length() == 60 && stocke.matches("^\\$2[aby]?\\$\\d\\d\\$.*");
+    }
+
+    private <T> CompletableFuture<T> soumettre(Supplier<T> calcul) {
+        CompletableFuture<T> resultat;
+        try {
+            resultat = CompletableFuture.supplyAsync(calcul, executeur);
+        } catch (RejectedExecutionException e) {
+            refus.increment();
+            return CompletableFuture.failedFuture(
+                new ServiceSatureException("Service de hachage saturé, réessayez dans quelques instants", e));
+        }
+        return resultat.orTimeout(delaiMaxMs, TimeUnit.MILLISECONDS)
+            .exceptionallyCompose(erreur -> {
+                Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null ? erreur.getCause() : erreur;
+                if (cause instanceof TimeoutException) {
+                    refus.increment();
+                    return CompletableFuture.failedFuture(new ServiceSatureException("Délai de hachage dépassé", cause));
+                }
+                return CompletableFuture.failedFuture(cause);
+            });
+    }
+
+    public int getCout() { return cout; }
+    public int getProfondeurFile() { return executeur.getQueue().size(); }
+    public int getThreadsActifs() { return executeur.getActiveCount(); }
+    public int getTaillePool() { return executeur.getMaximumPoolSize(); }
+    public int getProfondeurFileImport() { return executeurImport.getQueue().size(); }
+    public int getThreadsActifsImport() { return executeurImport.getActiveCount(); }
+    public long getHachages() { return hachages.sum(); }
+    public long getVerifications() { return verifications.sum(); }
+    public long getRehachages() { return rehachages.sum(); }
+    public long getRefus() { return refus.sum(); }
+
+    /**
+     * Résultat d'une vérification
+     * @param valide le mot de passe correspond
+     * @param nouveauHachage le hachage à enregistrer si la valeur stockée doit être mise à niveau, sinon null
+     */
+    public record ResultatVerification(boolean valide, String nouveauHachage) {
+        static final ResultatVerification VALIDE = new ResultatVerification(true, null);
+        static final ResultatVerification INVALIDE = new ResultatVerification(false, null);
+    }
+}
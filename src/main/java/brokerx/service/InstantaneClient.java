@@ -0,0 +1,56 @@
+package brokerx.service;
+
+import brokerx.entity.Client;
+import brokerx.entity.StatutInscription;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Copie immuable d'un client, conservée par CacheClients à la place de l'entité gérée
+ * La version est celle de la ligne lue : base des transitions conditionnelles (TransitionsInscription)
+ */
+public record InstantaneClient(Long id,
+                               String prenom,
+                               String nom,
+                               String email,
+                               String telephone,
+                               LocalDate dateNaissance,
+                               String adresse,
+                               String motDePasse,
+                               boolean emailVerifie,
+                               boolean telephoneVerifie,
+                               LocalDateTime dateInscription,
+                               StatutInscription statut,
+                               long version) {
+
+    public static InstantaneClient depuis(Client client) {
+        return new InstantaneClient(client.getId(), client.getPrenom(), client.getNom(), client.getEmail(),
+            client.getTelephone(), client.getDateNaissance(), client.getAdresse(), client.getMotDePasse(),
+            client.isEmailVerifie(), client.isTelephoneVerifie(), client.getDateInscription(),
+            client.getStatut(), client.getVersion());
+    }
+
+    /**
+     * Entité détachée, pour les appelants qui attendent un Client (ses modifications ne sont pas persistées)
+     */
+    public Client versClient() {
+        Client client = new Client();
+        client.setId(id);
+        client.setPrenom(prenom);
+        client.setNom(nom);
+        client.setEmail(email);
+        client.setTelephone(telephone);
+        client.setDateNaissance(dateNaissance);
+        client.setAdresse(adresse);
+        client.setMotDePasse(motDePasse);
+        client.setEmailVerifie(emailVerifie);
+        client.setTelephoneVerifie(telephoneVerifie);
+        client.setDateInscription(dateInscription);
+        client.setStatut(statut);
+        return client;
+    }
+
+    public boolean isCompteActif() {
+        return statut == StatutInscription.ACTIVE;
+    }
+}
@@ -0,0 +1,152 @@
+package brokerx.service;
+
+import brokerx.entity.StatutInscription;
+import brokerx.repository.ClientRepository;
+import brokerx.repository.ClientResume;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Liste des clients (CU02)
+ *
+ * - pagination par clé (dateInscription, id) : le coût d'une page ne dépend pas de sa profondeur
+ * - export NDJSON en flux : mémoire constante quelle que soit la taille de la table
+ */
+@Service
+public class ListeClientsService {
+
+    private final ClientRepository clientRepository;
+    private final TransactionTemplate transactionLecture;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter ecrivainLigne;
+    private final int taillePageDefaut;
+    private final int taillePageMax;
+
+    public ListeClientsService(ClientRepository clientRepository,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${brokerx.clients.taille-page:50}") int taillePageDefaut,
+                               @Value("${brokerx.clients.taille-page-max:500}") int taillePageMax) {
+        this.clientRepository = clientRepository;
+        this.transactionLecture = new TransactionTemplate(transactionManager);
+        this.transactionLecture.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // Vidage explicite tous les 1000 clients plutôt qu'après chaque ligne
+        this.ecrivainLigne = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.taillePageDefaut = taillePageDefaut;
+        this.taillePageMax = taillePageMax;
+    }
+
+    /**
+     * @param statut statut d'inscription à filtrer, ou null pour tous
+     * @param curseur curseur renvoyé par la page précédente, ou null pour la première page
+     * @param taille nombre de clients souhaité, ou null pour la taille par défaut
+     * @throws IllegalArgumentException si le statut ou le curseur est invalide
+     */
+    public PageClients page(String statut, String curseur, Integer taille) {
+        StatutInscription filtre = normaliserStatut(statut);
+        int limite = Math.min(Math.max(taille != null ? taille : taillePageDefaut, 1), taillePageMax);
+        // Une ligne de plus que demandé indique s'il existe une page suivante, sans requête de comptage
+        PageRequest lecture = PageRequest.of(0, limite + 1);
+
+        List<ClientResume> clients;
+        if (curseur == null || curseur.isBlank()) {
+            clients = clientRepository.findPremierePage(filtre, lecture);
+        } else {
+            Curseur position = Curseur.decoder(curseur);
+            clients = clientRepository.findPageApres(filtre, position.dateInscription(), position.id(), lecture);
+        }
+
+        if (clients.size() <= limite) {
+            return new PageClients(clients, null);
+        }
+        List<ClientResume> page = clients.subList(0, limite);
+        ClientResume dernier = page.get(limite - 1);
+        return new PageClients(List.copyOf(page), new Curseur(dernier.dateInscription(), dernier.id()).encoder());
+    }
+
+    /**
+     * Écrit tous les clients (filtrés par statut) en NDJSON, un objet par ligne
+     * @param filtre statut normalisé (normaliserStatut), ou null pour tous
+     * @return le nombre de clients exportés
+     */
+    public long exporter(StatutInscription filtre, OutputStream sortie) {
+        return transactionLecture.execute(transaction -> {
+            long compte = 0;
+            try (Stream<ClientResume> clients = clientRepository.streamResumes(filtre);
+                 JsonGenerator generateur = objectMapper.getFactory().createGenerator(sortie)) {
+                generateur.setRootValueSeparator(null);
+                generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                Iterator<ClientResume> iterateur = clients.iterator();
+                while (iterateur.hasNext()) {
+                    ecrivainLigne.writeValue(generateur, iterateur.next());
+                    generateur.writeRaw('\n');
+                    if (++compte % 1000 == 0) {
+                        generateur.flush();
+                    }
+                }
+                generateur.flush();
+            } catch (IOException e) {
+                // Client HTTP déconnecté en cours d'export : la transaction est annulée, rien d'autre à faire
+                throw new UncheckedIOException(e);
+            }
+            return compte;
+        });
+    }
+
+    /**
+     * Normalise le filtre de statut
+     * @return le statut, ou null pour ne pas filtrer
+     * @throws IllegalArgumentException si le statut est inconnu
+     */
+    public static StatutInscription normaliserStatut(String statut) {
+        if (statut == null || statut.isBlank()) {
+            return null;
+        }
+        String code = statut.trim().toUpperCase();
+        try {
+            return StatutInscription.valueOf(code);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Statut d'inscription inconnu : " + statut);
+        }
+    }
+
+    /**
+     * Position dans la liste : dernier client de la page précédente
+     */
+    private record Curseur(LocalDateTime dateInscription, Long id) {
+
+        String encoder() {
+            String brut = dateInscription + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Curseur decoder(String curseur) {
+            try {
+                String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+                int separateur = brut.indexOf('|');
+                return new Curseur(LocalDateTime.parse(brut.substring(0, separateur)),
+                    Long.parseLong(brut.substring(separateur + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Curseur de pagination invalide");
+            }
+        }
+    }
+}
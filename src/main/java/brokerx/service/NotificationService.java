@@ -1,46 +1,56 @@
 package brokerx.service;
 
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.service.notification.CanalNotification;
+import brokerx.service.notification.Notification;
+import brokerx.service.notification.NotificationDispatcher;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 /**
  * Service de notification pour l'envoi d'emails et SMS
- * Implémentation simulée pour le développement
+ * Les messages sont mis en file et envoyés de façon asynchrone par le NotificationDispatcher
  */
 @Service
+@Timed("brokerx.service")
 public class NotificationService {
 
+    private final NotificationDispatcher dispatcher;
+    private final JournalEvenements journal;
+
+    public NotificationService(NotificationDispatcher dispatcher, JournalEvenements journal) {
+        this.dispatcher = dispatcher;
+        this.journal = journal;
+    }
+
     /**
      * Envoie un email de vérification avec un lien
      * @param email l'adresse email du destinataire
-     * @param codeVerification le code de vérification à inclure
+     * @param codeVerification le code de vérification à saisir
+     * @param jetonLien le jeton imprévisible du lien (le code court n'identifie pas la session)
      * @param prenom le prénom du client pour personnalisation
-     * @return true si l'envoi a réussi, false sinon
+     * @return true si l'email a été mis en file d'envoi, false sinon
      */
-    public boolean envoyerEmailVerification(String email, String codeVerification, String prenom) {
-        // Simulation d'envoi d'email
-        String lienVerification = "http://localhost:8080/verification-email?code=" + codeVerification;
-        
-        System.out.println("=== EMAIL DE VÉRIFICATION ===");
-        System.out.println("À: " + email);
-        System.out.println("Objet: BrokerX - Vérifiez votre adresse email");
-        System.out.println("---");
-        System.out.println("Bonjour " + prenom + ",");
-        System.out.println("");
-        System.out.println("Bienvenue sur BrokerX ! Pour finaliser votre inscription,");
-        System.out.println("veuillez vérifier votre adresse email en cliquant sur le lien ci-dessous :");
-        System.out.println("");
-        System.out.println("🔗 " + lienVerification);
-        System.out.println("");
-        System.out.println("Ou saisissez ce code de vérification : " + codeVerification);
-        System.out.println("");
-        System.out.println("Ce lien est valide pendant 24 heures.");
-        System.out.println("");
-        System.out.println("Cordialement,");
-        System.out.println("L'équipe BrokerX");
-        System.out.println("=============================");
-        
-        // Simulation: toujours réussi en développement
-        return true;
+    public boolean envoyerEmailVerification(String email, String codeVerification, String jetonLien, String prenom) {
+        String lienVerification = "http://localhost:8080/verification-email?jeton=" + jetonLien;
+
+        String corps = "Bonjour " + prenom + ",\n"
+            + "\n"
+            + "Bienvenue sur BrokerX ! Pour finaliser votre inscription,\n"
+            + "veuillez vérifier votre adresse email en cliquant sur le lien ci-dessous :\n"
+            + "\n"
+            + "🔗 " + lienVerification + "\n"
+            + "\n"
+            + "Ou saisissez ce code de vérification : " + codeVerification + "\n"
+            + "\n"
+            + "Ce lien est valide pendant 24 heures.\n"
+            + "\n"
+            + "Cordialement,\n"
+            + "L'équipe BrokerX";
+
+        return dispatcher.soumettre(new Notification(CanalNotification.EMAIL, email,
+            "BrokerX - Vérifiez votre adresse email", corps));
     }
 
     /**
@@ -48,53 +58,43 @@ public class NotificationService {
      * @param telephone le numéro de téléphone (format 10 chiffres)
      * @param codeOTP le code OTP à envoyer
      * @param prenom le prénom du client
-     * @return true si l'envoi a réussi, false sinon
+     * @return true si le SMS a été mis en file d'envoi, false sinon
      */
     public boolean envoyerSMSOTP(String telephone, String codeOTP, String prenom) {
         if (telephone == null || telephone.trim().isEmpty()) {
-            System.out.println("⚠️ Pas de numéro de téléphone fourni - SMS non envoyé");
+            journal.evenement(TypeEvenement.NOTIFICATION_IGNOREE, "canal", "SMS", "motif", "telephone absent");
             return true; // Considéré comme succès car optionnel
         }
-        
-        // Simulation d'envoi de SMS
-        System.out.println("=== SMS OTP ===");
-        System.out.println("À: +1" + telephone);
-        System.out.println("---");
-        System.out.println("Bonjour " + prenom + ",");
-        System.out.println("");
-        System.out.println("Votre code de vérification BrokerX :");
-        System.out.println("🔢 " + codeOTP);
-        System.out.println("");
-        System.out.println("Ce code expire dans 10 minutes.");
-        System.out.println("===============");
-        
-        // Simulation: toujours réussi en développement
-        return true;
+
+        String corps = "Bonjour " + prenom + ",\n"
+            + "\n"
+            + "Votre code de vérification BrokerX :\n"
+            + "🔢 " + codeOTP + "\n"
+            + "\n"
+            + "Ce code expire dans 10 minutes.";
+
+        return dispatcher.soumettre(new Notification(CanalNotification.SMS, "+1" + telephone, null, corps));
     }
 
     /**
      * Envoie un email de bienvenue après inscription complète
      * @param email l'adresse email
      * @param prenom le prénom du client
-     * @return true si l'envoi a réussi
+     * @return true si l'email a été mis en file d'envoi
      */
     public boolean envoyerEmailBienvenue(String email, String prenom) {
-        System.out.println("=== EMAIL DE BIENVENUE ===");
-        System.out.println("À: " + email);
-        System.out.println("Objet: Bienvenue sur BrokerX !");
-        System.out.println("---");
-        System.out.println("Félicitations " + prenom + " ! 🎉");
-        System.out.println("");
-        System.out.println("Votre inscription sur BrokerX est maintenant complète.");
-        System.out.println("Vous pouvez désormais accéder à votre compte et commencer");
-        System.out.println("à utiliser nos services de courtage.");
-        System.out.println("");
-        System.out.println("Connexion: http://localhost:8080/connexion");
-        System.out.println("");
-        System.out.println("Merci de votre confiance !");
-        System.out.println("L'équipe BrokerX");
-        System.out.println("==========================");
-        
-        return true;
+        String corps = "Félicitations " + prenom + " ! 🎉\n"
+            + "\n"
+            + "Votre inscription sur BrokerX est maintenant complète.\n"
+            + "Vous pouvez désormais accéder à votre compte et commencer\n"
+            + "à utiliser nos services de courtage.\n"
+            + "\n"
+            + "Connexion: http://localhost:8080/connexion\n"
+            + "\n"
+            + "Merci de votre confiance !\n"
+            + "L'équipe BrokerX";
+
+        return dispatcher.soumettre(new Notification(CanalNotification.EMAIL, email,
+            "Bienvenue sur BrokerX !", corps));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,220 @@
+package brokerx.service;
+
+import brokerx.entity.Ordre;
+import brokerx.entity.SensOrdre;
+import brokerx.entity.StatutOrdre;
+import brokerx.entity.TypeOrdre;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.moteur.MoteurAppariement;
+import brokerx.repository.OrdreRepository;
+import brokerx.service.comptes.PouvoirAchatService;
+import brokerx.service.comptes.ReservationOrdre;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Placement d'un ordre (UC-05) : idempotence, validation, réservation des fonds,
+ * persistance puis acheminement au moteur
+ * Exécutions et annulations sont écrites en base par SuiviOrdresService, pour l'ordre entrant
+ * comme pour les ordres au carnet qu'il exécute
+ * Un ordre persisté que le moteur refuse est marqué REJETE : ses fonds sont rendus et une nouvelle
+ * soumission du même ClientOrderId renvoie le rejet
+ */
+@Service
+@Timed("brokerx.service")
+public class OrdreService {
+
+    private static final int CLIENT_ORDER_ID_MAX = 64;
+    private static final Pattern SYMBOLE = Pattern.compile("^[A-Z0-9.]{1,12}$");
+
+    @Autowired
+    private OrdreRepository ordreRepository;
+
+    @Autowired
+    private CacheClients cacheClients;
+
+    @Autowired
+    private CacheIdempotenceOrdres idempotence;
+
+    @Autowired
+    private MoteurAppariement moteur;
+
+    @Autowired
+    private PouvoirAchatService pouvoirAchat;
+
+    @Autowired
+    private SuiviOrdresService suivi;
+
+    @Autowired
+    private JournalEvenements journal;
+
+    // Un achat au marché est borné à ce dépassement du meilleur vendeur : ses fonds réservés le couvrent
+    @Value("${brokerx.ordres.protection-marche-pb:500}")
+    private long protectionMarchePb;
+
+    /**
+     * Place un ordre, ou renvoie l'accusé précédent si ce ClientOrderId a déjà été traité pour ce client
+     * @throws IllegalArgumentException si l'ordre est invalide (rejet, non conservé par l'idempotence)
+     * @throws IllegalStateException si le même ordre est en cours de traitement ailleurs
+     */
+    public AccuseOrdre placer(DemandeOrdre demande) {
+        if (demande.clientId() == null) {
+            throw new IllegalArgumentException("Client obligatoire");
+        }
+        String clientOrderId = demande.clientOrderId() != null ? demande.clientOrderId().trim() : "";
+        if (clientOrderId.isEmpty() || clientOrderId.length() > CLIENT_ORDER_ID_MAX) {
+            throw new IllegalArgumentException("ClientOrderId obligatoire (" + CLIENT_ORDER_ID_MAX + " caractères au plus)");
+        }
+        return idempotence.executerUneFois(demande.clientId(), clientOrderId, () -> traiter(demande, clientOrderId));
+    }
+
+    private AccuseOrdre traiter(DemandeOrdre demande, String clientOrderId) {
+        // Entrée absente du cache (évincée, expirée ou autre instance) : l'index d'unicité fait foi
+        Optional<Ordre> existant = ordreRepository.findByClientIdAndClientOrderId(demande.clientId(), clientOrderId);
+        if (existant.isPresent()) {
+            idempotence.repliBase();
+            return rejouer(existant.get());
+        }
+
+        String symbole = valider(demande);
+        long prixTicks = demande.type() == TypeOrdre.LIMITE ? moteur.versTicks(demande.prixLimite()) : 0;
+        if (demande.type() == TypeOrdre.MARCHE && demande.sens() == SensOrdre.ACHAT) {
+            prixTicks = prixProtection(symbole);
+        }
+
+        // Contrôle pré-trade en mémoire : un refus ne touche pas la base
+        ReservationOrdre reservation = pouvoirAchat.reserver(demande.clientId(), demande.sens(), prixTicks, demande.quantite());
+        if (reservation == null) {
+            journal.evenement(TypeEvenement.ORDRE_REJETE, "clientId", demande.clientId(), "symbole", symbole,
+                "motif", "Fonds insuffisants");
+            throw new IllegalArgumentException("Fonds insuffisants");
+        }
+
+        Ordre ordre = new Ordre();
+        ordre.setClientId(demande.clientId());
+        ordre.setClientOrderId(clientOrderId);
+        ordre.setSymbole(symbole);
+        ordre.setSens(demande.sens());
+        ordre.setType(demande.type());
+        ordre.setQuantite(demande.quantite());
+        ordre.setPrixLimite(demande.type() == TypeOrdre.LIMITE ? demande.prixLimite() : null);
+        ordre.setHorodatageUtc(LocalDateTime.now(ZoneOffset.UTC));
+
+        // Persister avant le moteur : la contrainte d'unicité garantit une seule exécution par ClientOrderId
+        try {
+            ordre = ordreRepository.saveAndFlush(ordre);
+        } catch (RuntimeException e) {
+            pouvoirAchat.abandonner(reservation);
+            if (!(e instanceof DataIntegrityViolationException violation)) {
+                throw e;
+            }
+            if (!String.valueOf(violation.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT)
+                    .contains(Ordre.CONTRAINTE_CLIENT_ORDER_ID_UNIQUE)) {
+                throw e;
+            }
+            idempotence.repliBase();
+            return ordreRepository.findByClientIdAndClientOrderId(demande.clientId(), clientOrderId)
+                .map(this::rejouer)
+                .orElseThrow(() -> new IllegalStateException("Ordre " + clientOrderId + " en cours de traitement"));
+        }
+
+        pouvoirAchat.associer(ordre.getId(), reservation);
+        suivi.suivre(ordre.getId(), demande.quantite());
+        long execute;
+        try {
+            execute = moteur.soumettre(symbole, ordre.getId(), demande.clientId(), demande.sens(), demande.type(),
+                prixTicks, demande.quantite());
+        } catch (RuntimeException e) {
+            // Refus du carnet ou journal en échec : l'ordre n'a rien exécuté
+            rejeter(ordre, reservation, e);
+            throw e;
+        }
+        // Accusé immédiat; la ligne est mise à jour par le suivi (une écriture ici pourrait écraser
+        // une exécution ultérieure de l'ordre au carnet)
+        ordre.setQuantiteExecutee(execute);
+        if (execute == ordre.getQuantite()) {
+            ordre.setStatut(StatutOrdre.EXECUTE.getCode());
+        } else if (demande.type() == TypeOrdre.MARCHE) {
+            ordre.setStatut(StatutOrdre.ANNULE.getCode());
+        }
+
+        journal.evenement(TypeEvenement.ORDRE_ACCEPTE, "ordreId", ordre.getId(), "clientId", ordre.getClientId(),
+            "symbole", symbole, "statut", ordre.getStatut());
+        return AccuseOrdre.depuis(ordre);
+    }
+
+    /**
+     * Accusé d'origine d'un ordre déjà traité; un ordre rejeté par le moteur reste rejeté
+     * @throws IllegalArgumentException si l'ordre a été rejeté
+     */
+    private AccuseOrdre rejouer(Ordre ordre) {
+        if (StatutOrdre.REJETE.getCode().equals(ordre.getStatut())) {
+            throw new IllegalArgumentException("Ordre " + ordre.getClientOrderId() + " rejeté");
+        }
+        return AccuseOrdre.depuis(suivi.actualiser(ordre)).rejoue();
+    }
+
+    /**
+     * Annule les effets d'un ordre persisté que le moteur n'a pas accepté : fonds rendus, suivi abandonné,
+     * ligne marquée REJETE (sinon une nouvelle soumission le croirait accepté)
+     */
+    private void rejeter(Ordre ordre, ReservationOrdre reservation, RuntimeException cause) {
+        pouvoirAchat.abandonner(ordre.getId(), reservation);
+        suivi.oublier(ordre.getId());
+        journal.evenement(TypeEvenement.ORDRE_REJETE, "ordreId", ordre.getId(), "clientId", ordre.getClientId(),
+            "symbole", ordre.getSymbole(), "motif", cause.getMessage());
+        ordre.setStatut(StatutOrdre.REJETE.getCode());
+        try {
+            ordreRepository.save(ordre);
+        } catch (RuntimeException e) {
+            journal.evenement(TypeEvenement.ERREUR_REJET_ORDRE, "ordreId", ordre.getId(), "erreur", e.getMessage());
+        }
+    }
+
+    /**
+     * Prix maximal d'un achat au marché : meilleur vendeur majoré de la protection (au moins un tick)
+     * Sans vendeur, l'ordre n'exécutera rien et ne bloque presque rien
+     */
+    private long prixProtection(String symbole) {
+        long meilleur = Math.max(1, moteur.meilleurPrix(symbole, SensOrdre.VENTE));
+        return meilleur + Math.max(1, meilleur * protectionMarchePb / 10_000);
+    }
+
+    /**
+     * @return le symbole normalisé
+     */
+    private String valider(DemandeOrdre demande) {
+        if (demande.sens() == null || demande.type() == null) {
+            throw new IllegalArgumentException("Sens et type d'ordre obligatoires");
+        }
+        if (demande.quantite() <= 0) {
+            throw new IllegalArgumentException("La quantité doit être positive");
+        }
+        String symbole = demande.symbole() != null ? demande.symbole().trim().toUpperCase(Locale.ROOT) : "";
+        if (!SYMBOLE.matcher(symbole).matches()) {
+            throw new IllegalArgumentException("Symbole invalide");
+        }
+        if (demande.type() == TypeOrdre.LIMITE) {
+            BigDecimal prix = demande.prixLimite();
+            if (prix == null || prix.signum() <= 0) {
+                throw new IllegalArgumentException("Prix limite obligatoire et positif");
+            }
+        }
+        InstantaneClient client = cacheClients.parId(demande.clientId())
+            .orElseThrow(() -> new IllegalArgumentException("Client inconnu"));
+        if (!client.isCompteActif()) {
+            throw new IllegalArgumentException("Compte client non actif");
+        }
+        return symbole;
+    }
+}
@@ -0,0 +1,12 @@
+package brokerx.service;
+
+import brokerx.repository.ClientResume;
+import java.util.List;
+
+/**
+ * Page de la liste des clients
+ * @param clients les clients de la page, du plus récent au plus ancien
+ * @param curseurSuivant curseur opaque de la page suivante, ou null s'il n'y en a pas
+ */
+public record PageClients(List<ClientResume> clients, String curseurSuivant) {
+}
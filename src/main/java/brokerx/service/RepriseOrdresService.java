@@ -0,0 +1,416 @@
+package brokerx.service;
+
+import brokerx.entity.SensOrdre;
+import brokerx.entity.TypeOrdre;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.moteur.CarnetOrdres;
+import brokerx.moteur.MoteurAppariement;
+import brokerx.moteur.journal.CodeSymbole;
+import brokerx.moteur.journal.JournalOrdres;
+import brokerx.service.comptes.PouvoirAchatService;
+import brokerx.service.portefeuille.PortefeuilleService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reprise de l'état du moteur et des soldes au redémarrage, et instantanés périodiques
+ *
+ * - instantané : espèces des comptes, ordres au carnet (ordre d'arrivée), derniers cours et positions
+ *   des portefeuilles (depuis la version 2), capturés en mémoire pendant que carnets, ouvertures de
+ *   compte et journal sont figés, puis écrits hors verrou (fichier temporaire forcé sur disque, renommé
+ *   atomiquement, répertoire forcé à son tour; CRC32C final)
+ * - reprise : dernier instantané valide (CRC puis lecture complète avant toute restauration, sinon le
+ *   précédent), puis rejeu des événements de commande journalisés après lui
+ *   (ouvertures de compte, acceptations, annulations, expirations); exécutions, règlements, positions
+ *   et lignes des ordres (SuiviOrdresService) sont reproduits par l'appariement
+ * - les segments du journal couverts par le plus ancien instantané conservé ne sont supprimés qu'une
+ *   fois le nouvel instantané durable
+ */
+@Service
+public class RepriseOrdresService {
+
+    private static final int MAGIQUE = 0x42584931;
+    private static final int VERSION = 2;
+    private static final String PREFIXE = "instantane-";
+    private static final String SUFFIXE = ".bin";
+    private static final SensOrdre[] SENS = SensOrdre.values();
+    private static final TypeOrdre[] TYPES = TypeOrdre.values();
+    // Un répertoire ne peut pas être ouvert (ni forcé) sous Windows; NTFS journalise le renommage
+    private static final boolean REPERTOIRE_FORCABLE = !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private final MoteurAppariement moteur;
+    private final PouvoirAchatService pouvoirAchat;
+    private final PortefeuilleService portefeuilles;
+    private final SuiviOrdresService suivi;
+    private final JournalOrdres journalOrdres;
+    private final JournalEvenements journal;
+    private final int instantanesConserves;
+
+    private volatile long sequenceInstantane;
+    private volatile long evenementsRejoues;
+    private volatile long dureeRepriseMs;
+    private volatile long instantanesEcrits;
+
+    public RepriseOrdresService(MoteurAppariement moteur,
+                                PouvoirAchatService pouvoirAchat,
+                                PortefeuilleService portefeuilles,
+                                SuiviOrdresService suivi,
+                                JournalOrdres journalOrdres,
+                                JournalEvenements journal,
+                                @Value("${brokerx.journal-ordres.instantanes-conserves:2}") int instantanesConserves) {
+        this.moteur = moteur;
+        this.pouvoirAchat = pouvoirAchat;
+        this.portefeuilles = portefeuilles;
+        this.suivi = suivi;
+        this.journalOrdres = journalOrdres;
+        this.journal = journal;
+        this.instantanesConserves = Math.max(1, instantanesConserves);
+    }
+
+    /**
+     * Restaure le dernier instantané valide puis rejoue la suite du journal, avant l'arrivée des ordres
+     */
+    @PostConstruct
+    public void reprendre() {
+        long debut = System.nanoTime();
+        long[] rejoues = new long[1];
+        moteur.reprendre(() -> {
+            sequenceInstantane = restaurerInstantane();
+            rejoues[0] = journalOrdres.lire(sequenceInstantane, (sequence, type, symbole, idOrdre, autre,
+                                                                 sens, typeOrdre, prixTicks, quantite) -> {
+                switch (type) {
+                    case COMPTE_OUVERT -> pouvoirAchat.restaurerCompte(autre, quantite);
+                    case ACCEPTE -> {
+                        pouvoirAchat.reprendreOrdre(idOrdre, autre, SENS[sens], prixTicks, quantite);
+                        suivi.suivre(idOrdre, quantite);
+                        moteur.soumettre(CodeSymbole.decoder(symbole), idOrdre, autre, SENS[sens], TYPES[typeOrdre],
+                            prixTicks, quantite);
+                    }
+                    case ANNULE -> moteur.annuler(CodeSymbole.decoder(symbole), idOrdre);
+                    case EXPIRE -> moteur.expirer(CodeSymbole.decoder(symbole), idOrdre);
+                    default -> { }
+                }
+            });
+        });
+        evenementsRejoues = rejoues[0];
+        dureeRepriseMs = (System.nanoTime() - debut) / 1_000_000;
+        journal.evenement(TypeEvenement.ORDRES_REPRIS, "instantane", sequenceInstantane,
+            "evenements", evenementsRejoues, "dureeMs", dureeRepriseMs);
+    }
+
+    @Scheduled(fixedDelayString = "${brokerx.journal-ordres.instantane-intervalle-ms:60000}",
+               initialDelayString = "${brokerx.journal-ordres.instantane-intervalle-ms:60000}")
+    public void planifier() {
+        instantane();
+    }
+
+    @PreDestroy
+    public void fermer() {
+        instantane();
+    }
+
+    /**
+     * Écrit un instantané si des événements ont été journalisés depuis le précédent
+     * @return la séquence couverte par l'instantané, 0 si aucun n'a été écrit
+     */
+    public synchronized long instantane() {
+        if (journalOrdres.getDerniereSequence() == sequenceInstantane) {
+            return 0;
+        }
+        ByteArrayOutputStream contenu = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream sortie = new DataOutputStream(contenu);
+        long[] sequence = new long[1];
+        // Capture en mémoire sous les verrous; l'écriture disque se fait après les avoir rendus
+        moteur.figer(carnets -> pouvoirAchat.figer(() -> journalOrdres.figer(s -> {
+            sequence[0] = s;
+            try {
+                capturer(sortie, s, carnets);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        })));
+        try {
+            CRC32C crc = new CRC32C();
+            crc.update(contenu.toByteArray());
+            sortie.writeInt((int) crc.getValue());
+            Path cible = journalOrdres.getRepertoire().resolve(String.format("%s%020d%s", PREFIXE, sequence[0], SUFFIXE));
+            Path temporaire = cible.resolveSibling(cible.getFileName() + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer tampon = ByteBuffer.wrap(contenu.toByteArray());
+                while (tampon.hasRemaining()) {
+                    canal.write(tampon);
+                }
+                canal.force(true);
+            }
+            Files.move(temporaire, cible, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Le renommage n'est durable qu'une fois le répertoire forcé : avant, pas de purge du journal
+            forcerRepertoire(cible.getParent());
+        } catch (IOException e) {
+            journal.evenement(TypeEvenement.ERREUR_INSTANTANE_ORDRES, "operation", "ecriture",
+                "sequence", sequence[0], "erreur", e.getMessage());
+            return 0;
+        }
+        sequenceInstantane = sequence[0];
+        instantanesEcrits++;
+        int purges = purger();
+        journal.evenement(TypeEvenement.INSTANTANE_ORDRES, "sequence", sequence[0],
+            "octets", contenu.size(), "segmentsSupprimes", purges);
+        return sequence[0];
+    }
+
+    private void capturer(DataOutputStream sortie, long sequence, List<CarnetOrdres> carnets) throws IOException {
+        sortie.writeInt(MAGIQUE);
+        sortie.writeInt(VERSION);
+        sortie.writeLong(sequence);
+        ByteArrayOutputStream comptes = new ByteArrayOutputStream();
+        DataOutputStream sortieComptes = new DataOutputStream(comptes);
+        int[] nombre = new int[1];
+        pouvoirAchat.parcourirComptes(compte -> {
+            try {
+                sortieComptes.writeLong(compte.getClientId());
+                sortieComptes.writeLong(compte.getEspecesCentimes());
+                nombre[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        sortie.writeInt(nombre[0]);
+        comptes.writeTo(sortie);
+        sortie.writeInt(carnets.size());
+        for (CarnetOrdres carnet : carnets) {
+            sortie.writeUTF(carnet.getSymbole());
+            sortie.writeInt(carnet.getNombreOrdres());
+            carnet.parcourir((idOrdre, sens, prixTicks, quantite) -> {
+                try {
+                    sortie.writeLong(idOrdre);
+                    sortie.writeLong(pouvoirAchat.clientDe(idOrdre));
+                    sortie.writeByte(sens.ordinal());
+                    sortie.writeLong(prixTicks);
+                    sortie.writeLong(quantite);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        ByteArrayOutputStream cours = new ByteArrayOutputStream();
+        DataOutputStream sortieCours = new DataOutputStream(cours);
+        ByteArrayOutputStream positions = new ByteArrayOutputStream();
+        DataOutputStream sortiePositions = new DataOutputStream(positions);
+        int[] nombres = new int[2];
+        portefeuilles.parcourir(new PortefeuilleService.VisiteurPortefeuilles() {
+            @Override
+            public void cours(String symbole, long prixTicks) {
+                try {
+                    sortieCours.writeUTF(symbole);
+                    sortieCours.writeLong(prixTicks);
+                    nombres[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void position(long clientId, String symbole, long quantite, long coutTicks, long realiseTicks) {
+                try {
+                    sortiePositions.writeLong(clientId);
+                    sortiePositions.writeUTF(symbole);
+                    sortiePositions.writeLong(quantite);
+                    sortiePositions.writeLong(coutTicks);
+                    sortiePositions.writeLong(realiseTicks);
+                    nombres[1]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        sortie.writeInt(nombres[0]);
+        cours.writeTo(sortie);
+        sortie.writeInt(nombres[1]);
+        positions.writeTo(sortie);
+    }
+
+    /**
+     * @return la séquence de l'instantané restauré, 0 sans instantané valide
+     */
+    private long restaurerInstantane() {
+        List<Path> fichiers = instantanes();
+        for (int i = fichiers.size() - 1; i >= 0; i--) {
+            Path fichier = fichiers.get(i);
+            byte[] contenu;
+            try {
+                contenu = Files.readAllBytes(fichier);
+            } catch (IOException e) {
+                journal.evenement(TypeEvenement.INSTANTANE_ORDRES_IGNORE, "fichier", fichier, "erreur", e.getMessage());
+                continue;
+            }
+            if (!valide(contenu)) {
+                journal.evenement(TypeEvenement.INSTANTANE_ORDRES_IGNORE, "fichier", fichier, "erreur", "CRC ou en-tête invalide");
+                continue;
+            }
+            // Lecture complète à blanc d'abord : un contenu illisible ne doit rien avoir restauré
+            try {
+                lire(contenu, false);
+            } catch (IOException | RuntimeException e) {
+                journal.evenement(TypeEvenement.INSTANTANE_ORDRES_IGNORE, "fichier", fichier, "erreur", String.valueOf(e));
+                continue;
+            }
+            try {
+                return lire(contenu, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture de l'instantané des ordres impossible : " + fichier, e);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param restaurer faux : vérifie seulement que le contenu se lit en entier
+     * @return la séquence couverte par l'instantané
+     */
+    private long lire(byte[] contenu, boolean restaurer) throws IOException {
+        try (DataInputStream entree = new DataInputStream(new ByteArrayInputStream(contenu, 0, contenu.length - 4))) {
+            entree.readInt();
+            int version = entree.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Version d'instantané inconnue : " + version);
+            }
+            long sequence = entree.readLong();
+            for (int n = entree.readInt(); n > 0; n--) {
+                long clientId = entree.readLong();
+                long especes = entree.readLong();
+                if (restaurer) {
+                    pouvoirAchat.restaurerCompte(clientId, especes);
+                }
+            }
+            for (int c = entree.readInt(); c > 0; c--) {
+                String symbole = entree.readUTF();
+                for (int o = entree.readInt(); o > 0; o--) {
+                    long idOrdre = entree.readLong();
+                    long clientId = entree.readLong();
+                    SensOrdre sens = SENS[entree.readByte()];
+                    long prixTicks = entree.readLong();
+                    long quantite = entree.readLong();
+                    if (prixTicks <= 0 || quantite <= 0
+                            || (sens == SensOrdre.ACHAT && !pouvoirAchat.montantValide(prixTicks, quantite))) {
+                        throw new IOException("Ordre invalide : " + idOrdre);
+                    }
+                    if (!restaurer) {
+                        continue;
+                    }
+                    if (clientId >= 0) {
+                        pouvoirAchat.reprendreOrdre(idOrdre, clientId, sens, prixTicks, quantite);
+                    }
+                    suivi.suivre(idOrdre, quantite);
+                    moteur.restaurer(symbole, idOrdre, sens, prixTicks, quantite);
+                }
+            }
+            if (version >= 2) {
+                for (int n = entree.readInt(); n > 0; n--) {
+                    String symbole = entree.readUTF();
+                    long prixTicks = entree.readLong();
+                    if (restaurer) {
+                        portefeuilles.restaurerCours(symbole, prixTicks);
+                    }
+                }
+                for (int n = entree.readInt(); n > 0; n--) {
+                    long clientId = entree.readLong();
+                    String symbole = entree.readUTF();
+                    long quantite = entree.readLong();
+                    long coutTicks = entree.readLong();
+                    long realiseTicks = entree.readLong();
+                    if (restaurer) {
+                        portefeuilles.restaurerPosition(clientId, symbole, quantite, coutTicks, realiseTicks);
+                    }
+                }
+            }
+            if (entree.available() > 0) {
+                throw new IOException("Octets en trop après l'instantané");
+            }
+            return sequence;
+        }
+    }
+
+    private static void forcerRepertoire(Path repertoire) throws IOException {
+        if (!REPERTOIRE_FORCABLE) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(repertoire, StandardOpenOption.READ)) {
+            canal.force(true);
+        }
+    }
+
+    private static boolean valide(byte[] contenu) {
+        if (contenu.length < 20) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(contenu, 0, contenu.length - 4);
+        int attendu = ((contenu[contenu.length - 4] & 0xFF) << 24) | ((contenu[contenu.length - 3] & 0xFF) << 16)
+            | ((contenu[contenu.length - 2] & 0xFF) << 8) | (contenu[contenu.length - 1] & 0xFF);
+        int magique = ((contenu[0] & 0xFF) << 24) | ((contenu[1] & 0xFF) << 16) | ((contenu[2] & 0xFF) << 8) | (contenu[3] & 0xFF);
+        return attendu == (int) crc.getValue() && magique == MAGIQUE;
+    }
+
+    /**
+     * Garde les derniers instantanés; le journal doit couvrir le plus ancien (repli si le dernier est corrompu)
+     * @return le nombre de segments du journal supprimés
+     */
+    private int purger() {
+        List<Path> fichiers = instantanes();
+        int surplus = fichiers.size() - instantanesConserves;
+        for (int i = 0; i < surplus; i++) {
+            try {
+                Files.deleteIfExists(fichiers.get(i));
+            } catch (IOException e) {
+                journal.evenement(TypeEvenement.ERREUR_INSTANTANE_ORDRES, "operation", "suppression",
+                    "fichier", fichiers.get(i), "erreur", e.getMessage());
+            }
+        }
+        if (surplus < 0) {
+            return 0;
+        }
+        return journalOrdres.purgerJusqua(sequence(fichiers.get(surplus)));
+    }
+
+    private List<Path> instantanes() {
+        try (Stream<Path> fichiers = Files.list(journalOrdres.getRepertoire())) {
+            return fichiers
+                .filter(f -> f.getFileName().toString().startsWith(PREFIXE) && f.getFileName().toString().endsWith(SUFFIXE))
+                .sorted(Comparator.comparingLong(RepriseOrdresService::sequence))
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long sequence(Path instantane) {
+        String nom = instantane.getFileName().toString();
+        return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+    }
+
+    public long getSequenceInstantane() { return sequenceInstantane; }
+    public long getEvenementsRejoues() { return evenementsRejoues; }
+    public long getDureeRepriseMs() { return dureeRepriseMs; }
+    public long getInstantanesEcrits() { return instantanesEcrits; }
+}
@@ -0,0 +1,15 @@
+package brokerx.service;
+
+/**
+ * Levée lorsqu'un service à capacité bornée refuse une demande (file pleine ou délai dépassé)
+ */
+public class ServiceSatureException extends RuntimeException {
+
+    public ServiceSatureException(String message) {
+        super(message);
+    }
+
+    public ServiceSatureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,55 @@
+package brokerx.service;
+
+import java.time.Instant;
+
+/**
+ * Session de vérification d'une inscription web (CU01)
+ * Les codes et le jeton du lien email sont immuables; seul l'indicateur de vérification email évolue
+ */
+public class SessionVerification {
+
+    private final String id;
+    private final String email;
+    private final String codeEmail;
+    private final String jetonLien;
+    private final String codeOTP;
+    private final Instant expirationEmail;
+    private final Instant expirationOTP;
+    private volatile boolean emailVerifie = false;
+
+    public SessionVerification(String id, String email, String codeEmail, String jetonLien, String codeOTP,
+                               Instant expirationEmail, Instant expirationOTP) {
+        this.id = id;
+        this.email = email;
+        this.codeEmail = codeEmail;
+        this.jetonLien = jetonLien;
+        this.codeOTP = codeOTP;
+        this.expirationEmail = expirationEmail;
+        this.expirationOTP = expirationOTP;
+    }
+
+    public String getId() { return id; }
+    public String getEmail() { return email; }
+    public String getCodeEmail() { return codeEmail; }
+    public String getJetonLien() { return jetonLien; }
+    public String getCodeOTP() { return codeOTP; }
+    public Instant getExpirationEmail() { return expirationEmail; }
+    public Instant getExpirationOTP() { return expirationOTP; }
+
+    public boolean isEmailVerifie() { return emailVerifie; }
+    public void setEmailVerifie(boolean emailVerifie) { this.emailVerifie = emailVerifie; }
+
+    /**
+     * La session (et le lien email) n'est plus utilisable après 24 heures
+     */
+    public boolean isExpiree(Instant maintenant) {
+        return !maintenant.isBefore(expirationEmail);
+    }
+
+    /**
+     * Le code SMS expire plus tôt que la session (10 minutes)
+     */
+    public boolean isOTPExpire(Instant maintenant) {
+        return !maintenant.isBefore(expirationOTP);
+    }
+}
@@ -0,0 +1,203 @@
+package brokerx.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stockage concurrent et expirant des sessions de vérification (CU01)
+ *
+ * - accès concurrent sans verrou global (ConcurrentHashMap)
+ * - index secondaire jeton du lien email -> session pour les clics sur le lien en temps constant;
+ *   le lien porte un jeton imprévisible et non le code à 6 chiffres, qui peut être partagé par
+ *   plusieurs inscriptions en attente (le code saisi est toujours comparé à celui de la session)
+ * - durée de vie par session : 24h pour le lien email, 10 min pour l'OTP
+ * - capacité bornée : les sessions les plus anciennes sont évincées au-delà
+ * - balayage périodique des sessions expirées
+ */
+@Component
+public class SessionVerificationStore {
+
+    private final ConcurrentHashMap<String, SessionVerification> sessions = new ConcurrentHashMap<>();
+
+    // Index secondaire : jeton du lien email -> identifiant de session
+    private final ConcurrentHashMap<String, String> indexJetonsLien = new ConcurrentHashMap<>();
+
+    // Ordre d'insertion (= ordre d'expiration, la durée de vie étant identique pour toutes les sessions)
+    private final ConcurrentLinkedQueue<String> ordreInsertion = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tailleOrdreInsertion = new AtomicInteger();
+
+    private final LongAdder evictionsExpiration = new LongAdder();
+    private final LongAdder evictionsCapacite = new LongAdder();
+
+    private final Duration dureeEmail;
+    private final Duration dureeOTP;
+    private final int capaciteMax;
+    private final Clock horloge;
+
+    @Autowired
+    public SessionVerificationStore(@Value("${brokerx.sessions.duree-email:PT24H}") Duration dureeEmail,
+                                    @Value("${brokerx.sessions.duree-otp:PT10M}") Duration dureeOTP,
+                                    @Value("${brokerx.sessions.capacite-max:100000}") int capaciteMax) {
+        this(dureeEmail, dureeOTP, capaciteMax, Clock.systemUTC());
+    }
+
+    public SessionVerificationStore(Duration dureeEmail, Duration dureeOTP, int capaciteMax, Clock horloge) {
+        if (capaciteMax <= 0) {
+            throw new IllegalArgumentException("La capacité maximale doit être positive");
+        }
+        this.dureeEmail = dureeEmail;
+        this.dureeOTP = dureeOTP;
+        this.capaciteMax = capaciteMax;
+        this.horloge = horloge;
+    }
+
+    /**
+     * Crée une nouvelle session de vérification et retourne-la
+     * Évince les sessions les plus anciennes si la capacité est atteinte
+     * @param jetonLien jeton du lien envoyé par email (nouveauJetonLien), null si aucun lien
+     * @throws IllegalStateException si le jeton est déjà attribué à une autre session
+     */
+    public SessionVerification creer(String email, String codeEmail, String jetonLien, String codeOTP) {
+        Instant maintenant = horloge.instant();
+        String id = UUID.randomUUID().toString();
+        SessionVerification session = new SessionVerification(id, email, codeEmail, jetonLien, codeOTP,
+                maintenant.plus(dureeEmail), maintenant.plus(dureeOTP));
+
+        // Jamais d'écrasement : un lien ne doit pas pouvoir pointer vers la session d'un autre client
+        if (jetonLien != null && indexJetonsLien.putIfAbsent(jetonLien, id) != null) {
+            throw new IllegalStateException("Jeton de lien déjà attribué");
+        }
+        sessions.put(id, session);
+        ordreInsertion.add(id);
+        tailleOrdreInsertion.incrementAndGet();
+
+        while (sessions.size() > capaciteMax) {
+            if (!evincerPlusAncienne()) {
+                break;
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Retourne la session active, ou null si elle est inconnue ou expirée
+     */
+    public SessionVerification trouver(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        SessionVerification session = sessions.get(sessionId);
+        if (session != null && session.isExpiree(horloge.instant())) {
+            if (retirer(session)) {
+                evictionsExpiration.increment();
+            }
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Jeton imprévisible (122 bits aléatoires) pour le lien de vérification envoyé par email
+     */
+    public static String nouveauJetonLien() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * Retourne la session active correspondant au jeton du lien reçu par email, ou null
+     */
+    public SessionVerification trouverParJetonLien(String jetonLien) {
+        if (jetonLien == null) {
+            return null;
+        }
+        String sessionId = indexJetonsLien.get(jetonLien);
+        return sessionId != null ? trouver(sessionId) : null;
+    }
+
+    /**
+     * Supprime la session une fois le processus terminé
+     */
+    public void supprimer(String sessionId) {
+        if (sessionId != null) {
+            SessionVerification session = sessions.get(sessionId);
+            if (session != null) {
+                retirer(session);
+            }
+        }
+    }
+
+    /**
+     * Balayage périodique : retire les sessions expirées en tête de file
+     * et compacte la file d'insertion si elle contient trop d'identifiants périmés
+     */
+    @Scheduled(fixedDelayString = "${brokerx.sessions.balayage-intervalle-ms:60000}")
+    public void balayer() {
+        Instant maintenant = horloge.instant();
+        String id;
+        while ((id = ordreInsertion.peek()) != null) {
+            SessionVerification session = sessions.get(id);
+            if (session != null && !session.isExpiree(maintenant)) {
+                break;
+            }
+            if (ordreInsertion.remove(id)) {
+                tailleOrdreInsertion.decrementAndGet();
+            }
+            if (session != null && retirer(session)) {
+                evictionsExpiration.increment();
+            }
+        }
+
+        // Les sessions terminées normalement laissent leur identifiant dans la file
+        if (tailleOrdreInsertion.get() > 2 * Math.max(sessions.size(), 1024)) {
+            ordreInsertion.removeIf(idPerime -> {
+                boolean perime = !sessions.containsKey(idPerime);
+                if (perime) {
+                    tailleOrdreInsertion.decrementAndGet();
+                }
+                return perime;
+            });
+        }
+    }
+
+    private boolean evincerPlusAncienne() {
+        String id;
+        while ((id = ordreInsertion.poll()) != null) {
+            tailleOrdreInsertion.decrementAndGet();
+            SessionVerification session = sessions.get(id);
+            if (session != null && retirer(session)) {
+                evictionsCapacite.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retire la session et son entrée d'index; l'index n'est nettoyé
+     * que s'il pointe encore vers cette session
+     */
+    private boolean retirer(SessionVerification session) {
+        if (!sessions.remove(session.getId(), session)) {
+            return false;
+        }
+        if (session.getJetonLien() != null) {
+            indexJetonsLien.remove(session.getJetonLien(), session.getId());
+        }
+        return true;
+    }
+
+    public int taille() { return sessions.size(); }
+    public int getCapaciteMax() { return capaciteMax; }
+    public long getEvictionsExpiration() { return evictionsExpiration.sum(); }
+    public long getEvictionsCapacite() { return evictionsCapacite.sum(); }
+}
@@ -0,0 +1,157 @@
+package brokerx.service;
+
+import brokerx.entity.Ordre;
+import brokerx.entity.SensOrdre;
+import brokerx.entity.StatutOrdre;
+import brokerx.moteur.EcouteurCarnet;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suivi des ordres en base (UC-05) : quantité exécutée et statut des deux côtés de chaque exécution
+ *
+ * - écouteur du moteur : l'agresseur comme l'ordre au carnet, exécuté plus tard par un autre ordre,
+ *   voient leur ligne mise à jour; reliquats annulés, annulations et expirations aussi
+ * - chaque ordre suivi garde sa quantité restante en mémoire (hors exécution : annulée ou non exécutée);
+ *   la ligne est écrite en valeurs absolues (quantite_executee = quantite - restant), le rejeu du
+ *   journal au redémarrage réécrit donc les mêmes valeurs
+ * - écriture asynchrone par lots, comme la réconciliation des comptes; seul le dernier état d'un ordre
+ *   est écrit. Un état reste en attente jusqu'à ce que son lot soit validé : actualiser() complète
+ *   une ligne lue en base avec l'état pas encore écrit
+ */
+@Service
+public class SuiviOrdresService implements EcouteurCarnet {
+
+    private static final String MISE_A_JOUR = "update ordres set quantite_executee = quantite - ?, statut = ? where id = ?";
+
+    // Quantité restante des ordres vivants (au carnet ou en cours d'appariement)
+    private final ConcurrentHashMap<Long, Long> restants = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, EtatOrdre> aEcrire = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final int tailleLot;
+
+    private final LongAdder ordresEcrits = new LongAdder();
+    private final LongAdder echecsEcriture = new LongAdder();
+
+    public SuiviOrdresService(JdbcTemplate jdbcTemplate,
+                              @Value("${brokerx.ordres.suivi.taille-lot:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tailleLot = tailleLot;
+    }
+
+    /**
+     * Suit un ordre avant son acheminement au moteur (nouvel ordre, rejeu du journal ou reprise d'un instantané)
+     * @param restant quantité non encore exécutée
+     */
+    public void suivre(long ordreId, long restant) {
+        restants.put(ordreId, restant);
+    }
+
+    /**
+     * Cesse de suivre un ordre que le moteur a refusé (aucune exécution)
+     */
+    public void oublier(long ordreId) {
+        restants.remove(ordreId);
+        aEcrire.remove(ordreId);
+    }
+
+    @Override
+    public void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite) {
+        executer(idAgresseur, quantite);
+        executer(idPassif, quantite);
+    }
+
+    @Override
+    public void annulation(String symbole, long idOrdre, SensOrdre sens, long quantite) {
+        Long restant = restants.remove(idOrdre);
+        if (restant != null) {
+            aEcrire.put(idOrdre, new EtatOrdre(restant, StatutOrdre.ANNULE.getCode()));
+        }
+    }
+
+    private void executer(long ordreId, long quantite) {
+        Long avant = restants.get(ordreId);
+        if (avant == null) {
+            return;
+        }
+        // Les événements d'un ordre arrivent sous le verrou de son carnet : pas de mise à jour concurrente
+        long restant = avant - quantite;
+        if (restant > 0) {
+            restants.put(ordreId, restant);
+            aEcrire.put(ordreId, new EtatOrdre(restant, StatutOrdre.ACTIF.getCode()));
+        } else {
+            restants.remove(ordreId);
+            aEcrire.put(ordreId, new EtatOrdre(0, StatutOrdre.EXECUTE.getCode()));
+        }
+    }
+
+    /**
+     * Complète un ordre lu en base avec son dernier état pas encore écrit
+     */
+    public Ordre actualiser(Ordre ordre) {
+        EtatOrdre etat = aEcrire.get(ordre.getId());
+        if (etat != null) {
+            ordre.setQuantiteExecutee(ordre.getQuantite() - etat.restant());
+            ordre.setStatut(etat.statut());
+        }
+        return ordre;
+    }
+
+    /**
+     * Écrit en base les ordres modifiés depuis le dernier passage, par lots
+     * Un lot en échec reste en attente pour le passage suivant
+     */
+    @Scheduled(fixedDelayString = "${brokerx.ordres.suivi.intervalle-ms:1000}")
+    public void ecrire() {
+        List<Map.Entry<Long, EtatOrdre>> etats = new ArrayList<>(tailleLot);
+        List<Object[]> lot = new ArrayList<>(tailleLot);
+        for (Map.Entry<Long, EtatOrdre> entree : aEcrire.entrySet()) {
+            etats.add(Map.entry(entree.getKey(), entree.getValue()));
+            lot.add(new Object[] {entree.getValue().restant(), entree.getValue().statut(), entree.getKey()});
+            if (lot.size() == tailleLot && !ecrireLot(etats, lot)) {
+                return;
+            }
+        }
+        if (!lot.isEmpty()) {
+            ecrireLot(etats, lot);
+        }
+    }
+
+    private boolean ecrireLot(List<Map.Entry<Long, EtatOrdre>> etats, List<Object[]> lot) {
+        try {
+            jdbcTemplate.batchUpdate(MISE_A_JOUR, lot);
+        } catch (RuntimeException e) {
+            echecsEcriture.add(lot.size());
+            return false;
+        }
+        ordresEcrits.add(lot.size());
+        // Retrait conditionnel : un état plus récent arrivé pendant l'écriture reste en attente
+        for (Map.Entry<Long, EtatOrdre> etat : etats) {
+            aEcrire.remove(etat.getKey(), etat.getValue());
+        }
+        etats.clear();
+        lot.clear();
+        return true;
+    }
+
+    @PreDestroy
+    public void fermer() {
+        ecrire();
+    }
+
+    public int getOrdresSuivis() { return restants.size(); }
+    public int getOrdresAEcrire() { return aEcrire.size(); }
+    public long getOrdresEcrits() { return ordresEcrits.sum(); }
+    public long getEchecsEcriture() { return echecsEcriture.sum(); }
+
+    private record EtatOrdre(long restant, String statut) {
+    }
+}
@@ -0,0 +1,98 @@
+package brokerx.service;
+
+import brokerx.entity.StatutInscription;
+import brokerx.repository.ClientRepository;
+import org.springframework.stereotype.Component;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transitions de statut d'inscription et vérifications, une instruction UPDATE conditionnelle chacune
+ *
+ * - le statut cible est calculé sur la copie du client (CacheClients : aucune requête si elle y est),
+ *   puis écrit avec les indicateurs de vérification par un UPDATE ... where id = ? and version = ?
+ * - version changée entre-temps (vérification concurrente par l'autre canal, expiration, autre nœud) :
+ *   relecture en base et nouveau calcul; aucune vérification n'en écrase une autre
+ * - transition interdite (StatutInscription.peutPasserA) : le statut est conservé, les indicateurs
+ *   de vérification sont tout de même enregistrés
+ * - compteurs par statut et cache mis à jour après chaque transition appliquée
+ */
+@Component
+public class TransitionsInscription {
+
+    // Chaque conflit signifie qu'une autre écriture a abouti : au-delà, le client est anormalement disputé
+    private static final int TENTATIVES_MAX = 16;
+
+    private final ClientRepository clientRepository;
+    private final CacheClients cacheClients;
+    private final CompteursStatuts compteursStatuts;
+
+    private final LongAdder appliquees = new LongAdder();
+    private final LongAdder conflits = new LongAdder();
+    private final LongAdder interdites = new LongAdder();
+
+    public TransitionsInscription(ClientRepository clientRepository,
+                                  CacheClients cacheClients,
+                                  CompteursStatuts compteursStatuts) {
+        this.clientRepository = clientRepository;
+        this.cacheClients = cacheClients;
+        this.compteursStatuts = compteursStatuts;
+    }
+
+    /**
+     * Statut visé, à partir du client lu et de ses indicateurs après la vérification en cours
+     */
+    @FunctionalInterface
+    public interface Regle {
+        StatutInscription cible(InstantaneClient client, boolean emailVerifie, boolean telephoneVerifie);
+    }
+
+    /**
+     * @param client état du client sur lequel la transition a été calculée (avant écriture)
+     * @param appliquee faux si rien ne changeait (déjà vérifié, même statut)
+     */
+    public record Transition(InstantaneClient client, StatutInscription nouveau, boolean appliquee) {
+    }
+
+    /**
+     * Enregistre une vérification (email et/ou téléphone) et la transition de statut qui en découle
+     * @return vide si aucun client n'a cet email
+     * @throws IllegalStateException si les écritures concurrentes empêchent durablement la transition
+     */
+    public Optional<Transition> appliquer(String email, boolean verifierEmail, boolean verifierTelephone, Regle regle) {
+        InstantaneClient client = cacheClients.parEmail(email).orElse(null);
+        for (int tentative = 0; tentative < TENTATIVES_MAX; tentative++) {
+            if (client == null) {
+                return Optional.empty();
+            }
+            boolean emailVerifie = client.emailVerifie() || verifierEmail;
+            boolean telephoneVerifie = client.telephoneVerifie() || verifierTelephone;
+            StatutInscription ancien = client.statut();
+            StatutInscription cible = regle.cible(client, emailVerifie, telephoneVerifie);
+            if (cible != ancien && (ancien == null || !ancien.peutPasserA(cible))) {
+                interdites.increment();
+                cible = ancien;
+            }
+            if (cible == ancien && emailVerifie == client.emailVerifie() && telephoneVerifie == client.telephoneVerifie()) {
+                return Optional.of(new Transition(client, cible, false));
+            }
+            if (clientRepository.appliquerTransition(client.id(), client.version(), cible, emailVerifie, telephoneVerifie) == 1) {
+                cacheClients.invalider(client.id(), client.email());
+                if (cible != ancien) {
+                    compteursStatuts.transition(ancien != null ? ancien.getCode() : null, cible.getCode());
+                }
+                appliquees.increment();
+                return Optional.of(new Transition(client, cible, true));
+            }
+            // Copie périmée ou écriture concurrente : relire la ligne en base
+            conflits.increment();
+            cacheClients.invalider(client.id(), email);
+            client = cacheClients.parEmail(email).orElse(null);
+        }
+        throw new IllegalStateException("Transition de statut abandonnée après " + TENTATIVES_MAX + " conflits");
+    }
+
+    public long getAppliquees() { return appliquees.sum(); }
+    public long getConflits() { return conflits.sum(); }
+    public long getInterdites() { return interdites.sum(); }
+}
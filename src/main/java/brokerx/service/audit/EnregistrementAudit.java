@@ -0,0 +1,16 @@
+package brokerx.service.audit;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement d'audit à persister dans le journal
+ * @param auditId identifiant retourné à l'appelant
+ * @param horodatage moment de l'événement
+ * @param type type d'action (ex: "COMPTE_ACTIVE")
+ * @param email email du client concerné
+ * @param empreinte empreinte SHA-256 des documents/données
+ * @param details détails de l'action
+ */
+public record EnregistrementAudit(String auditId, LocalDateTime horodatage, String type,
+                                  String email, String empreinte, String details) {
+}
@@ -0,0 +1,408 @@
+package brokerx.service.audit;
+
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journal d'audit durable, en ajout seul
+ *
+ * - fichiers segments (audit-<séquence>.log) écrits via FileChannel, roulés par taille
+ * - écriture groupée : un seul fsync pour tout un lot d'enregistrements
+ * - chaînage par hachage : chaque ligne contient le SHA-256 de la précédente,
+ *   toute modification ou suppression d'une ligne rompt la chaîne
+ * - la séquence et le dernier hash n'avancent qu'une fois les lignes écrites : après une erreur
+ *   d'écriture, le segment est tronqué à la dernière ligne complète et la chaîne reprend de là
+ *
+ * Format d'une ligne : seq|horodatage|auditId|type|email|empreinte|details|hashPrecedent|hash
+ */
+@Component
+public class JournalAudit {
+
+    private static final String HASH_INITIAL = "0".repeat(64);
+    private static final DateTimeFormatter FORMAT_HORODATAGE = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path repertoire;
+    private final long tailleSegment;
+    private final int segmentsRetenus;
+    private final int tailleLot;
+    private final BlockingQueue<EnAttente> file;
+    private final JournalEvenements evenements;
+
+    private final MessageDigest sha256;
+    private final ByteArrayOutputStream tampon = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel segment;
+    // État de la chaîne au dernier octet écrit (seul le thread écrivain y accède après ouvrir())
+    private long sequence;
+    private String dernierHash = HASH_INITIAL;
+
+    private Thread ecrivain;
+    private volatile boolean actif = true;
+    private volatile long lotsEcrits;
+    private volatile long enregistrementsEcrits;
+
+    public JournalAudit(@Value("${brokerx.audit.repertoire:./data/audit}") String repertoire,
+                        @Value("${brokerx.audit.taille-segment:16777216}") long tailleSegment,
+                        @Value("${brokerx.audit.segments-retenus:0}") int segmentsRetenus,
+                        @Value("${brokerx.audit.taille-lot:256}") int tailleLot,
+                        @Value("${brokerx.audit.capacite-file:65536}") int capaciteFile,
+                        JournalEvenements evenements) {
+        this.repertoire = Paths.get(repertoire);
+        this.evenements = evenements;
+        this.tailleSegment = tailleSegment;
+        this.segmentsRetenus = segmentsRetenus;
+        this.tailleLot = tailleLot;
+        this.file = new ArrayBlockingQueue<>(capaciteFile);
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Reprend la chaîne à partir du dernier segment et démarre l'écrivain
+     */
+    @PostConstruct
+    public void ouvrir() {
+        try {
+            Files.createDirectories(repertoire);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                segment = ouvrirSegment(1);
+            } else {
+                reprendre(segments.get(segments.size() - 1));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le journal d'audit " + repertoire, e);
+        }
+        ecrivain = new Thread(this::boucleEcriture, "journal-audit");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /**
+     * Vide la file, force l'écriture sur disque et ferme le segment courant
+     */
+    @PreDestroy
+    public void fermer() {
+        actif = false;
+        if (ecrivain != null) {
+            try {
+                ecrivain.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (segment != null && segment.isOpen()) {
+                segment.force(true);
+                segment.close();
+            }
+        } catch (IOException e) {
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_AUDIT, "operation", "fermeture", "erreur", e.getMessage());
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement sans attendre le disque
+     * @return complété une fois l'enregistrement durable (après fsync du lot)
+     */
+    public CompletableFuture<Void> ajouter(EnregistrementAudit enregistrement) {
+        EnAttente attente = new EnAttente(enregistrement);
+        try {
+            // File pleine : on ralentit l'appelant plutôt que de perdre une trace réglementaire
+            file.put(attente);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            attente.resultat.completeExceptionally(e);
+        }
+        return attente.resultat;
+    }
+
+    private void boucleEcriture() {
+        List<EnAttente> lot = new ArrayList<>(tailleLot);
+        while (actif || !file.isEmpty()) {
+            try {
+                EnAttente premier = file.poll(100, TimeUnit.MILLISECONDS);
+                if (premier == null) {
+                    continue;
+                }
+                lot.add(premier);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            file.drainTo(lot, tailleLot - 1);
+            ecrireLot(lot);
+            lot.clear();
+        }
+    }
+
+    /**
+     * Écrit le lot puis le force sur disque. Les lignes sont chaînées à partir de l'état validé;
+     * l'état n'avance qu'après l'écriture complète de chaque tranche (un roulement de segment en
+     * cours de lot écrit et force la tranche précédente)
+     */
+    private void ecrireLot(List<EnAttente> lot) {
+        long sequenceLot = sequence;
+        String hashLot = dernierHash;
+        int valides = 0;
+        long positionValidee = -1;
+        try {
+            positionValidee = segment.position();
+            tampon.reset();
+            for (int i = 0; i < lot.size(); i++) {
+                Ligne ligne = encoder(lot.get(i).enregistrement, sequenceLot + 1, hashLot);
+                if (segment.position() + tampon.size() + ligne.octets().length > tailleSegment && segment.position() + tampon.size() > 0) {
+                    ecrireTampon();
+                    valider(sequenceLot, hashLot);
+                    positionValidee = segment.position();
+                    roulerSegment(sequenceLot + 1);
+                    valides = i;
+                    positionValidee = 0;
+                }
+                tampon.write(ligne.octets());
+                sequenceLot++;
+                hashLot = ligne.hash();
+            }
+            ecrireTampon();
+            segment.force(false);
+            valider(sequenceLot, hashLot);
+            lotsEcrits++;
+            enregistrementsEcrits += lot.size();
+            for (EnAttente attente : lot) {
+                attente.resultat.complete(null);
+            }
+        } catch (IOException e) {
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_AUDIT, "operation", "ecriture",
+                "enregistrements", lot.size() - valides, "erreur", e.getMessage());
+            tronquer(positionValidee);
+            enregistrementsEcrits += valides;
+            for (int i = 0; i < lot.size(); i++) {
+                if (i < valides) {
+                    lot.get(i).resultat.complete(null);
+                } else {
+                    lot.get(i).resultat.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void valider(long sequenceEcrite, String hashEcrit) {
+        sequence = sequenceEcrite;
+        dernierHash = hashEcrit;
+    }
+
+    /**
+     * Retire les octets écrits au-delà de la dernière ligne validée (écriture partielle)
+     */
+    private void tronquer(long positionValidee) {
+        tampon.reset();
+        if (positionValidee < 0 || segment == null || !segment.isOpen()) {
+            return;
+        }
+        try {
+            if (segment.size() > positionValidee) {
+                segment.truncate(positionValidee);
+            }
+        } catch (IOException e) {
+            // Au redémarrage, reprendre() repart de la dernière ligne du segment
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_AUDIT, "operation", "troncature", "erreur", e.getMessage());
+        }
+    }
+
+    private void ecrireTampon() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(tampon.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        tampon.reset();
+    }
+
+    private Ligne encoder(EnregistrementAudit e, long numero, String hashPrecedent) {
+        String contenu = numero
+            + "|" + echapper(e.horodatage().format(FORMAT_HORODATAGE))
+            + "|" + echapper(e.auditId())
+            + "|" + echapper(e.type())
+            + "|" + echapper(e.email())
+            + "|" + echapper(e.empreinte())
+            + "|" + echapper(e.details());
+        String hash = hacher(hashPrecedent, contenu);
+        String ligne = contenu + "|" + hashPrecedent + "|" + hash + "\n";
+        return new Ligne(ligne.getBytes(StandardCharsets.UTF_8), hash);
+    }
+
+    private String hacher(String hashPrecedent, String contenu) {
+        sha256.reset();
+        sha256.update(hashPrecedent.getBytes(StandardCharsets.US_ASCII));
+        sha256.update((byte) '|');
+        return HEX.formatHex(sha256.digest(contenu.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String echapper(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        return valeur.replace("\\", "\\\\").replace("|", "\\p").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * Le nouveau segment est ouvert avant la fermeture du courant : si l'ouverture échoue (disque plein,
+     * droits), le segment courant reste ouvert et le lot suivant retente le roulement
+     */
+    private void roulerSegment(long premiereSequence) throws IOException {
+        segment.force(true);
+        FileChannel nouveau = ouvrirSegment(premiereSequence);
+        FileChannel ancien = segment;
+        segment = nouveau;
+        try {
+            ancien.close();
+        } catch (IOException e) {
+            // Lignes déjà forcées sur disque : seule la fermeture a échoué
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_AUDIT, "operation", "fermeture", "erreur", e.getMessage());
+        }
+        try {
+            appliquerRetention();
+        } catch (IOException e) {
+            // Le roulement a eu lieu : les anciens segments seront retirés au prochain roulement
+            evenements.evenement(TypeEvenement.ERREUR_JOURNAL_AUDIT, "operation", "retention", "erreur", e.getMessage());
+        }
+    }
+
+    private FileChannel ouvrirSegment(long premiereSequence) throws IOException {
+        Path chemin = repertoire.resolve(String.format("audit-%020d.log", premiereSequence));
+        return FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Relit le dernier segment pour retrouver la séquence et le dernier hash;
+     * une ligne incomplète (écriture interrompue) en fin de fichier est tronquée
+     */
+    private void reprendre(Path dernier) throws IOException {
+        byte[] contenu = Files.readAllBytes(dernier);
+        int fin = contenu.length;
+        while (fin > 0 && contenu[fin - 1] != '\n') {
+            fin--;
+        }
+        if (fin < contenu.length) {
+            try (FileChannel canal = FileChannel.open(dernier, StandardOpenOption.WRITE)) {
+                canal.truncate(fin);
+            }
+        }
+        if (fin > 0) {
+            int debut = fin - 1;
+            while (debut > 0 && contenu[debut - 1] != '\n') {
+                debut--;
+            }
+            String[] champs = new String(contenu, debut, fin - 1 - debut, StandardCharsets.UTF_8).split("\\|", -1);
+            sequence = Long.parseLong(champs[0]);
+            dernierHash = champs[8];
+        } else {
+            String nom = dernier.getFileName().toString();
+            sequence = Long.parseLong(nom.substring("audit-".length(), nom.length() - ".log".length())) - 1;
+            if (sequence > 0) {
+                // Segment vide juste après un roulement : reprendre le hash du segment précédent
+                List<Path> segments = segments();
+                if (segments.size() > 1) {
+                    Files.delete(dernier);
+                    reprendre(segments.get(segments.size() - 2));
+                    return;
+                }
+            }
+        }
+        segment = FileChannel.open(dernier, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void appliquerRetention() throws IOException {
+        if (segmentsRetenus <= 0) {
+            return;
+        }
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - segmentsRetenus; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers
+                .filter(p -> p.getFileName().toString().matches("audit-\\d{20}\\.log"))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Recalcule la chaîne de hachage sur les segments conservés
+     * @return la séquence de la première ligne invalide, ou -1 si la chaîne est intègre
+     */
+    public synchronized long verifierChaine() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String precedent = null;
+        for (Path chemin : segments()) {
+            for (String ligne : Files.readAllLines(chemin, StandardCharsets.UTF_8)) {
+                int finContenu = ligne.lastIndexOf('|', ligne.lastIndexOf('|') - 1);
+                String contenu = ligne.substring(0, finContenu);
+                String[] champs = ligne.split("\\|", -1);
+                String hashPrecedent = champs[7];
+                String hash = champs[8];
+                digest.reset();
+                digest.update(hashPrecedent.getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) '|');
+                String attendu = HEX.formatHex(digest.digest(contenu.getBytes(StandardCharsets.UTF_8)));
+                // Le premier segment retenu peut succéder à des segments supprimés par la rétention
+                if ((precedent != null && !precedent.equals(hashPrecedent)) || !attendu.equals(hash)) {
+                    return Long.parseLong(champs[0]);
+                }
+                precedent = hash;
+            }
+        }
+        return -1;
+    }
+
+    public int profondeurFile() { return file.size(); }
+    public long getLotsEcrits() { return lotsEcrits; }
+    public long getEnregistrementsEcrits() { return enregistrementsEcrits; }
+
+    private record Ligne(byte[] octets, String hash) {
+    }
+
+    private static final class EnAttente {
+        final EnregistrementAudit enregistrement;
+        final CompletableFuture<Void> resultat = new CompletableFuture<>();
+
+        EnAttente(EnregistrementAudit enregistrement) {
+            this.enregistrement = enregistrement;
+        }
+    }
+}
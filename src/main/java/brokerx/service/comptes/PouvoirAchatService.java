@@ -0,0 +1,303 @@
+package brokerx.service.comptes;
+
+import brokerx.entity.SensOrdre;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.moteur.EcouteurCarnet;
+import brokerx.moteur.journal.JournalOrdres;
+import brokerx.repository.CompteDeCourtageRepository;
+import brokerx.service.portefeuille.PortefeuilleService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Contrôle pré-trade du pouvoir d'achat (UC-05)
+ *
+ * - réservation des fonds d'un achat avant la persistance de l'ordre, dans le registre en mémoire :
+ *   un refus "Fonds insuffisants" ne touche pas la base
+ * - règlement à chaque exécution (écouteur du moteur) : la réservation est consommée au prix limite,
+ *   l'écart avec le prix d'exécution rendu; une vente crédite le produit; la position du client
+ *   est mise à jour dans son portefeuille
+ * - libération du reliquat annulé (ordre au marché, annulation)
+ * - réconciliation asynchrone des comptes modifiés vers comptes_courtage, par lots : mise à jour
+ *   puis insertion des comptes absents (SQL commun à H2 et PostgreSQL)
+ *
+ * Au démarrage, RepriseOrdresService restaure les comptes et les ordres au carnet (instantané puis
+ * journal des ordres); les autres comptes sont rechargés de la base, tout leur solde en disponible.
+ * Chaque ouverture de compte est journalisée : la reprise repart des mêmes espèces.
+ */
+@Service
+public class PouvoirAchatService implements EcouteurCarnet {
+
+    // Mêmes paramètres dans le même ordre : une ligne du lot sert aux deux requêtes
+    private static final String MISE_A_JOUR = "update comptes_courtage "
+        + "set solde_centimes = ?, reserve_centimes = ?, date_mise_a_jour = ? where client_id = ?";
+    private static final String INSERTION = "insert into comptes_courtage "
+        + "(solde_centimes, reserve_centimes, date_mise_a_jour, client_id, devise) values (?, ?, ?, ?, 'CAD')";
+
+    private final RegistreSoldes registre;
+    private final ConcurrentHashMap<Long, ReservationOrdre> reservations = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final PortefeuilleService portefeuilles;
+    private final JournalEvenements evenements;
+    private final long centimesParTick;
+    private final int tailleLot;
+
+    private final LongAdder comptesReconcilies = new LongAdder();
+    private final LongAdder echecsReconciliation = new LongAdder();
+
+    public PouvoirAchatService(CompteDeCourtageRepository compteRepository,
+                               JdbcTemplate jdbcTemplate,
+                               JournalOrdres journal,
+                               PortefeuilleService portefeuilles,
+                               JournalEvenements evenements,
+                               @Value("${brokerx.moteur.pas-cotation:0.01}") BigDecimal pasCotation,
+                               @Value("${brokerx.comptes.solde-initial:0}") BigDecimal soldeInitial,
+                               @Value("${brokerx.comptes.reconciliation.taille-lot:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.portefeuilles = portefeuilles;
+        this.evenements = evenements;
+        this.centimesParTick = centimes(pasCotation);
+        this.tailleLot = tailleLot;
+        this.registre = new RegistreSoldes(clientId -> compteRepository.findByClientId(clientId)
+            .map(c -> c.getSoldeCentimes())
+            .orElse(null), centimes(soldeInitial),
+            compte -> journal.compteOuvert(compte.getClientId(), compte.getEspecesCentimes()));
+    }
+
+    /**
+     * Bloque les fonds d'un ordre d'achat (rien pour une vente)
+     * @param prixTicks prix maximal payé par unité, en ticks du moteur
+     * @return la réservation, ou null si les fonds sont insuffisants
+     * @throws IllegalArgumentException si le montant dépasse la capacité d'un long
+     */
+    public ReservationOrdre reserver(long clientId, SensOrdre sens, long prixTicks, long quantite) {
+        SoldeCompte compte = registre.compte(clientId);
+        if (sens == SensOrdre.VENTE) {
+            return new ReservationOrdre(compte, false, 0, quantite);
+        }
+        long parUnite;
+        long montant;
+        try {
+            parUnite = Math.multiplyExact(prixTicks, centimesParTick);
+            montant = Math.multiplyExact(parUnite, quantite);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Montant de l'ordre hors limites");
+        }
+        if (!registre.reserver(compte, montant)) {
+            return null;
+        }
+        return new ReservationOrdre(compte, true, parUnite, quantite);
+    }
+
+    /**
+     * Rattache la réservation à l'ordre avant son acheminement au moteur
+     */
+    public void associer(long ordreId, ReservationOrdre reservation) {
+        reservations.put(ordreId, reservation);
+    }
+
+    /**
+     * Rend les fonds d'une réservation jamais transmise au moteur (ordre non persisté)
+     */
+    public void abandonner(ReservationOrdre reservation) {
+        if (reservation.achat()) {
+            registre.liberer(reservation.compte(), reservation.getMontantCentimes());
+        }
+    }
+
+    /**
+     * Rend les fonds d'un ordre persisté que le moteur a refusé : la réservation est détachée de l'ordre
+     */
+    public void abandonner(long ordreId, ReservationOrdre reservation) {
+        if (reservations.remove(ordreId, reservation)) {
+            abandonner(reservation);
+        }
+    }
+
+    /**
+     * Reprise d'un ordre accepté avant le redémarrage (instantané ou journal) : ses fonds sont
+     * bloqués sans contrôle, il a déjà passé le contrôle pré-trade
+     * @throws IllegalStateException si le montant dépasse la capacité d'un long (enregistrement corrompu)
+     */
+    public void reprendreOrdre(long ordreId, long clientId, SensOrdre sens, long prixTicks, long quantite) {
+        if (sens == SensOrdre.VENTE) {
+            reservations.put(ordreId, new ReservationOrdre(registre.compte(clientId), false, 0, quantite));
+            return;
+        }
+        if (!montantValide(prixTicks, quantite)) {
+            throw new IllegalStateException("Ordre " + ordreId + " corrompu : montant hors limites ("
+                + prixTicks + " ticks x " + quantite + ")");
+        }
+        long parUnite = prixTicks * centimesParTick;
+        SoldeCompte compte = registre.compte(clientId);
+        registre.reserverSansControle(compte, parUnite * quantite);
+        reservations.put(ordreId, new ReservationOrdre(compte, true, parUnite, quantite));
+    }
+
+    /**
+     * @return faux si le montant d'un achat à ce prix dépasse la capacité d'un long
+     */
+    public boolean montantValide(long prixTicks, long quantite) {
+        try {
+            Math.multiplyExact(Math.multiplyExact(prixTicks, centimesParTick), quantite);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return false si le compte était déjà en mémoire
+     */
+    public boolean restaurerCompte(long clientId, long especesCentimes) {
+        return registre.restaurer(clientId, especesCentimes);
+    }
+
+    /**
+     * Exécute l'action sans ouverture de compte concurrente (instantané)
+     */
+    public void figer(Runnable action) {
+        registre.figer(action);
+    }
+
+    public void parcourirComptes(Consumer<SoldeCompte> visiteur) {
+        registre.parcourir(visiteur);
+    }
+
+    /**
+     * @return le client d'un ordre en attente, -1 s'il n'a plus de réservation
+     */
+    public long clientDe(long ordreId) {
+        ReservationOrdre reservation = reservations.get(ordreId);
+        return reservation != null ? reservation.compte().getClientId() : -1;
+    }
+
+    @Override
+    public void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite) {
+        regler(symbole, idAgresseur, prixTicks, quantite);
+        regler(symbole, idPassif, prixTicks, quantite);
+    }
+
+    @Override
+    public void annulation(String symbole, long idOrdre, SensOrdre sens, long quantite) {
+        ReservationOrdre reservation = reservations.get(idOrdre);
+        if (reservation == null) {
+            return;
+        }
+        if (reservation.achat()) {
+            registre.liberer(reservation.compte(), reservation.centimesParUnite() * quantite);
+        }
+        if (reservation.consommer(quantite)) {
+            reservations.remove(idOrdre);
+        }
+    }
+
+    private void regler(String symbole, long ordreId, long prixTicks, long quantite) {
+        ReservationOrdre reservation = reservations.get(ordreId);
+        if (reservation == null) {
+            return;
+        }
+        long montant = prixTicks * centimesParTick * quantite;
+        if (reservation.achat()) {
+            registre.reglerAchat(reservation.compte(), reservation.centimesParUnite() * quantite, montant);
+        } else {
+            registre.crediter(reservation.compte(), montant);
+        }
+        portefeuilles.appliquer(reservation.compte().getClientId(), symbole, reservation.achat(), prixTicks, quantite);
+        if (reservation.consommer(quantite)) {
+            reservations.remove(ordreId);
+        }
+    }
+
+    /**
+     * Écrit en base les comptes modifiés depuis le dernier passage, par lots
+     * Un lot en échec est remis en file pour le passage suivant
+     */
+    @Scheduled(fixedDelayString = "${brokerx.comptes.reconciliation.intervalle-ms:1000}")
+    public void reconcilier() {
+        List<SoldeCompte> comptes = new ArrayList<>(tailleLot);
+        List<Object[]> lot = new ArrayList<>(tailleLot);
+        while (true) {
+            comptes.clear();
+            lot.clear();
+            Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+            int n = registre.drainerModifies(compte -> {
+                comptes.add(compte);
+                lot.add(new Object[] {compte.getEspecesCentimes(), compte.getReserveCentimes(), maintenant, compte.getClientId()});
+            }, tailleLot);
+            if (n == 0) {
+                return;
+            }
+            try {
+                ecrire(lot);
+                comptesReconcilies.add(n);
+            } catch (RuntimeException e) {
+                echecsReconciliation.add(n);
+                comptes.forEach(registre::aReconcilier);
+                evenements.evenement(TypeEvenement.ERREUR_RECONCILIATION_COMPTES, "comptes", n, "erreur", e.getMessage());
+                return;
+            }
+            if (n < tailleLot) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Met à jour les comptes du lot, puis insère ceux qui n'ont pas encore de ligne
+     * Les deux écritures portent les valeurs absolues : un lot remis en file peut être rejoué
+     */
+    private void ecrire(List<Object[]> lot) {
+        int[] misAJour = jdbcTemplate.batchUpdate(MISE_A_JOUR, lot);
+        List<Object[]> absents = new ArrayList<>();
+        for (int i = 0; i < misAJour.length; i++) {
+            if (misAJour[i] == 0) {
+                absents.add(lot.get(i));
+            }
+        }
+        if (!absents.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERTION, absents);
+        }
+    }
+
+    @PreDestroy
+    public void fermer() {
+        reconcilier();
+    }
+
+    /**
+     * Disponible en centimes (charge le compte s'il n'est pas encore en mémoire)
+     */
+    public long disponible(long clientId) {
+        return registre.compte(clientId).getDisponibleCentimes();
+    }
+
+    public long getCentimesParTick() { return centimesParTick; }
+    public int getNombreComptes() { return registre.getNombreComptes(); }
+    public int getReservationsActives() { return reservations.size(); }
+    public int getComptesAReconcilier() { return registre.getModifiesEnAttente(); }
+    public long getReservations() { return registre.getReservations(); }
+    public long getRefus() { return registre.getRefus(); }
+    public long getComptesReconcilies() { return comptesReconcilies.sum(); }
+    public long getEchecsReconciliation() { return echecsReconciliation.sum(); }
+
+    private static long centimes(BigDecimal montant) {
+        try {
+            return montant.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Montant non exprimable en centimes : " + montant, e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package brokerx.service.comptes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Registre en mémoire des soldes des comptes de courtage (centimes, sans BigDecimal)
+ *
+ * - réserver, libérer, régler : CAS sur le compte concerné, aucun verrou partagé entre comptes
+ * - un compte est chargé à sa première utilisation, puis reste en mémoire; son ouverture est signalée
+ *   (journal des ordres) avant qu'il soit visible, sous un verrou que l'instantané prend aussi
+ * - les comptes modifiés sont mis en file (une fois par période) pour la réconciliation en base
+ */
+public class RegistreSoldes {
+
+    private final ConcurrentHashMap<Long, SoldeCompte> comptes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SoldeCompte> modifies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tailleModifies = new AtomicInteger();
+    private final LongFunction<Long> chargeur;
+    private final Consumer<SoldeCompte> ouverture;
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder refus = new LongAdder();
+
+    /**
+     * @param chargeur disponible initial d'un compte en centimes, ou null s'il n'existe pas encore en base
+     * @param soldeInitialCentimes disponible d'un compte créé à sa première utilisation
+     */
+    public RegistreSoldes(LongFunction<Long> chargeur, long soldeInitialCentimes) {
+        this(chargeur, soldeInitialCentimes, compte -> { });
+    }
+
+    /**
+     * @param ouverture appelé pour chaque compte chargé, avant qu'il soit visible des autres threads
+     */
+    public RegistreSoldes(LongFunction<Long> chargeur, long soldeInitialCentimes, Consumer<SoldeCompte> ouverture) {
+        this.chargeur = clientId -> {
+            Long solde = chargeur.apply(clientId);
+            return solde != null ? solde : soldeInitialCentimes;
+        };
+        this.ouverture = ouverture;
+    }
+
+    public SoldeCompte compte(long clientId) {
+        SoldeCompte compte = comptes.get(clientId);
+        if (compte != null) {
+            return compte;
+        }
+        // Chargement hors verrou : un accès lent à la base ne bloque ni les autres ouvertures ni l'instantané
+        long especes = chargeur.apply(clientId);
+        synchronized (comptes) {
+            compte = comptes.get(clientId);
+            if (compte == null) {
+                compte = new SoldeCompte(clientId, especes);
+                ouverture.accept(compte);
+                comptes.put(clientId, compte);
+                // Un compte créé (ou dont le réservé a été libéré au chargement) est écrit à la prochaine réconciliation
+                aReconcilier(compte);
+            }
+            return compte;
+        }
+    }
+
+    /**
+     * Recrée un compte depuis un instantané ou le journal, sans signaler d'ouverture
+     * @return false si le compte est déjà en mémoire (il est conservé)
+     */
+    public boolean restaurer(long clientId, long especesCentimes) {
+        synchronized (comptes) {
+            if (comptes.containsKey(clientId)) {
+                return false;
+            }
+            SoldeCompte compte = new SoldeCompte(clientId, especesCentimes);
+            comptes.put(clientId, compte);
+            aReconcilier(compte);
+            return true;
+        }
+    }
+
+    /**
+     * Exécute l'action sans qu'aucun compte ne puisse s'ouvrir pendant ce temps (instantané)
+     */
+    public void figer(Runnable action) {
+        synchronized (comptes) {
+            action.run();
+        }
+    }
+
+    public void parcourir(Consumer<SoldeCompte> visiteur) {
+        comptes.values().forEach(visiteur);
+    }
+
+    /**
+     * @return false si les fonds sont insuffisants (Fonds insuffisants), rien n'est alors réservé
+     */
+    public boolean reserver(SoldeCompte compte, long centimes) {
+        if (centimes < 0) {
+            throw new IllegalArgumentException("Montant négatif : " + centimes);
+        }
+        if (!compte.reserver(centimes)) {
+            refus.increment();
+            return false;
+        }
+        reservations.increment();
+        aReconcilier(compte);
+        return true;
+    }
+
+    /**
+     * Bloque les fonds d'un ordre repris au redémarrage (déjà accepté : jamais refusé)
+     */
+    public void reserverSansControle(SoldeCompte compte, long centimes) {
+        compte.reserverSansControle(centimes);
+        aReconcilier(compte);
+    }
+
+    public void liberer(SoldeCompte compte, long centimes) {
+        compte.liberer(centimes);
+        aReconcilier(compte);
+    }
+
+    public void reglerAchat(SoldeCompte compte, long reserveConsommee, long cout) {
+        compte.reglerAchat(reserveConsommee, cout);
+        aReconcilier(compte);
+    }
+
+    public void crediter(SoldeCompte compte, long centimes) {
+        compte.crediter(centimes);
+        aReconcilier(compte);
+    }
+
+    /**
+     * Vide la file des comptes modifiés
+     * @return le nombre de comptes transmis
+     */
+    public int drainerModifies(Consumer<SoldeCompte> destination, int max) {
+        int n = 0;
+        SoldeCompte compte;
+        while (n < max && (compte = modifies.poll()) != null) {
+            tailleModifies.decrementAndGet();
+            compte.marquerReconcilie();
+            destination.accept(compte);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Met le compte en file de réconciliation s'il n'y est pas déjà
+     */
+    public void aReconcilier(SoldeCompte compte) {
+        if (compte.marquerModifie()) {
+            modifies.add(compte);
+            tailleModifies.incrementAndGet();
+        }
+    }
+
+    public int getNombreComptes() { return comptes.size(); }
+    public int getModifiesEnAttente() { return tailleModifies.get(); }
+    public long getReservations() { return reservations.sum(); }
+    public long getRefus() { return refus.sum(); }
+}
@@ -0,0 +1,39 @@
+package brokerx.service.comptes;
+
+/**
+ * Fonds bloqués pour un ordre, consommés au fil des exécutions
+ * Les exécutions et annulations d'un ordre arrivent sous le verrou de son carnet : un seul écrivain
+ */
+public final class ReservationOrdre {
+
+    private final SoldeCompte compte;
+    private final boolean achat;
+    private final long centimesParUnite;
+    private long quantiteRestante;
+
+    ReservationOrdre(SoldeCompte compte, boolean achat, long centimesParUnite, long quantite) {
+        this.compte = compte;
+        this.achat = achat;
+        this.centimesParUnite = centimesParUnite;
+        this.quantiteRestante = quantite;
+    }
+
+    SoldeCompte compte() { return compte; }
+    boolean achat() { return achat; }
+    long centimesParUnite() { return centimesParUnite; }
+
+    /**
+     * @return true si l'ordre n'a plus de quantité en attente
+     */
+    boolean consommer(long quantite) {
+        quantiteRestante -= quantite;
+        return quantiteRestante <= 0;
+    }
+
+    /**
+     * Montant encore bloqué (0 pour une vente)
+     */
+    public long getMontantCentimes() {
+        return achat ? centimesParUnite * quantiteRestante : 0;
+    }
+}
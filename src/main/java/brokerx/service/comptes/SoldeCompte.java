@@ -0,0 +1,91 @@
+package brokerx.service.comptes;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solde en mémoire d'un compte de courtage, en centimes
+ *
+ * Le disponible ne descend jamais sous zéro : une réservation est un CAS qui échoue plutôt que
+ * de dépasser. Disponible et réservé sont deux compteurs distincts : leur somme peut être
+ * momentanément décalée pendant une opération, jamais le disponible lui-même.
+ * Les espèces (solde comptable) ne bougent qu'au règlement, sous le verrou d'un carnet :
+ * elles sont stables pendant un instantané du moteur.
+ */
+public final class SoldeCompte {
+
+    private final long clientId;
+    private final AtomicLong disponible;
+    private final AtomicLong reserve = new AtomicLong();
+    private final AtomicLong especes;
+
+    // Modifié depuis la dernière réconciliation (une seule mise en file par période)
+    private final AtomicBoolean modifie = new AtomicBoolean();
+
+    SoldeCompte(long clientId, long especesCentimes) {
+        this.clientId = clientId;
+        this.disponible = new AtomicLong(especesCentimes);
+        this.especes = new AtomicLong(especesCentimes);
+    }
+
+    /**
+     * @return false si le disponible ne couvre pas le montant (rien n'est réservé)
+     */
+    boolean reserver(long centimes) {
+        long d;
+        do {
+            d = disponible.get();
+            if (d < centimes) {
+                return false;
+            }
+        } while (!disponible.compareAndSet(d, d - centimes));
+        reserve.addAndGet(centimes);
+        return true;
+    }
+
+    /**
+     * Réserve sans contrôle : reprise d'un ordre déjà accepté avant le redémarrage
+     */
+    void reserverSansControle(long centimes) {
+        disponible.addAndGet(-centimes);
+        reserve.addAndGet(centimes);
+    }
+
+    void liberer(long centimes) {
+        reserve.addAndGet(-centimes);
+        disponible.addAndGet(centimes);
+    }
+
+    /**
+     * Consomme une réservation pour un achat exécuté; l'écart avec le coût réel (meilleur prix) est rendu
+     */
+    void reglerAchat(long reserveConsommee, long cout) {
+        reserve.addAndGet(-reserveConsommee);
+        disponible.addAndGet(reserveConsommee - cout);
+        especes.addAndGet(-cout);
+    }
+
+    void crediter(long centimes) {
+        disponible.addAndGet(centimes);
+        especes.addAndGet(centimes);
+    }
+
+    /**
+     * @return true si le compte vient de passer à modifié (il doit être mis en file de réconciliation)
+     */
+    boolean marquerModifie() {
+        return !modifie.get() && modifie.compareAndSet(false, true);
+    }
+
+    /**
+     * Remis à zéro avant la lecture des soldes : une modification concurrente remettra le compte en file
+     */
+    void marquerReconcilie() {
+        modifie.set(false);
+    }
+
+    public long getClientId() { return clientId; }
+    public long getDisponibleCentimes() { return disponible.get(); }
+    public long getReserveCentimes() { return reserve.get(); }
+    public long getEspecesCentimes() { return especes.get(); }
+}
@@ -0,0 +1,10 @@
+package brokerx.service.importation;
+
+/**
+ * Ligne rejetée par l'import
+ * @param ligne numéro de la ligne dans le fichier
+ * @param email email lu sur la ligne, s'il existe
+ * @param motif raison du rejet
+ */
+public record EchecImport(long ligne, String email, String motif) {
+}
@@ -0,0 +1,27 @@
+package brokerx.service.importation;
+
+import java.util.Locale;
+
+/**
+ * Formats de fichier acceptés par l'import en masse
+ */
+public enum FormatImport {
+    CSV,
+    NDJSON;
+
+    /**
+     * Déduit le format d'un nom de fichier ou d'un type de contenu
+     * @throws IllegalArgumentException si le format n'est pas reconnu
+     */
+    public static FormatImport depuis(String nomOuType) {
+        String valeur = nomOuType == null ? "" : nomOuType.toLowerCase(Locale.ROOT);
+        if (valeur.equals("csv") || valeur.endsWith(".csv") || valeur.startsWith("text/csv")) {
+            return CSV;
+        }
+        if (valeur.equals("ndjson") || valeur.endsWith(".ndjson") || valeur.endsWith(".jsonl")
+                || valeur.startsWith("application/x-ndjson") || valeur.startsWith("application/json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Format d'import non reconnu : " + nomOuType + " (csv ou ndjson attendu)");
+    }
+}
@@ -0,0 +1,72 @@
+package brokerx.service.importation;
+
+import brokerx.service.FiltreExistenceClients;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Import en masse en ligne de commande, sans serveur web :
+ *   java -jar brokerx.jar --import-clients=clients.csv [--import-format=csv|ndjson]
+ * Plusieurs fichiers peuvent être passés (option répétée). Les mots de passe peuvent être fournis
+ * déjà hachés (BCrypt), seule façon d'importer rapidement un gros volume. L'application s'arrête ensuite;
+ * le code de sortie vaut 1 si au moins une ligne a été rejetée.
+ */
+@Component
+public class ImportClientsCommande implements ApplicationRunner {
+
+    public static final String OPTION = "import-clients";
+
+    private final ImportClientsService importClients;
+    private final FiltreExistenceClients filtreExistence;
+    private final ConfigurableApplicationContext contexte;
+
+    public ImportClientsCommande(ImportClientsService importClients, FiltreExistenceClients filtreExistence,
+                                 ConfigurableApplicationContext contexte) {
+        this.importClients = importClients;
+        this.filtreExistence = filtreExistence;
+        this.contexte = contexte;
+    }
+
+    @Override
+    public void run(ApplicationArguments arguments) throws Exception {
+        if (!arguments.containsOption(OPTION)) {
+            return;
+        }
+        // Les runners passent avant ApplicationReadyEvent : construire le filtre d'existence maintenant
+        if (!filtreExistence.isPret()) {
+            filtreExistence.reconstruire();
+        }
+        List<String> formats = arguments.getOptionValues("import-format");
+        boolean rejets = false;
+        for (String fichier : arguments.getOptionValues(OPTION)) {
+            FormatImport format = FormatImport.depuis(formats != null && !formats.isEmpty() ? formats.get(0) : fichier);
+            RapportImport rapport;
+            try (InputStream flux = Files.newInputStream(Path.of(fichier))) {
+                rapport = importClients.importer(flux, format, true);
+            }
+            afficher(fichier, rapport);
+            rejets |= rapport.getRejetees() > 0;
+        }
+        int code = rejets ? 1 : 0;
+        System.exit(SpringApplication.exit(contexte, () -> code));
+    }
+
+    private static void afficher(String fichier, RapportImport rapport) {
+        System.out.printf("Import %s : %d lignes lues, %d insérées, %d rejetées en %d ms (%d lignes/s)%n",
+            fichier, rapport.getLignesLues(), rapport.getInserees(), rapport.getRejetees(),
+            rapport.getDureeMs(), rapport.getLignesParSeconde());
+        for (EchecImport echec : rapport.getEchecs()) {
+            System.out.printf("  ligne %d (%s) : %s%n", echec.ligne(), echec.email(), echec.motif());
+        }
+        if (rapport.isEchecsTronques()) {
+            System.out.printf("  ... %d autres rejets non détaillés%n", rapport.getRejetees() - rapport.getEchecs().size());
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package brokerx.service.importation;
+
+import brokerx.entity.Client;
+import brokerx.entity.StatutInscription;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.repository.ClientRepository;
+import brokerx.repository.IdentifiantsClient;
+import brokerx.service.CompteursStatuts;
+import brokerx.service.FiltreExistenceClients;
+import brokerx.service.HachageMotDePasseService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Import en masse de clients (courtiers partenaires) depuis un flux CSV ou NDJSON
+ *
+ * Le fichier est lu au fil de l'eau et traité par lots :
+ * - validation des contraintes de Client, dédoublonnage dans le fichier puis contre la base
+ *   (filtre d'existence, puis une requête groupée par lot pour les seuls candidats positifs)
+ * - mots de passe en clair hachés sur le pool d'import (HachageMotDePasseService, priorité basse);
+ *   une valeur déjà BCrypt est conservée si l'origine le permet (ligne de commande seulement)
+ * - insertion par batch JDBC : l'identifiant IDENTITY empêche Hibernate de regrouper les insertions
+ *
+ * Les clients importés sont créés au statut ACTIVE, sans session de vérification ni notification :
+ * leur identité a été vérifiée par le courtier partenaire et ils se connectent directement avec le
+ * mot de passe transmis. Au coût BCrypt par défaut, un import volumineux doit fournir des hachages.
+ */
+@Service
+public class ImportClientsService {
+
+    private static final String INSERTION = "insert into clients (prenom, nom, email, telephone, date_naissance, adresse, "
+        + "mot_de_passe, email_verifie, telephone_verifie, date_inscription, status_inscription, version) "
+        + "values (?, ?, ?, ?, ?, ?, ?, false, false, ?, 'ACTIVE', 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final Validator validator;
+    private final ClientRepository clientRepository;
+    private final FiltreExistenceClients filtreExistence;
+    private final CompteursStatuts compteursStatuts;
+    private final HachageMotDePasseService hachageMotDePasse;
+    private final JournalEvenements journal;
+    private final int tailleLot;
+    private final int echecsMax;
+    private final int progressionToutesLesLignes;
+
+    public ImportClientsService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                Validator validator,
+                                ClientRepository clientRepository,
+                                FiltreExistenceClients filtreExistence,
+                                CompteursStatuts compteursStatuts,
+                                HachageMotDePasseService hachageMotDePasse,
+                                JournalEvenements journal,
+                                @Value("${brokerx.import.taille-lot:1000}") int tailleLot,
+                                @Value("${brokerx.import.echecs-max:1000}") int echecsMax,
+                                @Value("${brokerx.import.progression-lignes:100000}") int progressionToutesLesLignes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.clientRepository = clientRepository;
+        this.filtreExistence = filtreExistence;
+        this.compteursStatuts = compteursStatuts;
+        this.hachageMotDePasse = hachageMotDePasse;
+        this.journal = journal;
+        this.tailleLot = tailleLot;
+        this.echecsMax = echecsMax;
+        this.progressionToutesLesLignes = progressionToutesLesLignes;
+    }
+
+    /**
+     * Importe tous les clients du flux (le flux n'est pas fermé)
+     * @param hachagesAcceptes les mots de passe déjà hachés sont conservés; sinon la ligne est rejetée
+     *                         (import HTTP : un hachage fourni échappe au coût configuré et aux règles du mot de passe)
+     * @throws IOException si le flux ne peut pas être lu
+     * @throws brokerx.service.ServiceSatureException si le pool de hachage d'import est saturé (imports concurrents)
+     */
+    public RapportImport importer(InputStream flux, FormatImport format, boolean hachagesAcceptes) throws IOException {
+        RapportImport rapport = new RapportImport(echecsMax);
+        long debut = System.nanoTime();
+
+        // Dédoublonnage interne au fichier : seuls les identifiants sont conservés
+        Set<String> emailsVus = new HashSet<>();
+        Set<String> telephonesVus = new HashSet<>();
+        List<LotEntree> lot = new ArrayList<>(tailleLot);
+
+        LecteurClients lecteur = LecteurClients.ouvrir(format, flux);
+        while (true) {
+            LigneClient ligne;
+            try {
+                ligne = lecteur.suivante();
+            } catch (LigneInvalideException e) {
+                rapport.lue();
+                rapport.rejeter(e.getNumero(), null, e.getMessage());
+                continue;
+            }
+            if (ligne == null) {
+                break;
+            }
+            rapport.lue();
+            if (rapport.getLignesLues() % progressionToutesLesLignes == 0) {
+                long ecoule = System.nanoTime() - debut;
+                journal.evenement(TypeEvenement.IMPORT_PROGRESSION, "lignesLues", rapport.getLignesLues(),
+                    "inserees", rapport.getInserees(), "rejetees", rapport.getRejetees(),
+                    "lignesParSeconde", rapport.getLignesLues() * 1_000_000_000L / Math.max(1, ecoule));
+            }
+
+            Client client;
+            try {
+                client = convertir(ligne);
+            } catch (IllegalArgumentException e) {
+                rapport.rejeter(ligne.numero(), ligne.email(), e.getMessage());
+                continue;
+            }
+            if (!hachagesAcceptes && HachageMotDePasseService.estHachage(client.getMotDePasse())) {
+                rapport.rejeter(ligne.numero(), client.getEmail(), "motDePasse : mot de passe déjà haché refusé, valeur en clair attendue");
+                continue;
+            }
+            Set<ConstraintViolation<Client>> violations = validator.validate(client);
+            if (!violations.isEmpty()) {
+                rapport.rejeter(ligne.numero(), client.getEmail(), violations.stream()
+                    .map(v -> v.getPropertyPath() + " : " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+                continue;
+            }
+            if (emailsVus.contains(client.getEmail())) {
+                rapport.rejeter(ligne.numero(), client.getEmail(), "Email en double dans le fichier");
+                continue;
+            }
+            if (client.getTelephone() != null && !telephonesVus.add(client.getTelephone())) {
+                rapport.rejeter(ligne.numero(), client.getEmail(), "Téléphone en double dans le fichier");
+                continue;
+            }
+            emailsVus.add(client.getEmail());
+
+            lot.add(new LotEntree(ligne.numero(), client));
+            if (lot.size() == tailleLot) {
+                traiterLot(lot, rapport);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            traiterLot(lot, rapport);
+        }
+
+        rapport.terminer(System.nanoTime() - debut);
+        journal.evenement(TypeEvenement.IMPORT_TERMINE, "lignesLues", rapport.getLignesLues(),
+            "inserees", rapport.getInserees(), "rejetees", rapport.getRejetees(),
+            "lignesParSeconde", rapport.getLignesParSeconde());
+        return rapport;
+    }
+
+    private static Client convertir(LigneClient ligne) {
+        Client client = new Client();
+        client.setPrenom(ligne.prenom());
+        client.setNom(ligne.nom());
+        client.setEmail(ligne.email() != null ? ligne.email().trim() : null);
+        client.setTelephone(ligne.telephone() != null && !ligne.telephone().isBlank() ? ligne.telephone().trim() : null);
+        client.setAdresse(ligne.adresse());
+        client.setMotDePasse(ligne.motDePasse());
+        if (ligne.dateNaissance() != null) {
+            try {
+                client.setDateNaissance(LocalDate.parse(ligne.dateNaissance().trim()));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("dateNaissance : format yyyy-MM-dd attendu");
+            }
+        }
+        return client;
+    }
+
+    private void traiterLot(List<LotEntree> lot, RapportImport rapport) {
+        List<LotEntree> aInserer = retirerExistants(lot, rapport);
+        if (aInserer.isEmpty()) {
+            return;
+        }
+
+        // Hachage en parallèle des mots de passe fournis en clair (pool d'import)
+        List<Integer> indices = new ArrayList<>();
+        List<String> clairs = new ArrayList<>();
+        for (int i = 0; i < aInserer.size(); i++) {
+            String motDePasse = aInserer.get(i).client.getMotDePasse();
+            if (!HachageMotDePasseService.estHachage(motDePasse)) {
+                indices.add(i);
+                clairs.add(motDePasse);
+            }
+        }
+        List<String> hachages = hachageMotDePasse.hacherLot(clairs);
+        for (int i = 0; i < indices.size(); i++) {
+            aInserer.get(indices.get(i)).client.setMotDePasse(hachages.get(i));
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        try {
+            transaction.executeWithoutResult(statut ->
+                jdbcTemplate.batchUpdate(INSERTION, aInserer, aInserer.size(),
+                    (instruction, entree) -> lier(instruction, entree.client, maintenant)));
+            for (LotEntree entree : aInserer) {
+                filtreExistence.ajouter(entree.client.getEmail(), entree.client.getTelephone());
+            }
+            rapport.inserees(aInserer.size());
+            compteursStatuts.ajouter(StatutInscription.ACTIVE.getCode(), aInserer.size());
+        } catch (DataIntegrityViolationException e) {
+            // Un doublon est apparu entre le contrôle et l'insertion (inscription concurrente) :
+            // le lot est annulé et rejoué ligne par ligne pour isoler les lignes en conflit
+            for (LotEntree entree : aInserer) {
+                try {
+                    jdbcTemplate.update(INSERTION, instruction -> lier(instruction, entree.client, maintenant));
+                    filtreExistence.ajouter(entree.client.getEmail(), entree.client.getTelephone());
+                    rapport.inserees(1);
+                    compteursStatuts.ajouter(StatutInscription.ACTIVE.getCode(), 1);
+                } catch (DataIntegrityViolationException conflit) {
+                    rapport.rejeter(entree.numero, entree.client.getEmail(), "Email ou téléphone déjà inscrit");
+                }
+            }
+        }
+    }
+
+    /**
+     * Écarte les clients déjà inscrits : une requête par lot et par identifiant, limitée aux candidats positifs du filtre
+     */
+    private List<LotEntree> retirerExistants(List<LotEntree> lot, RapportImport rapport) {
+        Set<String> emails = new HashSet<>();
+        Set<String> telephones = new HashSet<>();
+        for (LotEntree entree : lot) {
+            if (filtreExistence.emailPeutExister(entree.client.getEmail())) {
+                emails.add(entree.client.getEmail());
+            }
+            if (filtreExistence.telephonePeutExister(entree.client.getTelephone())) {
+                telephones.add(entree.client.getTelephone());
+            }
+        }
+        if (emails.isEmpty() && telephones.isEmpty()) {
+            return lot;
+        }
+
+        Set<String> emailsExistants = new HashSet<>();
+        Set<String> telephonesExistants = new HashSet<>();
+        if (!emails.isEmpty()) {
+            for (IdentifiantsClient existant : clientRepository.findByEmailIn(emails)) {
+                emailsExistants.add(existant.getEmail());
+            }
+        }
+        if (!telephones.isEmpty()) {
+            for (IdentifiantsClient existant : clientRepository.findByTelephoneIn(telephones)) {
+                telephonesExistants.add(existant.getTelephone());
+            }
+        }
+        for (String email : emails) {
+            filtreExistence.confirmer(emailsExistants.contains(email));
+        }
+        for (String telephone : telephones) {
+            filtreExistence.confirmer(telephonesExistants.contains(telephone));
+        }
+
+        List<LotEntree> restants = new ArrayList<>(lot.size());
+        for (LotEntree entree : lot) {
+            if (emailsExistants.contains(entree.client.getEmail())) {
+                rapport.rejeter(entree.numero, entree.client.getEmail(), "Un compte avec cet email existe déjà");
+            } else if (entree.client.getTelephone() != null && telephonesExistants.contains(entree.client.getTelephone())) {
+                rapport.rejeter(entree.numero, entree.client.getEmail(), "Un compte avec ce numéro de téléphone existe déjà");
+            } else {
+                restants.add(entree);
+            }
+        }
+        return restants;
+    }
+
+    private static void lier(PreparedStatement instruction, Client client, LocalDateTime dateInscription) throws SQLException {
+        instruction.setString(1, client.getPrenom());
+        instruction.setString(2, client.getNom());
+        instruction.setString(3, client.getEmail());
+        if (client.getTelephone() != null) {
+            instruction.setString(4, client.getTelephone());
+        } else {
+            instruction.setNull(4, Types.VARCHAR);
+        }
+        instruction.setDate(5, Date.valueOf(client.getDateNaissance()));
+        instruction.setString(6, client.getAdresse());
+        instruction.setString(7, client.getMotDePasse());
+        instruction.setTimestamp(8, Timestamp.valueOf(dateInscription));
+    }
+
+    private record LotEntree(long numero, Client client) {
+    }
+}
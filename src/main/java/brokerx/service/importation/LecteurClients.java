@@ -0,0 +1,28 @@
+package brokerx.service.importation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture en flux d'un fichier d'import : une ligne à la fois, jamais le fichier entier en mémoire
+ */
+public interface LecteurClients extends Closeable {
+
+    /**
+     * @return la ligne suivante, ou null en fin de fichier
+     * @throws LigneInvalideException si la ligne ne peut pas être lue (les suivantes restent lisibles)
+     */
+    LigneClient suivante() throws IOException;
+
+    static LecteurClients ouvrir(FormatImport format, InputStream flux) throws IOException {
+        BufferedReader lecteur = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8), 64 * 1024);
+        return switch (format) {
+            case CSV -> new LecteurCsv(lecteur);
+            case NDJSON -> new LecteurNdjson(lecteur);
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package brokerx.service.importation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lecteur CSV (RFC 4180) : séparateur virgule ou point-virgule, champs entre guillemets,
+ * guillemets doublés et retours à la ligne dans un champ entre guillemets.
+ * La première ligne est l'en-tête; les colonnes sont reconnues par leur nom, dans n'importe quel ordre.
+ */
+class LecteurCsv implements LecteurClients {
+
+    private final BufferedReader lecteur;
+    private final char separateur;
+    private final int[] colonnes = new int[7];
+    private final List<String> champs = new ArrayList<>(16);
+    private final StringBuilder champ = new StringBuilder(64);
+    private long numeroLigne;
+
+    LecteurCsv(BufferedReader lecteur) throws IOException {
+        this.lecteur = lecteur;
+        String entete = lecteur.readLine();
+        if (entete == null) {
+            throw new LigneInvalideException(1, "Fichier vide : en-tête attendu");
+        }
+        numeroLigne = 1;
+        if (!entete.isEmpty() && entete.charAt(0) == '\uFEFF') {
+            entete = entete.substring(1);
+        }
+        this.separateur = entete.indexOf(';') >= 0 && entete.indexOf(',') < 0 ? ';' : ',';
+        decouper(entete);
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < champs.size(); i++) {
+            positions.put(champs.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        String[] noms = {"prenom", "nom", "email", "telephone", "datenaissance", "adresse", "motdepasse"};
+        for (int i = 0; i < noms.length; i++) {
+            colonnes[i] = positions.getOrDefault(noms[i], -1);
+        }
+        if (colonnes[2] < 0) {
+            throw new LigneInvalideException(1, "Colonne email absente de l'en-tête");
+        }
+    }
+
+    @Override
+    public LigneClient suivante() throws IOException {
+        String ligne;
+        do {
+            ligne = lecteur.readLine();
+            if (ligne == null) {
+                return null;
+            }
+            numeroLigne++;
+        } while (ligne.isBlank());
+
+        long numero = numeroLigne;
+        while (!decouper(ligne)) {
+            // Guillemet ouvert : le champ continue sur la ligne suivante
+            String suite = lecteur.readLine();
+            if (suite == null) {
+                throw new LigneInvalideException(numero, "Guillemet non fermé en fin de fichier");
+            }
+            numeroLigne++;
+            ligne = ligne + "\n" + suite;
+        }
+        return new LigneClient(numero, valeur(0), valeur(1), valeur(2), valeur(3), valeur(4), valeur(5), valeur(6));
+    }
+
+    private String valeur(int colonne) {
+        int position = colonnes[colonne];
+        if (position < 0 || position >= champs.size()) {
+            return null;
+        }
+        String valeur = champs.get(position).trim();
+        return valeur.isEmpty() ? null : valeur;
+    }
+
+    /**
+     * Découpe un enregistrement dans champs
+     * @return false si un champ entre guillemets n'est pas terminé
+     */
+    private boolean decouper(String ligne) {
+        champs.clear();
+        champ.setLength(0);
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"') {
+                    if (i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                        champ.append('"');
+                        i++;
+                    } else {
+                        entreGuillemets = false;
+                    }
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        if (entreGuillemets) {
+            return false;
+        }
+        champs.add(champ.toString());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lecteur.close();
+    }
+}
@@ -0,0 +1,71 @@
+package brokerx.service.importation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Lecteur NDJSON : un objet JSON par ligne, parcouru au fil des jetons (sans arbre ni réflexion)
+ * Les clés inconnues sont ignorées.
+ */
+class LecteurNdjson implements LecteurClients {
+
+    private static final JsonFactory FABRIQUE = new JsonFactory();
+
+    private final BufferedReader lecteur;
+    private long numeroLigne;
+
+    LecteurNdjson(BufferedReader lecteur) {
+        this.lecteur = lecteur;
+    }
+
+    @Override
+    public LigneClient suivante() throws IOException {
+        String ligne;
+        do {
+            ligne = lecteur.readLine();
+            if (ligne == null) {
+                return null;
+            }
+            numeroLigne++;
+        } while (ligne.isBlank());
+
+        String prenom = null, nom = null, email = null, telephone = null;
+        String dateNaissance = null, adresse = null, motDePasse = null;
+        try (JsonParser parser = FABRIQUE.createParser(ligne)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new LigneInvalideException(numeroLigne, "Objet JSON attendu");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String cle = parser.currentName();
+                JsonToken jeton = parser.nextToken();
+                if (jeton == JsonToken.START_OBJECT || jeton == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String valeur = jeton == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (cle) {
+                    case "prenom" -> prenom = valeur;
+                    case "nom" -> nom = valeur;
+                    case "email" -> email = valeur;
+                    case "telephone" -> telephone = valeur;
+                    case "dateNaissance" -> dateNaissance = valeur;
+                    case "adresse" -> adresse = valeur;
+                    case "motDePasse" -> motDePasse = valeur;
+                    default -> { }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new LigneInvalideException(numeroLigne, "JSON invalide : " + e.getOriginalMessage());
+        }
+        return new LigneClient(numeroLigne, prenom, nom, email, telephone, dateNaissance, adresse, motDePasse);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lecteur.close();
+    }
+}
@@ -0,0 +1,15 @@
+package brokerx.service.importation;
+
+/**
+ * Ligne brute lue dans un fichier d'import, avant conversion et validation
+ * @param numero numéro de la ligne dans le fichier (enregistrement pour le CSV)
+ */
+public record LigneClient(long numero,
+                          String prenom,
+                          String nom,
+                          String email,
+                          String telephone,
+                          String dateNaissance,
+                          String adresse,
+                          String motDePasse) {
+}
@@ -0,0 +1,18 @@
+package brokerx.service.importation;
+
+/**
+ * Ligne illisible (CSV mal formé, JSON invalide) : l'import la rejette et continue
+ */
+public class LigneInvalideException extends RuntimeException {
+
+    private final long numero;
+
+    public LigneInvalideException(long numero, String message) {
+        super(message);
+        this.numero = numero;
+    }
+
+    public long getNumero() {
+        return numero;
+    }
+}
@@ -0,0 +1,56 @@
+package brokerx.service.importation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bilan d'un import en masse : compteurs, débit soutenu et détail des lignes rejetées
+ * Le détail est borné; au-delà seuls les compteurs continuent d'augmenter.
+ */
+public class RapportImport {
+
+    private final int echecsMax;
+    private final List<EchecImport> echecs = new ArrayList<>();
+    private long lignesLues;
+    private long inserees;
+    private long rejetees;
+    private long dureeNanos;
+
+    public RapportImport(int echecsMax) {
+        this.echecsMax = echecsMax;
+    }
+
+    void lue() {
+        lignesLues++;
+    }
+
+    void inserees(int nombre) {
+        inserees += nombre;
+    }
+
+    void rejeter(long ligne, String email, String motif) {
+        rejetees++;
+        if (echecs.size() < echecsMax) {
+            echecs.add(new EchecImport(ligne, email, motif));
+        }
+    }
+
+    void terminer(long dureeNanos) {
+        this.dureeNanos = dureeNanos;
+    }
+
+    public long getLignesLues() { return lignesLues; }
+    public long getInserees() { return inserees; }
+    public long getRejetees() { return rejetees; }
+    public long getDureeMs() { return dureeNanos / 1_000_000; }
+    public List<EchecImport> getEchecs() { return Collections.unmodifiableList(echecs); }
+    public boolean isEchecsTronques() { return rejetees > echecs.size(); }
+
+    /**
+     * Débit soutenu sur l'ensemble de l'import (lignes lues par seconde)
+     */
+    public long getLignesParSeconde() {
+        return dureeNanos == 0 ? 0 : lignesLues * 1_000_000_000L / dureeNanos;
+    }
+}
@@ -0,0 +1,383 @@
+package brokerx.service.marche;
+
+import brokerx.entity.SensOrdre;
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import brokerx.moteur.EcouteurCarnet;
+import brokerx.moteur.MoteurAppariement;
+import brokerx.moteur.ProfondeurCarnet;
+import brokerx.service.ServiceSatureException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Diffusion des données de marché (meilleurs niveaux par symbole) en Server-Sent Events
+ *
+ * - l'écouteur du moteur ne fait que marquer le symbole modifié (aucune lecture du carnet sous son verrou);
+ *   un symbole n'a d'état que tant qu'il a des abonnés ou un carnet : l'état d'un symbole sans carnet
+ *   est retiré avec son dernier abonné (les symboles demandés ne s'accumulent pas)
+ * - un thread de publication relit, à intervalle fixe, la profondeur des symboles modifiés ayant des
+ *   abonnés et sérialise un seul message JSON partagé par tous leurs abonnés
+ * - fusion (conflation) : chaque abonné garde au plus un message en attente par symbole; un nouvel état
+ *   remplace l'ancien tant que l'envoi précédent n'est pas terminé. Un client lent reçoit le dernier
+ *   état, jamais un arriéré, et ne ralentit ni le moteur ni les autres abonnés
+ * - les écritures sur la connexion se font sur des threads virtuels : une écriture bloquée par un client
+ *   lent n'immobilise aucun thread du serveur ni le thread de publication
+ */
+@Service
+public class DiffusionMarche implements EcouteurCarnet {
+
+    private static final Pattern SYMBOLE = Pattern.compile("^[A-Z0-9.]{1,12}$");
+    private static final int SYMBOLES_MAX = 20;
+    private static final long PROPRE = Long.MIN_VALUE;
+
+    private final ObjectProvider<MoteurAppariement> moteurs;
+    private final JournalEvenements journal;
+    private final int niveaux;
+    private final int abonnesMax;
+    private final long intervalleMs;
+    private final long battementMs;
+    private final long delaiAbonnementMs;
+
+    private final ConcurrentHashMap<String, EtatSymbole> symboles = new ConcurrentHashMap<>();
+    private final Set<Abonne> abonnes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nombreAbonnes = new AtomicInteger();
+    private final ExecutorService envois = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService publication = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "diffusion-marche");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder publications = new LongAdder();
+    private final LongAdder messagesEnvoyes = new LongAdder();
+    private final LongAdder messagesFusionnes = new LongAdder();
+    private final LongAdder echecsEnvoi = new LongAdder();
+    private final LongAdder latenceTotaleNs = new LongAdder();
+    private final AtomicLong latenceMaxNs = new AtomicLong();
+
+    // Le moteur reçoit ce service comme écouteur : il est résolu à la première utilisation
+    private volatile MoteurAppariement moteur;
+
+    public DiffusionMarche(ObjectProvider<MoteurAppariement> moteurs,
+                           JournalEvenements journal,
+                           @Value("${brokerx.marche.niveaux:5}") int niveaux,
+                           @Value("${brokerx.marche.abonnes-max:10000}") int abonnesMax,
+                           @Value("${brokerx.marche.intervalle-ms:50}") long intervalleMs,
+                           @Value("${brokerx.marche.battement-ms:15000}") long battementMs,
+                           @Value("${brokerx.marche.delai-abonnement-ms:1800000}") long delaiAbonnementMs) {
+        this.moteurs = moteurs;
+        this.journal = journal;
+        this.niveaux = niveaux;
+        this.abonnesMax = abonnesMax;
+        this.intervalleMs = intervalleMs;
+        this.battementMs = battementMs;
+        this.delaiAbonnementMs = delaiAbonnementMs;
+    }
+
+    @PostConstruct
+    public void demarrer() {
+        publication.scheduleWithFixedDelay(this::publier, intervalleMs, intervalleMs, TimeUnit.MILLISECONDS);
+        publication.scheduleWithFixedDelay(this::battre, battementMs, battementMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        publication.shutdownNow();
+        for (Abonne abonne : abonnes) {
+            retirer(abonne);
+            abonne.emetteur.complete();
+        }
+        envois.shutdown();
+    }
+
+    /**
+     * Ouvre un flux SSE pour ces symboles; l'état courant de chacun est envoyé à la prochaine publication
+     * @throws IllegalArgumentException si la liste de symboles est vide, trop longue ou invalide
+     * @throws ServiceSatureException si le nombre maximal d'abonnés est atteint
+     */
+    public SseEmitter abonner(Collection<String> demandes) {
+        Set<String> normalises = new LinkedHashSet<>();
+        for (String demande : demandes) {
+            for (String symbole : demande.split(",")) {
+                String s = symbole.trim().toUpperCase(Locale.ROOT);
+                if (!SYMBOLE.matcher(s).matches()) {
+                    throw new IllegalArgumentException("Symbole invalide : " + symbole);
+                }
+                normalises.add(s);
+            }
+        }
+        if (normalises.isEmpty() || normalises.size() > SYMBOLES_MAX) {
+            throw new IllegalArgumentException("De 1 à " + SYMBOLES_MAX + " symboles par abonnement");
+        }
+        if (nombreAbonnes.incrementAndGet() > abonnesMax) {
+            nombreAbonnes.decrementAndGet();
+            throw new ServiceSatureException("Nombre maximal d'abonnés aux données de marché atteint");
+        }
+
+        SseEmitter emetteur = new SseEmitter(delaiAbonnementMs);
+        Abonne abonne = new Abonne(emetteur, normalises);
+        abonnes.add(abonne);
+        emetteur.onCompletion(() -> retirer(abonne));
+        emetteur.onTimeout(() -> retirer(abonne));
+        emetteur.onError(e -> retirer(abonne));
+        for (String symbole : normalises) {
+            // Ajout atomique avec la création : un retrait concurrent ne peut pas détacher cet abonné
+            EtatSymbole etat = symboles.compute(symbole, (s, existant) -> {
+                EtatSymbole e = existant != null ? existant : new EtatSymbole(s);
+                e.abonnes.add(abonne);
+                return e;
+            });
+            // L'état courant part à la prochaine publication, dans l'ordre des versions
+            etat.marquer();
+        }
+        return emetteur;
+    }
+
+    @Override
+    public void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite) {
+        marquer(symbole);
+    }
+
+    @Override
+    public void auCarnet(String symbole, long idOrdre, SensOrdre sens, long prixTicks, long quantite) {
+        marquer(symbole);
+    }
+
+    @Override
+    public void annulation(String symbole, long idOrdre, SensOrdre sens, long quantite) {
+        marquer(symbole);
+    }
+
+    /**
+     * Sans abonné, rien à publier : l'état sera marqué à l'abonnement
+     */
+    private void marquer(String symbole) {
+        EtatSymbole etat = symboles.get(symbole);
+        if (etat != null) {
+            etat.marquer();
+        }
+    }
+
+    /**
+     * Un message par symbole modifié ayant des abonnés, partagé par tous ses abonnés
+     */
+    void publier() {
+        try {
+            for (EtatSymbole etat : symboles.values()) {
+                if (etat.abonnes.isEmpty()) {
+                    continue;
+                }
+                long premierChangement = etat.premierChangementNs.getAndSet(PROPRE);
+                if (premierChangement == PROPRE) {
+                    continue;
+                }
+                Message message = message(etat, premierChangement);
+                publications.increment();
+                for (Abonne abonne : etat.abonnes) {
+                    abonne.publier(etat.symbole, message);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Une exception arrêterait la tâche planifiée
+            journal.evenement(TypeEvenement.ERREUR_DIFFUSION_MARCHE, "operation", "publication", "erreur", String.valueOf(e));
+        }
+    }
+
+    /**
+     * Commentaire SSE vers les abonnés sans message en attente : détecte les connexions fermées
+     * et traverse les intermédiaires qui coupent les connexions inactives
+     */
+    void battre() {
+        for (Abonne abonne : abonnes) {
+            abonne.publier("", Message.BATTEMENT);
+        }
+    }
+
+    private MoteurAppariement moteur() {
+        MoteurAppariement m = moteur;
+        if (m == null) {
+            m = moteurs.getObject();
+            moteur = m;
+        }
+        return m;
+    }
+
+    private Message message(EtatSymbole etat, long premierChangementNs) {
+        ProfondeurCarnet profondeur = moteur().profondeur(etat.symbole, niveaux);
+        // Horodatage de la première modification non publiée, sur l'horloge murale (microsecondes)
+        Instant maintenant = Instant.now();
+        long horodatageUs = maintenant.getEpochSecond() * 1_000_000 + maintenant.getNano() / 1000
+            - (System.nanoTime() - premierChangementNs) / 1000;
+        StringBuilder json = new StringBuilder(128 + 64 * niveaux)
+            .append("{\"symbole\":\"").append(etat.symbole)
+            .append("\",\"version\":").append(etat.version.incrementAndGet())
+            .append(",\"horodatageUs\":").append(horodatageUs)
+            .append(",\"achats\":[");
+        if (profondeur != null) {
+            niveauxJson(json, profondeur.prixAchat(), profondeur.quantiteAchat());
+        }
+        json.append("],\"ventes\":[");
+        if (profondeur != null) {
+            niveauxJson(json, profondeur.prixVente(), profondeur.quantiteVente());
+        }
+        return new Message(json.append("]}").toString(), premierChangementNs);
+    }
+
+    private void niveauxJson(StringBuilder json, long[] prix, long[] quantite) {
+        for (int i = 0; i < prix.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"prix\":").append(moteur().versPrix(prix[i]).toPlainString())
+                .append(",\"quantite\":").append(quantite[i]).append('}');
+        }
+    }
+
+    private void retirer(Abonne abonne) {
+        abonne.ferme = true;
+        if (abonnes.remove(abonne)) {
+            nombreAbonnes.decrementAndGet();
+            for (String symbole : abonne.symboles) {
+                // Retrait atomique avec l'abonnement : l'état n'est supprimé que s'il est resté sans abonné
+                symboles.computeIfPresent(symbole, (s, etat) -> {
+                    etat.abonnes.remove(abonne);
+                    return etat.abonnes.isEmpty() && !moteur().aCarnet(s) ? null : etat;
+                });
+            }
+        }
+    }
+
+    public int getNombreAbonnes() { return nombreAbonnes.get(); }
+    public int getNombreSymboles() { return symboles.size(); }
+    public long getPublications() { return publications.sum(); }
+    public long getMessagesEnvoyes() { return messagesEnvoyes.sum(); }
+    public long getMessagesFusionnes() { return messagesFusionnes.sum(); }
+    public long getEchecsEnvoi() { return echecsEnvoi.sum(); }
+    public double getLatenceTotaleSecondes() { return latenceTotaleNs.sum() / 1e9; }
+    public double getLatenceMaxSecondes() { return latenceMaxNs.get() / 1e9; }
+
+    /**
+     * @param premierChangementNs première modification couverte par ce message (System.nanoTime)
+     */
+    private record Message(String json, long premierChangementNs) {
+        static final Message BATTEMENT = new Message(null, 0);
+    }
+
+    private static final class EtatSymbole {
+        private final String symbole;
+        private final AtomicLong premierChangementNs = new AtomicLong(PROPRE);
+        private final AtomicLong version = new AtomicLong();
+        private final CopyOnWriteArrayList<Abonne> abonnes = new CopyOnWriteArrayList<>();
+
+        EtatSymbole(String symbole) {
+            this.symbole = symbole;
+        }
+
+        /**
+         * Appelé sous le verrou du carnet : une simple lecture tant que le symbole est déjà marqué
+         */
+        void marquer() {
+            if (premierChangementNs.get() == PROPRE) {
+                premierChangementNs.compareAndSet(PROPRE, System.nanoTime());
+            }
+        }
+    }
+
+    private final class Abonne {
+        private final SseEmitter emetteur;
+        private final Set<String> symboles;
+        // Dernier message non envoyé par symbole (la clé vide porte le battement)
+        private final ConcurrentHashMap<String, Message> enAttente = new ConcurrentHashMap<>();
+        private final AtomicBoolean enEnvoi = new AtomicBoolean();
+        private volatile boolean ferme;
+
+        Abonne(SseEmitter emetteur, Set<String> symboles) {
+            this.emetteur = emetteur;
+            this.symboles = symboles;
+        }
+
+        void publier(String symbole, Message message) {
+            if (ferme) {
+                return;
+            }
+            if (message == Message.BATTEMENT) {
+                if (!enAttente.isEmpty() || enAttente.putIfAbsent(symbole, message) != null) {
+                    return;
+                }
+            } else if (enAttente.put(symbole, message) != null) {
+                messagesFusionnes.increment();
+            }
+            if (enEnvoi.compareAndSet(false, true)) {
+                try {
+                    envois.execute(this::vider);
+                } catch (RejectedExecutionException e) {
+                    enEnvoi.set(false);
+                }
+            }
+        }
+
+        /**
+         * Envoie les messages en attente jusqu'à épuisement; un seul envoi à la fois par abonné
+         */
+        private void vider() {
+            try {
+                while (!ferme) {
+                    boolean envoye = false;
+                    for (String symbole : enAttente.keySet()) {
+                        Message message = enAttente.remove(symbole);
+                        if (message != null) {
+                            envoyer(message);
+                            envoye = true;
+                        }
+                    }
+                    if (!envoye) {
+                        enEnvoi.set(false);
+                        // Un message arrivé entre le dernier passage et la remise à faux relance l'envoi ici
+                        if (enAttente.isEmpty() || !enEnvoi.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                echecsEnvoi.increment();
+                retirer(this);
+                emetteur.completeWithError(e);
+            }
+        }
+
+        private void envoyer(Message message) throws IOException {
+            if (message == Message.BATTEMENT) {
+                emetteur.send(SseEmitter.event().comment(""));
+                return;
+            }
+            emetteur.send(SseEmitter.event().name("carnet").data(message.json()));
+            long latence = System.nanoTime() - message.premierChangementNs();
+            messagesEnvoyes.increment();
+            latenceTotaleNs.add(latence);
+            latenceMaxNs.accumulateAndGet(latence, Math::max);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package brokerx.service.notification;
+
+/**
+ * Canaux d'envoi des notifications
+ */
+public enum CanalNotification {
+    EMAIL,
+    SMS
+}
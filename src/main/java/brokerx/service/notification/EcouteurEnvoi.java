@@ -0,0 +1,17 @@
+package brokerx.service.notification;
+
+/**
+ * Rappel invoqué à chaque changement de statut d'une notification
+ * Les beans Spring implémentant cette interface sont enregistrés automatiquement
+ */
+@FunctionalInterface
+public interface EcouteurEnvoi {
+
+    /**
+     * @param notification la notification concernée
+     * @param statut le nouveau statut
+     * @param tentatives le nombre de tentatives effectuées
+     * @param latenceNanos le temps écoulé depuis la mise en file
+     */
+    void surStatut(Notification notification, StatutEnvoi statut, int tentatives, long latenceNanos);
+}
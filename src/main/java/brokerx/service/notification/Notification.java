@@ -0,0 +1,11 @@
+package brokerx.service.notification;
+
+/**
+ * Message à envoyer par un canal (email ou SMS)
+ * @param canal le canal d'envoi
+ * @param destinataire l'adresse email ou le numéro de téléphone
+ * @param sujet l'objet du message (null pour un SMS)
+ * @param corps le contenu du message
+ */
+public record Notification(CanalNotification canal, String destinataire, String sujet, String corps) {
+}
@@ -0,0 +1,229 @@
+package brokerx.service.notification;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * File d'envoi asynchrone des notifications
+ *
+ * - une file bornée par canal, vidée par des workers en threads virtuels
+ * - envoi par lots d'un même canal
+ * - nouvelles tentatives avec délai exponentiel, puis lettres mortes
+ * - rappel de statut pour chaque notification
+ */
+@Component
+public class NotificationDispatcher {
+
+    private final TransportNotification transport;
+    private final List<EcouteurEnvoi> ecouteurs;
+    private final int capaciteFile;
+    private final int workersParCanal;
+    private final int tailleLot;
+    private final int tentativesMax;
+    private final long delaiInitialMs;
+    private final int capaciteLettresMortes;
+
+    private final Map<CanalNotification, BlockingQueue<Envoi>> files = new EnumMap<>(CanalNotification.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService planificateurTentatives =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("notification-tentatives").factory());
+    private final ConcurrentLinkedDeque<LettreMorte> lettresMortes = new ConcurrentLinkedDeque<>();
+
+    private final LongAdder envoyees = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder rejetees = new LongAdder();
+    private final LongAdder latenceTotaleNanos = new LongAdder();
+    private final AtomicLong latenceMaxNanos = new AtomicLong();
+    private volatile boolean actif = true;
+
+    public NotificationDispatcher(TransportNotification transport,
+                                  List<EcouteurEnvoi> ecouteurs,
+                                  @Value("${brokerx.notifications.capacite-file:10000}") int capaciteFile,
+                                  @Value("${brokerx.notifications.workers-par-canal:2}") int workersParCanal,
+                                  @Value("${brokerx.notifications.taille-lot:50}") int tailleLot,
+                                  @Value("${brokerx.notifications.tentatives-max:5}") int tentativesMax,
+                                  @Value("${brokerx.notifications.delai-initial-ms:200}") long delaiInitialMs,
+                                  @Value("${brokerx.notifications.capacite-lettres-mortes:1000}") int capaciteLettresMortes) {
+        this.transport = transport;
+        this.ecouteurs = List.copyOf(ecouteurs);
+        this.capaciteFile = capaciteFile;
+        this.workersParCanal = workersParCanal;
+        this.tailleLot = tailleLot;
+        this.tentativesMax = tentativesMax;
+        this.delaiInitialMs = delaiInitialMs;
+        this.capaciteLettresMortes = capaciteLettresMortes;
+        for (CanalNotification canal : CanalNotification.values()) {
+            files.put(canal, new ArrayBlockingQueue<>(capaciteFile));
+        }
+    }
+
+    @PostConstruct
+    public void demarrer() {
+        for (CanalNotification canal : CanalNotification.values()) {
+            for (int i = 0; i < workersParCanal; i++) {
+                workers.add(Thread.ofVirtual()
+                        .name("notification-" + canal.name().toLowerCase() + "-" + i)
+                        .start(() -> boucleEnvoi(canal)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        actif = false;
+        planificateurTentatives.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Met une notification en file sans attendre l'envoi
+     * @return false si la file du canal est pleine (notification rejetée)
+     */
+    public boolean soumettre(Notification notification) {
+        return soumettre(notification, null);
+    }
+
+    /**
+     * Met une notification en file avec un rappel propre à cet envoi
+     */
+    public boolean soumettre(Notification notification, EcouteurEnvoi rappel) {
+        Envoi envoi = new Envoi(notification, rappel, System.nanoTime());
+        if (!files.get(notification.canal()).offer(envoi)) {
+            rejetees.increment();
+            notifier(envoi, StatutEnvoi.REJETE_FILE_PLEINE);
+            return false;
+        }
+        return true;
+    }
+
+    private void boucleEnvoi(CanalNotification canal) {
+        BlockingQueue<Envoi> file = files.get(canal);
+        List<Envoi> lot = new ArrayList<>(tailleLot);
+        List<Notification> notifications = new ArrayList<>(tailleLot);
+        while (actif) {
+            try {
+                lot.add(file.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            file.drainTo(lot, tailleLot - 1);
+            for (Envoi envoi : lot) {
+                notifications.add(envoi.notification);
+            }
+            envoyerLot(canal, lot, notifications);
+            lot.clear();
+            notifications.clear();
+        }
+    }
+
+    private void envoyerLot(CanalNotification canal, List<Envoi> lot, List<Notification> notifications) {
+        List<Notification> enEchec;
+        try {
+            enEchec = transport.envoyerLot(canal, notifications);
+        } catch (Exception e) {
+            enEchec = notifications;
+        }
+        for (Envoi envoi : lot) {
+            envoi.tentatives++;
+            if (enEchec.isEmpty() || !enEchec.contains(envoi.notification)) {
+                long latence = System.nanoTime() - envoi.misEnFileNanos;
+                envoyees.increment();
+                latenceTotaleNanos.add(latence);
+                latenceMaxNanos.accumulateAndGet(latence, Math::max);
+                notifier(envoi, StatutEnvoi.ENVOYE);
+            } else {
+                replanifier(envoi);
+            }
+        }
+    }
+
+    private void replanifier(Envoi envoi) {
+        if (envoi.tentatives >= tentativesMax || !actif) {
+            echecs.increment();
+            lettresMortes.addLast(new LettreMorte(envoi.notification, envoi.tentatives, System.currentTimeMillis()));
+            while (lettresMortes.size() > capaciteLettresMortes) {
+                lettresMortes.pollFirst();
+            }
+            notifier(envoi, StatutEnvoi.ECHEC_DEFINITIF);
+            return;
+        }
+        notifier(envoi, StatutEnvoi.NOUVELLE_TENTATIVE);
+        long delai = delaiInitialMs << Math.min(envoi.tentatives - 1, 16);
+        planificateurTentatives.schedule(() -> {
+            if (!files.get(envoi.notification.canal()).offer(envoi)) {
+                replanifier(envoi);
+            }
+        }, delai, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifier(Envoi envoi, StatutEnvoi statut) {
+        long latence = System.nanoTime() - envoi.misEnFileNanos;
+        if (envoi.rappel != null) {
+            appeler(envoi.rappel, envoi, statut, latence);
+        }
+        for (EcouteurEnvoi ecouteur : ecouteurs) {
+            appeler(ecouteur, envoi, statut, latence);
+        }
+    }
+
+    private static void appeler(EcouteurEnvoi ecouteur, Envoi envoi, StatutEnvoi statut, long latence) {
+        try {
+            ecouteur.surStatut(envoi.notification, statut, envoi.tentatives, latence);
+        } catch (RuntimeException e) {
+            // Un écouteur défaillant ne doit pas bloquer la file d'envoi
+        }
+    }
+
+    public int profondeurFile(CanalNotification canal) { return files.get(canal).size(); }
+    public int profondeurTotale() {
+        int total = 0;
+        for (BlockingQueue<Envoi> file : files.values()) {
+            total += file.size();
+        }
+        return total;
+    }
+    public int getCapaciteFile() { return capaciteFile; }
+    public long getEnvoyees() { return envoyees.sum(); }
+    public long getEchecs() { return echecs.sum(); }
+    public long getRejetees() { return rejetees.sum(); }
+    public long getLatenceMaxNanos() { return latenceMaxNanos.get(); }
+    public long getLatenceMoyenneNanos() {
+        long n = envoyees.sum();
+        return n == 0 ? 0 : latenceTotaleNanos.sum() / n;
+    }
+    public List<LettreMorte> getLettresMortes() { return List.copyOf(lettresMortes); }
+
+    /**
+     * Notification abandonnée après épuisement des tentatives
+     */
+    public record LettreMorte(Notification notification, int tentatives, long horodatageMs) {
+    }
+
+    private static final class Envoi {
+        final Notification notification;
+        final EcouteurEnvoi rappel;
+        final long misEnFileNanos;
+        int tentatives;
+
+        Envoi(Notification notification, EcouteurEnvoi rappel, long misEnFileNanos) {
+            this.notification = notification;
+            this.rappel = rappel;
+            this.misEnFileNanos = misEnFileNanos;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package brokerx.service.notification;
+
+/**
+ * Statuts rapportés aux écouteurs d'envoi
+ */
+public enum StatutEnvoi {
+    ENVOYE,
+    NOUVELLE_TENTATIVE,
+    ECHEC_DEFINITIF,
+    REJETE_FILE_PLEINE
+}
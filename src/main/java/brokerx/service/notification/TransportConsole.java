@@ -0,0 +1,32 @@
+package brokerx.service.notification;
+
+import brokerx.journalisation.JournalEvenements;
+import brokerx.journalisation.TypeEvenement;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Transport simulé pour le développement : chaque message devient un événement NOTIFICATION_SIMULEE
+ * (le corps est masqué sauf si brokerx.evenements.masquage=false)
+ */
+@Component
+@ConditionalOnProperty(name = "brokerx.notifications.transport", havingValue = "console", matchIfMissing = true)
+public class TransportConsole implements TransportNotification {
+
+    private final JournalEvenements journal;
+
+    public TransportConsole(JournalEvenements journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public List<Notification> envoyerLot(CanalNotification canal, List<Notification> lot) {
+        for (Notification notification : lot) {
+            journal.evenement(TypeEvenement.NOTIFICATION_SIMULEE, "canal", canal.name(),
+                "destinataire", notification.destinataire(), "sujet", notification.sujet(),
+                "corps", notification.corps());
+        }
+        return List.of();
+    }
+}
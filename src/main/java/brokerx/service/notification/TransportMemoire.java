@@ -0,0 +1,67 @@
+package brokerx.service.notification;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Predicate;
+
+/**
+ * Transport en mémoire (substitut local SMTP/SMS pour les tests et la charge)
+ * Conserve les derniers messages envoyés et peut simuler des pannes
+ */
+@Component
+@ConditionalOnProperty(name = "brokerx.notifications.transport", havingValue = "memoire")
+public class TransportMemoire implements TransportNotification {
+
+    private static final int CAPACITE = 10_000;
+
+    private final ConcurrentLinkedDeque<Notification> envoyees = new ConcurrentLinkedDeque<>();
+    private volatile Predicate<Notification> echec = notification -> false;
+
+    @Override
+    public List<Notification> envoyerLot(CanalNotification canal, List<Notification> lot) {
+        List<Notification> echecs = new ArrayList<>();
+        for (Notification notification : lot) {
+            if (echec.test(notification)) {
+                echecs.add(notification);
+                continue;
+            }
+            envoyees.addLast(notification);
+            if (envoyees.size() > CAPACITE) {
+                envoyees.pollFirst();
+            }
+        }
+        return echecs;
+    }
+
+    /**
+     * Simule une panne du fournisseur pour les notifications correspondantes
+     */
+    public void simulerEchec(Predicate<Notification> echec) {
+        this.echec = echec;
+    }
+
+    /**
+     * Dernière notification envoyée à ce destinataire par ce canal
+     */
+    public Optional<Notification> derniere(CanalNotification canal, String destinataire) {
+        for (var it = envoyees.descendingIterator(); it.hasNext(); ) {
+            Notification notification = it.next();
+            if (notification.canal() == canal && notification.destinataire().equals(destinataire)) {
+                return Optional.of(notification);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<Notification> envoyees() {
+        return List.copyOf(envoyees);
+    }
+
+    public void vider() {
+        envoyees.clear();
+    }
+}
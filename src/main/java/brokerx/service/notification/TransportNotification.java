@@ -0,0 +1,19 @@
+package brokerx.service.notification;
+
+import java.util.List;
+
+/**
+ * Fournisseur d'envoi effectif (SMTP, passerelle SMS, simulation...)
+ * Les notifications sont transmises par lots d'un même canal
+ */
+public interface TransportNotification {
+
+    /**
+     * Envoie un lot de notifications
+     * @param canal le canal commun à tout le lot
+     * @param lot les notifications à envoyer
+     * @return les notifications dont l'envoi a échoué (liste vide si tout est parti)
+     * @throws Exception si le fournisseur est indisponible; tout le lot sera retenté
+     */
+    List<Notification> envoyerLot(CanalNotification canal, List<Notification> lot) throws Exception;
+}
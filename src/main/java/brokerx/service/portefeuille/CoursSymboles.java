@@ -0,0 +1,85 @@
+package brokerx.service.portefeuille;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Identifiants denses des symboles et dernier cours de chacun (ticks)
+ *
+ * Un symbole reçoit un identifiant (0, 1, 2...) à sa première apparition; les cours sont dans un
+ * tableau indexé par cet identifiant : valoriser une position est un accès direct, sans table de hachage.
+ * Seule l'attribution d'un identifiant prend un verrou (agrandissement des tableaux); un cours
+ * écrit pendant un agrandissement est réécrit dans le nouveau tableau (génération, voir coter).
+ */
+final class CoursSymboles {
+
+    private final ConcurrentHashMap<String, Integer> identifiants = new ConcurrentHashMap<>();
+    private volatile String[] noms = new String[64];
+    private volatile AtomicLongArray cours = new AtomicLongArray(64);
+    // Impaire pendant un agrandissement (copie puis publication du nouveau tableau)
+    private volatile int generation;
+    private int nombre;
+
+    int identifiant(String symbole) {
+        Integer id = identifiants.get(symbole);
+        return id != null ? id : attribuer(symbole);
+    }
+
+    private synchronized int attribuer(String symbole) {
+        Integer existant = identifiants.get(symbole);
+        if (existant != null) {
+            return existant;
+        }
+        int id = nombre;
+        if (id == noms.length) {
+            generation++;
+            AtomicLongArray agrandi = new AtomicLongArray(id * 2);
+            for (int i = 0; i < id; i++) {
+                agrandi.set(i, cours.get(i));
+            }
+            noms = Arrays.copyOf(noms, id * 2);
+            cours = agrandi;
+            generation++;
+        }
+        noms[id] = symbole;
+        nombre++;
+        identifiants.put(symbole, id);
+        return id;
+    }
+
+    String nom(int id) {
+        return noms[id];
+    }
+
+    /**
+     * @return le dernier cours en ticks, 0 si le symbole n'a jamais été échangé
+     */
+    long cours(int id) {
+        AtomicLongArray c = cours;
+        return id < c.length() ? c.get(id) : 0;
+    }
+
+    /**
+     * Appelé sous le verrou du carnet du symbole : un seul écrivain par identifiant
+     * L'écriture compte si aucun agrandissement n'a commencé avant qu'elle soit faite (génération paire
+     * et inchangée) : la copie, postérieure, la reprend. Sinon elle est refaite après la publication.
+     */
+    void coter(int id, long prixTicks) {
+        while (true) {
+            int g = generation;
+            if ((g & 1) == 0) {
+                cours.set(id, prixTicks);
+                if (generation == g) {
+                    return;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    int getNombre() {
+        return identifiants.size();
+    }
+}
@@ -0,0 +1,14 @@
+package brokerx.service.portefeuille;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Portefeuille d'un client à un instant donné : positions (ouvertes ou soldées avec P&L réalisé) et totaux
+ */
+public record InstantanePortefeuille(long clientId,
+                                     List<PositionPortefeuille> positions,
+                                     BigDecimal valeurMarche,
+                                     BigDecimal pnlLatent,
+                                     BigDecimal pnlRealise) {
+}
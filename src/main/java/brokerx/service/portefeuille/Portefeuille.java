@@ -0,0 +1,202 @@
+package brokerx.service.portefeuille;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Positions d'un client, tenues à chaque exécution (montants en ticks × quantité)
+ *
+ * - une position par symbole, dans des tableaux primitifs parallèles; table d'adressage ouvert
+ *   identifiant de symbole -> emplacement (aucun objet par position, aucune boîte)
+ * - quantité signée (négative : position vendeuse), coût de revient signé du même signe,
+ *   P&L réalisé par position au coût moyen
+ * - écritures sous le verrou d'écriture (un seul écrivain à la fois par compte, les exécutions
+ *   d'un client pouvant venir de plusieurs carnets); lectures optimistes sans verrou, validées
+ *   par l'estampille et refaites sous verrou de lecture seulement en cas d'écriture concurrente
+ */
+public final class Portefeuille {
+
+    private static final int VIDE = -1;
+
+    private final long clientId;
+    private final StampedLock verrou = new StampedLock();
+
+    private int[] symbole = new int[8];
+    private long[] quantite = new long[8];
+    private long[] cout = new long[8];
+    private long[] realise = new long[8];
+    private int taille;
+    private int[] table = nouvelleTable(16);
+
+    Portefeuille(long clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * Applique une exécution au coût moyen : la part qui réduit la position réalise le P&L,
+     * le reste ouvre (ou retourne) la position au prix d'exécution
+     * @param quantiteSignee positive pour un achat, négative pour une vente
+     */
+    void appliquer(int idSymbole, long quantiteSignee, long prixTicks) {
+        long estampille = verrou.writeLock();
+        try {
+            int i = emplacement(idSymbole);
+            long q = quantite[i];
+            long reste = quantiteSignee;
+            if (q != 0 && (q > 0) != (reste > 0)) {
+                long fermee = Math.min(Math.abs(reste), Math.abs(q));
+                long signe = q > 0 ? 1 : -1;
+                long coutRetire = cout[i] / Math.abs(q) * fermee + cout[i] % Math.abs(q) * fermee / Math.abs(q);
+                realise[i] += signe * fermee * prixTicks - coutRetire;
+                cout[i] -= coutRetire;
+                q -= signe * fermee;
+                reste += signe * fermee;
+            }
+            quantite[i] = q + reste;
+            cout[i] += reste * prixTicks;
+        } finally {
+            verrou.unlockWrite(estampille);
+        }
+    }
+
+    /**
+     * Restaure une position (reprise d'un instantané)
+     */
+    void restaurer(int idSymbole, long q, long coutTicks, long realiseTicks) {
+        long estampille = verrou.writeLock();
+        try {
+            int i = emplacement(idSymbole);
+            quantite[i] = q;
+            cout[i] = coutTicks;
+            realise[i] = realiseTicks;
+        } finally {
+            verrou.unlockWrite(estampille);
+        }
+    }
+
+    /**
+     * Valeur de marché et P&L latent de toutes les positions, sans verrou ni allocation
+     * @return {valeur de marché, P&L latent, P&L réalisé} en ticks × quantité, dans le tableau fourni
+     */
+    long[] valoriser(CoursSymboles cours, long[] resultat) {
+        long estampille = verrou.tryOptimisticRead();
+        valoriserSansVerrou(cours, resultat);
+        if (!verrou.validate(estampille)) {
+            estampille = verrou.readLock();
+            try {
+                valoriserSansVerrou(cours, resultat);
+            } finally {
+                verrou.unlockRead(estampille);
+            }
+        }
+        return resultat;
+    }
+
+    private void valoriserSansVerrou(CoursSymboles cours, long[] resultat) {
+        // Tableaux lus une fois : un agrandissement concurrent est détecté par validate()
+        int n = taille;
+        int[] s = symbole;
+        long[] q = quantite;
+        long[] c = cout;
+        long[] r = realise;
+        long valeur = 0;
+        long latent = 0;
+        long realiseTotal = 0;
+        for (int i = 0; i < n && i < s.length && i < q.length && i < c.length && i < r.length; i++) {
+            long marque = cours.cours(s[i]);
+            // Symbole jamais échangé depuis le démarrage : valorisé au coût de revient
+            long v = marque != 0 ? q[i] * marque : c[i];
+            valeur += v;
+            latent += v - c[i];
+            realiseTotal += r[i];
+        }
+        resultat[0] = valeur;
+        resultat[1] = latent;
+        resultat[2] = realiseTotal;
+    }
+
+    /**
+     * Copie cohérente des positions : {symbole, quantité, coût, réalisé} par ligne
+     */
+    Lignes copier() {
+        long estampille = verrou.tryOptimisticRead();
+        Lignes lignes = copierSansVerrou();
+        if (!verrou.validate(estampille)) {
+            estampille = verrou.readLock();
+            try {
+                lignes = copierSansVerrou();
+            } finally {
+                verrou.unlockRead(estampille);
+            }
+        }
+        return lignes;
+    }
+
+    private Lignes copierSansVerrou() {
+        int n = taille;
+        int[] s = symbole;
+        long[] q = quantite;
+        long[] c = cout;
+        long[] r = realise;
+        n = Math.min(n, Math.min(s.length, Math.min(q.length, Math.min(c.length, r.length))));
+        return new Lignes(Arrays.copyOf(s, n), Arrays.copyOf(q, n), Arrays.copyOf(c, n), Arrays.copyOf(r, n));
+    }
+
+    record Lignes(int[] symbole, long[] quantite, long[] cout, long[] realise) {
+    }
+
+    /**
+     * @return l'emplacement de la position du symbole, créé s'il n'existe pas (sous le verrou d'écriture)
+     */
+    private int emplacement(int idSymbole) {
+        int masque = table.length - 1;
+        int h = melanger(idSymbole) & masque;
+        while (table[h] != VIDE) {
+            if (symbole[table[h]] == idSymbole) {
+                return table[h];
+            }
+            h = (h + 1) & masque;
+        }
+        if (taille == symbole.length) {
+            int capacite = taille * 2;
+            symbole = Arrays.copyOf(symbole, capacite);
+            quantite = Arrays.copyOf(quantite, capacite);
+            cout = Arrays.copyOf(cout, capacite);
+            realise = Arrays.copyOf(realise, capacite);
+        }
+        int i = taille;
+        symbole[i] = idSymbole;
+        taille++;
+        table[h] = i;
+        // Taux de remplissage maximal 1/2
+        if (taille * 2 > table.length) {
+            redimensionner();
+        }
+        return i;
+    }
+
+    private void redimensionner() {
+        int[] nouvelle = nouvelleTable(table.length * 2);
+        int masque = nouvelle.length - 1;
+        for (int i = 0; i < taille; i++) {
+            int h = melanger(symbole[i]) & masque;
+            while (nouvelle[h] != VIDE) {
+                h = (h + 1) & masque;
+            }
+            nouvelle[h] = i;
+        }
+        table = nouvelle;
+    }
+
+    private static int[] nouvelleTable(int capacite) {
+        int[] t = new int[capacite];
+        Arrays.fill(t, VIDE);
+        return t;
+    }
+
+    private static int melanger(int cle) {
+        return cle * 0x9E3779B9;
+    }
+
+    public long getClientId() { return clientId; }
+}
@@ -0,0 +1,140 @@
+package brokerx.service.portefeuille;
+
+import brokerx.entity.SensOrdre;
+import brokerx.moteur.EcouteurCarnet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Portefeuilles des clients, tenus en mémoire à chaque exécution réglée
+ *
+ * - positions mises à jour une exécution à la fois (PouvoirAchatService au règlement, sous le verrou
+ *   du carnet) : quantité, coût moyen, P&L réalisé; aucun recalcul depuis l'historique des ordres
+ * - dernier cours de chaque symbole tenu comme écouteur du moteur : le P&L latent est calculé à la
+ *   lecture, une multiplication par position
+ * - lectures sans verrou (copie optimiste du portefeuille); au redémarrage, positions et cours sont
+ *   restaurés par RepriseOrdresService (instantané), les exécutions rejouées font le reste
+ */
+@Service
+public class PortefeuilleService implements EcouteurCarnet {
+
+    private final CoursSymboles cours = new CoursSymboles();
+    private final ConcurrentHashMap<Long, Portefeuille> portefeuilles = new ConcurrentHashMap<>();
+    private final BigDecimal pasCotation;
+
+    private final LongAdder executionsAppliquees = new LongAdder();
+    private final LongAdder valorisations = new LongAdder();
+
+    public PortefeuilleService(@Value("${brokerx.moteur.pas-cotation:0.01}") BigDecimal pasCotation) {
+        this.pasCotation = pasCotation;
+    }
+
+    @Override
+    public void execution(String symbole, long idAgresseur, long idPassif, SensOrdre sensAgresseur, long prixTicks, long quantite) {
+        cours.coter(cours.identifiant(symbole), prixTicks);
+    }
+
+    /**
+     * Applique la part d'une exécution revenant à un client (appelé sous le verrou du carnet)
+     */
+    public void appliquer(long clientId, String symbole, boolean achat, long prixTicks, long quantite) {
+        portefeuille(clientId).appliquer(cours.identifiant(symbole), achat ? quantite : -quantite, prixTicks);
+        executionsAppliquees.increment();
+    }
+
+    /**
+     * @return le portefeuille valorisé au dernier cours, null si le client n'a aucune exécution
+     */
+    public InstantanePortefeuille instantane(long clientId) {
+        Portefeuille portefeuille = portefeuilles.get(clientId);
+        if (portefeuille == null) {
+            return null;
+        }
+        valorisations.increment();
+        Portefeuille.Lignes lignes = portefeuille.copier();
+        List<PositionPortefeuille> positions = new ArrayList<>(lignes.symbole().length);
+        long valeurTotale = 0;
+        long latentTotal = 0;
+        long realiseTotal = 0;
+        for (int i = 0; i < lignes.symbole().length; i++) {
+            long q = lignes.quantite()[i];
+            long cout = lignes.cout()[i];
+            long marque = cours.cours(lignes.symbole()[i]);
+            long valeur = marque != 0 ? q * marque : cout;
+            valeurTotale += valeur;
+            latentTotal += valeur - cout;
+            realiseTotal += lignes.realise()[i];
+            positions.add(new PositionPortefeuille(cours.nom(lignes.symbole()[i]), q,
+                q != 0 ? montant(cout).divide(BigDecimal.valueOf(q), pasCotation.scale() + 4, RoundingMode.HALF_EVEN) : BigDecimal.ZERO,
+                marque != 0 ? montant(marque) : null,
+                montant(valeur), montant(valeur - cout), montant(lignes.realise()[i])));
+        }
+        return new InstantanePortefeuille(clientId, positions, montant(valeurTotale), montant(latentTotal),
+            montant(realiseTotal));
+    }
+
+    /**
+     * Valorisation au dernier cours, sans allocation
+     * @param resultat reçoit {valeur de marché, P&L latent, P&L réalisé} en ticks × quantité
+     * @return false si le client n'a aucune exécution
+     */
+    public boolean valoriser(long clientId, long[] resultat) {
+        Portefeuille portefeuille = portefeuilles.get(clientId);
+        if (portefeuille == null) {
+            return false;
+        }
+        valorisations.increment();
+        portefeuille.valoriser(cours, resultat);
+        return true;
+    }
+
+    /**
+     * Visite les positions et les derniers cours (instantané : carnets figés, aucune exécution en cours)
+     */
+    public void parcourir(VisiteurPortefeuilles visiteur) {
+        for (int id = 0; id < cours.getNombre(); id++) {
+            visiteur.cours(cours.nom(id), cours.cours(id));
+        }
+        portefeuilles.forEach((clientId, portefeuille) -> {
+            Portefeuille.Lignes lignes = portefeuille.copier();
+            for (int i = 0; i < lignes.symbole().length; i++) {
+                visiteur.position(clientId, cours.nom(lignes.symbole()[i]), lignes.quantite()[i], lignes.cout()[i],
+                    lignes.realise()[i]);
+            }
+        });
+    }
+
+    public void restaurerCours(String symbole, long prixTicks) {
+        cours.coter(cours.identifiant(symbole), prixTicks);
+    }
+
+    public void restaurerPosition(long clientId, String symbole, long quantite, long coutTicks, long realiseTicks) {
+        portefeuille(clientId).restaurer(cours.identifiant(symbole), quantite, coutTicks, realiseTicks);
+    }
+
+    private Portefeuille portefeuille(long clientId) {
+        Portefeuille portefeuille = portefeuilles.get(clientId);
+        return portefeuille != null ? portefeuille : portefeuilles.computeIfAbsent(clientId, Portefeuille::new);
+    }
+
+    private BigDecimal montant(long ticks) {
+        return BigDecimal.valueOf(ticks).multiply(pasCotation);
+    }
+
+    public interface VisiteurPortefeuilles {
+        void cours(String symbole, long prixTicks);
+
+        void position(long clientId, String symbole, long quantite, long coutTicks, long realiseTicks);
+    }
+
+    public int getNombrePortefeuilles() { return portefeuilles.size(); }
+    public int getNombreSymboles() { return cours.getNombre(); }
+    public long getExecutionsAppliquees() { return executionsAppliquees.sum(); }
+    public long getValorisations() { return valorisations.sum(); }
+}
@@ -0,0 +1,17 @@
+package brokerx.service.portefeuille;
+
+import java.math.BigDecimal;
+
+/**
+ * Position d'un client sur un symbole, valorisée au dernier cours
+ * @param quantite négative pour une position vendeuse
+ * @param cours null si le symbole n'a pas été échangé depuis le démarrage (valorisé au coût de revient)
+ */
+public record PositionPortefeuille(String symbole,
+                                   long quantite,
+                                   BigDecimal prixMoyen,
+                                   BigDecimal cours,
+                                   BigDecimal valeurMarche,
+                                   BigDecimal pnlLatent,
+                                   BigDecimal pnlRealise) {
+}
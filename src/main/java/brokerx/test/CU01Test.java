@@ -1,11 +1,20 @@
 package brokerx.test;
 
 import brokerx.entity.Client;
+import brokerx.entity.StatutInscription;
+import brokerx.journalisation.JournalEvenements;
 import brokerx.service.AuditService;
 import brokerx.service.NotificationService;
+import brokerx.service.SessionVerificationStore;
+import brokerx.service.audit.JournalAudit;
+import brokerx.service.notification.CanalNotification;
+import brokerx.service.notification.NotificationDispatcher;
+import brokerx.service.notification.TransportMemoire;
 
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Tests unitaires complets pour le CU01 - Inscription et Validation de Compte
@@ -35,6 +44,8 @@ public class CU01Test {
     private static final String CODE_EMAIL_TEST = "123456";
     private static final String CODE_OTP_TEST = "9876";
     
+    private static JournalAudit journalAudit;
+    
     /**
      * Crée un client de test avec des données valides
      */
@@ -48,11 +59,23 @@ public class CU01Test {
         client.setMotDePasse(MOT_DE_PASSE_TEST);
         client.setDateNaissance(LocalDate.of(1990, 5, 15));
         client.setAdresse("123 Rue de la Paix, Montréal");
-        client.setStatusInscription("PENDING");
+        client.setStatut(StatutInscription.PENDING);
         client.setDateInscription(LocalDateTime.now());
         return client;
     }
 
+    /**
+     * Journal d'audit dans un répertoire temporaire
+     */
+    private static JournalAudit journalAuditTest() throws Exception {
+        if (journalAudit == null) {
+            String repertoire = Files.createTempDirectory("brokerx-audit-test").toString();
+            journalAudit = new JournalAudit(repertoire, 1024 * 1024, 0, 64, 1024, JournalEvenements.parDefaut());
+            journalAudit.ouvrir();
+        }
+        return journalAudit;
+    }
+
     // =====================================
     // TESTS CRITÈRE 1 : SAISIE DES INFORMATIONS
     // =====================================
@@ -138,10 +161,23 @@ public class CU01Test {
             // Vérifier que les codes sont différents
             assert !codeEmail.equals(codeOTP) : "Codes email et OTP doivent être différents";
             
-            // Simuler l'envoi d'email (dans la vraie implémentation, ceci envoie un email)
-            NotificationService notificationService = new NotificationService();
-            notificationService.envoyerEmailVerification(client.getEmail(), client.getPrenom(), codeEmail);
-            // Note: SMS non testé ici car la méthode n'existe pas dans l'implémentation actuelle
+            // Envoi via la file asynchrone avec un transport en mémoire
+            TransportMemoire transport = new TransportMemoire();
+            NotificationDispatcher dispatcher = new NotificationDispatcher(transport, List.of(), 100, 1, 10, 3, 10, 10);
+            dispatcher.demarrer();
+            NotificationService notificationService = new NotificationService(dispatcher, JournalEvenements.parDefaut());
+            String jetonLien = SessionVerificationStore.nouveauJetonLien();
+            assert notificationService.envoyerEmailVerification(client.getEmail(), codeEmail, jetonLien, client.getPrenom()) : "Email mis en file";
+            assert notificationService.envoyerSMSOTP(client.getTelephone(), codeOTP, client.getPrenom()) : "SMS mis en file";
+            
+            // Attendre la sortie de file (envoi asynchrone)
+            for (int i = 0; i < 100 && dispatcher.getEnvoyees() < 2; i++) {
+                Thread.sleep(10);
+            }
+            dispatcher.arreter();
+            assert transport.derniere(CanalNotification.EMAIL, client.getEmail())
+                .map(n -> n.corps().contains(codeEmail) && n.corps().contains("/verification-email?jeton=" + jetonLien))
+                .orElse(false) : "Email reçu avec le code et le lien";
             
             System.out.println("   ✅ Email et SMS de vérification envoyés avec codes : " + codeEmail + " / " + codeOTP);
             return true;
@@ -159,12 +195,12 @@ public class CU01Test {
         System.out.println("🧪 TEST CU01-4 : Format du lien de vérification");
         
         try {
-            String codeTest = "654321";
-            String lienAttendu = "http://localhost:8080/verification-email?code=" + codeTest;
+            String jetonTest = SessionVerificationStore.nouveauJetonLien();
+            String lienAttendu = "http://localhost:8080/verification-email?jeton=" + jetonTest;
             
             // Dans la vraie implémentation, le lien est généré par NotificationService
-            assert lienAttendu.contains("/verification-email?code=") : "Lien contient la route correcte";
-            assert lienAttendu.contains(codeTest) : "Lien contient le code de vérification";
+            assert lienAttendu.contains("/verification-email?jeton=") : "Lien contient la route correcte";
+            assert jetonTest.matches("[0-9a-f]{32}") : "Jeton de lien imprévisible (UUID aléatoire en hexadécimal)";
             assert lienAttendu.startsWith("http://localhost:8080") : "Lien utilise la bonne base URL";
             
             System.out.println("   ✅ Format du lien de vérification valide : " + lienAttendu);
@@ -219,7 +255,7 @@ public class CU01Test {
         System.out.println("🧪 TEST CU01-6 : Audit de la vérification email");
         
         try {
-            AuditService auditService = new AuditService();
+            AuditService auditService = new AuditService(journalAuditTest(), JournalEvenements.parDefaut());
             
             // Test audit avec succès
             auditService.journaliserVerificationEmail(EMAIL_TEST, CODE_EMAIL_TEST, true);
@@ -227,6 +263,13 @@ public class CU01Test {
             // Test audit avec échec
             auditService.journaliserVerificationEmail(EMAIL_TEST, "999999", false);
             
+            // Les deux enregistrements sont chaînés et la chaîne reste intègre
+            auditService.journaliserActivationCompte(EMAIL_TEST, "COMPTE_ACTIVE", "Test");
+            for (int i = 0; i < 100 && journalAudit.getEnregistrementsEcrits() < 3; i++) {
+                Thread.sleep(10);
+            }
+            assert journalAudit.verifierChaine() == -1 : "Chaîne de hachage intègre";
+            
             System.out.println("   ✅ Audit de vérification email effectué");
             return true;
             
@@ -249,14 +292,14 @@ public class CU01Test {
         
         try {
             Client client = creerClientTest();
-            AuditService auditService = new AuditService();
+            AuditService auditService = new AuditService(journalAuditTest(), JournalEvenements.parDefaut());
             
             // Vérifier le statut initial
             assert "PENDING".equals(client.getStatusInscription()) : "Statut initial PENDING";
             assert !client.isEmailVerifie() : "Email initialement non vérifié";
             
             // Simuler l'activation
-            client.setStatusInscription("ACTIVE");
+            client.setStatut(StatutInscription.ACTIVE);
             client.setEmailVerifie(true);
             
             // Générer l'audit d'activation (simulation)
@@ -287,7 +330,7 @@ public class CU01Test {
             Client client1 = creerClientTest();
             Client client2 = creerClientTest();
             
-            AuditService auditService = new AuditService();
+            AuditService auditService = new AuditService(journalAuditTest(), JournalEvenements.parDefaut());
             
             // Générer les audits pour les deux clients (simulation)
             String auditId1 = "AUDIT_" + System.currentTimeMillis() + "_" + Math.abs(client1.hashCode());
@@ -319,7 +362,7 @@ public class CU01Test {
         
         try {
             Client client = creerClientTest();
-            client.setStatusInscription("ACTIVE");
+            client.setStatut(StatutInscription.ACTIVE);
             client.setEmailVerifie(true);
             
             // Simuler la recherche par email (sans repository)
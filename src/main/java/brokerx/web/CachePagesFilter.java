@@ -0,0 +1,235 @@
+package brokerx.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des pages rendues identiques pour tout visiteur anonyme (accueil, connexion, inscription)
+ *
+ * - HTML rendu une fois par page (l'application n'est pas traduite), conservé avec sa variante gzip;
+ *   chaque représentation a son ETag fort (empreinte du contenu, suffixe -gz pour gzip) :
+ *   un changement de template ou de ressource change l'ETag
+ * - If-None-Match correspondant à l'une ou l'autre : 304 sans corps ni rendu; sinon corps servi depuis le cache
+ * - contourné dès qu'une session existe ou est demandée (attributs flash après redirection,
+ *   identifiant de session) et jamais conservé si le rendu a créé une session, posé un cookie,
+ *   consommé des attributs flash ou n'a pas produit une page HTML 200
+ * - désactivé quand les templates ne sont pas en cache (profil dev) : le HTML suivrait les modifications
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class CachePagesFilter extends OncePerRequestFilter {
+
+    private final ConcurrentHashMap<String, PageRendue> pages = new ConcurrentHashMap<>();
+    private final PoolDeflaters pool;
+    private final boolean actif;
+    private final Set<String> chemins;
+    private final Duration duree;
+    private final int capaciteMax;
+    private final Clock horloge;
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder absences = new LongAdder();
+    private final LongAdder nonModifiees = new LongAdder();
+    private final LongAdder contournements = new LongAdder();
+    private final LongAdder rendus = new LongAdder();
+    private final LongAdder dureeRendusNanos = new LongAdder();
+
+    @Autowired
+    public CachePagesFilter(PoolDeflaters pool,
+                            @Value("${brokerx.pages.cache.actif:true}") boolean actif,
+                            @Value("${spring.thymeleaf.cache:true}") boolean cacheTemplates,
+                            @Value("${brokerx.pages.cache.chemins:/,/connexion,/inscription}") Set<String> chemins,
+                            @Value("${brokerx.pages.cache.duree:PT10M}") Duration duree,
+                            @Value("${brokerx.pages.cache.capacite-max:64}") int capaciteMax) {
+        this(pool, actif && cacheTemplates, chemins, duree, capaciteMax, Clock.systemUTC());
+    }
+
+    public CachePagesFilter(PoolDeflaters pool, boolean actif, Set<String> chemins, Duration duree,
+                            int capaciteMax, Clock horloge) {
+        this.pool = pool;
+        this.actif = actif;
+        this.chemins = Set.copyOf(chemins);
+        this.duree = duree;
+        this.capaciteMax = capaciteMax;
+        this.horloge = horloge;
+    }
+
+    /**
+     * Page rendue et ses représentations (HTML, gzip si plus court)
+     */
+    private record PageRendue(byte[] html, byte[] gzip, String etag, String etagGzip, String typeContenu,
+                              String langue, Instant expiration) {
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !actif || !"GET".equals(request.getMethod()) || request.getQueryString() != null
+            || !chemins.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // Session : attributs flash ou état propre au visiteur possibles, la page n'est pas partagée
+        if (request.getRequestedSessionId() != null || request.getSession(false) != null) {
+            contournements.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String cle = request.getRequestURI();
+        PageRendue page = pages.get(cle);
+        if (page != null && !horloge.instant().isBefore(page.expiration())) {
+            pages.remove(cle, page);
+            page = null;
+        }
+        if (page != null) {
+            succes.increment();
+        } else {
+            absences.increment();
+            ContentCachingResponseWrapper capture = new ContentCachingResponseWrapper(response);
+            long debut = System.nanoTime();
+            chain.doFilter(request, capture);
+            rendus.increment();
+            dureeRendusNanos.add(System.nanoTime() - debut);
+            if (!partageable(request, capture)) {
+                contournements.increment();
+                capture.copyBodyToResponse();
+                return;
+            }
+            page = creer(capture);
+            // Au-delà de la capacité, la page est servie sans être conservée
+            if (pages.size() < capaciteMax) {
+                pages.put(cle, page);
+            }
+        }
+        servir(request, response, page);
+    }
+
+    /**
+     * Vide le cache (les pages sont rendues à nouveau à la requête suivante)
+     */
+    public void vider() {
+        pages.clear();
+    }
+
+    private static boolean partageable(HttpServletRequest request, ContentCachingResponseWrapper capture) {
+        Map<?, ?> flash = (Map<?, ?>) request.getAttribute(DispatcherServlet.INPUT_FLASH_MAP_ATTRIBUTE);
+        String typeContenu = capture.getContentType();
+        String cacheControl = capture.getHeader(HttpHeaders.CACHE_CONTROL);
+        return capture.getStatus() == HttpServletResponse.SC_OK
+            && !request.isAsyncStarted()
+            && typeContenu != null && typeContenu.startsWith("text/html")
+            && request.getSession(false) == null
+            && capture.getHeader(HttpHeaders.SET_COOKIE) == null
+            && (cacheControl == null || !cacheControl.contains("no-store"))
+            && (flash == null || flash.isEmpty());
+    }
+
+    private PageRendue creer(ContentCachingResponseWrapper capture) throws IOException {
+        byte[] html = capture.getContentAsByteArray();
+        ByteArrayOutputStream compresse = new ByteArrayOutputStream(html.length / 3 + 64);
+        FluxGzip gzip = new FluxGzip(compresse, pool);
+        try {
+            gzip.write(html, 0, html.length);
+            gzip.terminer();
+        } finally {
+            gzip.liberer();
+        }
+        byte[] variante = compresse.size() < html.length ? compresse.toByteArray() : null;
+        String etag = etag(html);
+        // ETag fort distinct par représentation (RFC 9110) : octets différents, validateurs différents
+        String etagGzip = variante != null ? etag.substring(0, etag.length() - 1) + "-gz\"" : null;
+        return new PageRendue(html, variante, etag, etagGzip, capture.getContentType(),
+            capture.getHeader(HttpHeaders.CONTENT_LANGUAGE), horloge.instant().plus(duree));
+    }
+
+    private void servir(HttpServletRequest request, HttpServletResponse response, PageRendue page) throws IOException {
+        boolean gzip = page.gzip() != null
+            && CompressionReponsesFilter.accepteGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.setHeader(HttpHeaders.ETAG, gzip ? page.etagGzip() : page.etag());
+        // Revalidation à chaque visite : la réponse 304 ne coûte ni rendu ni corps
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (correspond(ifNoneMatch, page.etag()) || (page.etagGzip() != null && correspond(ifNoneMatch, page.etagGzip()))) {
+            nonModifiees.increment();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(page.typeContenu());
+        if (page.langue() != null) {
+            response.setHeader(HttpHeaders.CONTENT_LANGUAGE, page.langue());
+        }
+        byte[] corps = page.html();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            corps = page.gzip();
+        }
+        response.setContentLength(corps.length);
+        response.getOutputStream().write(corps);
+    }
+
+    /**
+     * If-None-Match : comparaison faible (RFC 9110), liste d'ETags ou *
+     */
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidat : ifNoneMatch.split(",")) {
+            String valeur = candidat.trim();
+            if (valeur.startsWith("W/")) {
+                valeur = valeur.substring(2);
+            }
+            if (valeur.equals("*") || valeur.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(byte[] contenu) {
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(contenu);
+            return '"' + HexFormat.of().formatHex(empreinte, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int taille() { return pages.size(); }
+    public boolean isActif() { return actif; }
+    public long getSucces() { return succes.sum(); }
+    public long getAbsences() { return absences.sum(); }
+    public long getNonModifiees() { return nonModifiees.sum(); }
+    public long getContournements() { return contournements.sum(); }
+    public long getRendus() { return rendus.sum(); }
+
+    public double getDureeRendusSecondes() {
+        return dureeRendusNanos.sum() / 1e9;
+    }
+}
@@ -0,0 +1,120 @@
+package brokerx.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compression gzip des réponses dynamiques (pages, JSON, exports) au-delà d'un seuil
+ *
+ * - types listés seulement (brokerx.compression.types) : ni flux SSE, ni ressources /assets (précompressées)
+ * - sous le seuil, la réponse part telle quelle : l'en-tête et la fin gzip coûteraient plus qu'ils n'économisent
+ * - deflaters empruntés au pool (PoolDeflaters) au lieu d'être alloués à chaque réponse
+ * - réponses asynchrones (exports en flux, CompletableFuture) : terminées au dernier dispatch,
+ *   comme ShallowEtagHeaderFilter
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class CompressionReponsesFilter extends OncePerRequestFilter {
+
+    private final PoolDeflaters pool;
+    private final boolean actif;
+    private final int seuil;
+    private final Set<String> types;
+
+    private final LongAdder compressees = new LongAdder();
+    private final LongAdder octetsAvant = new LongAdder();
+    private final LongAdder octetsApres = new LongAdder();
+
+    public CompressionReponsesFilter(PoolDeflaters pool,
+                                     @Value("${brokerx.compression.actif:true}") boolean actif,
+                                     @Value("${brokerx.compression.seuil:1024}") int seuil,
+                                     @Value("${brokerx.compression.types:text/html,text/plain,text/csv,application/json,application/x-ndjson,application/problem+json}") Set<String> types) {
+        this.pool = pool;
+        this.actif = actif;
+        this.seuil = Math.max(seuil, 1);
+        this.types = Set.copyOf(types);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !actif || "HEAD".equals(request.getMethod()) || request.getRequestURI().startsWith("/assets/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReponseCompressee reponse = WebUtils.getNativeResponse(response, ReponseCompressee.class);
+        HttpServletResponse reponseUtilisee = response;
+        if (reponse == null) {
+            reponse = new ReponseCompressee(response, pool, types,
+                accepteGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)), seuil);
+            reponseUtilisee = reponse;
+        }
+        try {
+            chain.doFilter(request, reponseUtilisee);
+        } catch (IOException | ServletException | RuntimeException e) {
+            reponse.liberer();
+            throw e;
+        }
+        if (!isAsyncStarted(request)) {
+            long[] octets = reponse.terminer();
+            if (octets != null) {
+                compressees.increment();
+                octetsAvant.add(octets[0]);
+                octetsApres.add(octets[1]);
+            }
+        }
+    }
+
+    /**
+     * gzip accepté par le client (Accept-Encoding : gzip ou *, sans q=0)
+     */
+    static boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encodage : acceptEncoding.split(",")) {
+            String[] parties = encodage.split(";");
+            String nom = parties[0].trim();
+            if (nom.equalsIgnoreCase("gzip") || nom.equals("*")) {
+                for (int i = 1; i < parties.length; i++) {
+                    String parametre = parties[i].trim().replace(" ", "");
+                    if (parametre.startsWith("q=") && !poidsPositif(parametre.substring(2))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean poidsPositif(String poids) {
+        try {
+            return Double.parseDouble(poids) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public long getCompressees() { return compressees.sum(); }
+    public long getOctetsAvant() { return octetsAvant.sum(); }
+    public long getOctetsApres() { return octetsApres.sum(); }
+}
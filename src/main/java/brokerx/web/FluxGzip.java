@@ -0,0 +1,96 @@
+package brokerx.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Flux gzip (RFC 1952) sur un Deflater emprunté au pool
+ *
+ * GZIPOutputStream crée son propre Deflater et le détruit à la fermeture : impossible à réutiliser.
+ * flush() vide le deflater (SYNC_FLUSH) : ce qui est déjà écrit part vers le client (exports en flux).
+ * Le deflater est rendu au pool à terminer(), ou par liberer() si la réponse est abandonnée.
+ */
+final class FluxGzip extends OutputStream {
+
+    private static final byte[] EN_TETE = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream sortie;
+    private final PoolDeflaters pool;
+    private final CRC32 crc = new CRC32();
+    private final byte[] tampon = new byte[8192];
+    private Deflater deflater;
+    private long octetsLus;
+
+    FluxGzip(OutputStream sortie, PoolDeflaters pool) throws IOException {
+        this.sortie = sortie;
+        this.pool = pool;
+        this.deflater = pool.prendre();
+        sortie.write(EN_TETE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int debut, int longueur) throws IOException {
+        if (longueur == 0) {
+            return;
+        }
+        crc.update(b, debut, longueur);
+        octetsLus += longueur;
+        deflater.setInput(b, debut, longueur);
+        while (!deflater.needsInput()) {
+            vider(Deflater.NO_FLUSH);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        int produits;
+        do {
+            produits = vider(Deflater.SYNC_FLUSH);
+        } while (produits == tampon.length);
+        sortie.flush();
+    }
+
+    /**
+     * Termine le flux (fin deflate, CRC-32, taille) et rend le deflater au pool
+     */
+    void terminer() throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            vider(Deflater.NO_FLUSH);
+        }
+        long crc32 = crc.getValue();
+        byte[] fin = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            fin[i] = (byte) (crc32 >>> (8 * i));
+            fin[4 + i] = (byte) (octetsLus >>> (8 * i));
+        }
+        sortie.write(fin);
+        liberer();
+    }
+
+    void liberer() {
+        if (deflater != null) {
+            pool.rendre(deflater);
+            deflater = null;
+        }
+    }
+
+    long getOctetsLus() {
+        return octetsLus;
+    }
+
+    private int vider(int mode) throws IOException {
+        int produits = deflater.deflate(tampon, 0, tampon.length, mode);
+        if (produits > 0) {
+            sortie.write(tampon, 0, produits);
+        }
+        return produits;
+    }
+}
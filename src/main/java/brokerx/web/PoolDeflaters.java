@@ -0,0 +1,58 @@
+package brokerx.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Deflaters réutilisés entre réponses compressées
+ *
+ * Un Deflater alloue ses tampons zlib hors tas (environ 256 Ko au niveau 6) et ne les libère qu'à end() :
+ * en créer un par réponse coûte l'allocation et son nettoyage. Le pool en garde au plus deflaters-max,
+ * remis à zéro (reset) à la restitution; au-delà, les deflaters empruntés en surplus sont détruits.
+ * Flux deflate brut (nowrap) : l'en-tête et la fin gzip sont écrits par FluxGzip.
+ */
+@Component
+public class PoolDeflaters {
+
+    private final ArrayBlockingQueue<Deflater> libres;
+    private final int niveau;
+
+    private final LongAdder crees = new LongAdder();
+    private final LongAdder reutilises = new LongAdder();
+    private final LongAdder detruits = new LongAdder();
+
+    public PoolDeflaters(@Value("${brokerx.compression.niveau:6}") int niveau,
+                         @Value("${brokerx.compression.deflaters-max:64}") int deflatersMax) {
+        if (niveau < Deflater.BEST_SPEED || niveau > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Le niveau de compression doit être compris entre 1 et 9");
+        }
+        this.niveau = niveau;
+        this.libres = new ArrayBlockingQueue<>(Math.max(deflatersMax, 1));
+    }
+
+    public Deflater prendre() {
+        Deflater deflater = libres.poll();
+        if (deflater != null) {
+            reutilises.increment();
+            return deflater;
+        }
+        crees.increment();
+        return new Deflater(niveau, true);
+    }
+
+    public void rendre(Deflater deflater) {
+        deflater.reset();
+        if (!libres.offer(deflater)) {
+            deflater.end();
+            detruits.increment();
+        }
+    }
+
+    public int getLibres() { return libres.size(); }
+    public long getCrees() { return crees.sum(); }
+    public long getReutilises() { return reutilises.sum(); }
+    public long getDetruits() { return detruits.sum(); }
+}
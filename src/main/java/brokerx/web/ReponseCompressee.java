@@ -0,0 +1,332 @@
+package brokerx.web;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Réponse compressée en gzip dès que son corps dépasse le seuil (CompressionReponsesFilter)
+ *
+ * Décision au premier octet écrit, quand le type de contenu est connu :
+ * - déjà encodée, sans corps (204, 304) ou type non compressible (flux SSE, images) : écrite telle quelle
+ * - sinon corps retenu jusqu'au seuil : une petite réponse part non compressée avec sa longueur,
+ *   au-delà l'en-tête Content-Encoding est posé et la suite est compressée au fil de l'eau
+ * La longueur annoncée par l'application est retenue jusqu'à la décision (fausse une fois compressée).
+ * Écriture non bloquante (WriteListener) possible une fois la réponse écrite telle quelle : le flux
+ * délègue alors au conteneur.
+ */
+final class ReponseCompressee extends HttpServletResponseWrapper {
+
+    private enum Etat { INDECIS, TAMPON, COMPRESSE, DIRECT }
+
+    private final HttpServletResponse reponse;
+    private final PoolDeflaters pool;
+    private final Set<String> typesCompressibles;
+    private final boolean accepteGzip;
+    private final int seuil;
+
+    private Etat etat = Etat.INDECIS;
+    private byte[] tampon;
+    private int taille;
+    private long longueurAnnoncee = -1;
+    private FluxGzip gzip;
+    private CompteurOctets envoyes;
+    private ServletOutputStream flux;
+    private PrintWriter ecrivain;
+
+    ReponseCompressee(HttpServletResponse reponse, PoolDeflaters pool, Set<String> typesCompressibles,
+                      boolean accepteGzip, int seuil) {
+        super(reponse);
+        this.reponse = reponse;
+        this.pool = pool;
+        this.typesCompressibles = typesCompressibles;
+        this.accepteGzip = accepteGzip;
+        this.seuil = seuil;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (ecrivain != null) {
+            throw new IllegalStateException("getWriter() a déjà été appelé pour cette réponse");
+        }
+        if (flux == null) {
+            flux = new Flux();
+        }
+        return flux;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (ecrivain == null) {
+            if (flux != null) {
+                throw new IllegalStateException("getOutputStream() a déjà été appelé pour cette réponse");
+            }
+            flux = new Flux();
+            ecrivain = new PrintWriter(new OutputStreamWriter(flux, getCharacterEncoding()));
+        }
+        return ecrivain;
+    }
+
+    @Override
+    public void setContentLength(int longueur) {
+        setContentLengthLong(longueur);
+    }
+
+    @Override
+    public void setContentLengthLong(long longueur) {
+        if (etat == Etat.DIRECT) {
+            super.setContentLengthLong(longueur);
+        } else {
+            longueurAnnoncee = longueur;
+        }
+    }
+
+    @Override
+    public void setHeader(String nom, String valeur) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(nom) && etat != Etat.DIRECT) {
+            longueurAnnoncee = valeur != null ? Long.parseLong(valeur) : -1;
+        } else {
+            super.setHeader(nom, valeur);
+        }
+    }
+
+    @Override
+    public void addHeader(String nom, String valeur) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(nom) && etat != Etat.DIRECT) {
+            longueurAnnoncee = Long.parseLong(valeur);
+        } else {
+            super.addHeader(nom, valeur);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String nom, int valeur) {
+        setHeader(nom, String.valueOf(valeur));
+    }
+
+    @Override
+    public void addIntHeader(String nom, int valeur) {
+        addHeader(nom, String.valueOf(valeur));
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (ecrivain != null) {
+            // Le PrintWriter vide son encodeur puis le flux (envoyer)
+            ecrivain.flush();
+        } else {
+            envoyer();
+        }
+    }
+
+    /**
+     * Envoie ce qui est déjà écrit : décision prise si besoin, bloc gzip vidé (SYNC_FLUSH)
+     */
+    private void envoyer() throws IOException {
+        if (etat == Etat.INDECIS) {
+            decider();
+        }
+        switch (etat) {
+            case COMPRESSE -> gzip.flush();
+            case DIRECT -> super.flushBuffer();
+            // Corps retenu sous le seuil : rien n'est encore parti
+            default -> { }
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (etat == Etat.INDECIS || etat == Etat.TAMPON) {
+            taille = 0;
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (etat == Etat.COMPRESSE) {
+            throw new IllegalStateException("Réponse déjà partiellement compressée");
+        }
+        super.reset();
+        etat = Etat.INDECIS;
+        taille = 0;
+        longueurAnnoncee = -1;
+    }
+
+    /**
+     * Fin de la réponse : corps retenu envoyé (non compressé) ou flux gzip terminé
+     * @return octets avant et après compression, null si la réponse n'a pas été compressée
+     */
+    long[] terminer() throws IOException {
+        if (ecrivain != null) {
+            ecrivain.flush();
+        }
+        switch (etat) {
+            case TAMPON -> {
+                reponse.setContentLengthLong(longueurAnnoncee >= 0 ? longueurAnnoncee : taille);
+                reponse.getOutputStream().write(tampon, 0, taille);
+            }
+            case COMPRESSE -> {
+                gzip.terminer();
+                return new long[] {gzip.getOctetsLus(), envoyes.octets};
+            }
+            case INDECIS -> {
+                // Rien d'écrit (redirection, erreur traitée par le conteneur, corps vide)
+                if (longueurAnnoncee >= 0) {
+                    reponse.setContentLengthLong(longueurAnnoncee);
+                }
+            }
+            default -> { }
+        }
+        return null;
+    }
+
+    /**
+     * Réponse abandonnée sur exception : le deflater emprunté retourne au pool
+     */
+    void liberer() {
+        if (gzip != null) {
+            gzip.liberer();
+        }
+    }
+
+    private void decider() {
+        String type = getContentType();
+        String nature = type == null ? null : type.split(";", 2)[0].trim().toLowerCase();
+        int statut = getStatus();
+        boolean compressible = nature != null && typesCompressibles.contains(nature)
+            && statut != SC_NO_CONTENT && statut != SC_NOT_MODIFIED && statut >= 200
+            && getHeader(HttpHeaders.CONTENT_ENCODING) == null;
+        if (compressible && !getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING)) {
+            // La représentation dépend de Accept-Encoding, même quand elle part non compressée
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (compressible && accepteGzip) {
+            etat = Etat.TAMPON;
+            tampon = new byte[Math.min(seuil, 8192)];
+        } else {
+            etat = Etat.DIRECT;
+            if (longueurAnnoncee >= 0) {
+                super.setContentLengthLong(longueurAnnoncee);
+            }
+        }
+    }
+
+    private void ecrire(byte[] b, int debut, int longueur) throws IOException {
+        if (etat == Etat.INDECIS) {
+            decider();
+        }
+        switch (etat) {
+            case DIRECT -> reponse.getOutputStream().write(b, debut, longueur);
+            case COMPRESSE -> gzip.write(b, debut, longueur);
+            case TAMPON -> {
+                if (taille + longueur < seuil) {
+                    if (taille + longueur > tampon.length) {
+                        tampon = Arrays.copyOf(tampon, Math.min(seuil, Math.max(taille + longueur, tampon.length * 2)));
+                    }
+                    System.arraycopy(b, debut, tampon, taille, longueur);
+                    taille += longueur;
+                } else {
+                    commencerCompression();
+                    gzip.write(tampon, 0, taille);
+                    gzip.write(b, debut, longueur);
+                    tampon = null;
+                    taille = 0;
+                }
+            }
+            default -> throw new IllegalStateException(etat.name());
+        }
+    }
+
+    private void commencerCompression() throws IOException {
+        super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        envoyes = new CompteurOctets(reponse.getOutputStream());
+        gzip = new FluxGzip(envoyes, pool);
+        etat = Etat.COMPRESSE;
+    }
+
+    private final class Flux extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            ecrire(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int debut, int longueur) throws IOException {
+            ecrire(b, debut, longueur);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            envoyer();
+        }
+
+        @Override
+        public boolean isReady() {
+            if (etat == Etat.DIRECT) {
+                return sortie().isReady();
+            }
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener ecouteur) {
+            if (etat == Etat.INDECIS) {
+                decider();
+            }
+            if (etat != Etat.DIRECT) {
+                // Corps retenu ou compressé : les écritures restent bloquantes
+                throw new IllegalStateException("Écriture non bloquante impossible sur une réponse compressée");
+            }
+            sortie().setWriteListener(ecouteur);
+        }
+
+        private ServletOutputStream sortie() {
+            try {
+                return reponse.getOutputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Octets réellement envoyés (après compression), pour les métriques
+     */
+    private static final class CompteurOctets extends OutputStream {
+
+        private final OutputStream sortie;
+        private long octets;
+
+        CompteurOctets(OutputStream sortie) {
+            this.sortie = sortie;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            sortie.write(b);
+            octets++;
+        }
+
+        @Override
+        public void write(byte[] b, int debut, int longueur) throws IOException {
+            sortie.write(b, debut, longueur);
+            octets += longueur;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            sortie.flush();
+        }
+    }
+}
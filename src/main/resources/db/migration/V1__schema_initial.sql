@@ -0,0 +1,56 @@
+-- Schéma initial BrokerX : clients (CU01/CU02), comptes de courtage et ordres (UC-05)
+-- SQL commun à H2 et PostgreSQL. "if not exists" : une base créée auparavant par Hibernate
+-- (ddl-auto=update) est reprise telle quelle (spring.flyway.baseline-version=0). Les contraintes
+-- d'unicité sont donc des index uniques nommés créés à part : "create table if not exists" ne les
+-- ajouterait pas à une table existante
+
+create table if not exists clients (
+    id bigint generated by default as identity primary key,
+    prenom varchar(255) not null,
+    nom varchar(255) not null,
+    email varchar(255) not null,
+    telephone varchar(255),
+    date_naissance date not null,
+    adresse varchar(255) not null,
+    mot_de_passe varchar(255) not null,
+    email_verifie boolean not null default false,
+    telephone_verifie boolean not null default false,
+    date_inscription timestamp(6),
+    status_inscription varchar(20),
+    version bigint default 0 not null
+);
+
+-- Bases antérieures aux transitions conditionnelles de statut
+alter table clients add column if not exists version bigint default 0 not null;
+
+-- Nommés : l'inscription s'appuie sur eux pour détecter les doublons (Client.CONTRAINTE_*)
+create unique index if not exists uk_clients_email on clients (email);
+create unique index if not exists uk_clients_telephone on clients (telephone);
+
+create table if not exists comptes_courtage (
+    id bigint generated by default as identity primary key,
+    client_id bigint not null,
+    solde_centimes bigint not null,
+    reserve_centimes bigint not null,
+    devise varchar(3) not null,
+    date_mise_a_jour timestamp(6)
+);
+
+create unique index if not exists uk_comptes_courtage_client on comptes_courtage (client_id);
+
+create table if not exists ordres (
+    id bigint generated by default as identity primary key,
+    client_id bigint not null,
+    client_order_id varchar(64) not null,
+    symbole varchar(12) not null,
+    sens varchar(8) not null,
+    type varchar(8) not null,
+    quantite bigint not null,
+    prix_limite numeric(19, 4),
+    quantite_executee bigint not null,
+    statut varchar(10) not null,
+    horodatage_utc timestamp(6) not null
+);
+
+-- Idempotence : un ClientOrderId n'est accepté qu'une fois par client
+create unique index if not exists uk_ordres_client_order_id on ordres (client_id, client_order_id);
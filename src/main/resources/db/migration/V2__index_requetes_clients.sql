@@ -0,0 +1,9 @@
+-- Index des requêtes fréquentes sur les clients
+-- email et téléphone (unicité, existence, conflits d'inscription) : index des contraintes uk_clients_*
+
+-- Liste des clients (CU02) : pagination par clé, du plus récent au plus ancien.
+-- Index dans l'ordre de la liste : H2 ne sait pas parcourir un index ascendant à rebours pour trier
+create index if not exists idx_clients_date_inscription on clients (date_inscription desc, id desc);
+
+-- Liste filtrée par statut, expiration des inscriptions PENDING anciennes et comptage par statut
+create index if not exists idx_clients_statut_date on clients (status_inscription, date_inscription desc, id desc);
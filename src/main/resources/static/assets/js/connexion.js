@@ -0,0 +1,7 @@
+document.getElementById('connexionForm').addEventListener('submit', function(e) {
+    e.preventDefault();
+
+    alert('🚧 Fonctionnalité en développement\n\n' +
+          'La connexion sera implémentée prochainement.\n' +
+          'Pour l\'instant, vous pouvez tester l\'inscription UC-01 qui est pleinement fonctionnelle !');
+});
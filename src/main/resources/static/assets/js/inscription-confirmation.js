@@ -0,0 +1,24 @@
+// Vérifier le sessionId au chargement de la page
+document.addEventListener('DOMContentLoaded', function() {
+    const sessionId = new URLSearchParams(window.location.search).get('sessionId');
+    console.log('📋 SessionId trouvé dans URL:', sessionId);
+
+    // Vérifier que le bouton a le bon lien
+    const btn = document.querySelector('a[href*="verification-email"]');
+    if (btn) {
+        console.log('🔗 Lien du bouton:', btn.href);
+    }
+});
+
+// Auto-redirect vers la page de vérification après 30 secondes
+setTimeout(function() {
+    const sessionId = new URLSearchParams(window.location.search).get('sessionId');
+    if (sessionId) {
+        console.log('Redirection automatique vers la vérification...');
+        // Optionnel: décommenter pour redirection auto
+        // window.location.href = '/verification-email?sessionId=' + sessionId;
+    }
+}, 30000);
+
+// Message de confirmation au chargement
+console.log('📧 Email de vérification envoyé ! Vérifiez votre boîte de réception.');
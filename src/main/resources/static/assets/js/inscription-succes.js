@@ -0,0 +1,38 @@
+// Animation de confettis
+function createConfetti() {
+    const colors = ['#4CAF50', '#45a049', '#66BB6A', '#81C784', '#A5D6A7'];
+
+    for (let i = 0; i < 50; i++) {
+        const confetti = document.createElement('div');
+        confetti.className = 'confetti';
+        confetti.style.left = Math.random() * 100 + 'vw';
+        confetti.style.backgroundColor = colors[Math.floor(Math.random() * colors.length)];
+        confetti.style.animationDelay = Math.random() * 3 + 's';
+        confetti.style.animationDuration = (Math.random() * 3 + 2) + 's';
+        document.body.appendChild(confetti);
+
+        // Supprimer le confetti après l'animation
+        setTimeout(() => {
+            confetti.remove();
+        }, 5000);
+    }
+}
+
+// Démarrer l'animation de confettis au chargement
+window.addEventListener('load', () => {
+    setTimeout(createConfetti, 500);
+});
+
+// Message de bienvenue dans la console
+console.log(`
+🎉 Bienvenue sur BrokerX ! 🎉
+
+Votre inscription UC-01 a été complétée avec succès.
+Toutes les étapes de sécurité ont été validées :
+✅ Validation des données personnelles
+✅ Vérification de l'adresse email
+✅ Authentification à double facteur (2FA)
+✅ Confirmation par code OTP SMS
+
+Votre compte est maintenant actif et sécurisé.
+`);
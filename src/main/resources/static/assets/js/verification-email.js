@@ -0,0 +1,71 @@
+// Récupération du sessionId depuis l'URL
+const urlParams = new URLSearchParams(window.location.search);
+const sessionId = urlParams.get('sessionId');
+
+console.log('📋 SessionId trouvé dans verification-email:', sessionId);
+
+if (!sessionId) {
+    console.log('❌ Aucun sessionId trouvé, redirection vers inscription');
+    // Redirection si pas de sessionId
+    window.location.href = '/inscription';
+}
+
+// Le formulaire utilise maintenant la soumission Spring standard - pas de JavaScript complexe nécessaire
+
+// Gestion du bouton "Renvoyer l'email"
+document.getElementById('resendBtn').addEventListener('click', function() {
+    showLoading(true);
+    hideMessages();
+
+    fetch('/api/resend-email', {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/x-www-form-urlencoded',
+        },
+        body: `email=${encodeURIComponent(email)}`
+    })
+    .then(response => response.json())
+    .then(data => {
+        showLoading(false);
+
+        if (data.success) {
+            showSuccess('Email de vérification renvoyé avec succès');
+        } else {
+            showError(data.message);
+        }
+    })
+    .catch(error => {
+        showLoading(false);
+        console.error('Erreur:', error);
+        showError('Une erreur est survenue lors du renvoi de l\'email');
+    });
+});
+
+// Vérification automatique si le token est présent dans l'URL (lien email)
+const token = urlParams.get('token');
+if (token) {
+    document.getElementById('tokenInput').value = token;
+    document.getElementById('verificationForm').dispatchEvent(new Event('submit'));
+}
+
+// Fonctions utilitaires
+function showError(message) {
+    const errorDiv = document.getElementById('errorMessage');
+    errorDiv.textContent = message;
+    errorDiv.style.display = 'block';
+}
+
+function showSuccess(message) {
+    const successDiv = document.getElementById('successMessage');
+    successDiv.textContent = message;
+    successDiv.style.display = 'block';
+}
+
+function showLoading(show) {
+    document.getElementById('loadingIndicator').style.display = show ? 'block' : 'none';
+}
+
+function hideMessages() {
+    document.getElementById('errorMessage').style.display = 'none';
+    document.getElementById('successMessage').style.display = 'none';
+}
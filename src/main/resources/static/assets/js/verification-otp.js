@@ -0,0 +1,213 @@
+// Récupération de l'email depuis l'URL
+const urlParams = new URLSearchParams(window.location.search);
+const email = urlParams.get('email');
+
+if (!email) {
+    window.location.href = '/';
+}
+
+// Variables pour le countdown
+let countdownInterval;
+let remainingTime = 300; // 5 minutes en secondes
+let attemptCount = 0;
+const maxAttempts = 3;
+
+// Initialisation du countdown
+startCountdown();
+
+// Gestion des inputs OTP
+const otpInputs = document.querySelectorAll('.otp-input');
+otpInputs.forEach((input, index) => {
+    input.addEventListener('input', function() {
+        // Ne garder que les chiffres
+        this.value = this.value.replace(/[^0-9]/g, '');
+
+        // Passer au champ suivant si rempli
+        if (this.value && index < otpInputs.length - 1) {
+            otpInputs[index + 1].focus();
+        }
+
+        // Activer/désactiver le bouton de vérification
+        updateVerifyButton();
+    });
+
+    input.addEventListener('keydown', function(e) {
+        // Revenir au champ précédent avec Backspace
+        if (e.key === 'Backspace' && !this.value && index > 0) {
+            otpInputs[index - 1].focus();
+        }
+    });
+
+    // Permettre de coller un code complet
+    input.addEventListener('paste', function(e) {
+        e.preventDefault();
+        const pastedText = (e.clipboardData || window.clipboardData).getData('text');
+        const digits = pastedText.replace(/[^0-9]/g, '').substring(0, 6);
+
+        for (let i = 0; i < digits.length && i < otpInputs.length; i++) {
+            otpInputs[i].value = digits[i];
+        }
+
+        updateVerifyButton();
+    });
+});
+
+// Gestion du formulaire OTP
+document.getElementById('otpForm').addEventListener('submit', function(e) {
+    e.preventDefault();
+
+    const otp = Array.from(otpInputs).map(input => input.value).join('');
+
+    if (otp.length !== 6) {
+        showError('Veuillez saisir le code complet à 6 chiffres');
+        return;
+    }
+
+    if (attemptCount >= maxAttempts) {
+        showError('Nombre maximum de tentatives atteint. Veuillez demander un nouveau code.');
+        return;
+    }
+
+    attemptCount++;
+    showLoading(true);
+    hideMessages();
+
+    // Appel API pour vérifier l'OTP
+    fetch('/api/verify-otp', {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/x-www-form-urlencoded',
+        },
+        body: `email=${encodeURIComponent(email)}&otp=${encodeURIComponent(otp)}`
+    })
+    .then(response => response.json())
+    .then(data => {
+        showLoading(false);
+
+        if (data.success) {
+            clearInterval(countdownInterval);
+            showSuccess('🎉 ' + data.message);
+            setTimeout(() => {
+                window.location.href = '/inscription/succes';
+            }, 2000);
+        } else {
+            showError(`${data.message} (Tentative ${attemptCount}/${maxAttempts})`);
+
+            if (attemptCount >= maxAttempts) {
+                document.getElementById('verifyBtn').disabled = true;
+                showError('Nombre maximum de tentatives atteint. Demandez un nouveau code.');
+            }
+
+            // Vider les champs en cas d'erreur
+            otpInputs.forEach(input => input.value = '');
+            otpInputs[0].focus();
+            updateVerifyButton();
+        }
+    })
+    .catch(error => {
+        showLoading(false);
+        console.error('Erreur:', error);
+        showError('Une erreur est survenue lors de la vérification');
+    });
+});
+
+// Gestion du bouton "Renvoyer le code"
+document.getElementById('resendBtn').addEventListener('click', function() {
+    showLoading(true);
+    hideMessages();
+
+    fetch('/api/resend-otp', {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/x-www-form-urlencoded',
+        },
+        body: `email=${encodeURIComponent(email)}`
+    })
+    .then(response => response.json())
+    .then(data => {
+        showLoading(false);
+
+        if (data.success) {
+            showSuccess('Nouveau code SMS envoyé avec succès');
+
+            // Réinitialiser le countdown et les tentatives
+            remainingTime = 300;
+            attemptCount = 0;
+            startCountdown();
+
+            // Réactiver le bouton de vérification
+            document.getElementById('verifyBtn').disabled = false;
+
+            // Vider les champs
+            otpInputs.forEach(input => input.value = '');
+            otpInputs[0].focus();
+            updateVerifyButton();
+        } else {
+            showError(data.message);
+        }
+    })
+    .catch(error => {
+        showLoading(false);
+        console.error('Erreur:', error);
+        showError('Une erreur est survenue lors du renvoi du code');
+    });
+});
+
+// Fonctions utilitaires
+function startCountdown() {
+    const countdownElement = document.getElementById('countdown');
+    const resendBtn = document.getElementById('resendBtn');
+
+    countdownInterval = setInterval(() => {
+        const minutes = Math.floor(remainingTime / 60);
+        const seconds = remainingTime % 60;
+
+        countdownElement.textContent = `Code valide encore ${minutes}:${seconds.toString().padStart(2, '0')}`;
+
+        if (remainingTime <= 0) {
+            clearInterval(countdownInterval);
+            countdownElement.textContent = 'Code expiré - Demandez un nouveau code';
+            resendBtn.disabled = false;
+            document.getElementById('verifyBtn').disabled = true;
+        } else {
+            resendBtn.disabled = remainingTime > 30; // Permettre de renvoyer après 30 secondes
+        }
+
+        remainingTime--;
+    }, 1000);
+}
+
+function updateVerifyButton() {
+    const otp = Array.from(otpInputs).map(input => input.value).join('');
+    const verifyBtn = document.getElementById('verifyBtn');
+
+    if (remainingTime <= 0 || attemptCount >= maxAttempts) {
+        verifyBtn.disabled = true;
+    } else {
+        verifyBtn.disabled = otp.length !== 6;
+    }
+}
+
+function showError(message) {
+    const errorDiv = document.getElementById('errorMessage');
+    errorDiv.textContent = message;
+    errorDiv.style.display = 'block';
+}
+
+function showSuccess(message) {
+    const successDiv = document.getElementById('successMessage');
+    successDiv.textContent = message;
+    successDiv.style.display = 'block';
+}
+
+function showLoading(show) {
+    document.getElementById('loadingIndicator').style.display = show ? 'block' : 'none';
+}
+
+function hideMessages() {
+    document.getElementById('errorMessage').style.display = 'none';
+    document.getElementById('successMessage').style.display = 'none';
+}
+
+// Focus sur le premier champ au chargement
+otpInputs[0].focus();
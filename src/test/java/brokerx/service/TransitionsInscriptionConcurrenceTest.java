@@ -0,0 +1,125 @@
+package brokerx.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aucune vérification perdue quand l'email et le téléphone d'un même client sont vérifiés au même
+ * instant (assertions de TransitionsConcurrentes, qui reste l'outil de mesure à grande échelle)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TransitionsInscriptionConcurrenceTest {
+
+    private static final int CLIENTS = 200;
+    private static final int REPETITIONS = 2;
+
+    private static final String INSERTION = "insert into clients (prenom, nom, email, telephone, date_naissance, adresse, "
+        + "mot_de_passe, email_verifie, telephone_verifie, date_inscription, status_inscription, version) "
+        + "values ('Test', 'Concurrence', ?, ?, ?, '1 rue des Essais, Montréal', 'x', false, false, ?, 'PENDING', 0)";
+
+    private static final Path REPERTOIRE = repertoireTemporaire();
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ClientService clients;
+
+    @Autowired
+    private CompteursStatuts compteurs;
+
+    @DynamicPropertySource
+    static void proprietes(DynamicPropertyRegistry registre) {
+        registre.add("spring.datasource.url", () -> "jdbc:h2:file:" + REPERTOIRE.resolve("brokerx").toAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE");
+        registre.add("brokerx.audit.repertoire", () -> REPERTOIRE.resolve("audit").toAbsolutePath().toString());
+        registre.add("brokerx.journal-ordres.repertoire", () -> REPERTOIRE.resolve("ordres").toAbsolutePath().toString());
+        registre.add("brokerx.evenements.niveau", () -> "WARN");
+        registre.add("brokerx.expiration.actif", () -> "false");
+    }
+
+    @Test
+    void verificationsSimultaneesEmailEtTelephoneNeSePerdentPas() throws InterruptedException {
+        List<Object[]> lignes = new ArrayList<>(CLIENTS);
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < CLIENTS; i++) {
+            lignes.add(new Object[] {email(i), String.format("5%09d", i), Date.valueOf(LocalDate.of(1990, 1, 1)), maintenant});
+        }
+        jdbc.batchUpdate(INSERTION, lignes);
+        compteurs.resynchroniser();
+
+        AtomicLong erreurs = new AtomicLong();
+        CountDownLatch fin = new CountDownLatch(CLIENTS * 2);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                String email = email(i);
+                CyclicBarrier depart = new CyclicBarrier(2);
+                threads.execute(() -> executer(depart, fin, erreurs, () -> clients.activerCompteAvecAudit(email, "123456")));
+                threads.execute(() -> executer(depart, fin, erreurs, () -> clients.marquerTelephoneVerifie(email)));
+            }
+            assertTrue(fin.await(2, TimeUnit.MINUTES), "Vérifications non terminées");
+        }
+
+        assertEquals(0, erreurs.get(), "vérifications en échec");
+        assertEquals(0, jdbc.queryForObject(
+            "select count(*) from clients where not (email_verifie and telephone_verifie)", Integer.class),
+            "vérifications perdues");
+        assertEquals(0, jdbc.queryForObject(
+            "select count(*) from clients where status_inscription not in ('ACTIVE', 'COMPLETE') or version = 0",
+            Integer.class), "statuts inattendus");
+        for (Map<String, Object> ligne : jdbc.queryForList(
+                "select status_inscription as statut, count(*) as nombre from clients group by status_inscription")) {
+            String statut = String.valueOf(ligne.get("statut"));
+            assertEquals(((Number) ligne.get("nombre")).longValue(), compteurs.nombre(statut), "compteur " + statut);
+        }
+    }
+
+    private static void executer(CyclicBarrier depart, CountDownLatch fin, AtomicLong erreurs, Runnable verification) {
+        try {
+            depart.await();
+            for (int r = 0; r < REPETITIONS; r++) {
+                verification.run();
+            }
+        } catch (Exception e) {
+            erreurs.incrementAndGet();
+        } finally {
+            fin.countDown();
+        }
+    }
+
+    private static String email(int i) {
+        return "concurrence" + i + "@brokerx.test";
+    }
+
+    private static Path repertoireTemporaire() {
+        try {
+            return Files.createTempDirectory("brokerx-transitions");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package brokerx.service.comptes;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aucune sur-réservation du registre des soldes sous contention (assertions de ContentionPouvoirAchat,
+ * qui reste l'outil de mesure : débit, latence des refus)
+ */
+class RegistreSoldesConcurrenceTest {
+
+    private static final long SOLDE_INITIAL = 1_000_000_000;
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int COMPTES = 2;
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    void reservationsConcurrentesNeDepassentJamaisLeSolde() throws InterruptedException {
+        RegistreSoldes registre = new RegistreSoldes(clientId -> SOLDE_INITIAL, 0);
+        SoldeCompte[] comptes = new SoldeCompte[COMPTES];
+        for (int i = 0; i < COMPTES; i++) {
+            comptes[i] = registre.compte(i);
+        }
+        AtomicLong negatifsObserves = new AtomicLong();
+        AtomicLong refus = new AtomicLong();
+        AtomicLong erreurs = new AtomicLong();
+
+        CountDownLatch depart = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom hasard = ThreadLocalRandom.current();
+                try {
+                    depart.await();
+                    for (int i = 0; i < OPERATIONS / THREADS; i++) {
+                        SoldeCompte compte = comptes[hasard.nextInt(COMPTES)];
+                        // Jusqu'à la moitié du solde initial par réservation : la demande dépasse l'offre
+                        long montant = 1 + hasard.nextLong(SOLDE_INITIAL / 2);
+                        if (!registre.reserver(compte, montant)) {
+                            refus.incrementAndGet();
+                            continue;
+                        }
+                        if (compte.getDisponibleCentimes() < 0) {
+                            negatifsObserves.incrementAndGet();
+                        }
+                        if (hasard.nextBoolean()) {
+                            // Achat réglé puis revendu au même prix : le compte ne s'épuise pas
+                            long cout = hasard.nextLong(montant + 1);
+                            registre.reglerAchat(compte, montant, cout);
+                            registre.crediter(compte, cout);
+                        } else {
+                            registre.liberer(compte, montant);
+                        }
+                    }
+                } catch (RuntimeException | InterruptedException e) {
+                    erreurs.incrementAndGet();
+                } finally {
+                    fin.countDown();
+                }
+            }, "contention-" + t).start();
+        }
+        depart.countDown();
+        assertTrue(fin.await(2, TimeUnit.MINUTES), "Threads de contention non terminés");
+
+        assertEquals(0, erreurs.get(), "erreurs");
+        assertEquals(0, negatifsObserves.get(), "disponibles négatifs observés");
+        assertTrue(refus.get() > 0, "la demande doit dépasser l'offre (refus attendus)");
+        for (int i = 0; i < COMPTES; i++) {
+            SoldeCompte compte = comptes[i];
+            assertEquals(0, compte.getReserveCentimes(), "réservé du compte " + i);
+            assertEquals(SOLDE_INITIAL, compte.getDisponibleCentimes(), "disponible du compte " + i);
+            assertEquals(SOLDE_INITIAL, compte.getEspecesCentimes(), "espèces du compte " + i);
+        }
+    }
+}
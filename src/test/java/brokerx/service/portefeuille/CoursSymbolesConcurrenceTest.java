@@ -0,0 +1,68 @@
+package brokerx.service.portefeuille;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aucun cours perdu quand le tableau des cours s'agrandit pendant que les carnets cotent
+ */
+class CoursSymbolesConcurrenceTest {
+
+    private static final int ECRIVAINS = 4;
+    private static final int TOURS = 50;
+    private static final int SYMBOLES = 4096;
+
+    @Test
+    void coursEcritPendantUnAgrandissementEstConserve() throws InterruptedException {
+        for (int tour = 0; tour < TOURS; tour++) {
+            CoursSymboles cours = new CoursSymboles();
+            int[] ids = new int[ECRIVAINS];
+            for (int e = 0; e < ECRIVAINS; e++) {
+                ids[e] = cours.identifiant("ECR" + e);
+            }
+            long[] derniers = new long[ECRIVAINS];
+            AtomicBoolean agrandissementTermine = new AtomicBoolean();
+            AtomicLong erreurs = new AtomicLong();
+
+            CountDownLatch depart = new CountDownLatch(1);
+            CountDownLatch fin = new CountDownLatch(ECRIVAINS);
+            for (int e = 0; e < ECRIVAINS; e++) {
+                int ecrivain = e;
+                // Un écrivain par symbole, comme sous le verrou de son carnet
+                new Thread(() -> {
+                    try {
+                        depart.await();
+                        long prix = 0;
+                        while (!agrandissementTermine.get()) {
+                            cours.coter(ids[ecrivain], ++prix);
+                        }
+                        cours.coter(ids[ecrivain], ++prix);
+                        derniers[ecrivain] = prix;
+                    } catch (RuntimeException | InterruptedException ex) {
+                        erreurs.incrementAndGet();
+                    } finally {
+                        fin.countDown();
+                    }
+                }, "cotation-" + e).start();
+            }
+            depart.countDown();
+            // Nouveaux symboles : le tableau des cours double plusieurs fois pendant les cotations
+            for (int s = 0; s < SYMBOLES; s++) {
+                cours.identifiant("SYM" + s);
+            }
+            agrandissementTermine.set(true);
+            assertTrue(fin.await(1, TimeUnit.MINUTES), "Threads de cotation non terminés");
+
+            assertEquals(0, erreurs.get(), "erreurs");
+            for (int e = 0; e < ECRIVAINS; e++) {
+                assertEquals(derniers[e], cours.cours(ids[e]), "dernier cours de l'écrivain " + e + " (tour " + tour + ")");
+            }
+        }
+    }
+}